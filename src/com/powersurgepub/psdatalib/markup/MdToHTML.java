@@ -43,7 +43,7 @@ public class MdToHTML {
   
    @return A standard, shared instance. 
   */
-  public static MdToHTML getShared() {
+  public static synchronized MdToHTML getShared() {
     if (mdToHTML == null) {
       mdToHTML = new MdToHTML();
     }
@@ -105,6 +105,16 @@ public class Note
   private DataField           bodyField;
   private boolean             bodyAdded = false;
   
+  /*
+   The sort key is cached, since it is needed for every comparison made
+   while sorting and searching the note list. It is rebuilt when the sort 
+   parameter or the title changes, and is cleared whenever the seq, 
+   status or date is set. 
+  */
+  private String              sortKey = null;
+  private int                 sortKeyParm = -1;
+  private String              sortKeyTitle = null;
+  
   public static final String    UP_ONE_FOLDER   = "../";
   
   private    SimpleDateFormat   dateFormat 
@@ -335,13 +345,54 @@ public class Note
         && getUniqueKey().length() > 0);
   }
   
+  /**
+   Return the note's unique key, derived from its title. The Title value
+   computes this once, when the title is set. 
+  
+   @return The title in lower case, with punctuation removed and white space
+           converted to hyphens. 
+  */
   public String getUniqueKey() {
     return titleValue.getLowerHyphens();
   }
   
+  /**
+   Return the key used to sort this note, building it only if the sort
+   parameter, the title, the seq, the status or the date has changed since
+   it was last built. 
+  
+   @param parm The sort parameter in effect. 
+  
+   @return The key on which to sort this note. 
+  */
   public String getSortKey (NoteSortParm parm) {
+    int parmValue = parm.getParm();
+    String title = titleValue.getLowerHyphens();
+    // The title value creates a new lower hyphens string each time it is
+    // set, so an identity comparison is enough to detect a change
+    if (sortKey == null
+        || sortKeyParm != parmValue
+        || sortKeyTitle != title) {
+      sortKey = buildSortKey(parmValue);
+      sortKeyParm = parmValue;
+      sortKeyTitle = title;
+    }
+    return sortKey;
+  }
+  
+  /**
+   Discard the cached sort key, so that it will be rebuilt the next time it 
+   is needed. This need only be called after changing the seq, status or 
+   date values directly, rather than through one of this class's set 
+   methods. 
+  */
+  public void invalidateSortKey() {
+    sortKey = null;
+  }
+  
+  private String buildSortKey (int parmValue) {
 
-    switch (parm.getParm()) {
+    switch (parmValue) {
       case NoteSortParm.SORT_TASKS_BY_DATE:
         return (
             getDone() +
@@ -583,6 +634,7 @@ public class Note
   
   public void setSeq(String seq) {
     seqValue.set(seq);
+    sortKey = null;
     if (! seqAdded) {
       storeField (recDef, seqField);
       seqAdded = true;
@@ -616,10 +668,12 @@ public class Note
       this.setSeq("0");
     }
     seqValue.increment(onLeft);
+    sortKey = null;
   }
   
   public void setStatus(String status) {
     statusValue.set(status);
+    sortKey = null;
     if (! statusAdded) {
       storeField (recDef, statusField);
       statusAdded = true;
@@ -628,6 +682,7 @@ public class Note
   
   public void setStatus(ItemStatus status) {
     statusValue.set(status.toString());
+    sortKey = null;
     if (! statusAdded) {
       storeField (recDef, statusField);
       statusAdded = true;
@@ -636,6 +691,7 @@ public class Note
   
   public void setStatus(int status) {
     statusValue.setStatus(status);
+    sortKey = null;
     if (! statusAdded) {
       storeField (recDef, statusField);
       statusAdded = true;
@@ -678,6 +734,7 @@ public class Note
   public void setDate(String date) {
 
     dateValue.set(date);
+    sortKey = null;
     if (! dateAdded) {
       storeField (recDef, dateField);
       dateAdded = true;
@@ -686,6 +743,7 @@ public class Note
   
   public void setDate(StringDate date) {
     dateValue.set(date.toString());
+    sortKey = null;
     if (! dateAdded) {
       storeField (recDef, dateField);
       dateAdded = true;
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import java.io.*;
+  import java.nio.file.*;
+
+/**
+ Reads and writes the binary files that a collection keeps within its
+ folder, such as the note snapshot and the stored note index.
+ <p>
+ Each file starts with a header giving a number identifying the kind of
+ file, a version number, and a signature of the collection's note
+ parameters, so that a file written by another version, or for other
+ parameters, can be ignored. Strings of any length are stored as their
+ length in UTF-8 bytes followed by the bytes. A file is always written in
+ full to a temporary file, which then atomically replaces the old one.
+
+ @author Herb Bowie
+ */
+class NoteBinaryFile {
+
+  private static final int      BUFFER_SIZE = 65536;
+
+  /**
+   Something that writes the complete contents of a binary file.
+  */
+  interface Contents {
+    void write (DataOutputStream out) throws IOException;
+  }
+
+  private NoteBinaryFile () {
+  }
+
+  /**
+   Open a binary file for input, and check its header.
+
+   @param file      The file to be read.
+   @param magic     The number identifying the kind of file.
+   @param version   The version of the file's layout now in use.
+   @param signature The signature of the collection's note parameters.
+
+   @return A stream positioned just after the header, or null if the file
+           is of another kind or version, or has another signature.
+
+   @throws IOException If the file cannot be read.
+  */
+  static DataInputStream openForInput (File file, int magic, int version,
+      String signature)
+        throws IOException {
+    DataInputStream in = new DataInputStream
+        (new BufferedInputStream (new FileInputStream (file), BUFFER_SIZE));
+    boolean matched = false;
+    try {
+      matched = (in.readInt() == magic
+          && in.readInt() == version
+          && readString(in).equals (signature));
+    } finally {
+      if (! matched) {
+        in.close();
+      }
+    }
+    if (matched) {
+      return in;
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   Write a binary file, with its header, to a temporary file that then
+   atomically replaces the existing file. If anything goes wrong, the
+   temporary file is deleted, and the existing file left as it was.
+
+   @param file      The file to be written.
+   @param magic     The number identifying the kind of file.
+   @param version   The version of the file's layout now in use.
+   @param signature The signature of the collection's note parameters.
+   @param contents  Writes everything that follows the header.
+
+   @throws IOException If the file cannot be written.
+  */
+  static void save (File file, int magic, int version, String signature,
+      Contents contents)
+        throws IOException {
+    File temp = new File (file.getParentFile(), file.getName() + ".tmp");
+    try {
+      DataOutputStream out = new DataOutputStream
+          (new BufferedOutputStream (new FileOutputStream (temp), BUFFER_SIZE));
+      try {
+        out.writeInt (magic);
+        out.writeInt (version);
+        writeString (out, signature);
+        contents.write (out);
+      } finally {
+        out.close();
+      }
+      Files.move (temp.toPath(), file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      temp.delete();
+      throw e;
+    }
+  }
+
+  /**
+   Write a string of any length, as its length in UTF-8 bytes followed by
+   the bytes.
+  */
+  static void writeString (DataOutputStream out, String str)
+      throws IOException {
+    byte[] bytes = str.getBytes ("UTF-8");
+    out.writeInt (bytes.length);
+    out.write (bytes);
+  }
+
+  /**
+   Read a string written by writeString.
+  */
+  static String readString (DataInputStream in)
+      throws IOException {
+    byte[] bytes = new byte [readLength (in)];
+    in.readFully (bytes);
+    return new String (bytes, "UTF-8");
+  }
+
+  /**
+   Skip over a string written by writeString.
+  */
+  static void skipString (DataInputStream in)
+      throws IOException {
+    int length = readLength (in);
+    while (length > 0) {
+      int skipped = in.skipBytes (length);
+      if (skipped <= 0) {
+        throw new EOFException ("Binary file ends within a string");
+      }
+      length = length - skipped;
+    }
+  }
+
+  private static int readLength (DataInputStream in)
+      throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException ("Invalid string length in binary file");
+    }
+    return length;
+  }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import java.io.*;
+  import java.nio.file.*;
+  import java.nio.file.attribute.*;
+  import java.util.*;
+
+/**
+ Finds the note files within a collection folder, one folder at a time.
+ <p>
+ Folders are explored breadth-first, with the entries in each folder taken
+ in the order in which the file system lists them, as NoteIO does when
+ reading one file at a time. The attributes of each entry are read once,
+ as the folder is listed. Sub-folders named templates, publish or reports
+ are skipped, as are any folders below the maximum depth.
+
+ @author Herb Bowie
+ */
+class NoteFolderWalker {
+
+  private    int                maxDepth;
+
+  /** Folders still to be listed, with their depths. */
+  private    LinkedList<Path>   dirQueue = new LinkedList<Path>();
+  private    LinkedList<Integer> depthQueue = new LinkedList<Integer>();
+
+  /**
+   Prepare to walk the folders of a collection.
+
+   @param homeFolder The top folder of the collection.
+   @param maxDepth   The depth of folders to be explored, with the top
+                     folder at a depth of 1.
+  */
+  NoteFolderWalker (File homeFolder, int maxDepth) {
+    this.maxDepth = maxDepth;
+    dirQueue.add (homeFolder.toPath());
+    depthQueue.add (Integer.valueOf (1));
+  }
+
+  /**
+   Is this the name of a folder that never holds notes?
+
+   @param name The name of a sub-folder within a collection.
+
+   @return True if the folder should be skipped.
+  */
+  static boolean isSkipped (String name) {
+    return (name.equalsIgnoreCase("templates")
+        || name.equalsIgnoreCase("publish")
+        || name.equalsIgnoreCase("reports"));
+  }
+
+  /**
+   Are there any folders still to be listed?
+
+   @return True if listNextFolder has more to do.
+  */
+  boolean hasMoreFolders () {
+    return (! dirQueue.isEmpty());
+  }
+
+  /**
+   List the entries in the next folder, queueing any sub-folders to be
+   explored, and adding any note files to the given list. A folder that
+   has vanished, or may not be read, is passed over.
+
+   @param found The list to which the note files found are added, along
+                with their sizes and last modified times.
+
+   @throws IOException If the folder cannot be listed.
+  */
+  void listNextFolder (List<ParallelNoteReader.NoteText> found)
+      throws IOException {
+    Path dir = dirQueue.removeFirst();
+    int depth = depthQueue.removeFirst().intValue();
+    DirectoryStream<Path> stream;
+    try {
+      stream = Files.newDirectoryStream (dir);
+    } catch (NoSuchFileException e) {
+      return;
+    } catch (AccessDeniedException e) {
+      return;
+    }
+    try {
+      for (Path entry : stream) {
+        BasicFileAttributes attrs;
+        try {
+          attrs = Files.readAttributes (entry, BasicFileAttributes.class);
+        } catch (IOException e) {
+          continue;
+        }
+        if (attrs.isDirectory()) {
+          if (isSkipped (entry.getFileName().toString())
+              || depth >= maxDepth) {
+            // skip
+          } else {
+            dirQueue.addLast (entry);
+            depthQueue.addLast (Integer.valueOf (depth + 1));
+          }
+        }
+        else
+        if (NoteIO.isInterestedIn (entry.toFile(), attrs)) {
+          found.add (new ParallelNoteReader.NoteText (entry.toFile(),
+              attrs.size(), attrs.lastModifiedTime().toMillis()));
+        }
+      }
+    } finally {
+      stream.close();
+    }
+  }
+
+  /**
+   Forget any folders not yet listed.
+  */
+  void close () {
+    dirQueue.clear();
+    depthQueue.clear();
+  }
+
+}
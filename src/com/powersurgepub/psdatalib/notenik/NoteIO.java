@@ -21,6 +21,7 @@ package com.powersurgepub.psdatalib.notenik;
   import com.powersurgepub.pstextio.*;
   import com.powersurgepub.psutils.*;
   import java.io.*;
+  import java.nio.file.attribute.*;
   import java.util.*;
 
 /**
@@ -64,6 +65,14 @@ public class NoteIO
   private             File                noteFileToRead = null;
   private             Note                nextNote = null;
   
+  /** Number of threads to use to read notes, or zero to use only one. */
+  private             int                 parallelInput = 0;
+  private             ParallelNoteReader  parallelReader = null;
+  
+  /** Should a snapshot of the collection be used to speed loading? */
+  private             boolean             useSnapshot = false;
+  private             NoteSnapshot        snapshot = null;
+  
   private             BufferedReader      inBuffered;
   // private             BufferedWriter      outBuffered;
   private             TextLineWriter      writer;
@@ -225,6 +234,15 @@ public class NoteIO
     }
   }
   
+  /**
+   Return the folder containing the collection. 
+  
+   @return The collection's home folder, or null if none has been set. 
+  */
+  public File getHomeFolder() {
+    return homeFolder;
+  }
+  
   public void setNoteType(int noteType) {
     noteParms.setNoteType(noteType);
   }
@@ -356,13 +374,18 @@ public class NoteIO
     }
     this.list = list;
     openForInput();
-    Note note = readNextNote();
-    while (note != null) {
-      if (note.hasTags() || loadUnTagged) {
-        list.add(note);
-        notesLoaded++;
+    list.beginBulkLoad();
+    try {
+      Note note = readNextNote();
+      while (note != null) {
+        if (note.hasTags() || loadUnTagged) {
+          list.add(note);
+          notesLoaded++;
+        }
+        note = readNextNote();
       }
-      note = readNextNote();
+    } finally {
+      list.endBulkLoad();
     }
     close();
 
@@ -440,6 +463,16 @@ public class NoteIO
   private void openForInputCommon () 
       throws IOException {
     notesLoaded = 0;
+    closeParallelReader();
+    snapshot = null;
+    if (useSnapshot && (! noteParms.isTemplate())) {
+      snapshot = new NoteSnapshot (homeFolder, noteParms);
+    }
+    if (parallelInput > 1) {
+      parallelReader = new ParallelNoteReader 
+          (homeFolder, maxDepth, parallelInput, snapshot);
+      parallelReader.start();
+    }
     dirList = new ArrayList();
     dirList.add (new DirToExplode (1, homeFolder.getAbsolutePath()));
     dirNumber = -1;
@@ -470,6 +503,62 @@ public class NoteIO
     this.maxDepth = maxDepth;
   }
   
+  /**
+     Returns the maximum directory explosion depth.
+    
+     @return Directory/sub-directory explosion depth.
+   */
+  public int getMaxDepth () {
+    return maxDepth;
+  }
+  
+  /**
+   Request that notes be read using several threads. Note files are then 
+   found and read from disk by a pool of worker threads, while the notes
+   themselves are still built, and returned, one at a time in the same
+   sequence as when reading with a single thread. This must be set before
+   the collection is opened for input. 
+  
+   @param threads The number of threads to use, or zero (the default) to 
+                  read one file at a time. 
+  */
+  public void setParallelInput (int threads) {
+    this.parallelInput = threads;
+  }
+  
+  /**
+   Return the number of threads to be used to read notes. 
+  
+   @return The number of threads, or zero if notes are read one at a time. 
+  */
+  public int getParallelInput () {
+    return parallelInput;
+  }
+  
+  /**
+   Request that a snapshot of the collection be kept in its folder. When 
+   the collection is next read, notes whose files have the same size and
+   last modified time as when the snapshot was taken are rebuilt from the
+   snapshot, rather than being parsed again. The snapshot is brought up to
+   date each time the entire collection is read. This must be set before
+   the collection is opened for input. 
+  
+   @param useSnapshot True to use a snapshot, false (the default) to parse
+                      every note file. 
+  */
+  public void setUseSnapshot (boolean useSnapshot) {
+    this.useSnapshot = useSnapshot;
+  }
+  
+  /**
+   Is a snapshot of the collection being used to speed loading? 
+  
+   @return True if a snapshot is to be used. 
+  */
+  public boolean isUsingSnapshot () {
+    return useSnapshot;
+  }
+  
   /**
      Returns the next input data record.
     
@@ -521,14 +610,92 @@ public class NoteIO
   public void close() {
     noteFileToRead = null;
     nextNote = null;
+    snapshot = null;
+    closeParallelReader();
+  }
+  
+  private void closeParallelReader() {
+    if (parallelReader != null) {
+      parallelReader.close();
+      parallelReader = null;
+    }
   }
   
   private void nextNote() 
       throws IOException {
     nextNote = null;
-    while (nextNote == null && dirNumber < dirList.size()) {
-      nextDirEntry();
+    if (parallelReader != null) {
+      ParallelNoteReader.NoteText text = parallelReader.next();
+      if (text != null) {
+        nextNote = buildNote(text);
+      }
+    } else {
+      while (nextNote == null && dirNumber < dirList.size()) {
+        nextDirEntry();
+      }
+    }
+    if (nextNote == null && snapshot != null) {
+      snapshot.save();
+      snapshot = null;
+    }
+  }
+  
+  /**
+   Build a note from the lines of a note file already read, perhaps on 
+   another thread. 
+  
+   @param text The note file and its lines. 
+  
+   @return A Note object. 
+  */
+  Note buildNote(ParallelNoteReader.NoteText text) {
+    String path = "";
+    if (snapshot != null) {
+      path = snapshot.pathOf(text.getFile());
+      Note note = snapshot.restore(this, text.getFile(), path, 
+          text.getSize(), text.getLastModified());
+      if (note != null) {
+        return note;
+      }
+    }
+    Note note = startNote(text.getFile(), "", text.getLastModified());
+    NoteBuilder builder = new NoteBuilder(noteParms);
+    for (String line : text.getLines()) {
+      NoteLine noteLine = new NoteLine
+        (noteParms, builder, note, line);
+    }
+    if (snapshot != null) {
+      snapshot.add(note, path, text.getSize(), text.getLastModified());
+    }
+    return note;
+  }
+  
+  /**
+   Read one note while loading the collection, rebuilding it from the 
+   snapshot if possible. 
+  
+   @param noteFile The file containing the note on disk. 
+  
+   @return A Note object, or null if the file could not be read. 
+  
+   @throws IOException If there was trouble reading the file. 
+  */
+  private Note readNote(File noteFile) 
+      throws IOException {
+    if (snapshot == null) {
+      return getNote(noteFile, "");
+    }
+    String path = snapshot.pathOf(noteFile);
+    long size = noteFile.length();
+    long lastModified = noteFile.lastModified();
+    Note note = snapshot.restore(this, noteFile, path, size, lastModified);
+    if (note == null) {
+      note = getNote(noteFile, "");
+      if (note != null) {
+        snapshot.add(note, path, size, lastModified);
+      }
     }
+    return note;
   }
   
   private void nextDirEntry () 
@@ -538,9 +705,7 @@ public class NoteIO
       String nextDirEntry = dirEntries.get (entryNumber);
       noteFileToRead = new File (currDirAsFile, nextDirEntry);
       if (noteFileToRead.isDirectory()) {
-        if (nextDirEntry.equalsIgnoreCase("templates")
-            || nextDirEntry.equalsIgnoreCase("publish")
-            || nextDirEntry.equalsIgnoreCase("reports")
+        if (NoteFolderWalker.isSkipped(nextDirEntry)
             || currDirDepth >= maxDepth) {
           // skip
         } else {
@@ -551,7 +716,7 @@ public class NoteIO
       } 
       else
       if (isInterestedIn (noteFileToRead)) {
-        nextNote = getNote(noteFileToRead, "");
+        nextNote = readNote(noteFileToRead);
         if (nextNote == null) {
         }
       } else {
@@ -591,30 +756,81 @@ public class NoteIO
            otherwise false. 
   */
   public static boolean isInterestedIn(File candidate) {
-    File parent = candidate.getParentFile();
-    String name = candidate.getName();
-    if (candidate.isHidden()) {
+    if (! isVisibleAndReadable(candidate)) {
       return false;
     }
     else
-    if (candidate.getName().startsWith(".")) {
+    if (candidate.isFile() 
+        && candidate.length() == 0
+        && candidate.getName().equals("Icon\r")) {
       return false;
     }
     else
-    if (! candidate.canRead()) {
+    if (candidate.isDirectory()) {
+      return false;
+    } else {
+      return isInterestedInName(candidate);
+    }
+  }
+  
+  /**
+   Is this input module interested in processing the specified file, 
+   given attributes already read from the file system? 
+  
+   @param candidate The file being considered. 
+   @param attrs     The file's basic attributes. 
+  
+   @return True if the input module thinks this file is worth processing,
+           otherwise false. 
+  */
+  public static boolean isInterestedIn
+      (File candidate, BasicFileAttributes attrs) {
+    if (! isVisibleAndReadable(candidate)) {
       return false;
     }
     else
-    if (candidate.isFile() 
-        && candidate.length() == 0
+    if (attrs.isRegularFile() 
+        && attrs.size() == 0
         && candidate.getName().equals("Icon\r")) {
       return false;
     }
     else
-    if (candidate.isDirectory()) {
+    if (attrs.isDirectory()) {
+      return false;
+    } else {
+      return isInterestedInName(candidate);
+    }
+  }
+  
+  /**
+   Is the specified file one that the user can see, and that we can read?
+  
+   @param candidate The file being considered. 
+  
+   @return False if the file is hidden or unreadable. 
+  */
+  private static boolean isVisibleAndReadable(File candidate) {
+    if (candidate.isHidden()) {
       return false;
     }
     else
+    if (candidate.getName().startsWith(".")) {
+      return false;
+    } else {
+      return candidate.canRead();
+    }
+  }
+  
+  /**
+   Is this input module interested in a file with this name, in this folder?
+  
+   @param candidate The file being considered. 
+  
+   @return True if the file's name and location suggest a note. 
+  */
+  private static boolean isInterestedInName(File candidate) {
+    File parent = candidate.getParentFile();
+    String name = candidate.getName();
     if (candidate.getParent().toLowerCase().endsWith("templates")) {
       return false;
     }
@@ -679,25 +895,8 @@ public class NoteIO
     Note note = null;
     
     if (FileUtils.isGoodInputFile(noteFile)) {
-      FileName noteFileName = new FileName(noteFile);
-      String fileNameIn = "";
-      if (syncPrefix != null
-          && syncPrefix.length() > 0
-          && noteFileName.getBase().startsWith(syncPrefix)) {
-        fileNameIn = noteFileName.getBase().substring(syncPrefix.length());
-      } else {
-        fileNameIn = noteFileName.getBase();
-      }
       NoteBuilder builder = new NoteBuilder (noteParms);
-      note = new Note(noteParms.getRecDef());
-      note.setDiskLocation(noteFile);
-      
-      // Use the file name (minus the path and extension) as the default title
-      note.setTitle(fileNameIn);
-      
-      // Set the last modified date
-      Date lastModDate = new Date(noteFile.lastModified());
-      note.setLastModDate(lastModDate);
+      note = startNote(noteFile, syncPrefix, noteFile.lastModified());
       
       // Get ready to read the text file
       FileInputStream fileInputStream = new FileInputStream(noteFile);
@@ -720,6 +919,39 @@ public class NoteIO
     return note;
   }
   
+  /**
+   Create a new note for a note file, before its lines are read. 
+  
+   @param noteFile     The file containing the note on disk. 
+   @param syncPrefix   An optional prefix that might be appended to the 
+                       front of the note's title to form the file name. 
+   @param lastModified The time at which the file was last modified. 
+  
+   @return A new Note, with its disk location, default title and last
+           modified date set. 
+  */
+  Note startNote(File noteFile, String syncPrefix, long lastModified) {
+    FileName noteFileName = new FileName(noteFile);
+    String fileNameIn = "";
+    if (syncPrefix != null
+        && syncPrefix.length() > 0
+        && noteFileName.getBase().startsWith(syncPrefix)) {
+      fileNameIn = noteFileName.getBase().substring(syncPrefix.length());
+    } else {
+      fileNameIn = noteFileName.getBase();
+    }
+    Note note = new Note(noteParms.getRecDef());
+    note.setDiskLocation(noteFile);
+      
+    // Use the file name (minus the path and extension) as the default title
+    note.setTitle(fileNameIn);
+      
+    // Set the last modified date
+    Date lastModDate = new Date(lastModified);
+    note.setLastModDate(lastModDate);
+    return note;
+  }
+  
   /**
    Read one note the passed line reader and return it as a note object. 
   
@@ -0,0 +1,427 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psdatalib.psindex.*;
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+  import java.util.*;
+
+/**
+ A back-of-the-book index for a collection of notes, stored in a binary
+ file within the collection's folder, so that the index can be generated
+ again without reading every note.
+ <p>
+ The file holds the index's terms in sorted order, each with its optional
+ link and its page references, followed by an entry for every note file:
+ its path relative to the collection folder, its size and last modified
+ time, and the note's title and index value. When the index is next
+ wanted, only the notes whose files have changed are read again. If no
+ files have changed, been added or been removed, then the terms are read
+ straight from the file; otherwise the index is rebuilt from the stored
+ titles and index values and the file is written again.
+
+ @author Herb Bowie
+ */
+public class NoteIndexFile {
+
+  /** Name of the index file, hidden so that it is not read as a note. */
+  public static final String    FILE_NAME = ".notenik_index";
+
+  private static final int      MAGIC = 0x4e4b4958;
+  private static final int      VERSION = 1;
+
+  private    File               homeFolder;
+  private    File               file;
+  private    String             signature;
+  private    int                maxDepth;
+
+  /** Absolute path of the collection folder, ending with a separator. */
+  private    String             homePrefix;
+
+  /** Number of terms stored in the existing file, or -1 if none usable. */
+  private    int                termsStored = -1;
+
+  /** Entries read from the existing file, keyed by relative path. */
+  private    HashMap<String, Entry> previous = new HashMap<String, Entry>();
+
+  /** Entries for the notes found this time, in collection order. */
+  private    ArrayList<Entry>   current = new ArrayList<Entry>();
+
+  /** Number of entries carried forward from the existing file. */
+  private    int                reused = 0;
+
+  /** Terms being read back from the file. */
+  private    DataInputStream    termsIn = null;
+  private    int                termsLeft = 0;
+
+  /**
+   Prepare an index for a collection, reading the note entries from any
+   existing index file. Any trouble reading the file is logged, and the
+   index then starts out empty.
+
+   @param homeFolder The collection's folder.
+   @param noteParms  The parameters used to build the collection's notes.
+   @param maxDepth   The depth of folders to be explored, with the top
+                     folder at a depth of 1.
+  */
+  public NoteIndexFile (File homeFolder, NoteParms noteParms, int maxDepth) {
+    this.homeFolder = homeFolder;
+    this.maxDepth = maxDepth;
+    file = new File (homeFolder, FILE_NAME);
+    homePrefix = homeFolder.getAbsolutePath();
+    if (! homePrefix.endsWith (File.separator)) {
+      homePrefix = homePrefix + File.separator;
+    }
+    signature = NoteSnapshot.signatureOf (noteParms);
+    if (file.exists()) {
+      try {
+        readEntries();
+      } catch (IOException e) {
+        previous.clear();
+        termsStored = -1;
+        Logger.getShared().recordEvent (LogEvent.MINOR,
+            "Note index " + file.toString() + " could not be read", false);
+      }
+    }
+  }
+
+  /**
+   Read the note entries from the index file, skipping over the terms.
+
+   @throws IOException If the file cannot be read.
+  */
+  private void readEntries ()
+      throws IOException {
+    DataInputStream in 
+        = NoteBinaryFile.openForInput (file, MAGIC, VERSION, signature);
+    if (in == null) {
+      return;
+    }
+    try {
+      int terms = in.readInt();
+      for (int i = 0; i < terms; i++) {
+        skipTerm (in);
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        String path = NoteBinaryFile.readString (in);
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        String title = NoteBinaryFile.readString (in);
+        String indexValue = NoteBinaryFile.readString (in);
+        previous.put (path,
+            new Entry (path, size, lastModified, title, indexValue));
+      }
+      termsStored = terms;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   List the collection's note files, in the same sequence as NoteIO reads
+   them, reading only those that have changed since the index file was
+   written.
+
+   @param noteIO The note I/O module for the collection, used to read any
+                 changed notes.
+
+   @throws IOException If the collection folder cannot be listed.
+  */
+  public void scan (NoteIO noteIO)
+      throws IOException {
+    current.clear();
+    reused = 0;
+    NoteFolderWalker walker = new NoteFolderWalker (homeFolder, maxDepth);
+    ArrayList<ParallelNoteReader.NoteText> found 
+        = new ArrayList<ParallelNoteReader.NoteText>();
+    while (walker.hasMoreFolders()) {
+      found.clear();
+      walker.listNextFolder (found);
+      for (int i = 0; i < found.size(); i++) {
+        ParallelNoteReader.NoteText text = found.get (i);
+        addNote (noteIO, text.getFile(), text.getSize(), 
+            text.getLastModified());
+      }
+    }
+  }
+
+  /**
+   Add one note file to the index, carrying its entry forward from the
+   existing file if the note has not changed, and otherwise reading it.
+  */
+  private void addNote (NoteIO noteIO, File noteFile, long size,
+      long lastModified) {
+    String path = pathOf (noteFile);
+    Entry entry = previous.get (path);
+    if (entry != null
+        && entry.size == size
+        && entry.lastModified == lastModified) {
+      current.add (entry);
+      reused++;
+      return;
+    }
+    Note note = null;
+    try {
+      note = noteIO.getNote (noteFile, "");
+    } catch (IOException e) {
+      // Skip the file, as NoteIO does
+    }
+    if (note != null) {
+      String title = "";
+      String indexValue = "";
+      if (note.hasTitle() && note.hasIndex()) {
+        title = note.getTitle();
+        indexValue = note.getIndexAsString();
+      }
+      current.add (new Entry (path, size, lastModified, title, indexValue));
+    }
+  }
+
+  /**
+   Return the path of a note file, relative to the collection folder.
+  */
+  private String pathOf (File noteFile) {
+    String path = noteFile.getAbsolutePath();
+    if (path.startsWith (homePrefix)) {
+      return path.substring (homePrefix.length());
+    } else {
+      return path;
+    }
+  }
+
+  /**
+   Return the number of notes that did not need to be read again.
+
+   @return The number of entries carried forward from the existing file.
+  */
+  public int getNumberReused () {
+    return reused;
+  }
+
+  /**
+   Indicate whether the index differs from the one stored in the file.
+
+   @return True if any notes were read from their files, if any notes in
+           the existing file were not found this time, or if there was no
+           usable file.
+  */
+  public boolean isChanged () {
+    return (termsStored < 0
+        || reused < current.size()
+        || reused < previous.size());
+  }
+
+  /**
+   Build the index from the titles and index values of the notes found.
+
+   @return The complete index for the collection.
+  */
+  public IndexCollection buildIndex () {
+    IndexCollection index = new IndexCollection();
+    for (int i = 0; i < current.size(); i++) {
+      Entry entry = current.get (i);
+      if (entry.title.length() > 0 && entry.indexValue.length() > 0) {
+        IndexPageValue value = new IndexPageValue();
+        value.set (entry.indexValue);
+        index.add (entry.title, value);
+      }
+    }
+    return index;
+  }
+
+  /**
+   Write the index file, replacing the existing one. Any trouble is
+   logged, and the old file deleted.
+
+   @param index The complete index for the collection, as returned by
+                buildIndex.
+
+   @return True if the file was written.
+  */
+  public boolean save (final IndexCollection index) {
+    try {
+      NoteBinaryFile.save (file, MAGIC, VERSION, signature, 
+          new NoteBinaryFile.Contents() {
+        public void write (DataOutputStream out)
+            throws IOException {
+          out.writeInt (index.size());
+          Iterator iterator = index.iterator();
+          while (iterator.hasNext()) {
+            Map.Entry mapEntry = (Map.Entry)iterator.next();
+            writeTerm (out, (IndexTerm)mapEntry.getValue());
+          }
+          out.writeInt (current.size());
+          for (int i = 0; i < current.size(); i++) {
+            Entry entry = current.get (i);
+            NoteBinaryFile.writeString (out, entry.path);
+            out.writeLong (entry.size);
+            out.writeLong (entry.lastModified);
+            NoteBinaryFile.writeString (out, entry.title);
+            NoteBinaryFile.writeString (out, entry.indexValue);
+          }
+        }
+      });
+      termsStored = index.size();
+      return true;
+    } catch (IOException e) {
+      file.delete();
+      termsStored = -1;
+      Logger.getShared().recordEvent (LogEvent.MINOR,
+          "Note index " + file.toString() + " could not be written", false);
+      return false;
+    }
+  }
+
+  /**
+   Start reading the terms back from the index file, in sorted order.
+
+   @throws IOException If the file cannot be opened, or no longer matches.
+  */
+  public void openTerms ()
+      throws IOException {
+    closeTerms();
+    termsIn = NoteBinaryFile.openForInput (file, MAGIC, VERSION, signature);
+    if (termsIn == null) {
+      throw new IOException ("Note index " + file.toString() + " has changed");
+    }
+    termsLeft = termsIn.readInt();
+  }
+
+  /**
+   Indicate whether any more terms remain to be read.
+
+   @return True if nextTerm will return another term.
+  */
+  public boolean hasNextTerm () {
+    return (termsIn != null && termsLeft > 0);
+  }
+
+  /**
+   Read the next term from the index file.
+
+   @return The next term, with its page references, or null if no more.
+
+   @throws IOException If the file cannot be read.
+  */
+  public IndexTerm nextTerm ()
+      throws IOException {
+    if (! hasNextTerm()) {
+      return null;
+    }
+    termsLeft--;
+    return readTerm (termsIn);
+  }
+
+  /**
+   Stop reading terms from the index file.
+  */
+  public void closeTerms () {
+    if (termsIn != null) {
+      try {
+        termsIn.close();
+      } catch (IOException e) {
+        // Nothing more to be done
+      }
+      termsIn = null;
+    }
+    termsLeft = 0;
+  }
+
+  /**
+   Write one term, with its link and its page references.
+  */
+  private static void writeTerm (DataOutputStream out, IndexTerm term)
+      throws IOException {
+    NoteBinaryFile.writeString (out, term.getTerm());
+    String link = term.getLink();
+    out.writeBoolean (link != null);
+    if (link != null) {
+      NoteBinaryFile.writeString (out, link);
+    }
+    out.writeInt (term.getRefSize());
+    for (int i = 0; i < term.getRefSize(); i++) {
+      IndexPageRef ref = term.getRef (i);
+      NoteBinaryFile.writeString (out, ref.getPage());
+      NoteBinaryFile.writeString (out, ref.getAnchor());
+    }
+  }
+
+  /**
+   Read a term written by writeTerm.
+  */
+  private static IndexTerm readTerm (DataInputStream in)
+      throws IOException {
+    IndexTerm term = new IndexTerm (NoteBinaryFile.readString (in));
+    if (in.readBoolean()) {
+      term.setLink (NoteBinaryFile.readString (in));
+    }
+    int refs = in.readInt();
+    IndexPageRef[] pageRefs = new IndexPageRef [refs];
+    for (int i = 0; i < refs; i++) {
+      String page = NoteBinaryFile.readString (in);
+      String anchor = NoteBinaryFile.readString (in);
+      pageRefs [i] = new IndexPageRef (term, page, anchor);
+    }
+    // Add the references last to first, so that each goes straight to the
+    // front of the term's sorted list, keeping the order in which they
+    // were written
+    for (int i = refs - 1; i >= 0; i--) {
+      term.addRef (pageRefs [i]);
+    }
+    return term;
+  }
+
+  /**
+   Skip over a term written by writeTerm, without building it.
+  */
+  private static void skipTerm (DataInputStream in)
+      throws IOException {
+    NoteBinaryFile.skipString (in);
+    if (in.readBoolean()) {
+      NoteBinaryFile.skipString (in);
+    }
+    int refs = in.readInt();
+    for (int i = 0; i < refs * 2; i++) {
+      NoteBinaryFile.skipString (in);
+    }
+  }
+
+  /**
+   The title and index value of one note.
+  */
+  static class Entry {
+
+    String   path;
+    long     size;
+    long     lastModified;
+    String   title;
+    String   indexValue;
+
+    Entry (String path, long size, long lastModified,
+        String title, String indexValue) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.title = title;
+      this.indexValue = indexValue;
+    }
+
+  }
+
+}
@@ -39,6 +39,8 @@ public class NoteIndexIO
   private             NoteIO                noteIO = null;
   private             IndexCollection       index = new IndexCollection();
   private             Iterator              iterator = null;
+  private             NoteIndexFile         indexFile = null;
+  private             boolean               persistIndex = false;
   private             IndexTerm             term = null;
   private             int                   refIndex = 0;
   private             RecordDefinition      recDef = new RecordDefinition();
@@ -92,21 +94,99 @@ public class NoteIndexIO
   public void openForInput ()
       throws IOException {
     
-    noteIO.openForInput();
-    NoteParms noteParms = noteIO.getNoteParms();
-    Note note = null;
-    while (! noteIO.isAtEnd()) {
-      note = noteIO.readNextNote();
-      if (note != null
-          && note.hasTitle()
-          && note.hasIndex()) {
-        index.add(note.getTitle(), note.getIndex());
+    closeIndexFile();
+    index = new IndexCollection();
+    iterator = null;
+    term = null;
+    recordNumber = 0;
+    
+    File homeFolder = noteIO.getHomeFolder();
+    if (persistIndex && homeFolder != null) {
+      // Read only the notes changed since the index was last generated
+      indexFile = new NoteIndexFile
+          (homeFolder, noteIO.getNoteParms(), noteIO.getMaxDepth());
+      indexFile.scan(noteIO);
+      boolean stored = true;
+      if (indexFile.isChanged()) {
+        index = indexFile.buildIndex();
+        stored = indexFile.save(index);
+      }
+      if (stored) {
+        // Stream the terms from the file, rather than holding them all
+        index = new IndexCollection();
+        indexFile.openTerms();
+      } else {
+        closeIndexFile();
       }
+    } else {
+      noteIO.openForInput();
+      NoteParms noteParms = noteIO.getNoteParms();
+      Note note = null;
+      while (! noteIO.isAtEnd()) {
+        note = noteIO.readNextNote();
+        if (note != null
+            && note.hasTitle()
+            && note.hasIndex()) {
+          index.add(note.getTitle(), note.getIndex());
+        }
+      }
+      noteIO.close();
     }
-    noteIO.close();
     iterator = index.iterator();
-    term = null;
-    recordNumber = 0;
+  }
+  
+  /**
+   Indicate whether the index should be stored within the collection's 
+   folder, in a hidden file named .notenik_index, so that only notes 
+   changed since the index was last generated need be read again. This is 
+   false by default, so that nothing is written to the collection's folder
+   unless asked for, and has no effect when reading a single file rather 
+   than a folder. 
+  
+   @param persistIndex True to store the index, false to read every note
+                       each time. 
+  */
+  public void setPersistIndex (boolean persistIndex) {
+    this.persistIndex = persistIndex;
+  }
+  
+  /**
+   Is the index being stored within the collection's folder? 
+  
+   @return True if the index is being stored.
+  */
+  public boolean isPersistingIndex () {
+    return persistIndex;
+  }
+  
+  /**
+   Return the next term to be returned, whether from the stored index or 
+   from the index just built. 
+  
+   @return The next term, or null if no more. 
+  */
+  private IndexTerm nextTerm ()
+      throws IOException {
+    if (indexFile != null) {
+      return indexFile.nextTerm();
+    }
+    else
+    if (iterator.hasNext()) {
+      Map.Entry mapEntry = (Map.Entry)iterator.next();
+      return (IndexTerm)mapEntry.getValue();
+    } else {
+      return null;
+    }
+  }
+  
+  /**
+   Stop reading terms from the stored index, if we have been. 
+  */
+  private void closeIndexFile () {
+    if (indexFile != null) {
+      indexFile.closeTerms();
+      indexFile = null;
+    }
   }
   
   /**
@@ -121,8 +201,7 @@ public class NoteIndexIO
       throws IOException {
     int maxRefIndex = -1;
     if (term == null) {
-      Map.Entry mapEntry = (Map.Entry)iterator.next();
-      term = (IndexTerm)mapEntry.getValue();
+      term = nextTerm();
       refIndex = 0;
     } else {
       refIndex++;
@@ -193,7 +272,11 @@ public class NoteIndexIO
      @return True if no more records to return.
    */
   public boolean isAtEnd() {
-    return term == null && (! iterator.hasNext());
+    if (indexFile != null) {
+      return term == null && (! indexFile.hasNextTerm());
+    } else {
+      return term == null && (! iterator.hasNext());
+    }
   }
   
   /**
@@ -203,7 +286,7 @@ public class NoteIndexIO
    */
   public void close () 
       throws IOException {
-    
+    closeIndexFile();
   }
     
   /**
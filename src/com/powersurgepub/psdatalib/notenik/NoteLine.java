@@ -232,100 +232,11 @@ public class NoteLine {
             addNoteLineLeadingSymbol();
             CommonName metaKeyCommon = fieldDef.getCommonName();
             metaKey = metaKeyCommon.getCommonForm();
-            builder.setLastStringBuilder(null);
-            
-            if (NoteParms.isTitle(metaKeyCommon)) {
-              note.setTitle(getMetaData());
-              builder.setLastStringBuilder(null);
-            }
-            else
-            if (NoteParms.isAuthor(metaKeyCommon)) {
-              note.setAuthor(getMetaData());
-              builder.setLastStringBuilder(null);
-            }
-            else
-            if (NoteParms.isDate(metaKeyCommon)) {
-              note.setDate(getMetaData());
-              builder.setLastStringBuilder(null);
-            }
-            else
-            if (NoteParms.isRecurs(metaKeyCommon)) {
-              note.setRecurs(getMetaData());
-              builder.setLastStringBuilder(null);
-            }
-            else
-            if (NoteParms.isLink(metaKeyCommon)) {
-              note.setLink(getMetaData());
-              builder.setLastStringBuilder(null);
-            }
-            else
-            if (NoteParms.isTags(metaKeyCommon)) {
-              note.setTags(getMetaData());
-              builder.setLastStringBuilder(null);
-            }
-            else
-            if (NoteParms.isRating(metaKeyCommon)) {
-              note.setRating(getMetaData());
-              builder.setLastStringBuilder(null);
-            }
-            else
-            if (NoteParms.isType(metaKeyCommon)) {
-              note.setType(getMetaData());
-              builder.setLastStringBuilder(null);
-            }
-            else
-            if (NoteParms.isStatus(metaKeyCommon)) {
-              note.setStatus(getMetaData());
-              if (noteParms.isTemplate()) {
-                noteParms.setItemStatusConfig(getMetaData());
-              }
-              builder.setLastStringBuilder(null);
-            }
-            else 
-            if (NoteParms.isSeq(metaKeyCommon)) {
-              note.setSeq(getMetaData());
-              builder.setLastStringBuilder(null);
-            } 
-            else
-            if (NoteParms.isIndex(metaKeyCommon)) {
-              note.setIndex(getMetaData());
-              builder.setLastStringBuilder(null);
-            }
-            else
-            if (NoteParms.isTeaser(metaKeyCommon)) {
-              note.setTeaser(getMetaData());
-              builder.setLastStringBuilder(note.getTeaserAsDataValue());
-            }
-            else
+            DataValueStringBuilder lastStringBuilder 
+                = storeField(noteParms, note, fieldDef, getMetaData());
+            builder.setLastStringBuilder(lastStringBuilder);
             if (NoteParms.isBody(metaKeyCommon)) {
-              note.setBody(getMetaData());
-              builder.setLastStringBuilder(note.getBodyAsDataValue());
               builder.setBodyStarted(true);
-            } 
-            else
-            {
-              // fieldDef.setTypeFromName();
-              if (noteParms.isTemplate()) {
-                String data = getMetaData();
-                int typeDelimLeft = data.indexOf('<');
-                if (typeDelimLeft >= 0) {
-                  int typeDelimRight = data.indexOf('>', typeDelimLeft + 1);
-                  if (typeDelimRight > typeDelimLeft) {
-                    String type = data.substring
-                        (typeDelimLeft + 1, typeDelimRight).trim();
-                    String typeCommon = StringUtils.commonName(type);
-                    if (typeCommon.equals("3")
-                        || typeCommon.equals("builder")
-                        || typeCommon.equals("longtext")) {
-                      fieldDef.setType(DataFieldDefinition.STRING_BUILDER_TYPE);
-                    }
-                  }
-                }
-              }
-              DataValueStringBuilder dataValue = new DataValueStringBuilder(getMetaData());
-              DataField dataField = new DataField (fieldDef, dataValue);
-              note.storeField(note.getRecDef(), dataField);
-              builder.setLastStringBuilder(dataValue);
             }
             contentStored = true;
           }  // end if valid metadata key found
@@ -368,6 +279,115 @@ public class NoteLine {
     } // end if line not null
   } // end of parseStartAndEndOfLine method
   
+  /**
+   Store one field value in a note, using the note's own setter for any 
+   of the standard note fields, or else adding the field to the note's 
+   record. This is used both when parsing a note file and when rebuilding
+   a note from a snapshot, so that a note is built the same way either way.
+  
+   @param noteParms The parameters for the collection. 
+   @param note      The note to receive the field. 
+   @param fieldDef  The definition of the field. 
+   @param value     The field's value. 
+  
+   @return The value to which any following lines of text should be 
+           appended, or null if the field is complete. 
+  */
+  static DataValueStringBuilder storeField
+      (NoteParms noteParms, Note note, DataFieldDefinition fieldDef, 
+        String value) {
+    CommonName common = fieldDef.getCommonName();
+    if (NoteParms.isTitle(common)) {
+      note.setTitle(value);
+    }
+    else
+    if (NoteParms.isAuthor(common)) {
+      note.setAuthor(value);
+    }
+    else
+    if (NoteParms.isDate(common)) {
+      note.setDate(value);
+    }
+    else
+    if (NoteParms.isRecurs(common)) {
+      note.setRecurs(value);
+    }
+    else
+    if (NoteParms.isLink(common)) {
+      note.setLink(value);
+    }
+    else
+    if (NoteParms.isTags(common)) {
+      note.setTags(value);
+    }
+    else
+    if (NoteParms.isRating(common)) {
+      note.setRating(value);
+    }
+    else
+    if (NoteParms.isType(common)) {
+      note.setType(value);
+    }
+    else
+    if (NoteParms.isStatus(common)) {
+      note.setStatus(value);
+      if (noteParms.isTemplate()) {
+        noteParms.setItemStatusConfig(value);
+      }
+    }
+    else 
+    if (NoteParms.isSeq(common)) {
+      note.setSeq(value);
+    } 
+    else
+    if (NoteParms.isIndex(common)) {
+      note.setIndex(value);
+    }
+    else
+    if (NoteParms.isTeaser(common)) {
+      note.setTeaser(value);
+      return note.getTeaserAsDataValue();
+    }
+    else
+    if (NoteParms.isBody(common)) {
+      note.setBody(value);
+      return note.getBodyAsDataValue();
+    } else {
+      if (noteParms.isTemplate()) {
+        setTypeFromTemplate(fieldDef, value);
+      }
+      DataValueStringBuilder dataValue = new DataValueStringBuilder(value);
+      DataField dataField = new DataField (fieldDef, dataValue);
+      note.storeField(note.getRecDef(), dataField);
+      return dataValue;
+    }
+    return null;
+  }
+  
+  /**
+   When reading a template, set the type of a field from any type given 
+   in angle brackets within its value. 
+  
+   @param fieldDef The definition of the field. 
+   @param data     The field's value in the template. 
+  */
+  private static void setTypeFromTemplate(DataFieldDefinition fieldDef, String data) {
+    int typeDelimLeft = data.indexOf('<');
+    if (typeDelimLeft >= 0) {
+      int typeDelimRight = data.indexOf('>', typeDelimLeft + 1);
+      if (typeDelimRight > typeDelimLeft) {
+        String type = data.substring
+            (typeDelimLeft + 1, typeDelimRight).trim();
+        String typeCommon = StringUtils.commonName(type);
+        if (typeCommon.equals("3")
+            || typeCommon.equals("builder")
+            || typeCommon.equals("longtext")) {
+          fieldDef.setType(DataFieldDefinition.STRING_BUILDER_TYPE);
+        }
+      }
+    }
+  }
+  
   private void addNoteLineLeadingSymbol() {
     leadingSymbols.add(leadingSymbol);
     leadingSymbol = new NoteLineLeadingSymbol();
@@ -44,6 +44,10 @@ public class NoteList
 
   private TagsList        tagsList = new TagsList();
   private TagsModel       tagsModel = new TagsModel();
+  private TagsDictionary  tagsDictionary = new TagsDictionary();
+  
+  /** Full-text index, built the first time it is asked for. */
+  private NoteSearchIndex searchIndex = null;
   
   /*
    New Lists added to allow multiple sequences to be maintained. 
@@ -51,7 +55,8 @@ public class NoteList
   
   /** 
    New notes are added to the end of notes2. Notes are never removed from
-   this list. 
+   this list, other than those merged into another note with the same key
+   at the end of a bulk load. 
   */
   private List<Note>      notes2 = new ArrayList<Note>();
   
@@ -60,7 +65,7 @@ public class NoteList
    This list is sequenced by each note's unique key, and duplicates are
    not allowed. 
   */
-  private List<Integer>   uniqueKeys = new ArrayList<Integer>();
+  private NotePointerList uniqueKeys = new NotePointerList();
   
   private int             uniqueIndex = -1;
   private boolean         uniqueMatch = false;
@@ -70,11 +75,19 @@ public class NoteList
    Items in this list contain an index pointing back to a note in notes2. 
    This list is sequenced by each note's sort key, and duplicates are allowed.
   */
-  private List<Integer>   sortKeys   = new ArrayList<Integer>();
+  private NotePointerList sortKeys   = new NotePointerList();
   
   private int             sortIndex = -1;
   private boolean         sortMatch = false;
   
+  /** 
+   During a bulk load, new notes are simply appended to notes2 and to the 
+   uniqueKeys list, starting at this position in notes2, and the keys are 
+   then sorted all at once when the load ends. 
+  */
+  private boolean         bulkLoading = false;
+  private int             bulkStart = 0;
+  
   private JTable          noteTable = null;
   
 
@@ -121,6 +134,81 @@ public class NoteList
     return tagsModel;
   }
 
+  /**
+   Return the dictionary of tags used within this list, with its index of
+   the notes bearing each tag. Item positions within the dictionary are 
+   assigned as notes are added, and are independent of the list's sort.
+  
+   @return The tags dictionary for this list. 
+  */
+  public TagsDictionary getTagsDictionary () {
+    return tagsDictionary;
+  }
+  
+  /**
+   Select the notes bearing any, or all, of the passed tags, matching tags
+   as Tags.anyTagFound does, but using the tags dictionary rather than 
+   examining each note's tags. 
+  
+   @param selTags  The tags to look for. All notes are selected if none 
+                   are passed. 
+   @param matchAll True if a note must bear all of the tags, false if 
+                   any one will do. 
+  
+   @return The selected notes, ordered by their sort keys. Only the 
+           selected notes are visited, and then sorted. 
+  */
+  public List<Note> selectTagged (Tags selTags, boolean matchAll) {
+    BitSet selected;
+    if (matchAll) {
+      selected = tagsDictionary.selectAll(selTags, false);
+    } else {
+      selected = tagsDictionary.selectAny(selTags, false);
+    }
+    List<Note> notes = new ArrayList<Note>(selected.cardinality());
+    for (int position = selected.nextSetBit(0); 
+        position >= 0; 
+        position = selected.nextSetBit(position + 1)) {
+      notes.add((Note)tagsDictionary.getItem(position));
+    }
+    Collections.sort(notes, new Comparator<Note>() {
+      public int compare (Note note1, Note note2) {
+        return note1.getSortKey(sortParm).compareTo(note2.getSortKey(sortParm));
+      }
+    });
+    return notes;
+  }
+
+  /**
+   Return a full-text index of the words in this list's notes. The index is
+   built the first time it is asked for, and from then on is kept up to 
+   date as notes are added, modified and removed. 
+  
+   @return The full-text index for this list. 
+  */
+  public NoteSearchIndex getSearchIndex () {
+    if (searchIndex == null) {
+      searchIndex = new NoteSearchIndex();
+      for (int i = 0; i < size(); i++) {
+        searchIndex.add(get(i));
+      }
+    }
+    return searchIndex;
+  }
+  
+  /**
+   Find the notes matching a full-text query. 
+  
+   @param query One or more words, prefixes ending with an asterisk, or 
+                phrases in quotation marks, all of which must be found,
+                except where joined by OR. 
+  
+   @return The matching notes, with the best matches first. 
+  */
+  public List<Note> search (String query) {
+    return getSearchIndex().search(query);
+  }
+
   public File getSource () {
     return tagsModel.getSource();
   }
@@ -133,10 +221,7 @@ public class NoteList
    Recreate the list of sorted keys when the sort parameters change. 
   */
   public void sortParmChanged() {
-    sortKeys = new ArrayList<Integer>();
-    for (int i = 0; i < notes2.size(); i++) {
-      addSortKey(i);
-    }
+    sortAllKeys();
     adjustTableStructure();
     // fireTableDataChanged();
   }
@@ -277,6 +362,12 @@ public class NoteList
    exists in the list, the the note to be added will instead be merged with
    the existing note. 
    
+   During a bulk load, the note is simply appended, and the position 
+   returned holds the new note with an index of -1. The note may yet be 
+   merged into another note with the same key when the load ends, so 
+   callers should not hold on to it; findUnique will return the surviving 
+   note once endBulkLoad has been called. 
+   
    @param newNote
    @return A positioned note composed of the resulting note and an index
            pointing to its resulting position in the list.
@@ -287,6 +378,13 @@ public class NoteList
     boolean merged = false;
     int noteIndex = -1;
     
+    if (bulkLoading) {
+      sortParm.maintainSeqStats(newNote.getSeqValue());
+      uniqueKeys.add(notes2.size());
+      notes2.add(newNote);
+      return new NotePositioned(newNote, -1);
+    }
+    
     addUniqueKey(newNote, notes2.size());
     
     sortParm.maintainSeqStats(newNote.getSeqValue());
@@ -305,15 +403,144 @@ public class NoteList
     if (merged) {
       tagsList.modify  (resultingNote);
       tagsModel.modify (resultingNote);
+      tagsDictionary.modify (resultingNote);
+      if (searchIndex != null) {
+        searchIndex.modify (resultingNote);
+      }
     } else {
       tagsList.add  (resultingNote);
       tagsModel.add (resultingNote);
+      tagsDictionary.add (resultingNote);
+      if (searchIndex != null) {
+        searchIndex.add (resultingNote);
+      }
     }
     
     NotePositioned notePositioned = new NotePositioned(resultingNote, sortIndex);
     return notePositioned;
   } // end add method
 
+  /**
+   Prepare to add a large number of notes at once, as when loading a 
+   collection. Until endBulkLoad is called, notes passed to add2 are simply
+   appended to the list, without being sorted or checked for duplicates, 
+   and the list should not otherwise be used. 
+  */
+  public void beginBulkLoad() {
+    if (! bulkLoading) {
+      bulkLoading = true;
+      bulkStart = notes2.size();
+    }
+  }
+  
+  /**
+   Finish a bulk load, sorting all the notes added since beginBulkLoad was
+   called, and merging any with duplicate unique keys, exactly as if they
+   had been added one at a time. 
+  */
+  public void endBulkLoad() {
+    
+    if (! bulkLoading) {
+      return;
+    }
+    bulkLoading = false;
+    
+    // Sort the unique keys. Since the sort is stable, the first note added
+    // with each key will come first among any duplicates. 
+    final String[] keys = new String[notes2.size()];
+    for (int i = 0; i < uniqueKeys.size(); i++) {
+      int noteIndex = uniqueKeys.get(i);
+      keys[noteIndex] = notes2.get(noteIndex).getUniqueKey();
+    }
+    uniqueKeys.sort(new NotePointerList.PointerComparator() {
+      public int compare(int pointer1, int pointer2) {
+        return keys[pointer1].compareTo(keys[pointer2]);
+      }
+    });
+    
+    // Merge duplicates into the first note with the same key
+    boolean[] mergedInto = new boolean[notes2.size()];
+    boolean[] mergedAway = new boolean[notes2.size()];
+    int kept = 0;
+    for (int i = 0; i < uniqueKeys.size(); i++) {
+      int noteIndex = uniqueKeys.get(i);
+      if (kept > 0 
+          && keys[uniqueKeys.get(kept - 1)].equals(keys[noteIndex])) {
+        int keptIndex = uniqueKeys.get(kept - 1);
+        notes2.get(keptIndex).merge(notes2.get(noteIndex));
+        mergedInto[keptIndex] = true;
+        mergedAway[noteIndex] = true;
+      } else {
+        uniqueKeys.set(kept, noteIndex);
+        kept++;
+      }
+    }
+    while (uniqueKeys.size() > kept) {
+      uniqueKeys.remove(uniqueKeys.size() - 1);
+    }
+    
+    // Drop the notes merged away from notes2. Since the first note with 
+    // each key is kept, these all lie beyond bulkStart, and only the 
+    // pointers to the new notes need to be shifted down. 
+    int[] newIndex = new int[notes2.size()];
+    int next = bulkStart;
+    for (int noteIndex = bulkStart; noteIndex < notes2.size(); noteIndex++) {
+      if (! mergedAway[noteIndex]) {
+        newIndex[noteIndex] = next;
+        notes2.set(next, notes2.get(noteIndex));
+        next++;
+      }
+    }
+    notes2.subList(next, notes2.size()).clear();
+    for (int i = 0; i < kept; i++) {
+      int noteIndex = uniqueKeys.get(i);
+      if (noteIndex >= bulkStart) {
+        uniqueKeys.set(i, newIndex[noteIndex]);
+      }
+    }
+    
+    // Add the surviving new notes to the sort keys and the tags
+    for (int i = 0; i < kept; i++) {
+      int noteIndex = uniqueKeys.get(i);
+      Note note = notes2.get(noteIndex);
+      if (noteIndex >= bulkStart) {
+        sortKeys.add(noteIndex);
+        tagsList.add  (note);
+        tagsDictionary.add (note);
+        if (searchIndex != null) {
+          searchIndex.add (note);
+        }
+      }
+      else
+      if (mergedInto[noteIndex]) {
+        tagsList.modify  (note);
+        tagsDictionary.modify (note);
+        if (searchIndex != null) {
+          searchIndex.modify (note);
+        }
+      }
+    }
+    sortAllKeys();
+    
+    // Build the tags tree all at once, rather than a note at a time
+    tagsModel.rebuild(this);
+    fireTableDataChanged();
+  }
+  
+  public boolean isBulkLoading() {
+    return bulkLoading;
+  }
+  
+  /**
+   Return the number of notes stored, including any since removed from 
+   the keys. 
+  
+   @return The size of the underlying list of notes. 
+  */
+  int storedSize() {
+    return notes2.size();
+  }
+
   public NotePositioned modify (NotePositioned modNote) {
     return modify2(modNote);
     
@@ -439,37 +666,97 @@ public class NoteList
     Note modNote = modPosition.getNote();
     sortParm.maintainSeqStats(modNote.getSeqValue());
     String modKey = modNote.getSortKey(sortParm);
-    int index = modPosition.getIndex();
-    boolean moved = false;
+    int oldIndex = modPosition.getIndex();
+    int index = oldIndex;
     while (index > 0
         && (modKey.compareTo(getNoteFromSortIndex(index - 1).getSortKey(sortParm)) < 0)) {
-      Integer pointer = sortKeys.remove(index);
       index--;
-      sortKeys.add(index, pointer);
-      moved = true;
     }
-    if (! moved) {
+    if (index == oldIndex) {
       int lastEntry =  sortKeys.size() - 1;
       while (index < lastEntry
           && (modKey.compareTo(getNoteFromSortIndex(index + 1).getSortKey(sortParm)) > 0)) {
-        Integer pointer = sortKeys.remove(index);
         index++;
-        sortKeys.add(index, pointer);
-        moved = true;
       }
     }
+    boolean moved = (index != oldIndex);
     
     if (moved) {
+      sortKeys.move(oldIndex, index);
       modPosition.setIndex(index);
       fireTableDataChanged();
     }
     
     tagsList.modify(modNote);
     tagsModel.modify(modNote);
+    tagsDictionary.modify(modNote);
+    if (searchIndex != null) {
+      searchIndex.modify(modNote);
+    }
     
     return modPosition;
   }
   
+  /**
+   Replace a note in the list with a new version of the same note, as when
+   the note's file has been changed by another program. If the new version
+   has a different unique key, then the old note is removed and the new 
+   one added; otherwise the new version takes the old note's place, and 
+   is then repositioned as for modify2. 
+  
+   @param oldNote The note now in the list. 
+   @param newNote The new version of the note. 
+  
+   @return A positioned note composed of the new note and an index 
+           pointing to its resulting position in the list. 
+  */
+  public NotePositioned replace2 (Note oldNote, Note newNote) {
+    
+    if (oldNote.getUniqueKey().equalsIgnoreCase(newNote.getUniqueKey())) {
+      findUniqueInternal(oldNote);
+      if (uniqueMatch) {
+        int noteIndex = getNoteIndexFromUniqueIndex(uniqueIndex);
+        // Sort keys need not be unique, so look for the pointer itself
+        int sortIndexOfNote = sortKeys.indexOf(noteIndex);
+        if (sortIndexOfNote >= 0) {
+          notes2.set (noteIndex, newNote);
+          tagsList.remove (oldNote);
+          tagsModel.remove (oldNote);
+          tagsDictionary.remove (oldNote);
+          if (searchIndex != null) {
+            searchIndex.remove (oldNote);
+          }
+          NotePositioned position 
+              = modify2 (new NotePositioned(newNote, sortIndexOfNote));
+          fireTableRowsUpdated(position.getIndex(), position.getIndex());
+          return position;
+        }
+      }
+    } else {
+      remove2 (oldNote);
+    }
+    
+    NotePositioned position = add2 (newNote);
+    fireTableDataChanged();
+    return position;
+  }
+  
+  /**
+   Find the note in the list having the same unique key as the passed note. 
+  
+   @param findNote A note with the unique key to look for. 
+  
+   @return The matching note from the list, or null if there is none. 
+  */
+  public Note findUnique (Note findNote) {
+    findUniqueInternal(findNote);
+    if (uniqueMatch) {
+      return getNoteFromUniqueIndex(uniqueIndex);
+    } else {
+      return null;
+    }
+  }
+  
   public boolean atEnd(NotePositioned position) {
     return (position != null && (position.getIndex() == (sortKeys.size() - 1)));
   }
@@ -508,6 +795,10 @@ public class NoteList
     if (uniqueMatch) {
       uniqueKeys.remove(uniqueIndex);
       tagsModel.remove (noteToRemove);
+      tagsDictionary.remove (noteToRemove);
+      if (searchIndex != null) {
+        searchIndex.remove (noteToRemove);
+      }
       tagsList.remove (noteToRemove);
     }
     
@@ -543,7 +834,7 @@ public class NoteList
 
     boolean merged = false;
     
-    Integer unique = new Integer(index);
+    int unique = index;
     
     uniqueMatch = false;
     
@@ -633,8 +924,7 @@ public class NoteList
   }
   
   private int getNoteIndexFromUniqueIndex (int uniqueIndexIn) {
-    Integer notePointer = uniqueKeys.get(uniqueIndexIn);
-    return notePointer.intValue();
+    return uniqueKeys.get(uniqueIndexIn);
   }
   
   /**
@@ -645,7 +935,7 @@ public class NoteList
    */
   public void addSortKey (int index) {
 
-    Integer sorted = new Integer(index);
+    int sorted = index;
     Note newNote = notes2.get(index);
     
     if (sortKeys.isEmpty()) {
@@ -716,8 +1006,7 @@ public class NoteList
            or zero if the two notes have the same sort keys. 
   */
   private int compareSort(int index, Note note2) {
-    Integer noteIndex = sortKeys.get(index);
-    Note note1 = notes2.get(noteIndex);
+    Note note1 = notes2.get(sortKeys.get(index));
     String key1 = note1.getSortKey(sortParm);
     String key2 = note2.getSortKey(sortParm);
     int compare = key1.compareTo(key2);
@@ -735,8 +1024,24 @@ public class NoteList
   }
   
   private int getNoteIndexFromSortIndex (int sortIndexIn) {
-    Integer notePointer = sortKeys.get(sortIndexIn);
-    return notePointer.intValue();
+    return sortKeys.get(sortIndexIn);
+  }
+  
+  /**
+   Sort the entire list of sort keys at once, computing each note's sort 
+   key only once. 
+  */
+  private void sortAllKeys() {
+    final String[] keys = new String[notes2.size()];
+    for (int i = 0; i < sortKeys.size(); i++) {
+      int noteIndex = sortKeys.get(i);
+      keys[noteIndex] = notes2.get(noteIndex).getSortKey(sortParm);
+    }
+    sortKeys.sort(new NotePointerList.PointerComparator() {
+      public int compare(int pointer1, int pointer2) {
+        return keys[pointer1].compareTo(keys[pointer2]);
+      }
+    });
   }
   
   /* ===================================================================
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import java.util.*;
+
+/**
+ A growable list of pointers into a list of notes, kept as primitive ints
+ so that no object need be allocated for each note, and so that entries
+ can be inserted, removed and moved with a single array copy.
+ <p>
+ The list may be kept in order by binary searching for each insertion
+ point, or may be loaded in any order and then sorted all at once.
+
+ @author Herb Bowie
+ */
+class NotePointerList {
+
+  private    int[]              pointers;
+  private    int                size = 0;
+
+  /**
+   Compares two notes, given their pointers.
+  */
+  interface PointerComparator {
+    int compare (int pointer1, int pointer2);
+  }
+
+  NotePointerList () {
+    this (64);
+  }
+
+  NotePointerList (int capacity) {
+    pointers = new int [Math.max (capacity, 1)];
+  }
+
+  int size () {
+    return size;
+  }
+
+  boolean isEmpty () {
+    return (size == 0);
+  }
+
+  int get (int index) {
+    checkIndex (index);
+    return pointers [index];
+  }
+
+  void set (int index, int pointer) {
+    checkIndex (index);
+    pointers [index] = pointer;
+  }
+
+  /**
+   Add a pointer to the end of the list.
+  */
+  void add (int pointer) {
+    ensureCapacity (size + 1);
+    pointers [size] = pointer;
+    size++;
+  }
+
+  /**
+   Insert a pointer at the given position, shifting later entries down.
+  */
+  void add (int index, int pointer) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException ("Index: " + String.valueOf (index)
+          + ", Size: " + String.valueOf (size));
+    }
+    ensureCapacity (size + 1);
+    System.arraycopy (pointers, index, pointers, index + 1, size - index);
+    pointers [index] = pointer;
+    size++;
+  }
+
+  /**
+   Remove the pointer at the given position, shifting later entries up.
+
+   @return The pointer removed.
+  */
+  int remove (int index) {
+    checkIndex (index);
+    int pointer = pointers [index];
+    System.arraycopy (pointers, index + 1, pointers, index, size - index - 1);
+    size--;
+    return pointer;
+  }
+
+  /**
+   Move the pointer at one position to another, shifting the entries
+   in between by one.
+  */
+  void move (int from, int to) {
+    checkIndex (from);
+    checkIndex (to);
+    int pointer = pointers [from];
+    if (from < to) {
+      System.arraycopy (pointers, from + 1, pointers, from, to - from);
+    }
+    else
+    if (from > to) {
+      System.arraycopy (pointers, to, pointers, to + 1, from - to);
+    }
+    pointers [to] = pointer;
+  }
+
+  /**
+   Return the position of the given pointer, or -1 if it is not in the list.
+  */
+  int indexOf (int pointer) {
+    for (int i = 0; i < size; i++) {
+      if (pointers [i] == pointer) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  void clear () {
+    size = 0;
+  }
+
+  /**
+   Sort the list, keeping pointers that compare as equal in their
+   existing order.
+
+   @param comparator Compares the notes the pointers point to.
+  */
+  void sort (PointerComparator comparator) {
+    if (size < 2) {
+      return;
+    }
+    int[] work = new int [size];
+    mergeSort (pointers, work, 0, size, comparator);
+  }
+
+  /**
+   Sort one range of an array, using a second array of the same size as
+   working storage.
+  */
+  private static void mergeSort (int[] array, int[] work, int low, int high,
+      PointerComparator comparator) {
+
+    if (high - low < 8) {
+      // Insertion sort for short ranges
+      for (int i = low + 1; i < high; i++) {
+        int pointer = array [i];
+        int j = i;
+        while (j > low && comparator.compare (array [j - 1], pointer) > 0) {
+          array [j] = array [j - 1];
+          j--;
+        }
+        array [j] = pointer;
+      }
+      return;
+    }
+
+    int middle = (low + high) >>> 1;
+    mergeSort (array, work, low, middle, comparator);
+    mergeSort (array, work, middle, high, comparator);
+    if (comparator.compare (array [middle - 1], array [middle]) <= 0) {
+      // Already in order
+      return;
+    }
+
+    System.arraycopy (array, low, work, low, high - low);
+    int left = low;
+    int right = middle;
+    for (int i = low; i < high; i++) {
+      if (right >= high
+          || (left < middle
+            && comparator.compare (work [left], work [right]) <= 0)) {
+        array [i] = work [left];
+        left++;
+      } else {
+        array [i] = work [right];
+        right++;
+      }
+    }
+  }
+
+  private void ensureCapacity (int capacity) {
+    if (capacity > pointers.length) {
+      int newCapacity = Math.max (capacity, pointers.length * 2);
+      pointers = Arrays.copyOf (pointers, newCapacity);
+    }
+  }
+
+  private void checkIndex (int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException ("Index: " + String.valueOf (index)
+          + ", Size: " + String.valueOf (size));
+    }
+  }
+
+}
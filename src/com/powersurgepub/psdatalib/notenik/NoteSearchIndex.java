@@ -0,0 +1,819 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import java.util.*;
+
+/**
+ A full-text index of the words found in the fields of a collection of
+ notes, for fast searching.
+ <p>
+ Each field of each note is broken into words, consisting of letters and
+ digits, and folded to lower case. For each distinct word, the index keeps
+ a list of the notes containing the word, with the positions of the word
+ within each note, compressed as variable-length deltas. Each note is
+ assigned a number when it is added; numbers are never reused, so that
+ the lists for notes added later need only be appended to. When a note is
+ removed, its number is marked as no longer in use, and the lists of its
+ words are rewritten without it once they hold more removed notes than
+ current ones. A modified note is simply removed and added again.
+ <p>
+ A query consists of one or more terms, separated by spaces. Each term
+ may be a word, a prefix ending with an asterisk, or a phrase enclosed in
+ quotation marks. Notes must match every term, except that terms joined
+ by the word OR, in capitals, are alternatives, any one of which may be
+ matched. Matching notes are ranked by the frequency of the terms within
+ each note, with each term weighted by how rare it is in the collection.
+
+ @author Herb Bowie
+ */
+public class NoteSearchIndex {
+
+  public static final String  OR = "OR";
+
+  public static final char    PREFIX_MARKER = '*';
+
+  public static final char    PHRASE_MARKER = '"';
+
+  /** Removed notes a word's list may hold before the list is rewritten. */
+  private static final int    MIN_REMOVED_TO_COMPACT = 8;
+
+  /** Ids of all the words indexed, in alphabetical order. */
+  private    TreeMap<String, Integer> wordIds = new TreeMap<String, Integer>();
+
+  /** Postings for each word, indexed by word id. */
+  private    ArrayList<Postings> postings = new ArrayList<Postings>();
+
+  /** Notes indexed, by number, with null for notes since removed. */
+  private    ArrayList<Note>    notes = new ArrayList<Note>();
+
+  /** Ids of the distinct words found in each note, by number. */
+  private    ArrayList<int[]>   noteWords = new ArrayList<int[]>();
+
+  /** Numbers of the notes indexed, keyed by the notes themselves. */
+  private    IdentityHashMap<Note, Integer> numbers
+      = new IdentityHashMap<Note, Integer>();
+
+  /** Numbers of the notes currently in the index. */
+  private    BitSet             current = new BitSet();
+
+  private    int                numberOfNotes = 0;
+
+  public NoteSearchIndex() {
+
+  }
+
+  /**
+   Add a note to the index. If the note is already in the index, then it
+   is indexed again.
+
+   @param note The note to be added.
+  */
+  public void add (Note note) {
+    if (numbers.containsKey (note)) {
+      remove (note);
+    }
+    index (note, textOf (note));
+  }
+
+  /**
+   Index a note again, after its fields may have changed.
+
+   @param note The note just modified.
+  */
+  public void modify (Note note) {
+    add (note);
+  }
+
+  /**
+   Remove a note from the index.
+
+   @param note The note to be removed.
+  */
+  public void remove (Note note) {
+    Integer number = numbers.remove (note);
+    if (number == null) {
+      return;
+    }
+    int n = number.intValue();
+    int[] words = noteWords.get (n);
+    for (int i = 0; i < words.length; i++) {
+      Postings wordPostings = postings.get (words [i]);
+      wordPostings.removed++;
+      wordPostings.notes--;
+    }
+    notes.set (n, null);
+    noteWords.set (n, null);
+    current.clear (n);
+    numberOfNotes--;
+    for (int i = 0; i < words.length; i++) {
+      Postings wordPostings = postings.get (words [i]);
+      if (wordPostings.removed >= MIN_REMOVED_TO_COMPACT
+          && wordPostings.removed > wordPostings.notes) {
+        wordPostings.compact (current);
+      }
+    }
+  }
+
+  /**
+   Remove all notes from the index.
+  */
+  public void clear () {
+    wordIds.clear();
+    postings.clear();
+    notes.clear();
+    noteWords.clear();
+    numbers.clear();
+    current.clear();
+    numberOfNotes = 0;
+  }
+
+  /**
+   Return the text of each of a note's fields.
+  */
+  private static String[] textOf (Note note) {
+    String[] text = new String [note.getNumberOfFields()];
+    for (int i = 0; i < text.length; i++) {
+      text [i] = note.getField(i).getData();
+    }
+    return text;
+  }
+
+  /**
+   Index the given text for a note, assigning the note a new number.
+
+   @param note The note being indexed.
+   @param text The text of each of the note's fields.
+  */
+  void index (Note note, String[] text) {
+
+    int n = notes.size();
+    notes.add (note);
+    numbers.put (note, Integer.valueOf (n));
+    current.set (n);
+    numberOfNotes++;
+
+    // Gather the positions of each word within the note
+    LinkedHashMap<Integer, IntList> positions
+        = new LinkedHashMap<Integer, IntList>();
+    int position = 0;
+    for (int f = 0; f < text.length; f++) {
+      String fieldText = text [f];
+      if (fieldText == null) {
+        continue;
+      }
+      int i = 0;
+      while (i < fieldText.length()) {
+        int start = nextWordStart (fieldText, i);
+        if (start >= fieldText.length()) {
+          break;
+        }
+        int end = nextWordEnd (fieldText, start);
+        Integer id = intern (fold (fieldText, start, end));
+        IntList wordPositions = positions.get (id);
+        if (wordPositions == null) {
+          wordPositions = new IntList();
+          positions.put (id, wordPositions);
+        }
+        wordPositions.add (position);
+        position++;
+        i = end;
+      }
+      // Leave a gap, so that phrases do not run from one field to the next
+      position++;
+    }
+
+    int[] words = new int [positions.size()];
+    int w = 0;
+    for (Map.Entry<Integer, IntList> entry : positions.entrySet()) {
+      int id = entry.getKey().intValue();
+      postings.get(id).append (n, entry.getValue());
+      words [w] = id;
+      w++;
+    }
+    noteWords.add (words);
+  }
+
+  /**
+   Return the id for a word, assigning a new one if the word has not been
+   seen before.
+  */
+  private Integer intern (String word) {
+    Integer id = wordIds.get (word);
+    if (id == null) {
+      id = Integer.valueOf (postings.size());
+      wordIds.put (word, id);
+      postings.add (new Postings());
+    }
+    return id;
+  }
+
+  /**
+   Return the number of notes in the index.
+
+   @return The number of notes currently indexed.
+  */
+  public int getNumberOfNotes () {
+    return numberOfNotes;
+  }
+
+  /**
+   Return the number of distinct words seen so far.
+
+   @return The number of words indexed, including any no longer found in
+           any current note.
+  */
+  public int getNumberOfWords () {
+    return postings.size();
+  }
+
+  /**
+   Return the number of notes containing the given word.
+
+   @param word The word to look for.
+
+   @return The number of current notes containing the word.
+  */
+  public int getNumberOfNotesContaining (String word) {
+    Integer id = wordIds.get (word.toLowerCase());
+    if (id == null) {
+      return 0;
+    } else {
+      return postings.get(id.intValue()).notes;
+    }
+  }
+
+  /**
+   Find the notes matching a query, with the best matches first.
+
+   @param query The query, as described for this class.
+
+   @return The matching notes, ranked by relevance.
+  */
+  public List<Note> search (String query) {
+    Matches matches = match (query);
+
+    // Rank the matches, keeping notes with equal scores in the order added.
+    // Scores are never negative, so the bits of each score as a float sort
+    // in the same order as the scores themselves, and each score can be
+    // packed with its match's position into a single long for sorting.
+    long[] order = new long [matches.size];
+    for (int i = 0; i < matches.size; i++) {
+      long bits = Float.floatToIntBits ((float)matches.scores [i]);
+      order [i] = ((Integer.MAX_VALUE - bits) << 32) | i;
+    }
+    Arrays.sort (order);
+
+    ArrayList<Note> found = new ArrayList<Note>(matches.size);
+    for (int i = 0; i < order.length; i++) {
+      found.add (notes.get (matches.numbers [(int)order [i]]));
+    }
+    return found;
+  }
+
+  /**
+   Find the notes matching a query.
+
+   @param query The query, as described for this class.
+
+   @return The numbers of the matching notes, in ascending order, with
+           their scores.
+  */
+  private Matches match (String query) {
+    Matches result = null;
+    Matches alternatives = null;
+    boolean orPending = false;
+    int i = 0;
+    while (i < query.length()) {
+
+      // Skip white space
+      while (i < query.length()
+          && Character.isWhitespace (query.charAt (i))) {
+        i++;
+      }
+      if (i >= query.length()) {
+        break;
+      }
+
+      // Find the next term
+      boolean phrase = false;
+      int start = i;
+      int end;
+      if (query.charAt (i) == PHRASE_MARKER) {
+        phrase = true;
+        start = i + 1;
+        end = query.indexOf (PHRASE_MARKER, start);
+        if (end < 0) {
+          end = query.length();
+        }
+        i = end + 1;
+      } else {
+        while (i < query.length()
+            && (! Character.isWhitespace (query.charAt (i)))) {
+          i++;
+        }
+        end = i;
+      }
+      String term = query.substring (start, end);
+
+      if ((! phrase) && term.equals (OR)) {
+        orPending = (alternatives != null);
+        continue;
+      }
+
+      Matches termMatches;
+      if ((! phrase)
+          && term.length() > 1
+          && term.charAt (term.length() - 1) == PREFIX_MARKER) {
+        termMatches = matchPrefix (term.substring (0, term.length() - 1));
+      } else {
+        termMatches = matchPhrase (term);
+      }
+      if (termMatches == null) {
+        // Nothing searchable in the term
+        continue;
+      }
+
+      if (orPending) {
+        alternatives = alternatives.or (termMatches);
+        orPending = false;
+      } else {
+        if (alternatives != null) {
+          result = (result == null ? alternatives : result.and (alternatives));
+        }
+        alternatives = termMatches;
+      }
+    }
+    if (alternatives != null) {
+      result = (result == null ? alternatives : result.and (alternatives));
+    }
+    if (result == null) {
+      result = new Matches (0);
+    }
+    return result;
+  }
+
+  /**
+   Find the notes containing any word beginning with the given prefix.
+
+   @return The matching notes, or null if the prefix contains no letters
+           or digits.
+  */
+  private Matches matchPrefix (String prefix) {
+    int start = nextWordStart (prefix, 0);
+    if (start >= prefix.length()) {
+      return null;
+    }
+    int end = nextWordEnd (prefix, start);
+    if (end < prefix.length()) {
+      // More than one word: treat the last one as a prefix within a phrase
+      return matchPhrase (prefix + PREFIX_MARKER);
+    }
+    String folded = fold (prefix, start, end);
+    Matches matches = new Matches (0);
+    SortedMap<String, Integer> words
+        = wordIds.subMap (folded, folded + Character.MAX_VALUE);
+    for (Integer id : words.values()) {
+      matches = matches.or (matchWord (id.intValue()));
+    }
+    return matches;
+  }
+
+  /**
+   Find the notes containing a single word.
+  */
+  private Matches matchWord (int id) {
+    Postings wordPostings = postings.get (id);
+    double weight = weight (wordPostings);
+    Matches matches = new Matches (wordPostings.notes);
+    PostingsReader reader = new PostingsReader (wordPostings);
+    while (reader.next()) {
+      if (current.get (reader.number)) {
+        matches.add (reader.number, score (reader.frequency, weight));
+      }
+    }
+    return matches;
+  }
+
+  /**
+   Find the notes containing the words of a phrase, one after another.
+   A single word is matched on its own, and a final word ending with an
+   asterisk is treated as a prefix.
+
+   @return The matching notes, or null if the phrase contains no letters
+           or digits.
+  */
+  private Matches matchPhrase (String phrase) {
+
+    // Break the phrase into words
+    ArrayList<String> words = new ArrayList<String>();
+    int i = 0;
+    int end = 0;
+    while (i < phrase.length()) {
+      int start = nextWordStart (phrase, i);
+      if (start >= phrase.length()) {
+        break;
+      }
+      end = nextWordEnd (phrase, start);
+      words.add (fold (phrase, start, end));
+      i = end;
+    }
+    if (words.isEmpty()) {
+      return null;
+    }
+    boolean lastIsPrefix = (end < phrase.length()
+        && phrase.charAt (end) == PREFIX_MARKER);
+
+    // Find the ids of the words
+    int[][] ids = new int [words.size()][];
+    for (int w = 0; w < words.size(); w++) {
+      if (lastIsPrefix && w == words.size() - 1) {
+        Collection<Integer> prefixed = wordIds.subMap
+            (words.get (w), words.get (w) + Character.MAX_VALUE).values();
+        ids [w] = new int [prefixed.size()];
+        int p = 0;
+        for (Integer id : prefixed) {
+          ids [w][p] = id.intValue();
+          p++;
+        }
+      } else {
+        Integer id = wordIds.get (words.get (w));
+        if (id == null) {
+          ids [w] = new int [0];
+        } else {
+          ids [w] = new int[] { id.intValue() };
+        }
+      }
+      if (ids [w].length == 0) {
+        return new Matches (0);
+      }
+    }
+    if (ids.length == 1 && ids [0].length == 1) {
+      return matchWord (ids [0][0]);
+    }
+
+    // Gather the positions of each word within each note containing it
+    ArrayList<HashMap<Integer, int[]>> wordPositions
+        = new ArrayList<HashMap<Integer, int[]>>();
+    double weight = 0.0;
+    for (int w = 0; w < ids.length; w++) {
+      HashMap<Integer, int[]> positions = new HashMap<Integer, int[]>();
+      for (int p = 0; p < ids [w].length; p++) {
+        Postings wordPostings = postings.get (ids [w][p]);
+        if (p == 0) {
+          weight = weight + weight (wordPostings);
+        }
+        PostingsReader reader = new PostingsReader (wordPostings);
+        while (reader.next()) {
+          int number = reader.number;
+          if (current.get (number)
+              && (w == 0 || wordPositions.get(0).containsKey (number))) {
+            int[] found = reader.readPositions();
+            int[] already = positions.get (number);
+            if (already != null) {
+              found = merge (already, found);
+            }
+            positions.put (number, found);
+          }
+        }
+      }
+      wordPositions.add (positions);
+    }
+
+    // Keep the notes in which the words follow one another
+    ArrayList<Integer> candidates
+        = new ArrayList<Integer>(wordPositions.get(0).keySet());
+    Collections.sort (candidates);
+    Matches matches = new Matches (candidates.size());
+    for (Integer number : candidates) {
+      int[] firstPositions = wordPositions.get(0).get (number);
+      int frequency = 0;
+      for (int f = 0; f < firstPositions.length; f++) {
+        boolean found = true;
+        for (int w = 1; w < ids.length && found; w++) {
+          int[] positions = wordPositions.get(w).get (number);
+          found = (positions != null
+              && Arrays.binarySearch (positions, firstPositions [f] + w) >= 0);
+        }
+        if (found) {
+          frequency++;
+        }
+      }
+      if (frequency > 0) {
+        matches.add (number.intValue(), score (frequency, weight));
+      }
+    }
+    return matches;
+  }
+
+  /**
+   Merge two sorted arrays of positions.
+  */
+  private static int[] merge (int[] a, int[] b) {
+    int[] merged = new int [a.length + b.length];
+    System.arraycopy (a, 0, merged, 0, a.length);
+    System.arraycopy (b, 0, merged, a.length, b.length);
+    Arrays.sort (merged);
+    return merged;
+  }
+
+  /**
+   Weight a word by its rarity within the collection.
+  */
+  private double weight (Postings wordPostings) {
+    return Math.log (1.0 + ((double)numberOfNotes
+        / (double)Math.max (wordPostings.notes, 1)));
+  }
+
+  /**
+   Score a term found a number of times within a note.
+  */
+  private static double score (int frequency, double weight) {
+    return (1.0 + Math.log (frequency)) * weight;
+  }
+
+  /**
+   Return the position of the first letter or digit at or after the given
+   position, or the length of the text if there is none.
+  */
+  private static int nextWordStart (String text, int i) {
+    while (i < text.length() && (! Character.isLetterOrDigit (text.charAt (i)))) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   Return the position just past the end of the word starting at the given
+   position.
+  */
+  private static int nextWordEnd (String text, int i) {
+    while (i < text.length() && Character.isLetterOrDigit (text.charAt (i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   Return a word from the text, folded to lower case.
+  */
+  private static String fold (String text, int start, int end) {
+    char[] chars = new char [end - start];
+    for (int i = start; i < end; i++) {
+      chars [i - start] = Character.toLowerCase (text.charAt (i));
+    }
+    return new String (chars);
+  }
+
+  /**
+   A growable list of ints.
+  */
+  static class IntList {
+
+    int[]   values = new int [4];
+    int     size = 0;
+
+    void add (int value) {
+      if (size >= values.length) {
+        values = Arrays.copyOf (values, values.length * 2);
+      }
+      values [size] = value;
+      size++;
+    }
+  }
+
+  /**
+   The notes containing one word, with the positions of the word in each.
+   For each note the list holds the difference between the note's number
+   and that of the prior note, the number of times the word appears, and
+   the difference between each position and the prior one, each as a
+   variable-length int: seven bits to a byte, with the high bit set on
+   every byte but the last.
+  */
+  static class Postings {
+
+    byte[]  bytes = new byte [8];
+    int     length = 0;
+    int     lastNumber = -1;
+
+    /** Number of current notes in the list. */
+    int     notes = 0;
+
+    /** Number of removed notes still in the list. */
+    int     removed = 0;
+
+    /**
+     Append a note, which must have a higher number than any already here.
+    */
+    void append (int number, IntList positions) {
+      writeInt (number - lastNumber);
+      writeInt (positions.size);
+      int lastPosition = 0;
+      for (int i = 0; i < positions.size; i++) {
+        writeInt (positions.values [i] - lastPosition);
+        lastPosition = positions.values [i];
+      }
+      lastNumber = number;
+      notes++;
+    }
+
+    private void writeInt (int value) {
+      if (length + 5 > bytes.length) {
+        bytes = Arrays.copyOf (bytes, Math.max (bytes.length * 2, length + 5));
+      }
+      while ((value & ~0x7F) != 0) {
+        bytes [length] = (byte)((value & 0x7F) | 0x80);
+        length++;
+        value = value >>> 7;
+      }
+      bytes [length] = (byte)value;
+      length++;
+    }
+
+    /**
+     Rewrite the list without the notes that have been removed.
+
+     @param current The numbers of the notes still current.
+    */
+    void compact (BitSet current) {
+      PostingsReader reader = new PostingsReader (this);
+      byte[] oldBytes = bytes;
+      bytes = new byte [Math.max (8, length / 2)];
+      length = 0;
+      lastNumber = -1;
+      notes = 0;
+      removed = 0;
+      IntList positions = new IntList();
+      while (reader.next()) {
+        if (current.get (reader.number)) {
+          int[] found = reader.readPositions();
+          positions.size = 0;
+          for (int i = 0; i < found.length; i++) {
+            positions.add (found [i]);
+          }
+          append (reader.number, positions);
+        }
+      }
+    }
+  }
+
+  /**
+   Reads the notes and positions from a postings list.
+  */
+  static class PostingsReader {
+
+    private byte[]  bytes;
+    private int     length;
+    private int     offset = 0;
+
+    /** Positions not yet read for the current note. */
+    private int     positionsLeft = 0;
+    private int     lastPosition = 0;
+
+    int             number = -1;
+    int             frequency = 0;
+
+    PostingsReader (Postings postings) {
+      bytes = postings.bytes;
+      length = postings.length;
+    }
+
+    /**
+     Move on to the next note in the list.
+
+     @return True if there was another note.
+    */
+    boolean next () {
+      while (positionsLeft > 0) {
+        readInt();
+        positionsLeft--;
+      }
+      if (offset >= length) {
+        return false;
+      }
+      number = number + readInt();
+      frequency = readInt();
+      positionsLeft = frequency;
+      lastPosition = 0;
+      return true;
+    }
+
+    /**
+     Read the positions of the word within the current note.
+    */
+    int[] readPositions () {
+      int[] positions = new int [positionsLeft];
+      for (int i = 0; i < positions.length; i++) {
+        lastPosition = lastPosition + readInt();
+        positions [i] = lastPosition;
+      }
+      positionsLeft = 0;
+      return positions;
+    }
+
+    private int readInt () {
+      int value = 0;
+      int shift = 0;
+      byte b = bytes [offset];
+      offset++;
+      while ((b & 0x80) != 0) {
+        value = value | ((b & 0x7F) << shift);
+        shift = shift + 7;
+        b = bytes [offset];
+        offset++;
+      }
+      return value | (b << shift);
+    }
+  }
+
+  /**
+   Notes matching a query, in ascending order of number, with scores.
+  */
+  static class Matches {
+
+    int[]     numbers;
+    double[]  scores;
+    int       size = 0;
+
+    Matches (int capacity) {
+      numbers = new int [Math.max (capacity, 1)];
+      scores = new double [Math.max (capacity, 1)];
+    }
+
+    void add (int number, double score) {
+      if (size >= numbers.length) {
+        numbers = Arrays.copyOf (numbers, numbers.length * 2);
+        scores = Arrays.copyOf (scores, scores.length * 2);
+      }
+      numbers [size] = number;
+      scores [size] = score;
+      size++;
+    }
+
+    /**
+     Return the notes found here or in the other matches, adding the
+     scores of notes found in both.
+    */
+    Matches or (Matches other) {
+      Matches result = new Matches (size + other.size);
+      int i = 0;
+      int j = 0;
+      while (i < size || j < other.size) {
+        if (j >= other.size
+            || (i < size && numbers [i] < other.numbers [j])) {
+          result.add (numbers [i], scores [i]);
+          i++;
+        }
+        else
+        if (i >= size || other.numbers [j] < numbers [i]) {
+          result.add (other.numbers [j], other.scores [j]);
+          j++;
+        } else {
+          result.add (numbers [i], scores [i] + other.scores [j]);
+          i++;
+          j++;
+        }
+      }
+      return result;
+    }
+
+    /**
+     Return the notes found both here and in the other matches, adding
+     their scores.
+    */
+    Matches and (Matches other) {
+      Matches result = new Matches (Math.min (size, other.size));
+      int i = 0;
+      int j = 0;
+      while (i < size && j < other.size) {
+        if (numbers [i] < other.numbers [j]) {
+          i++;
+        }
+        else
+        if (other.numbers [j] < numbers [i]) {
+          j++;
+        } else {
+          result.add (numbers [i], scores [i] + other.scores [j]);
+          i++;
+          j++;
+        }
+      }
+      return result;
+    }
+  }
+
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import com.powersurgepub.psdatalib.psdata.values.*;
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+  import java.util.*;
+
+/**
+ A snapshot of the notes in a collection, as last loaded, stored in a
+ binary file within the collection's folder so that notes whose files have
+ not changed since can be rebuilt without being parsed again.
+ <p>
+ For each note the snapshot holds the path of its file, relative to the
+ collection folder, the file's size and last modified time, and the names
+ and values of the note's fields. The snapshot also records a signature of
+ the collection's note parameters, and is ignored entirely if these have
+ since changed, as when a template has been edited.
+
+ @author Herb Bowie
+ */
+public class NoteSnapshot {
+
+  /** Name of the snapshot file, hidden so that it is not read as a note. */
+  public static final String    FILE_NAME = ".notenik_snapshot";
+
+  private static final int      MAGIC = 0x4e4b534e;
+  private static final int      VERSION = 1;
+
+  private    File               file;
+  private    String             signature;
+
+  /** Absolute path of the collection folder, ending with a separator. */
+  private    String             homePrefix;
+
+  /** Entries read from the existing snapshot, keyed by relative path. */
+  private    HashMap<String, Entry> previous = new HashMap<String, Entry>();
+
+  /** Entries for the notes loaded this time, in load sequence. */
+  private    ArrayList<Entry>   current = new ArrayList<Entry>();
+
+  /** Number of notes rebuilt from the previous snapshot. */
+  private    int                reused = 0;
+
+  /**
+   Prepare a snapshot for a collection, reading any existing snapshot file.
+   Any trouble reading the file is logged, and the snapshot then starts
+   out empty.
+
+   @param homeFolder The collection's folder.
+   @param noteParms  The parameters used to build the collection's notes.
+  */
+  public NoteSnapshot (File homeFolder, NoteParms noteParms) {
+    file = new File (homeFolder, FILE_NAME);
+    homePrefix = homeFolder.getAbsolutePath();
+    if (! homePrefix.endsWith (File.separator)) {
+      homePrefix = homePrefix + File.separator;
+    }
+    signature = signatureOf (noteParms);
+    if (file.exists()) {
+      try {
+        read();
+      } catch (IOException e) {
+        previous.clear();
+        Logger.getShared().recordEvent (LogEvent.MINOR,
+            "Note snapshot " + file.toString() + " could not be read", false);
+      }
+    }
+  }
+
+  /**
+   Describe the note parameters that affect how a note is parsed.
+
+   @param noteParms The note parameters for the collection.
+
+   @return A string that will change whenever the parameters do.
+  */
+  static String signatureOf (NoteParms noteParms) {
+    StringBuilder sig = new StringBuilder();
+    sig.append (String.valueOf (noteParms.getNoteType()));
+    RecordDefinition recDef = noteParms.getRecDef();
+    if (recDef != null) {
+      for (int i = 0; i < recDef.getNumberOfFields(); i++) {
+        DataFieldDefinition def = recDef.getDef (i);
+        sig.append ('|');
+        sig.append (def.getProperName());
+        sig.append (':');
+        sig.append (String.valueOf (def.getType()));
+      }
+    }
+    return sig.toString();
+  }
+
+  /**
+   Read the snapshot file, if it was written with the same note parameters.
+
+   @throws IOException If the file cannot be read.
+  */
+  private void read ()
+      throws IOException {
+    DataInputStream in 
+        = NoteBinaryFile.openForInput (file, MAGIC, VERSION, signature);
+    if (in == null) {
+      return;
+    }
+    try {
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        String path = NoteBinaryFile.readString (in);
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        int fields = in.readInt();
+        String[] names = new String [fields];
+        String[] values = new String [fields];
+        for (int j = 0; j < fields; j++) {
+          names [j] = NoteBinaryFile.readString (in);
+          values [j] = NoteBinaryFile.readString (in);
+        }
+        previous.put (path, new Entry (path, size, lastModified, names, values));
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   Return the path of a note file, relative to the collection folder.
+
+   @param noteFile A file within the collection.
+
+   @return The path used to identify the file within the snapshot.
+  */
+  String pathOf (File noteFile) {
+    String path = noteFile.getAbsolutePath();
+    if (path.startsWith (homePrefix)) {
+      return path.substring (homePrefix.length());
+    } else {
+      return path;
+    }
+  }
+
+  /**
+   Indicate whether a note file is unchanged since the snapshot was taken.
+
+   @param path         The file's path, relative to the collection folder.
+   @param size         The file's current size.
+   @param lastModified The file's current last modified time.
+
+   @return True if the note can be rebuilt from the snapshot.
+  */
+  boolean isUnchanged (String path, long size, long lastModified) {
+    Entry entry = previous.get (path);
+    return (entry != null
+        && entry.size == size
+        && entry.lastModified == lastModified);
+  }
+
+  /**
+   Rebuild a note from the snapshot, if its file has not changed since the
+   snapshot was taken. The note's entry is carried forward into the new
+   snapshot.
+
+   @param noteIO       The note I/O module loading the collection.
+   @param noteFile     The note's file.
+   @param path         The file's path, relative to the collection folder.
+   @param size         The file's current size.
+   @param lastModified The file's current last modified time.
+
+   @return The rebuilt note, or null if the note must be read from its file.
+  */
+  Note restore (NoteIO noteIO, File noteFile, String path,
+      long size, long lastModified) {
+    if (! isUnchanged (path, size, lastModified)) {
+      return null;
+    }
+    Entry entry = previous.get (path);
+    Note note = noteIO.startNote (noteFile, "", lastModified);
+    NoteParms noteParms = noteIO.getNoteParms();
+    for (int i = 0; i < entry.names.length; i++) {
+      DataFieldDefinition fieldDef 
+          = noteParms.checkForFieldName (entry.names [i]);
+      if (fieldDef == null) {
+        fieldDef = new DataFieldDefinition (entry.names [i]);
+      }
+      NoteLine.storeField (noteParms, note, fieldDef, entry.values [i]);
+    }
+    current.add (entry);
+    reused++;
+    return note;
+  }
+
+  /**
+   Add a note just read from its file to the new snapshot.
+
+   @param note         The note read.
+   @param path         The file's path, relative to the collection folder.
+   @param size         The file's size.
+   @param lastModified The file's last modified time.
+  */
+  void add (Note note, String path, long size, long lastModified) {
+    int fields = note.getNumberOfFields();
+    String[] names = new String [fields];
+    String[] values = new String [fields];
+    for (int i = 0; i < fields; i++) {
+      DataField field = note.getField (i);
+      names [i] = field.getDef().getProperName();
+      values [i] = field.getDataValue().toString();
+    }
+    current.add (new Entry (path, size, lastModified, names, values));
+  }
+
+  /**
+   Return the number of notes rebuilt from the previous snapshot.
+
+   @return The number of notes that did not need to be parsed.
+  */
+  public int getNumberReused () {
+    return reused;
+  }
+
+  /**
+   Indicate whether the new snapshot differs from the one read.
+
+   @return True if any notes were read from their files, or if any notes
+           in the previous snapshot were not found this time.
+  */
+  public boolean isChanged () {
+    return (reused < current.size() || reused < previous.size());
+  }
+
+  /**
+   Write the new snapshot, if it has changed, to a temporary file that then
+   atomically replaces the old one. Any trouble is logged, and the old
+   snapshot deleted.
+  */
+  public void save () {
+    if (! isChanged()) {
+      return;
+    }
+    try {
+      NoteBinaryFile.save (file, MAGIC, VERSION, signature, 
+          new NoteBinaryFile.Contents() {
+        public void write (DataOutputStream out)
+            throws IOException {
+          out.writeInt (current.size());
+          for (int i = 0; i < current.size(); i++) {
+            Entry entry = current.get (i);
+            NoteBinaryFile.writeString (out, entry.path);
+            out.writeLong (entry.size);
+            out.writeLong (entry.lastModified);
+            out.writeInt (entry.names.length);
+            for (int j = 0; j < entry.names.length; j++) {
+              NoteBinaryFile.writeString (out, entry.names [j]);
+              NoteBinaryFile.writeString (out, entry.values [j]);
+            }
+          }
+        }
+      });
+    } catch (IOException e) {
+      file.delete();
+      Logger.getShared().recordEvent (LogEvent.MINOR,
+          "Note snapshot " + file.toString() + " could not be written", false);
+    }
+  }
+
+  /**
+   The snapshot of one note.
+  */
+  static class Entry {
+
+    String   path;
+    long     size;
+    long     lastModified;
+    String[] names;
+    String[] values;
+
+    Entry (String path, long size, long lastModified,
+        String[] names, String[] values) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.names = names;
+      this.values = values;
+    }
+
+  }
+
+}
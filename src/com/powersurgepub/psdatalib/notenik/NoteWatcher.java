@@ -0,0 +1,488 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+  import java.nio.file.*;
+  import java.nio.file.attribute.*;
+  import java.util.*;
+  import java.util.concurrent.*;
+  import javax.swing.*;
+
+/**
+ Watches the folder holding a collection of notes, and its sub-folders, for
+ note files created, modified or deleted by other programs, and applies
+ each change to the collection's note list, so that the whole collection
+ need not be reloaded.
+ <p>
+ Changes are gathered on a background thread until the folders have been
+ quiet for a short while, so that a burst of events for the same file, as
+ when an editor saves a note, results in only one update. Changed files are
+ read on the background thread; the notes are then built and applied to the
+ list on the Swing event dispatch thread, where the list is otherwise
+ maintained.
+ <p>
+ If the file system reports that events have been lost, then all watched
+ folders are listed again, and every note in the list is checked to see
+ whether its file still exists.
+
+ @author Herb Bowie
+ */
+public class NoteWatcher
+    implements Runnable {
+
+  /** Milliseconds of quiet to wait for before applying changes. */
+  public static final long      QUIET_MILLIS = 500;
+
+  private    NoteIO             noteIO;
+  private    NoteList           noteList;
+  private    int                maxDepth;
+
+  private    WatchService       watchService = null;
+  private    Thread             thread = null;
+
+  /** Watched folders and their depths, with the home folder at a depth of 1. */
+  private    HashMap<WatchKey, Path> watchedDirs = new HashMap<WatchKey, Path>();
+  private    HashMap<Path, Integer>  dirDepths = new HashMap<Path, Integer>();
+
+  /** Paths with events not yet applied, used only by the watcher thread. */
+  private    LinkedHashSet<Path> pending = new LinkedHashSet<Path>();
+  private    boolean            overflowed = false;
+
+  /** Notes in the list, keyed by the canonical paths of their files. */
+  private    HashMap<String, Note> notesByPath = new HashMap<String, Note>();
+
+  /** 
+   The number of paths at which each note is stored, as when a file has 
+   been renamed, or edited to have the same key as another note. 
+  */
+  private    IdentityHashMap<Note, Integer> pathCounts 
+      = new IdentityHashMap<Note, Integer>();
+
+  /**
+   Prepare to watch a collection.
+
+   @param noteIO   The I/O module used to load the collection.
+   @param noteList The list holding the collection's notes.
+  */
+  public NoteWatcher (NoteIO noteIO, NoteList noteList) {
+    this.noteIO = noteIO;
+    this.noteList = noteList;
+    this.maxDepth = noteIO.getMaxDepth();
+  }
+
+  /**
+   Start watching the collection's folders. This should be called on the
+   event dispatch thread, once the collection has been loaded.
+
+   @throws IOException If the folders cannot be watched.
+  */
+  public void start ()
+      throws IOException {
+
+    notesByPath.clear();
+    pathCounts.clear();
+    for (int i = 0; i < noteList.size(); i++) {
+      Note note = noteList.get2(i);
+      if (note.getDiskLocation().length() > 0) {
+        putPath(note.getDiskLocation(), note);
+      }
+    }
+
+    Path home = noteIO.getHomeFolder().getCanonicalFile().toPath();
+    watchService = home.getFileSystem().newWatchService();
+    registerFolder(home, 1, false);
+
+    thread = new Thread (this, "NoteWatcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   Stop watching the collection. Any changes not yet applied are dropped.
+  */
+  public void stop () {
+    if (thread != null) {
+      thread.interrupt();
+      thread = null;
+    }
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        // Nothing more to be done
+      }
+      watchService = null;
+    }
+  }
+
+  /**
+   Register a folder to be watched, along with any sub-folders within the
+   maximum depth, other than those that never hold notes.
+
+   @param dir     The folder to be watched.
+   @param depth   The folder's depth, with the home folder at 1.
+   @param newDir  True if the folder has just been created, in which case
+                  the files it already holds are treated as changed.
+  */
+  private void registerFolder (Path dir, int depth, boolean newDir) {
+
+    try {
+      if (! dirDepths.containsKey(dir)) {
+        WatchKey key = dir.register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        watchedDirs.put(key, dir);
+        dirDepths.put(dir, Integer.valueOf(depth));
+      }
+    } catch (IOException e) {
+      Logger.getShared().recordEvent(LogEvent.MINOR,
+          "Folder " + dir.toString() + " could not be watched", false);
+      return;
+    }
+
+    DirectoryStream<Path> stream;
+    try {
+      stream = Files.newDirectoryStream (dir);
+    } catch (IOException e) {
+      return;
+    }
+    try {
+      for (Path entry : stream) {
+        if (Files.isDirectory(entry)) {
+          if (isWatchable(entry, depth + 1)) {
+            registerFolder(entry, depth + 1, newDir);
+          }
+        }
+        else
+        if (newDir) {
+          pending.add(entry);
+        }
+      }
+    } finally {
+      try {
+        stream.close();
+      } catch (IOException e) {
+        // Nothing more to be done
+      }
+    }
+  }
+
+  /**
+   Should this folder be watched?
+
+   @param dir   The folder in question.
+   @param depth The folder's depth, with the home folder at 1.
+
+   @return True if the folder may hold notes.
+  */
+  private boolean isWatchable (Path dir, int depth) {
+    return (depth <= maxDepth
+        && (! NoteFolderWalker.isSkipped(dir.getFileName().toString())));
+  }
+
+  /**
+   Gather events until there is a pause, and then pass on the changes.
+  */
+  public void run () {
+    WatchService service = watchService;
+    try {
+      while (! Thread.currentThread().isInterrupted()) {
+        WatchKey key;
+        if (pending.isEmpty() && (! overflowed)) {
+          key = service.take();
+        } else {
+          key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (key == null) {
+          sendChanges();
+        } else {
+          gatherEvents(key);
+        }
+      }
+    } catch (InterruptedException e) {
+      // Time to stop
+    } catch (ClosedWatchServiceException e) {
+      // Time to stop
+    }
+  }
+
+  /**
+   Note the paths affected by the events reported for one folder.
+
+   @param key The key for the folder.
+  */
+  private void gatherEvents (WatchKey key) {
+    Path dir = watchedDirs.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        overflowed = true;
+      }
+      else
+      if (dir != null) {
+        Path entry = dir.resolve((Path)event.context());
+        pending.add(entry);
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+            && Files.isDirectory(entry)) {
+          int depth = dirDepths.get(dir).intValue() + 1;
+          if (isWatchable(entry, depth)) {
+            registerFolder(entry, depth, true);
+          }
+        }
+      }
+    }
+    if (! key.reset()) {
+      Path gone = watchedDirs.remove(key);
+      if (gone != null) {
+        dirDepths.remove(gone);
+      }
+    }
+  }
+
+  /**
+   Read the files changed since the last pause, and hand them to the event
+   dispatch thread to be applied to the list.
+  */
+  private void sendChanges () {
+
+    final boolean checkAll = overflowed;
+    if (overflowed) {
+      overflowed = false;
+      ArrayList<Path> dirs = new ArrayList<Path>(dirDepths.keySet());
+      for (Path dir : dirs) {
+        registerFolder(dir, dirDepths.get(dir).intValue(), true);
+      }
+    }
+
+    final ArrayList<String> paths = new ArrayList<String>();
+    final ArrayList<ParallelNoteReader.NoteText> texts
+        = new ArrayList<ParallelNoteReader.NoteText>();
+    for (Path entry : pending) {
+      File file = entry.toFile();
+      BasicFileAttributes attrs = null;
+      try {
+        attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+      } catch (IOException e) {
+        // Treat the file as deleted
+      }
+      ParallelNoteReader.NoteText text = null;
+      if (attrs == null) {
+        // File has been deleted
+      }
+      else
+      if (attrs.isRegularFile() && NoteIO.isInterestedIn(file, attrs)) {
+        text = new ParallelNoteReader.NoteText
+            (file, attrs.size(), attrs.lastModifiedTime().toMillis());
+        try {
+          text.read();
+        } catch (IOException e) {
+          // Perhaps still being written; a later event will bring it back
+          continue;
+        }
+      } else {
+        continue;
+      }
+      String path;
+      try {
+        path = file.getCanonicalPath();
+      } catch (IOException e) {
+        path = file.getAbsolutePath();
+      }
+      paths.add(path);
+      texts.add(text);
+    }
+    pending.clear();
+
+    if (paths.size() > 0 || checkAll) {
+      SwingUtilities.invokeLater(new Runnable() {
+        public void run() {
+          applyChanges(paths, texts, checkAll);
+        }
+      });
+    }
+  }
+
+  /**
+   Apply a batch of changes to the list, on the event dispatch thread.
+
+   @param paths    The canonical paths of the files changed.
+   @param texts    The contents of each changed file, or null where the
+                   file has been deleted.
+   @param checkAll True if every note in the list should be checked to see
+                   whether its file still exists.
+  */
+  private void applyChanges (ArrayList<String> paths,
+      ArrayList<ParallelNoteReader.NoteText> texts,
+      boolean checkAll) {
+
+    if (thread == null) {
+      return;
+    }
+    
+    // Notes added during a bulk load may yet be merged away, so leave the 
+    // list alone: the load reads the files afresh, and the watcher should 
+    // then be started again to pick up the loaded notes. 
+    if (noteList.isBulkLoading()) {
+      return;
+    }
+
+    boolean added = false;
+    for (int i = 0; i < paths.size(); i++) {
+      String path = paths.get(i);
+      ParallelNoteReader.NoteText text = texts.get(i);
+      if (text == null) {
+        removeFolder(path);
+      } else {
+        Note newNote = noteIO.buildNote(text);
+        Note oldNote = notesByPath.get(path);
+        if (oldNote == null) {
+          // A note with the same key, as when a file has been renamed, 
+          // will absorb the new one
+          NotePositioned position = noteList.add2(newNote);
+          putPath(path, position.getNote());
+          added = true;
+        }
+        else
+        if (! sameFields(oldNote, newNote)) {
+          // The new note may likewise be absorbed by another with its key.
+          // A note also stored at another path must be left in the list.
+          NotePositioned position;
+          if (pathCounts.get(oldNote).intValue() > 1) {
+            position = noteList.add2(newNote);
+            added = true;
+          } else {
+            position = noteList.replace2(oldNote, newNote);
+          }
+          putPath(path, position.getNote());
+        }
+      }
+    }
+
+    if (checkAll) {
+      ArrayList<String> known = new ArrayList<String>(notesByPath.keySet());
+      for (String path : known) {
+        if (! new File(path).exists()) {
+          removeNote(path);
+        }
+      }
+    }
+
+    if (added) {
+      noteList.fireTableDataChanged();
+    }
+  }
+
+  /**
+   Remove the note stored at the given path, or all the notes stored within
+   it, if the path was a folder.
+
+   @param path The canonical path of a deleted file or folder.
+  */
+  private void removeFolder (String path) {
+    if (notesByPath.containsKey(path)) {
+      removeNote(path);
+    } else {
+      String prefix = path + File.separator;
+      ArrayList<String> known = new ArrayList<String>(notesByPath.keySet());
+      for (String knownPath : known) {
+        if (knownPath.startsWith(prefix)) {
+          removeNote(knownPath);
+        }
+      }
+    }
+  }
+
+  /**
+   Remove the note stored at the given path from the list, unless the list
+   now holds a different note with the same key, or the note is also 
+   stored at another path, as when its file has been renamed.
+
+   @param path The canonical path of a deleted note file.
+  */
+  private void removeNote (String path) {
+    Note oldNote = removePath(path);
+    if (oldNote != null 
+        && noteList.findUnique(oldNote) == oldNote
+        && (! pathCounts.containsKey(oldNote))) {
+      noteList.remove2(oldNote);
+    }
+  }
+
+  /**
+   Record the note stored at the given path, in place of any other.
+
+   @param path The canonical path of a note file.
+   @param note The note in the list for that file.
+  */
+  private void putPath (String path, Note note) {
+    removePath(path);
+    notesByPath.put(path, note);
+    Integer count = pathCounts.get(note);
+    if (count == null) {
+      pathCounts.put(note, Integer.valueOf(1));
+    } else {
+      pathCounts.put(note, Integer.valueOf(count.intValue() + 1));
+    }
+  }
+
+  /**
+   Forget the note stored at the given path.
+
+   @param path The canonical path of a note file.
+
+   @return The note that was stored at the path, or null if none.
+  */
+  private Note removePath (String path) {
+    Note note = notesByPath.remove(path);
+    if (note != null) {
+      int count = pathCounts.get(note).intValue() - 1;
+      if (count > 0) {
+        pathCounts.put(note, Integer.valueOf(count));
+      } else {
+        pathCounts.remove(note);
+      }
+    }
+    return note;
+  }
+
+  /**
+   Do these two notes have the same fields, with the same values?
+
+   @param note1 The first note.
+   @param note2 The second note.
+
+   @return True if the notes are the same, so that nothing need be done.
+  */
+  private boolean sameFields (Note note1, Note note2) {
+    if (note1.getNumberOfFields() != note2.getNumberOfFields()) {
+      return false;
+    }
+    for (int i = 0; i < note1.getNumberOfFields(); i++) {
+      if (! note1.getField(i).getDef().getProperName().equals
+            (note2.getField(i).getDef().getProperName())) {
+        return false;
+      }
+      if (! note1.getField(i).getData().equals(note2.getField(i).getData())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+  import java.util.*;
+  import java.util.concurrent.*;
+
+/**
+ Finds the note files within a collection folder, and reads them using
+ several threads, handing back the lines of each file in a fixed order.
+ <p>
+ Folders are explored by a NoteFolderWalker, in the same sequence as NoteIO
+ uses when reading one file at a time, so that notes are returned in the
+ same sequence either way.
+ <p>
+ The notes themselves are built by the caller, on the caller's thread,
+ since building a note may add new fields to the collection's shared
+ record definition.
+
+ @author Herb Bowie
+ */
+class ParallelNoteReader {
+
+  /** Number of files to keep in the works for each thread. */
+  private static final int      FILES_PER_THREAD = 16;
+
+  private    int                threads;
+  
+  /** Snapshot of unchanged notes, which need not be read, or null. */
+  private    NoteSnapshot       snapshot;
+
+  /** Folders still to be listed. */
+  private    NoteFolderWalker   walker;
+
+  /** Note files found but not yet submitted for reading. */
+  private    LinkedList<NoteText> found = new LinkedList<NoteText>();
+
+  private    ExecutorService    executor = null;
+
+  /** Files submitted for reading, in collection order. */
+  private    LinkedList<Future<NoteText>> pending
+      = new LinkedList<Future<NoteText>>();
+
+  /**
+   Prepare to read the notes within a folder.
+
+   @param homeFolder The top folder of the collection.
+   @param maxDepth   The depth of folders to be explored, with the top
+                     folder at a depth of 1.
+   @param threads    The number of threads to use to read files.
+   @param snapshot   A snapshot from which unchanged notes will be rebuilt,
+                     so that their files need not be read, or null.
+  */
+  public ParallelNoteReader (File homeFolder, int maxDepth, int threads,
+      NoteSnapshot snapshot) {
+    this.threads = threads;
+    this.snapshot = snapshot;
+    walker = new NoteFolderWalker (homeFolder, maxDepth);
+  }
+
+  /**
+   Start the threads and begin reading files.
+
+   @throws IOException If the top folder cannot be listed.
+  */
+  public void start ()
+      throws IOException {
+    executor = Executors.newFixedThreadPool (threads, new ThreadFactory() {
+      public Thread newThread (Runnable r) {
+        Thread thread = new Thread (r, "ParallelNoteReader");
+        thread.setDaemon (true);
+        return thread;
+      }
+    });
+    submitFiles();
+  }
+
+  /**
+   Return the next note file read, in collection order, waiting for it to
+   be read if necessary.
+
+   @return The next file with its lines, or null if there are no more.
+
+   @throws IOException If a folder cannot be listed.
+  */
+  public NoteText next ()
+      throws IOException {
+    NoteText text = null;
+    while (text == null && (! pending.isEmpty())) {
+      Future<NoteText> nextFuture = pending.removeFirst();
+      submitFiles();
+      try {
+        text = nextFuture.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException ("Interrupted while reading notes");
+      } catch (ExecutionException e) {
+        // The file could not be read; note the trouble and skip it
+        Logger.getShared().recordEvent(LogEvent.MEDIUM, 
+            "Trouble reading note file: " + e.getCause().toString(), false);
+        text = null;
+      }
+    }
+    return text;
+  }
+
+  /**
+   Stop the threads.
+  */
+  public void close () {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+    pending.clear();
+    found.clear();
+    walker.close();
+  }
+
+  /**
+   Keep enough files in the works to keep all threads busy, listing more
+   folders as needed.
+
+   @throws IOException If a folder cannot be listed.
+  */
+  private void submitFiles ()
+      throws IOException {
+    while (pending.size() < threads * FILES_PER_THREAD
+        && ((! found.isEmpty()) || walker.hasMoreFolders())) {
+      if (found.isEmpty()) {
+        walker.listNextFolder (found);
+      } else {
+        final NoteText text = found.removeFirst();
+        if (snapshot != null
+            && snapshot.isUnchanged (snapshot.pathOf (text.getFile()),
+              text.getSize(), text.getLastModified())) {
+          FutureTask<NoteText> unread 
+              = new FutureTask<NoteText> (new Callable<NoteText>() {
+            public NoteText call () {
+              return text;
+            }
+          });
+          unread.run();
+          pending.addLast (unread);
+        } else {
+          pending.addLast (executor.submit (new Callable<NoteText>() {
+            public NoteText call ()
+                throws IOException {
+              text.read();
+              return text;
+            }
+          }));
+        }
+      }
+    }
+  }
+
+  /**
+   The lines of one note file, read from disk.
+  */
+  static class NoteText {
+
+    private File              file;
+    private long              size;
+    private long              lastModified;
+    private ArrayList<String> lines = null;
+
+    NoteText (File file, long size, long lastModified) {
+      this.file = file;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    /**
+     Read all the lines of the file, using the platform's default
+     encoding, as NoteIO does.
+    */
+    void read ()
+        throws IOException {
+      lines = new ArrayList<String>();
+      BufferedReader reader = new BufferedReader
+          (new InputStreamReader (new FileInputStream (file)));
+      try {
+        String line = reader.readLine();
+        while (line != null) {
+          lines.add (line);
+          line = reader.readLine();
+        }
+      } finally {
+        reader.close();
+      }
+    }
+
+    File getFile () {
+      return file;
+    }
+
+    long getSize () {
+      return size;
+    }
+
+    long getLastModified () {
+      return lastModified;
+    }
+
+    List<String> getLines () {
+      return lines;
+    }
+
+  }
+
+}
@@ -0,0 +1,744 @@
+/*
+ * Copyright 1999 - 2013 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+  import java.util.*;
+
+/**
+   A set of data records stored by column rather than by record, for large
+   reference tables that are loaded once and then read. <p>
+
+   Each column of the record definition is stored in whichever of the
+   following forms suits its data, starting with the most compact and
+   moving to a more general form when a value comes along that the current
+   form cannot hold: <ul><li>
+     Numbers, as a packed array of ints, widened to longs when needed,
+     as long as every value is an integer written in its plain form; <li>
+     Strings, dictionary-encoded as an array of ints indexing a list of
+     distinct values, as long as the number of distinct values stays
+     within MAX_DICTIONARY_SIZE; <li>
+     Strings, as a plain array of values. </ul> <p>
+
+   Records are stored by column position, so each record passed in is
+   expected to use the column sequence of the set's record definition, as
+   records from a DataSource do. Data records are only built when asked
+   for, by get, getRecord or nextRecordIn, and each call builds a new copy;
+   changes made to a returned record are kept only if the record is passed
+   back to setRecord. DataTable reads values from the columns directly,
+   without building any records.
+ */
+public class ColumnarDataSet
+    implements DataSource,
+               DataStore {
+
+  /** Largest number of distinct values kept in a column's dictionary. */
+  public     static final int   MAX_DICTIONARY_SIZE = 65536;
+
+  /** Initial number of rows for which room is made in each column. */
+  private    static final int   INITIAL_CAPACITY = 1024;
+
+  /** Next available number to be assigned to the next data set instantiated. */
+  private    static  int        dataSetNumber = 0;
+
+  /** Definition of the records being stored in the data set. */
+  private    RecordDefinition   recDef;
+
+  /** The stored columns, in record definition sequence. */
+  private    ArrayList<StoredColumn> columns = new ArrayList<StoredColumn>();
+
+  /** Number of fields in each stored record. */
+  private    int[]              fieldCounts = new int [INITIAL_CAPACITY];
+
+  /** Number of records stored. */
+  private    int                size = 0;
+
+  /** Index used to cycle through the records in the data set. */
+  private    int                recordNumber = 0;
+
+  /** Index to last record returned. */
+  private    int                lastRecordNumber = -1;
+
+  /** Specification of the filter to be used to select records for input. */
+  private    DataFilter         inputFilter = null;
+
+  /** Should all data be logged? */
+  private    boolean            dataLogging = false;
+
+  /** Log used to record events. */
+  private    Logger             log = Logger.getShared();
+
+  /** Data to be logged. */
+  private    LogData            logData;
+
+  /** Debug instance. */
+  private    Debug              debug = new Debug (false);
+
+  /** Identifier used to identify this data set in the log. */
+  private    String             fileId;
+
+  /** Path to the original source file (if any). */
+  private    String             dataParent;
+
+  /**
+     Constructs an empty data set from a given record definition.
+
+     @param recDef Definition of records to be stored.
+   */
+  public ColumnarDataSet (RecordDefinition recDef) {
+    this.recDef = recDef;
+    initialize();
+  }
+
+  /**
+     Constructs a data set holding all the records from another data source.
+
+     @param inData Data source that allows data records to be read.
+
+     @throws IOException If the passed data source experiences an i/o error.
+   */
+  public ColumnarDataSet (DataSource inData)
+      throws IOException {
+    inData.openForInput();
+    load (inData);
+  }
+
+  /**
+     Constructs a data set holding all the records from another data source,
+     using the passed data dictionary.
+
+     @param inDict Data Dictionary to be used.
+     @param inData Data source that allows data records to be read.
+
+     @throws IOException If the passed data source experiences an i/o error.
+   */
+  public ColumnarDataSet (DataDictionary inDict, DataSource inData)
+      throws IOException {
+    inData.openForInput (inDict);
+    load (inData);
+  }
+
+  /**
+     Loads all the records from an open data source, and then closes it.
+
+     @param inData Data source that allows data records to be read.
+
+     @throws IOException If the passed data source experiences an i/o error.
+   */
+  private void load (DataSource inData)
+      throws IOException {
+    dataParent = inData.getDataParent();
+    recDef = inData.getRecDef();
+    initialize();
+    while (! inData.isAtEnd()) {
+      DataRecord nextRec = inData.nextRecordIn();
+      if (nextRec != null) {
+        addRecord (nextRec);
+      }
+    }
+    inData.close();
+  }
+
+  /**
+     Common initialization code for all constructors.
+   */
+  private void initialize () {
+    dataSetNumber++;
+    fileId = "ColumnarDataSet" + String.valueOf (dataSetNumber);
+    logData = new LogData ("", fileId, 0);
+    startWithFirstRecord();
+  }
+
+  /**
+     Adds a record to the end of the set, storing the data from each of its
+     fields in the corresponding column.
+
+     @param inRec Data record to be added.
+   */
+  public void addRecord (DataRecord inRec) {
+    if (size >= fieldCounts.length) {
+      fieldCounts = Arrays.copyOf (fieldCounts, size * 2);
+    }
+    int fieldCount = storeFields (size, inRec);
+    fieldCounts [size] = fieldCount;
+    size++;
+  }
+
+  /**
+     Replaces the record stored at the given location.
+
+     @param recordNumber The location of the record to be replaced.
+     @param inRec        The new data record.
+
+     @throws ArrayIndexOutOfBoundsException If the passed record
+             number does not refer to a valid record.
+   */
+  public void setRecord (int recordNumber, DataRecord inRec)
+      throws ArrayIndexOutOfBoundsException {
+    if ((recordNumber < 0)
+        || (recordNumber >= size)) {
+      throw new ArrayIndexOutOfBoundsException ();
+    }
+    fieldCounts [recordNumber] = storeFields (recordNumber, inRec);
+  }
+
+  /**
+     Stores the fields of a record at the given row of each column.
+
+     @param row   The row at which the fields are to be stored.
+     @param inRec The data record containing the fields.
+
+     @return The number of fields in the record.
+   */
+  private int storeFields (int row, DataRecord inRec) {
+    int fieldCount = Math.min (inRec.getNumberOfFields(),
+        recDef.getNumberOfFields());
+    while (columns.size() < recDef.getNumberOfFields()) {
+      columns.add (new NumberColumn());
+    }
+    for (int i = 0; i < columns.size(); i++) {
+      String data = "";
+      if (i < fieldCount) {
+        data = inRec.getField(i).getData();
+      }
+      StoredColumn column = columns.get (i);
+      StoredColumn stored = column.set (row, data);
+      if (stored != column) {
+        columns.set (i, stored);
+      }
+    }
+    return fieldCount;
+  }
+
+  /**
+     Returns the data stored in a particular cell.
+
+     @param recordNumber The location of the record.
+     @param columnNumber The column within the record.
+
+     @return The data stored in the cell, or an empty string if the record
+             has no such field.
+   */
+  public String getData (int recordNumber, int columnNumber) {
+    if (recordNumber < 0 || recordNumber >= size
+        || columnNumber < 0 || columnNumber >= fieldCounts [recordNumber]) {
+      return "";
+    }
+    return columns.get(columnNumber).get (recordNumber);
+  }
+
+  /**
+     Builds a data record from the data stored at a particular location.
+
+     @param recordNumber The location of the record.
+
+     @return A new data record holding the stored data.
+   */
+  private DataRecord buildRecord (int recordNumber) {
+    DataRecord rec = new DataRecord();
+    int fieldCount = fieldCounts [recordNumber];
+    for (int i = 0; i < fieldCount; i++) {
+      rec.addFieldRaw (recDef, columns.get(i).get (recordNumber));
+    }
+    rec.setRecordSequence (recordNumber);
+    return rec;
+  }
+
+  /**
+     Returns a new data record built from the data at a particular location
+     in the set.
+
+     @return Data record at specified location.
+
+     @param recordNumber The location of the record to be retrieved.
+
+     @throws ArrayIndexOutOfBoundsException If the passed record
+             number does not refer to a valid record.
+   */
+  public DataRecord get (int recordNumber)
+      throws ArrayIndexOutOfBoundsException {
+    if ((recordNumber < 0)
+        || (recordNumber >= size)) {
+      throw new ArrayIndexOutOfBoundsException ();
+    }
+    return buildRecord (recordNumber);
+  }
+
+  /**
+     Returns a new data record built from the data at a particular location
+     in the set, and sets up to return the following records with
+     nextRecordIn.
+
+     @return Data record at specified location.
+
+     @param recordNumber The location of the record to be retrieved.
+
+     @throws ArrayIndexOutOfBoundsException If the passed record
+             number does not refer to a valid record.
+   */
+  public DataRecord getRecord (int recordNumber)
+      throws ArrayIndexOutOfBoundsException {
+    DataRecord rec = get (recordNumber);
+    this.lastRecordNumber = recordNumber;
+    this.recordNumber = recordNumber + 1;
+    return rec;
+  }
+
+  /**
+     Sets a filter to be used to select records returned by nextRecordIn.
+
+     @param inputFilter Filter to be used, or null to return all records.
+   */
+  public void setInputFilter (DataFilter inputFilter) {
+    this.inputFilter = inputFilter;
+  }
+
+  /**
+     Prepares the data set to return records one at a time.
+
+     @param inDict Provided for consistency with DataSource,
+                   but not really used or needed.
+   */
+  public void openForInput (DataDictionary inDict) {
+    startWithFirstRecord();
+  }
+
+  /**
+     Prepares the data set to return records one at a time.
+
+     @param inRecDef Provided for consistency with DataSource,
+                     but not really used or needed.
+   */
+  public void openForInput (RecordDefinition inRecDef) {
+    startWithFirstRecord();
+  }
+
+  /**
+     Prepares the data set to return records one at a time.
+   */
+  public void openForInput () {
+    startWithFirstRecord();
+  }
+
+  /**
+     Sets up to return the first eligible record with nextRecordIn.
+   */
+  public void startWithFirstRecord () {
+    recordNumber = 0;
+    lastRecordNumber = -1;
+  }
+
+  /**
+     Returns the next data record from the set, built from the stored data.
+
+     @return Next data record, or null if there are no more.
+   */
+  public DataRecord nextRecordIn () {
+    DataRecord nextRec = null;
+    while (nextRec == null && recordNumber < size) {
+      DataRecord possibleRec = buildRecord (recordNumber);
+      lastRecordNumber = recordNumber;
+      recordNumber++;
+      if (inputFilter == null || inputFilter.selects (possibleRec)) {
+        nextRec = possibleRec;
+      }
+    }
+    if (dataLogging && nextRec != null) {
+      logData.setData (nextRec.toString());
+      logData.setSequenceNumber (lastRecordNumber);
+      log.nextLine (logData);
+    }
+    return nextRec;
+  }
+
+  /**
+     Indicates whether the last record has already been returned. When an
+     input filter is in use, there may be no eligible records remaining
+     even though this returns false, in which case nextRecordIn will
+     return null.
+
+     @return True if the last record has already been returned.
+   */
+  public boolean isAtEnd () {
+    return (recordNumber >= size);
+  }
+
+  /**
+     Frees up resources associated with open.
+   */
+  public void close () {
+    startWithFirstRecord();
+  }
+
+  /**
+     Opens the data store for output.
+
+     @param  recDef A record definition to use.
+   */
+  public void openForOutput (RecordDefinition recDef) {
+    if (size == 0) {
+      this.recDef = recDef;
+      columns.clear();
+    }
+    openForOutput();
+  }
+
+  /**
+     Opens the data store for ouput.
+   */
+  public void openForOutput () {
+  }
+
+  /**
+     Writes the next output data record.
+
+     @param  inRec Next data record.
+   */
+  public void nextRecordOut (DataRecord inRec) {
+    addRecord (inRec);
+  }
+
+  /**
+     Returns the record definition used by this data set.
+
+     @return Record definition used by this data set.
+   */
+  public RecordDefinition getRecDef () {
+    return recDef;
+  }
+
+  /**
+     Returns the record number of the next data record to be returned.
+
+     @return Record number of the next data record returned.
+   */
+  public int getRecordNumber () {
+    return recordNumber;
+  }
+
+  /**
+     Returns the record number of the last data record returned.
+
+     @return Record number of the last data record returned.
+   */
+  public int getLastRecordNumber () {
+    return lastRecordNumber;
+  }
+
+  /**
+     Return the number of fields in each record.
+
+     @return Number of fields stored in each record.
+   */
+  public int getNumberOfFields () {
+    return recDef.getNumberOfFields();
+  }
+
+  /**
+     Returns number of records stored in data set.
+
+     @return Number of records stored.
+   */
+  public int getNumberOfRecords () {
+    return size;
+  }
+
+  public int size () {
+    return size;
+  }
+
+  /**
+     Indicates how a column is currently being stored.
+
+     @param columnNumber The column of interest.
+
+     @return "int", "long", "dictionary" or "string", or an empty string
+             if nothing has yet been stored in the column.
+   */
+  public String getColumnStorage (int columnNumber) {
+    if (columnNumber < 0 || columnNumber >= columns.size()) {
+      return "";
+    } else {
+      return columns.get(columnNumber).getStorage();
+    }
+  }
+
+  /**
+     Sets a logger to be used for logging operations.
+
+     @param log Logger instance.
+   */
+  public void setLog (Logger log) {
+    this.log = log;
+  }
+
+  /**
+     Indicates whether all data should be logged.
+
+     @param dataLogging True if all data should be logged.
+   */
+  public void setDataLogging (boolean dataLogging) {
+    this.dataLogging = dataLogging;
+  }
+
+  /**
+     Sets the debug instance to the passed value.
+
+     @param debug Debug instance.
+   */
+  public void setDebug (Debug debug) {
+    this.debug = debug;
+  }
+
+  /**
+     Overrides the default identifier assigned to this data set.
+
+     @param fileId Identifier to be used for this data set.
+   */
+  public void setFileId (String fileId) {
+    this.fileId = fileId;
+    logData.setSourceId (fileId);
+  }
+
+  /**
+     Does nothing in this class.
+
+     @param maxDepth Desired directory/sub-directory explosion depth.
+   */
+  public void setMaxDepth (int maxDepth) {
+
+  }
+
+  /**
+     Retrieves the path to the original source file (if any).
+
+     @return Path to the original source file (if any).
+   */
+  public String getDataParent () {
+    if (dataParent == null) {
+      return System.getProperty (GlobalConstants.USER_DIR);
+    } else {
+      return dataParent;
+    }
+  }
+
+  /**
+     Sets a path to be used to read any associated files.
+
+     @param  dataParent A path to be used to read any associated files.
+   */
+  public void setDataParent (String dataParent) {
+    this.dataParent = dataParent;
+  }
+
+  /**
+     Returns this object as some kind of String.
+
+     @return Identifier and size of the data set.
+   */
+  public String toString () {
+    return fileId + " with " + String.valueOf (size) + " records";
+  }
+
+  /**
+     Returns a size suitable for an array that must hold the given row.
+   */
+  private static int capacityFor (int row, int length) {
+    int capacity = Math.max (length, INITIAL_CAPACITY);
+    while (capacity <= row) {
+      capacity = capacity * 2;
+    }
+    return capacity;
+  }
+
+  /**
+     The data for one column.
+   */
+  private abstract static class StoredColumn {
+
+    /** Number of rows for which data has been stored. */
+    protected int rows = 0;
+
+    /**
+       Stores a value at the given row.
+
+       @param row  The row, no more than one past the last row stored.
+       @param data The value to be stored.
+
+       @return This column, or a more general column now holding all of
+               this column's values plus the new one.
+     */
+    abstract StoredColumn set (int row, String data);
+
+    /**
+       Returns the value stored at the given row.
+     */
+    abstract String get (int row);
+
+    /**
+       Returns a brief description of the form of storage.
+     */
+    abstract String getStorage ();
+
+    /**
+       Copies all of this column's values into another column.
+     */
+    StoredColumn copyTo (StoredColumn other) {
+      for (int row = 0; row < rows; row++) {
+        other.set (row, get (row));
+      }
+      return other;
+    }
+
+  }
+
+  /**
+     A column of integers, each stored in its plain form with no leading
+     zeros, commas or plus signs, plus empty values.
+   */
+  private static class NumberColumn
+      extends StoredColumn {
+
+    private int[]   ints = new int [INITIAL_CAPACITY];
+    private long[]  longs = null;
+    private BitSet  empty = new BitSet();
+
+    StoredColumn set (int row, String data) {
+      long value = 0;
+      if (data.length() > 0) {
+        try {
+          value = Long.parseLong (data);
+        } catch (NumberFormatException e) {
+          return copyTo(new DictionaryColumn()).set (row, data);
+        }
+        if (! String.valueOf(value).equals (data)) {
+          return copyTo(new DictionaryColumn()).set (row, data);
+        }
+      }
+      if (longs == null && (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)) {
+        longs = new long [ints.length];
+        for (int i = 0; i < rows; i++) {
+          longs [i] = ints [i];
+        }
+        ints = null;
+      }
+      if (longs == null) {
+        if (row >= ints.length) {
+          ints = Arrays.copyOf (ints, capacityFor (row, ints.length));
+        }
+        ints [row] = (int)value;
+      } else {
+        if (row >= longs.length) {
+          longs = Arrays.copyOf (longs, capacityFor (row, longs.length));
+        }
+        longs [row] = value;
+      }
+      empty.set (row, data.length() == 0);
+      if (row >= rows) {
+        rows = row + 1;
+      }
+      return this;
+    }
+
+    String get (int row) {
+      if (empty.get (row)) {
+        return "";
+      } else if (longs == null) {
+        return String.valueOf (ints [row]);
+      } else {
+        return String.valueOf (longs [row]);
+      }
+    }
+
+    String getStorage () {
+      return (longs == null ? "int" : "long");
+    }
+
+  }
+
+  /**
+     A column of strings, each stored as an index into a list of the
+     distinct values found in the column.
+   */
+  private static class DictionaryColumn
+      extends StoredColumn {
+
+    private int[]                    codes = new int [INITIAL_CAPACITY];
+    private ArrayList<String>        values = new ArrayList<String>();
+    private HashMap<String, Integer> valueCodes = new HashMap<String, Integer>();
+
+    StoredColumn set (int row, String data) {
+      Integer code = valueCodes.get (data);
+      if (code == null) {
+        if (values.size() >= MAX_DICTIONARY_SIZE) {
+          return copyTo(new StringColumn()).set (row, data);
+        }
+        code = Integer.valueOf (values.size());
+        values.add (data);
+        valueCodes.put (data, code);
+      }
+      if (row >= codes.length) {
+        codes = Arrays.copyOf (codes, capacityFor (row, codes.length));
+      }
+      codes [row] = code.intValue();
+      if (row >= rows) {
+        rows = row + 1;
+      }
+      return this;
+    }
+
+    String get (int row) {
+      return values.get (codes [row]);
+    }
+
+    String getStorage () {
+      return "dictionary";
+    }
+
+  }
+
+  /**
+     A column of strings, each stored as is.
+   */
+  private static class StringColumn
+      extends StoredColumn {
+
+    private String[] strings = new String [INITIAL_CAPACITY];
+
+    StoredColumn set (int row, String data) {
+      if (row >= strings.length) {
+        strings = Arrays.copyOf (strings, capacityFor (row, strings.length));
+      }
+      strings [row] = data;
+      if (row >= rows) {
+        rows = row + 1;
+      }
+      return this;
+    }
+
+    String get (int row) {
+      return strings [row];
+    }
+
+    String getStorage () {
+      return "string";
+    }
+
+  }
+
+}
@@ -98,6 +98,12 @@ public class CompoundFilter
 
   
 
+  /** The same filters, in an array, for quick evaluation. */
+
+  private    DataFilter[]      filterArray = new DataFilter [0];
+
+  
+
   /** 
 
      Constructs a new data filter specification. 
@@ -142,6 +148,10 @@ public class CompoundFilter
 
       filters.addElement (filter);
 
+      filterArray = new DataFilter [filters.size()];
+
+      filters.copyInto (filterArray);
+
     } 
 
   }
@@ -170,7 +180,7 @@ public class CompoundFilter
 
     throws IllegalArgumentException {
 
-    int size = filters.size();
+    int size = filterArray.length;
 
     if (size == 0) {
 
@@ -216,9 +226,7 @@ public class CompoundFilter
 
     throws IllegalArgumentException {
 
-    DataFilter oneFilter = (DataFilter)filters.elementAt (index);
-
-    return oneFilter.selects (dataRec);
+    return filterArray [index].selects (dataRec);
 
   }
 
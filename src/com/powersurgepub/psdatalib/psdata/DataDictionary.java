@@ -17,6 +17,7 @@
 package com.powersurgepub.psdatalib.psdata;
 
   import java.io.IOException;
+  import java.util.HashMap;
   import java.util.Vector;
   import com.powersurgepub.psutils.*;
   
@@ -69,6 +70,12 @@ public class DataDictionary
   /** A collection of DataFieldAlias objects. */
   private   Vector       aliases;
   
+  /** Positions of definitions, keyed by the common forms of their names. */
+  private   HashMap<String, Integer> defIndex;
+  
+  /** Positions of aliases, keyed by the common forms of the aliases. */
+  private   HashMap<String, Integer> aliasIndex;
+  
   /** An index for cycling through the definitions sequentially. */
   private   int          defNumber;
   
@@ -105,6 +112,8 @@ public class DataDictionary
   public DataDictionary () {
     defs = new Vector ();
     aliases = new Vector ();
+    defIndex = new HashMap<String, Integer>();
+    aliasIndex = new HashMap<String, Integer>();
     resetDefNumber();
   }
   
@@ -582,15 +591,11 @@ public class DataDictionary
    */
   public int getDefNum (CommonName inCommon) {
     CommonName common = getAliasOriginal (inCommon);
-    int i = 0;
-    while ((i < defs.size()) 
-      && (!(common.equals(getDef(i).getCommonName())))) {
-      i++;
-    }
-    if (i < defs.size()) {
-      return i;
-    } else {
+    Integer i = defIndex.get (common.getCommonForm());
+    if (i == null) {
       return GlobalConstants.NOT_FOUND;
+    } else {
+      return i.intValue();
     }
   }
   
@@ -614,10 +619,15 @@ public class DataDictionary
       inDef.setLog(log);
       CommonName alias = inDef.getCommonName();
       CommonName original = getAliasOriginal (alias);
+      DataFieldDefinition newDef;
       if (original.equals (alias)) {
-        defs.addElement (inDef);
+        newDef = inDef;
       } else {
-        defs.addElement (new DataFieldDefinition (original.toString()));
+        newDef = new DataFieldDefinition (original.toString());
+      }
+      defs.addElement (newDef);
+      if (! defIndex.containsKey (newDef.getCommonForm())) {
+        defIndex.put (newDef.getCommonForm(), Integer.valueOf (seq));
       }
     } 
     return seq;
@@ -669,22 +679,16 @@ public class DataDictionary
                            the dictionary.
    */
   public int putAlias (DataFieldAlias inAliasObject) {
-    int i = 0;
-    boolean found = false;
-    CommonName inAlias = inAliasObject.getAlias();
-    while ((i < aliases.size()) && (! found)) {
-      DataFieldAlias currAlias = (DataFieldAlias)aliases.elementAt(i);
-      if (inAlias.equals(currAlias.getAlias())) {
-        found = true; 
-      } else {
-        i++;
-      }
-    }
-    if (found) {
+    int i;
+    String inAlias = inAliasObject.getAlias().getCommonForm();
+    Integer found = aliasIndex.get (inAlias);
+    if (found != null) {
+      i = found.intValue();
       aliases.setElementAt (inAliasObject, i);
     } else {
       i = aliases.size();
       aliases.addElement (inAliasObject);
+      aliasIndex.put (inAlias, Integer.valueOf (i));
     }
     return i;
   }
@@ -715,19 +719,12 @@ public class DataDictionary
                          is desired, in CommonName format.
    */
   public CommonName getAliasOriginal (CommonName commonAlias) {
-    int i = 0;
-    boolean found = false;
-    DataFieldAlias currAlias;
-    while ((i < aliases.size()) && (! found)) {
-      currAlias = (DataFieldAlias)aliases.elementAt(i);
-      if (commonAlias.equals(currAlias.getAlias())) {
-        found = true; 
-      } else {
-        i++;
-      }
+    if (aliases.isEmpty()) {
+      return commonAlias;
     }
-    if (found) {
-      currAlias = (DataFieldAlias)aliases.elementAt(i);
+    Integer i = aliasIndex.get (commonAlias.getCommonForm());
+    if (i != null) {
+      DataFieldAlias currAlias = (DataFieldAlias)aliases.elementAt(i.intValue());
       return currAlias.getOriginal();
     } else {
       return commonAlias;
@@ -149,6 +149,22 @@ public class DataField {
   /** The collection of fields stored within this record. */
   protected    ArrayList              fields;
   
+  /** 
+     A record definition whose columns line up with the fields in this 
+     record, if there is one, allowing fields to be found by name using
+     the definition's own index.
+   */
+  protected    RecordDefinition       layoutDef = null;
+  
+  /** Layout version of the record definition when this record was built. */
+  protected    int                    layoutVersion = 0;
+  
+  /** 
+     Field numbers keyed by the common form of each field's name, built
+     when first needed for records without a matching record definition.
+   */
+  protected    HashMap<String, Integer> fieldIndex = null;
+  
   /** 
      A prior version of the data in this field, saved in case it needs
      to be restored.
@@ -623,86 +639,17 @@ public class DataField {
    */
   public boolean operateLogically (String operator, DataField operand) 
       throws IllegalArgumentException {
-    boolean trueOrFalse = true;
-    int opLength = operator.length();
-    char firstChar = ' ';
-    String oplc = " ";
-    if (opLength > 0) {
-      firstChar = operator.charAt (0);
-    }
-    int opIndex = -1;
-    if (Character.isLetter (firstChar)) {
-      oplc = operator.toLowerCase();
-    } 
-    boolean opFound = false;
-    for (opIndex = 0; 
-        ((opIndex < NUMBER_OF_LOGICAL_OPERANDS) && (! opFound));
-        opIndex++) {
-      if ((oplc.equals (WORD_LOGICAL_OPERANDS [opIndex]))
-          || (oplc.equals (MNEMONIC_LOGICAL_OPERANDS [opIndex]))
-          || (operator.equals (SYMBOL_LOGICAL_OPERANDS [opIndex]))
-          || (operator.equals (ALT_SYMBOL_LOGICAL_OPERANDS [opIndex]))) {
-        opFound = true;
-      } // end if operator found
-    } // end 
-
-    if (! opFound) {
+    int opIndex = FieldCondition.resolve (operator);
+    if (opIndex == FieldCondition.INVALID) {
       throw new IllegalArgumentException 
         ("Invalid logical operator (" + operator + ")");
     }
-    opIndex--;
-    if (opIndex < 6) {
-      int result = this.compareTo (operand);
-      if (opIndex == 0) {       // equals
-        trueOrFalse = (result == 0);
-      } else
-      if (opIndex == 1) {       // greater than
-        trueOrFalse = (result > 0);
-      } else
-      if (opIndex == 2) {       // greater than or equal to
-        trueOrFalse = (result >= 0);
-      } else
-      if (opIndex == 3) {       // less than
-        trueOrFalse = (result < 0);
-      } else
-      if (opIndex == 4) {       // less than or equal to
-        trueOrFalse = (result <= 0);
-      } else
-      if (opIndex == 5) {       // not equal to
-        trueOrFalse = (result != 0);
-      }
-    } // end opIndex < 6
-    else {                      // text comparison
-      String datalc = data.toString().toLowerCase();
-      String operandlc = operand.getData().toLowerCase();
-      if (opIndex == 6) {
-        int ix = datalc.indexOf (operandlc);
-        trueOrFalse = (ix >= 0);
-      }
-      else
-      if (opIndex == 7) {
-        int ix = datalc.indexOf (operandlc);
-        trueOrFalse = (ix < 0);
-      }
-      else
-      if (opIndex == 8) {
-        trueOrFalse = (datalc.startsWith (operandlc));
-      }
-      else
-      if (opIndex == 9) {
-        trueOrFalse = (! datalc.startsWith (operandlc));
-      }
-      else 
-      if (opIndex == 10) {
-        trueOrFalse = (datalc.endsWith (operandlc));
-      }
-      else 
-      if (opIndex == 11) {
-        trueOrFalse = (! datalc.endsWith (operandlc));
-      }
+    if (FieldCondition.isComparison (opIndex)) {
+      return FieldCondition.compare (opIndex, this.compareTo (operand));
+    } else {                    // text comparison
+      return FieldCondition.matchText 
+          (opIndex, data.toString(), operand.getData().toLowerCase());
     }
-
-    return trueOrFalse;
   } // end method operateLogically
   
   /**
@@ -780,24 +727,84 @@ public class DataField {
      @param  inName The name of the field in which user is interested.
    */
   public int getColumnNumber (String inName) {
-    int i = 0;
-    CommonName workName = new CommonName ("");
-    DataField workField = null;
-    DataFieldDefinition workDef;
-    CommonName searchName = new CommonName (inName);
-    while ((i < fields.size()) 
-      && (! searchName.equals (workName))) {
-      workField = (DataField)fields.get (i);
-      workDef = workField.getDef ();
-      workName = workDef.getCommonName ();
-      if (! searchName.equals (workName)) {
-        i++;
+    String searchName = DataFieldDefinition.getCommonForm (inName);
+    if (layoutDef != null 
+        && layoutDef.getLayoutVersion() == layoutVersion) {
+      int i = layoutDef.getColumnNumberByCommonForm (searchName);
+      if (i >= 0 && i < fields.size()) {
+        return i;
+      } else {
+        return GlobalConstants.NOT_FOUND;
       }
     }
-    if (i < fields.size()) {
-      return i;
-    } else {
+    if (fieldIndex == null) {
+      layoutDef = null;
+      fieldIndex = new HashMap<String, Integer>();
+      for (int i = 0; i < fields.size(); i++) {
+        indexField (i);
+      }
+    }
+    Integer i = fieldIndex.get (searchName);
+    if (i == null) {
       return GlobalConstants.NOT_FOUND;
+    } else {
+      return i.intValue();
+    }
+  }
+  
+  /**
+     Returns the record definition whose columns line up with the fields
+     in this record, so that a field's column, once found, can be reused
+     for other records with the same layout.
+    
+     @return The record definition, or null if this record's fields do not
+             follow the layout of any record definition.
+   */
+  public RecordDefinition getLayout () {
+    if (layoutDef != null 
+        && layoutDef.getLayoutVersion() == layoutVersion) {
+      return layoutDef;
+    } else {
+      return null;
+    }
+  }
+  
+  /**
+     Adds the given field to the field index, unless an earlier field
+     has the same name.
+    
+     @param  i The field number to be indexed.
+   */
+  private void indexField (int i) {
+    String commonForm = getField(i).getDef().getCommonForm();
+    if (! fieldIndex.containsKey (commonForm)) {
+      fieldIndex.put (commonForm, Integer.valueOf (i));
+    }
+  }
+  
+  /**
+     Keeps the means of finding fields by name up to date after a 
+     field has been added to the end of this record.
+    
+     @param  recDef The record definition used to add the field, if any.
+     @param  i      The number of the field just added.
+   */
+  private void fieldAdded (RecordDefinition recDef, int i) {
+    if (i == 0 && recDef != null) {
+      layoutDef = recDef;
+      layoutVersion = recDef.getLayoutVersion();
+      fieldIndex = null;
+    }
+    if (layoutDef != null) {
+      if (layoutDef.getLayoutVersion() != layoutVersion
+          || i >= layoutDef.getNumberOfFields()
+          || (! getField(i).getDef().getCommonForm().equals
+              (layoutDef.getDef(i).getCommonForm()))) {
+        layoutDef = null;
+      }
+    }
+    if (fieldIndex != null) {
+      indexField (i);
     }
   }
   
@@ -951,10 +958,33 @@ public class DataField {
     }
     DataField field = new DataField (recDef, columnNumber, strData);
     fields.add (field);
+    fieldAdded (recDef, columnNumber);
     recDef.anotherField (strData, columnNumber);
     return columnNumber;
   }
   
+  /**
+     Adds a field to this record, given a record layout and data that has
+     already been transformed by the field's formatting rule, as when
+     rebuilding a record from stored data. The record definition's field
+     statistics are left as they are.
+
+     @return Column number of the field within this record.
+
+     @param  recDef Definition to be used for this record.
+
+     @param  data   Data to be added, already transformed and purified.
+   */
+  int addFieldRaw (RecordDefinition recDef, String data) {
+    int columnNumber = fields.size();
+    DataFieldDefinition fieldDef = recDef.getDef (columnNumber);
+    DataField field = new DataField (fieldDef, fieldDef.getEmptyDataValue());
+    field.setDataRaw (data);
+    fields.add (field);
+    fieldAdded (recDef, columnNumber);
+    return columnNumber;
+  }
+
   /**
    Adds a field to this field/record, given a definition and a String 
    representing the data. 
@@ -970,6 +1000,7 @@ public class DataField {
     DataField field = new DataField(inDef, value);
     int columnNumber = fields.size();
     fields.add(field);
+    fieldAdded (null, columnNumber);
     return columnNumber;
   }
   
@@ -984,6 +1015,7 @@ public class DataField {
   public int addField (DataField inField) {
     int columnNumber = fields.size();
     fields.add (inField);
+    fieldAdded (null, columnNumber);
     return columnNumber;
   }
   
@@ -20,6 +20,7 @@ package com.powersurgepub.psdatalib.psdata;
   import com.powersurgepub.psdatalib.psindex.*;
   import com.powersurgepub.psdatalib.pstags.*;
   import com.powersurgepub.psutils.*;
+  import java.util.*;
   
   
 /**
@@ -37,6 +38,16 @@ public class DataFieldDefinition {
    */
   private    	CommonName      commonName;
   
+  /** The common form of the name, interned so that it may be used as a key. */
+  private     String          commonForm;
+  
+  /** Largest number of names whose common forms will be remembered. */
+  private static final int    MAX_COMMON_FORMS    = 4096;
+  
+  /** Common forms already computed, keyed by the names passed in. */
+  private static final HashMap<String, String> commonForms
+      = new HashMap<String, String>();
+  
   /** A rule for standardizing the format of this type of data. */
   private    	DataFormatRule  rule;
   
@@ -139,6 +150,7 @@ public class DataFieldDefinition {
 
     this.properName = properName;
     commonName =  new CommonName (properName);
+    commonForm = commonName.getCommonForm().intern();
     this.rule  = rule;
     this.combineByAppendingOK = combineByAppendingOK;
     setTypeFromName();
@@ -476,6 +488,38 @@ public class DataFieldDefinition {
     return commonName;
   }
   
+  /**
+     Gets the common form of the field's name, as an interned string.
+    
+     @return The common form of the field's name.
+   */
+  public String getCommonForm () {
+    return commonForm;
+  }
+  
+  /**
+     Returns the common form of any field name, as an interned string. 
+     Results are remembered, so that repeated lookups using the same
+     names need not build new CommonName objects each time.
+    
+     @return The common form of the passed name.
+    
+     @param  name The name of a field.
+   */
+  public static String getCommonForm (String name) {
+    synchronized (commonForms) {
+      String common = commonForms.get (name);
+      if (common == null) {
+        if (commonForms.size() >= MAX_COMMON_FORMS) {
+          commonForms.clear();
+        }
+        common = new CommonName (name).getCommonForm().intern();
+        commonForms.put (name, common);
+      }
+      return common;
+    }
+  }
+  
   /**
      Gets the proper name of the field (as originally input).
     
@@ -472,22 +472,8 @@ public class DataSet
    */
   public void setSequence (SequenceSpec seqSpec) {
     this.seqSpec = seqSpec;
-    boolean sorted = false;
-    int passes = 0;
-    DataRecord reci, recj;
-    while (! sorted) {
-      sorted = true;
-      for (int i = 0, j = 1; j < records.size(); i++, j++) {
-        reci = (DataRecord)records.get (i);
-        recj = (DataRecord)records.get (j);
-        if (reci.compareTo(recj, seqSpec) > 0) {
-          sorted = false;
-          records.set(i, recj);
-          records.set(j, reci);
-        } // end of comparison
-      } // end of one loop through Vector
-      passes++;
-    } // end of sorting operation
+    SequenceSorter sorter = new SequenceSorter (seqSpec);
+    sorter.sort (records);
   } // end of setSequence method
   
   /**
@@ -515,7 +501,10 @@ public class DataSet
    */
   public int combine (int precedence, int maxAllowed, int minNoLoss) {
     int combineCount = 0;
-    if (seqSpec != null) {
+    if (seqSpec != null && records.size() > 1) {
+      // Records that survive are moved down to position i, so that the
+      // list can be truncated once at the end, rather than removing each
+      // combined record individually
       DataRecord reci, recj;
       boolean combined;
       int i = 0;
@@ -527,15 +516,16 @@ public class DataSet
         if (reci.compareTo (recj, seqSpec) == 0) {
           combined = reci.combine (recj, recDef, precedence, maxAllowed, minNoLoss);
           if (combined) {
-            recj = (DataRecord)records.remove (j);
             combineCount++;
           } // end if combined
         } // end if equal keys
         if (! combined) {
           i++; 
-          j++;
+          records.set (i, recj);
         }
-      } // end of while loop through Vector
+        j++;
+      } // end of while loop through list
+      records.subList (i + 1, records.size()).clear();
     } // end of if seqSpec exists
     return combineCount;
   } // end of combine method
@@ -691,6 +681,18 @@ public class DataSet
     checkMemory();
   }
   
+  /**
+     Inserts a run of records at the given position, moving any following 
+     records only once.
+    
+     @param atIndex The position at which the first record is to be added.
+     @param inRecs  The records to be added, in order.
+   */
+  public void add (int atIndex, List<DataRecord> inRecs) {
+    records.addAll(atIndex, inRecs);
+    checkMemory();
+  }
+  
   private void checkMemory() {
     if (! userWarnedOnMemory) {
       Runtime rt = Runtime.getRuntime();
@@ -716,6 +718,20 @@ public class DataSet
     records.remove (recordNumber);
   }
   
+  /**
+     Removes a run of records, moving any following records only once.
+    
+     @param from The position of the first record to be removed.
+     @param to   The position just past the last record to be removed.
+   */
+  public void removeRecords (int from, int to) 
+      throws ArrayIndexOutOfBoundsException {
+    if ((from < 0) || (from > to) || (to > records.size())) {
+      throw new ArrayIndexOutOfBoundsException ();
+    }
+    records.subList (from, to).clear();
+  }
+  
   /** 
      Returns this object as some kind of String.
     
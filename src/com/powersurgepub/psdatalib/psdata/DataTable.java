@@ -43,6 +43,9 @@ public class DataTable
   /** Collection of data records. */
   private		 DataSet						dataSet;
   
+  /** Collection of data stored by column, used in place of the data set. */
+  private    ColumnarDataSet    columnarSet = null;
+  
   /** Definition of the records being stored in the data set. */
   private    RecordDefinition   recDef;
   
@@ -71,6 +74,28 @@ public class DataTable
   public void setDataSet (DataSet dataSet) {
   	this.dataSet = dataSet;
   	this.recDef  = dataSet.getRecDef();
+  	this.columnarSet = null;
+  }
+  
+  /** 
+     Constructs a DataTable with data stored by column.
+    
+     @param columnarSet Collection of data to be accessed in table format.
+   */
+  public DataTable (ColumnarDataSet columnarSet) {
+    setColumnarDataSet (columnarSet);
+  }
+  
+  /**
+     Sets the data stored by column to be shown by the Data Table. Values
+     are read from the columns as needed, without building data records.
+    
+     @param columnarSet Collection of data to be accessed in table format.
+   */
+  public void setColumnarDataSet (ColumnarDataSet columnarSet) {
+    this.columnarSet = columnarSet;
+    this.recDef = columnarSet.getRecDef();
+    this.dataSet = null;
   }
   
   /**
@@ -93,6 +118,9 @@ public class DataTable
      @return Number of columns in table.
    */
   public int getColumnCount () {
+    if (columnarSet != null) {
+      return columnarSet.getNumberOfFields ();
+    }
     return dataSet.getNumberOfFields ();
   }
   
@@ -102,6 +130,9 @@ public class DataTable
      @return Number of rows (records) in the table.
    */
   public int getRowCount () {
+    if (columnarSet != null) {
+      return columnarSet.getNumberOfRecords();
+    }
     return dataSet.getNumberOfRecords();
   }
   
@@ -122,6 +153,9 @@ public class DataTable
     	|| (column >= getColumnCount())) {
     	throw new ArrayIndexOutOfBoundsException();
     }
+    if (columnarSet != null) {
+      return columnarSet.getData (row, column);
+    }
     DataRecord workRec = dataSet.getRecord (row);
     DataField workField = workRec.getField (recDef, column);
     return workField.getData();
@@ -0,0 +1,479 @@
+/*
+ * Copyright 1999 - 2013 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+  import java.util.*;
+
+/**
+   A source of data records that returns the records from another data
+   source, sorted into the sequence called for by a sequence
+   specification, without needing to hold all of the records in memory
+   at once. <p>
+
+   Records are read from the input source and collected in memory until
+   their estimated size reaches a memory budget. The collected records are
+   then sorted with a SequenceSorter and written out to a temporary file
+   as a sorted run, in a compact binary format. Once all input has been
+   read, the sorted runs are merged, using a priority queue holding the
+   next record from each run, and the records are returned one at a time
+   through nextRecordIn. If all of the input fits within the budget, then
+   no temporary files are written, and the records are simply sorted
+   in memory. <p>
+
+   Records with equal keys are returned in their original input
+   sequence, just as they would be by DataSet.setSequence. <p>
+
+   The sequence specification may be built against any record definition
+   containing the key fields; the key fields will be located by name
+   within the record definition of the input source, once it has been
+   opened.
+ */
+public class ExternalSorter
+    implements DataSource {
+
+  /** Estimated memory used by a record, apart from its fields. */
+  private static final int      RECORD_OVERHEAD = 64;
+
+  /** Estimated memory used by a field, apart from its characters. */
+  private static final int      FIELD_OVERHEAD = 96;
+
+  /** The source of the records to be sorted. */
+  private    DataSource         inData;
+
+  /** The desired sequence, as passed to us. */
+  private    SequenceSpec       requestedSpec;
+
+  /** The desired sequence, bound to the input record definition. */
+  private    SequenceSpec       seqSpec;
+
+  /** Estimated number of bytes of records to be held in memory at once. */
+  private    long               memoryBudget;
+
+  /** Record definition of the input source. */
+  private    RecordDefinition   recDef = null;
+
+  /** Records sorted in memory, when no runs were written. */
+  private    ArrayList<DataRecord> memoryRecords = null;
+
+  /** Index of the next record to be returned from memoryRecords. */
+  private    int                memoryIndex = 0;
+
+  /** Temporary files holding sorted runs. */
+  private    ArrayList<File>    runFiles = new ArrayList<File>();
+
+  /** The sorted runs being merged, ordered by their next records. */
+  private    PriorityQueue<SortedRun> mergeQueue = null;
+
+  /** Number of the last record returned. */
+  private    int                recordNumber = 0;
+
+  private    boolean            atEnd = true;
+
+  private    Logger             log = Logger.getShared();
+  private    Debug              debug = new Debug (false);
+  private    String             fileId = "ExternalSorter";
+
+  /**
+     Constructs a sorter using one quarter of the maximum heap size as
+     its memory budget.
+
+     @param inData  The source of the records to be sorted.
+     @param seqSpec The desired sequence.
+   */
+  public ExternalSorter (DataSource inData, SequenceSpec seqSpec) {
+    this (inData, seqSpec, Runtime.getRuntime().maxMemory() / 4);
+  }
+
+  /**
+     Constructs a sorter with a given memory budget.
+
+     @param inData       The source of the records to be sorted.
+     @param seqSpec      The desired sequence.
+     @param memoryBudget The estimated number of bytes of records that may
+                         be held in memory at one time, before a sorted
+                         run is written to a temporary file.
+   */
+  public ExternalSorter (DataSource inData, SequenceSpec seqSpec,
+      long memoryBudget) {
+    this.inData = inData;
+    this.requestedSpec = seqSpec;
+    this.memoryBudget = memoryBudget;
+  }
+
+  /**
+     Opens the input source with the given data dictionary, and sorts
+     its records.
+
+     @param inDict A data dictionary to use.
+
+     @throws IOException If there is trouble reading the input or writing
+                         the sorted runs.
+   */
+  public void openForInput (DataDictionary inDict)
+      throws IOException {
+    inData.openForInput (inDict);
+    sortInput();
+  }
+
+  /**
+     Opens the input source with the given record definition, and sorts
+     its records.
+
+     @param inRecDef A record definition to use.
+
+     @throws IOException If there is trouble reading the input or writing
+                         the sorted runs.
+   */
+  public void openForInput (RecordDefinition inRecDef)
+      throws IOException {
+    inData.openForInput (inRecDef);
+    sortInput();
+  }
+
+  /**
+     Opens the input source and sorts its records.
+
+     @throws IOException If there is trouble reading the input or writing
+                         the sorted runs.
+   */
+  public void openForInput ()
+      throws IOException {
+    inData.openForInput ();
+    sortInput();
+  }
+
+  /**
+     Reads all of the input records, sorting them in memory and writing
+     out sorted runs as needed, and then prepares to return the records
+     in sequence.
+
+     @throws IOException If there is trouble reading the input or writing
+                         the sorted runs.
+   */
+  private void sortInput ()
+      throws IOException {
+    close();
+    recDef = inData.getRecDef();
+    seqSpec = requestedSpec.forRecDef (recDef);
+    SequenceSorter sorter = new SequenceSorter (seqSpec);
+    recordNumber = 0;
+
+    ArrayList<DataRecord> batch = new ArrayList<DataRecord>();
+    long batchSize = 0;
+    boolean moreInput = true;
+    while (moreInput && (! inData.isAtEnd())) {
+      DataRecord nextRec = inData.nextRecordIn();
+      if (nextRec == null) {
+        moreInput = false;
+      } else {
+        batch.add (nextRec);
+        batchSize = batchSize + estimateSize (nextRec);
+        if (batchSize >= memoryBudget) {
+          sorter.sort (batch);
+          writeRun (batch);
+          batch = new ArrayList<DataRecord>();
+          batchSize = 0;
+        }
+      }
+    }
+    inData.close();
+    sorter.sort (batch);
+
+    if (runFiles.isEmpty()) {
+      memoryRecords = batch;
+      memoryIndex = 0;
+      atEnd = memoryRecords.isEmpty();
+    } else {
+      if (batch.size() > 0) {
+        writeRun (batch);
+      }
+      batch = null;
+      mergeQueue = new PriorityQueue<SortedRun> (runFiles.size());
+      for (int i = 0; i < runFiles.size(); i++) {
+        SortedRun run = new SortedRun (runFiles.get (i), i);
+        if (run.getRecord() != null) {
+          mergeQueue.add (run);
+        } else {
+          run.close();
+        }
+      }
+      atEnd = mergeQueue.isEmpty();
+    }
+  }
+
+  /**
+     Estimates the memory occupied by a record.
+
+     @param rec The record whose size is to be estimated.
+
+     @return The estimated number of bytes used by the record.
+   */
+  private long estimateSize (DataRecord rec) {
+    long size = RECORD_OVERHEAD;
+    for (int i = 0; i < rec.getNumberOfFields(); i++) {
+      size = size + FIELD_OVERHEAD + (2 * rec.getField(i).getData().length());
+    }
+    return size;
+  }
+
+  /**
+     Writes a batch of sorted records to a new temporary file, in the
+     format written by RecordCodec, followed by its end marker.
+
+     @param batch The sorted records.
+
+     @throws IOException If the file cannot be written.
+   */
+  private void writeRun (ArrayList<DataRecord> batch)
+      throws IOException {
+    File runFile = File.createTempFile ("psdata_sort", ".run");
+    runFile.deleteOnExit();
+    runFiles.add (runFile);
+    DataOutputStream out = RecordCodec.openForOutput (runFile);
+    try {
+      for (int r = 0; r < batch.size(); r++) {
+        DataRecord rec = batch.get (r);
+        batch.set (r, null);
+        RecordCodec.writeRecord (out, recDef, rec);
+      }
+      RecordCodec.writeEnd (out);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+     Returns the next record, in sorted sequence.
+
+     @return The next record, or null if there are no more.
+
+     @throws IOException If a temporary file cannot be read.
+   */
+  public DataRecord nextRecordIn ()
+      throws IOException {
+    DataRecord nextRec = null;
+    if (memoryRecords != null) {
+      if (memoryIndex < memoryRecords.size()) {
+        nextRec = memoryRecords.get (memoryIndex);
+        memoryRecords.set (memoryIndex, null);
+        memoryIndex++;
+      }
+      atEnd = (memoryIndex >= memoryRecords.size());
+    }
+    else
+    if (mergeQueue != null) {
+      SortedRun run = mergeQueue.poll();
+      if (run != null) {
+        nextRec = run.getRecord();
+        run.advance();
+        if (run.getRecord() != null) {
+          mergeQueue.add (run);
+        } else {
+          run.close();
+        }
+      }
+      atEnd = mergeQueue.isEmpty();
+    }
+    if (nextRec != null) {
+      recordNumber++;
+    }
+    return nextRec;
+  }
+
+  /**
+     Returns the record definition of the input source.
+
+     @return Record definition.
+   */
+  public RecordDefinition getRecDef () {
+    return recDef;
+  }
+
+  /**
+     Returns the sequential record number of the last record returned.
+
+     @return Sequential record number of the last record returned via
+             nextRecordIn, where 1 identifies the first record.
+   */
+  public int getRecordNumber () {
+    return recordNumber;
+  }
+
+  /**
+     Returns the number of sorted runs written to temporary files.
+
+     @return Number of sorted runs, or zero if the records were sorted
+             entirely in memory.
+   */
+  public int getNumberOfRuns () {
+    return runFiles.size();
+  }
+
+  /**
+     Returns the sorter as some kind of string.
+
+     @return String identification of the sorter.
+   */
+  public String toString () {
+    return "ExternalSorter of " + inData.toString();
+  }
+
+  /**
+     Indicates whether there are more records to return.
+
+     @return True if no more records to return.
+   */
+  public boolean isAtEnd () {
+    return atEnd;
+  }
+
+  /**
+     Closes any open temporary files, and deletes them.
+
+     @throws IOException If there is trouble closing a file.
+   */
+  public void close ()
+      throws IOException {
+    if (mergeQueue != null) {
+      while (! mergeQueue.isEmpty()) {
+        mergeQueue.poll().close();
+      }
+      mergeQueue = null;
+    }
+    for (int i = 0; i < runFiles.size(); i++) {
+      runFiles.get(i).delete();
+    }
+    runFiles.clear();
+    memoryRecords = null;
+    atEnd = true;
+  }
+
+  /**
+     Sets a log to be used by the sorter and its input to record events.
+
+     @param  log A logger object to use.
+   */
+  public void setLog (Logger log) {
+    this.log = log;
+    inData.setLog (log);
+  }
+
+  /**
+     Sets the debug instance to the passed value.
+
+     @param debug Debug instance.
+   */
+  public void setDebug (Debug debug) {
+    this.debug = debug;
+    inData.setDebug (debug);
+  }
+
+  /**
+     Indicates whether all data records are to be logged by the input.
+
+     @param  dataLogging True if all data records are to be logged.
+   */
+  public void setDataLogging (boolean dataLogging) {
+    inData.setDataLogging (dataLogging);
+  }
+
+  /**
+     Sets a file ID to be used to identify this sorter in the log.
+
+     @param  fileId An identifier for this sorter.
+   */
+  public void setFileId (String fileId) {
+    this.fileId = fileId;
+  }
+
+  /**
+     Sets the maximum directory explosion depth for the input.
+
+     @param maxDepth Desired directory/sub-directory explosion depth.
+   */
+  public void setMaxDepth (int maxDepth) {
+    inData.setMaxDepth (maxDepth);
+  }
+
+  /**
+     Retrieves the path to the parent folder of the original source file (if any).
+
+     @return Path to the parent folder of the original source file (if any).
+   */
+  public String getDataParent () {
+    return inData.getDataParent();
+  }
+
+  /**
+     One sorted run being read back from its temporary file during the
+     merge, positioned at its next record.
+   */
+  private class SortedRun
+      implements Comparable<SortedRun> {
+
+    private DataInputStream in;
+
+    /** Position of this run in the original input sequence. */
+    private int             runNumber;
+
+    /** The next record from this run, or null if the run is exhausted. */
+    private DataRecord      rec = null;
+
+    SortedRun (File runFile, int runNumber)
+        throws IOException {
+      this.runNumber = runNumber;
+      in = RecordCodec.openForInput (runFile);
+      advance();
+    }
+
+    DataRecord getRecord () {
+      return rec;
+    }
+
+    /**
+       Reads the next record from the run, recalculating any calculated
+       fields once all of its fields have been read.
+     */
+    void advance ()
+        throws IOException {
+      rec = RecordCodec.readRecord (in, recDef);
+      if (rec != null) {
+        rec.calculate();
+      }
+    }
+
+    void close ()
+        throws IOException {
+      in.close();
+    }
+
+    /**
+       Orders runs by their next records, and then by their positions in
+       the input, so that records with equal keys keep their input order.
+     */
+    public int compareTo (SortedRun run2) {
+      int result = rec.compareTo (run2.rec, seqSpec);
+      if (result == 0) {
+        result = runNumber - run2.runNumber;
+      }
+      return result;
+    }
+  }
+
+}
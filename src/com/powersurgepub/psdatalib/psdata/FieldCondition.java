@@ -0,0 +1,160 @@
+/*
+ * Copyright 1999 - 2013 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+/**
+   Resolves and applies the logical operators used to select fields, such
+   as "equals", "ge", "()" or "does not start with". <p>
+
+   An operator may be resolved once, into an index matching its position
+   in the DataField operand arrays, and then applied to any number of
+   fields. The text operators are applied without regard to case, using
+   an operand that has already been lowercased, and without creating any
+   new strings.
+ */
+public class FieldCondition {
+
+  public static final int       EQUALS                = 0;
+  public static final int       GREATER_THAN          = 1;
+  public static final int       GREATER_THAN_OR_EQUAL = 2;
+  public static final int       LESS_THAN             = 3;
+  public static final int       LESS_THAN_OR_EQUAL    = 4;
+  public static final int       NOT_EQUAL             = 5;
+  public static final int       CONTAINS              = 6;
+  public static final int       DOES_NOT_CONTAIN      = 7;
+  public static final int       STARTS_WITH           = 8;
+  public static final int       DOES_NOT_START_WITH   = 9;
+  public static final int       ENDS_WITH             = 10;
+  public static final int       DOES_NOT_END_WITH     = 11;
+
+  /** Value returned when an operator cannot be resolved. */
+  public static final int       INVALID = -1;
+
+  /**
+     Resolves an operator, in any of its accepted forms.
+
+     @param operator The operator to be resolved.
+
+     @return The index of the operator within the DataField operand arrays,
+             or INVALID if the operator is not recognized.
+   */
+  public static int resolve (String operator) {
+    if (operator == null) {
+      return INVALID;
+    }
+    String oplc = " ";
+    if (operator.length() > 0 && Character.isLetter (operator.charAt (0))) {
+      oplc = operator.toLowerCase();
+    }
+    for (int opIndex = 0;
+        opIndex < DataField.NUMBER_OF_LOGICAL_OPERANDS;
+        opIndex++) {
+      if ((oplc.equals (DataField.WORD_LOGICAL_OPERANDS [opIndex]))
+          || (oplc.equals (DataField.MNEMONIC_LOGICAL_OPERANDS [opIndex]))
+          || (operator.equals (DataField.SYMBOL_LOGICAL_OPERANDS [opIndex]))
+          || (operator.equals (DataField.ALT_SYMBOL_LOGICAL_OPERANDS [opIndex]))) {
+        return opIndex;
+      }
+    }
+    return INVALID;
+  }
+
+  /**
+     Indicates whether a resolved operator compares values, rather than
+     looking for text within them.
+
+     @param opIndex A resolved operator.
+
+     @return True for the equality and ordering operators.
+   */
+  public static boolean isComparison (int opIndex) {
+    return (opIndex >= EQUALS && opIndex <= NOT_EQUAL);
+  }
+
+  /**
+     Applies a comparison operator to the result of comparing two values.
+
+     @param opIndex A resolved comparison operator.
+     @param result  Zero if the values are equal, negative if the first is
+                    less than the second, positive if it is greater.
+
+     @return True if the comparison is satisfied.
+   */
+  public static boolean compare (int opIndex, int result) {
+    switch (opIndex) {
+      case EQUALS:                return (result == 0);
+      case GREATER_THAN:          return (result > 0);
+      case GREATER_THAN_OR_EQUAL: return (result >= 0);
+      case LESS_THAN:             return (result < 0);
+      case LESS_THAN_OR_EQUAL:    return (result <= 0);
+      case NOT_EQUAL:             return (result != 0);
+      default:                    return true;
+    }
+  }
+
+  /**
+     Applies a text operator, ignoring case.
+
+     @param opIndex   A resolved text operator.
+     @param data      The data to be examined.
+     @param operandlc The operand to look for, already lowercased.
+
+     @return True if the condition is satisfied.
+   */
+  public static boolean matchText (int opIndex, String data, String operandlc) {
+    switch (opIndex) {
+      case CONTAINS:            return contains (data, operandlc);
+      case DOES_NOT_CONTAIN:    return (! contains (data, operandlc));
+      case STARTS_WITH:         return startsWith (data, operandlc);
+      case DOES_NOT_START_WITH: return (! startsWith (data, operandlc));
+      case ENDS_WITH:           return endsWith (data, operandlc);
+      case DOES_NOT_END_WITH:   return (! endsWith (data, operandlc));
+      default:                  return true;
+    }
+  }
+
+  /**
+     Does the data contain the operand, ignoring case?
+   */
+  public static boolean contains (String data, String operandlc) {
+    int length = operandlc.length();
+    int last = data.length() - length;
+    for (int i = 0; i <= last; i++) {
+      if (data.regionMatches (true, i, operandlc, 0, length)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+     Does the data start with the operand, ignoring case?
+   */
+  public static boolean startsWith (String data, String operandlc) {
+    return data.regionMatches (true, 0, operandlc, 0, operandlc.length());
+  }
+
+  /**
+     Does the data end with the operand, ignoring case?
+   */
+  public static boolean endsWith (String data, String operandlc) {
+    int length = operandlc.length();
+    return data.regionMatches
+        (true, data.length() - length, operandlc, 0, length);
+  }
+
+}
@@ -86,6 +86,18 @@ public class FieldFilter
 
   private    DataField          value;
 
+  
+
+  /** The operator, resolved once, or FieldCondition.INVALID. */
+
+  private    int                opIndex;
+
+  
+
+  /** The value, lowercased once, for text comparisons. */
+
+  private    String             valuelc;
+
 
 
 /**
@@ -122,6 +134,10 @@ public class FieldFilter
 
     this.value = new DataField (recDef, column, valueString);
 
+    this.opIndex = FieldCondition.resolve (operator);
+
+    this.valuelc = value.getData().toLowerCase();
+
   }
 
   
@@ -148,9 +164,25 @@ public class FieldFilter
 
     throws IllegalArgumentException {
 
+    if (opIndex == FieldCondition.INVALID) {
+
+      throw new IllegalArgumentException 
+
+        ("Invalid logical operator (" + operator + ")");
+
+    }
+
     DataField field = dataRec.getField (column);
 
-    return field.operateLogically (operator, value);
+    if (FieldCondition.isComparison (opIndex)) {
+
+      return FieldCondition.compare (opIndex, field.compareTo (value));
+
+    } else {
+
+      return FieldCondition.matchText (opIndex, field.getData(), valuelc);
+
+    }
 
   }
 
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import java.io.*;
+
+/**
+   Writes data records to temporary files, and reads them back, in the
+   compact binary format shared by ExternalSorter and RecordSpool. <p>
+
+   Each record is written as a count of its fields, followed by the column
+   number of each field within the record definition (or the field's name,
+   if it is not part of the record definition) and the field's data.
+   Strings are written as their length in UTF-8 bytes, followed by the
+   bytes. A file may be ended with a marker in place of a field count.
+ */
+class RecordCodec {
+
+  /** Size of the buffers used to write and read temporary files. */
+  private static final int      BUFFER_SIZE = 65536;
+
+  /** Marks the end of the records in a file. */
+  private static final int      END_OF_RECORDS = -1;
+
+  /** Marks a field whose definition is not part of the record definition. */
+  private static final int      UNDEFINED_COLUMN = -1;
+
+  private RecordCodec () {
+  }
+
+  /**
+     Opens a temporary file for output.
+
+     @param file The file to be written.
+
+     @return A buffered stream writing to the file.
+
+     @throws IOException If the file cannot be opened.
+   */
+  static DataOutputStream openForOutput (File file)
+      throws IOException {
+    return new DataOutputStream (new BufferedOutputStream
+        (new FileOutputStream (file), BUFFER_SIZE));
+  }
+
+  /**
+     Opens a temporary file for input.
+
+     @param file The file to be read.
+
+     @return A buffered stream reading from the file.
+
+     @throws IOException If the file cannot be opened.
+   */
+  static DataInputStream openForInput (File file)
+      throws IOException {
+    return new DataInputStream (new BufferedInputStream
+        (new FileInputStream (file), BUFFER_SIZE));
+  }
+
+  /**
+     Writes one record.
+
+     @param out    The stream to be written.
+     @param recDef The record definition used to number the record's
+                   fields, or null to write every field with its name.
+     @param rec    The record to be written.
+
+     @throws IOException If the record cannot be written.
+   */
+  static void writeRecord
+      (DataOutputStream out, RecordDefinition recDef, DataRecord rec)
+        throws IOException {
+    int fieldCount = rec.getNumberOfFields();
+    out.writeInt (fieldCount);
+    for (int i = 0; i < fieldCount; i++) {
+      DataField field = rec.getField (i);
+      DataFieldDefinition def = field.getDef();
+      int column = UNDEFINED_COLUMN;
+      if (recDef != null) {
+        if (i < recDef.getNumberOfFields() && recDef.getDef (i) == def) {
+          column = i;
+        } else {
+          column = recDef.getColumnNumber (def);
+        }
+      }
+      if (column < 0) {
+        out.writeInt (UNDEFINED_COLUMN);
+        writeString (out, def.getProperName());
+      } else {
+        out.writeInt (column);
+      }
+      writeString (out, field.getData());
+    }
+  }
+
+  /**
+     Writes the marker ending the records in a file.
+
+     @param out The stream to be written.
+
+     @throws IOException If the marker cannot be written.
+   */
+  static void writeEnd (DataOutputStream out)
+      throws IOException {
+    out.writeInt (END_OF_RECORDS);
+  }
+
+  /**
+     Reads one record written by writeRecord.
+
+     @param in     The stream to be read.
+     @param recDef The record definition used when the record was written.
+
+     @return The record read, or null if the end marker was found instead.
+
+     @throws IOException If the record cannot be read, or the file is not
+                         in the expected format.
+   */
+  static DataRecord readRecord (DataInputStream in, RecordDefinition recDef)
+      throws IOException {
+    int fieldCount = in.readInt();
+    if (fieldCount == END_OF_RECORDS) {
+      return null;
+    }
+    if (fieldCount < 0) {
+      throw new IOException ("Invalid field count in record file");
+    }
+    DataRecord rec = new DataRecord();
+    for (int i = 0; i < fieldCount; i++) {
+      int column = in.readInt();
+      DataFieldDefinition def;
+      if (column == UNDEFINED_COLUMN) {
+        def = new DataFieldDefinition (readString (in));
+      } else
+      if (recDef != null
+          && column >= 0
+          && column < recDef.getNumberOfFields()) {
+        def = recDef.getDef (column);
+      } else {
+        throw new IOException ("Invalid column number in record file");
+      }
+      rec.addField (new DataField (def, readString (in)));
+    }
+    return rec;
+  }
+
+  /**
+     Writes a string as its length in UTF-8 bytes followed by the bytes.
+   */
+  private static void writeString (DataOutputStream out, String str)
+      throws IOException {
+    byte[] bytes = str.getBytes ("UTF-8");
+    out.writeInt (bytes.length);
+    out.write (bytes);
+  }
+
+  /**
+     Reads a string written by writeString.
+   */
+  private static String readString (DataInputStream in)
+      throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException ("Invalid string length in record file");
+    }
+    byte[] bytes = new byte [length];
+    in.readFully (bytes);
+    return new String (bytes, "UTF-8");
+  }
+
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 1999 - 2013 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+
+/**
+   A source of data records that reads records from another data source,
+   already sorted by a sequence specification, and combines adjacent
+   records having equal keys, following the same rules as
+   DataSet.combine. <p>
+
+   Only the record being built up, plus the next record read, are held in
+   memory at any one time, so this may be used over the output of an
+   ExternalSorter to combine data sets too large to be held in memory. <p>
+
+   Since DataRecord.combine uses record sequence numbers to decide which of
+   two records takes precedence, each input record is given a new sequence
+   number reflecting the order in which it was read. For input sorted by a
+   stable sort, such as DataSet.setSequence or ExternalSorter, records with
+   equal keys arrive in their original order, so this gives the same result
+   as the original sequence numbers.
+ */
+public class RecordCombiner
+    implements DataSource {
+
+  /** The sorted source of the records to be combined. */
+  private    DataSource         inData;
+
+  /** The sequence of the input, as passed to us. */
+  private    SequenceSpec       requestedSpec;
+
+  /** The sequence of the input, bound to the input record definition. */
+  private    SequenceSpec       seqSpec;
+
+  /** Indicator of whether earlier or later records take precedence. */
+  private    int                precedence;
+
+  /** The maximum data loss allowed when combining two records. */
+  private    int                maxAllowed;
+
+  /** Minimum number of fields without data loss, when data may be lost. */
+  private    int                minNoLoss;
+
+  /** Record definition of the input source. */
+  private    RecordDefinition   recDef = null;
+
+  /** The record into which records with equal keys are being combined. */
+  private    DataRecord         current = null;
+
+  /** Number of records read from the input. */
+  private    int                recordsIn = 0;
+
+  /** Number of records successfully combined into preceding records. */
+  private    int                combineCount = 0;
+
+  /** Number of the last record returned. */
+  private    int                recordNumber = 0;
+
+  private    Logger             log = Logger.getShared();
+  private    Debug              debug = new Debug (false);
+  private    String             fileId = "RecordCombiner";
+
+  /**
+     Constructs a combiner.
+
+     @param inData     The source of the records to be combined, sorted
+                       into the sequence given by seqSpec.
+     @param seqSpec    The sequence of the input, identifying the key
+                       fields. This may be built against any record
+                       definition containing the key fields.
+     @param precedence Indicator of whether records read earlier or later
+                       take precedence. <ul> <li>
+                       +1 = Later records override earlier <li>
+                       -1 = Earlier records override later <li>
+                        0 = No overrides. </ul>
+     @param maxAllowed The maximum return value allowed as a result of the
+                       combination of the two records' fields, as for
+                       DataSet.combine.
+     @param minNoLoss  If maxAllowed permits data to be overwritten,
+                       then this parameter specifies the minimum number
+                       of fields that must be without data loss.
+   */
+  public RecordCombiner (DataSource inData, SequenceSpec seqSpec,
+      int precedence, int maxAllowed, int minNoLoss) {
+    this.inData = inData;
+    this.requestedSpec = seqSpec;
+    this.precedence = precedence;
+    this.maxAllowed = maxAllowed;
+    this.minNoLoss = minNoLoss;
+  }
+
+  /**
+     Opens the input source with the given data dictionary.
+
+     @param inDict A data dictionary to use.
+
+     @throws IOException If there is trouble opening the input.
+   */
+  public void openForInput (DataDictionary inDict)
+      throws IOException {
+    inData.openForInput (inDict);
+    startCombining();
+  }
+
+  /**
+     Opens the input source with the given record definition.
+
+     @param inRecDef A record definition to use.
+
+     @throws IOException If there is trouble opening the input.
+   */
+  public void openForInput (RecordDefinition inRecDef)
+      throws IOException {
+    inData.openForInput (inRecDef);
+    startCombining();
+  }
+
+  /**
+     Opens the input source.
+
+     @throws IOException If there is trouble opening the input.
+   */
+  public void openForInput ()
+      throws IOException {
+    inData.openForInput ();
+    startCombining();
+  }
+
+  /**
+     Prepares to combine records from the newly opened input.
+
+     @throws IOException If there is trouble reading the input.
+   */
+  private void startCombining ()
+      throws IOException {
+    recDef = inData.getRecDef();
+    seqSpec = requestedSpec.forRecDef (recDef);
+    recordsIn = 0;
+    combineCount = 0;
+    recordNumber = 0;
+    current = readRecord();
+  }
+
+  /**
+     Returns the next record read from the input, given a new record
+     sequence number.
+
+     @return The next input record, or null if there are no more.
+
+     @throws IOException If there is trouble reading the input.
+   */
+  private DataRecord readRecord ()
+      throws IOException {
+    DataRecord inRec = null;
+    while (inRec == null && (! inData.isAtEnd())) {
+      inRec = inData.nextRecordIn();
+    }
+    if (inRec != null) {
+      inRec.setRecordSequence (recordsIn++);
+    }
+    return inRec;
+  }
+
+  /**
+     Returns the next combined record.
+
+     @return The next record, after any following records with equal keys
+             have been combined into it, or null if there are no more.
+
+     @throws IOException If there is trouble reading the input.
+   */
+  public DataRecord nextRecordIn ()
+      throws IOException {
+    if (current == null) {
+      return null;
+    }
+    DataRecord combined = current;
+    current = null;
+    DataRecord next = readRecord();
+    while (next != null && current == null) {
+      if (combined.compareTo (next, seqSpec) == 0
+          && combined.combine (next, recDef, precedence, maxAllowed, minNoLoss)) {
+        combineCount++;
+        next = readRecord();
+      } else {
+        current = next;
+      }
+    }
+    recordNumber++;
+    return combined;
+  }
+
+  /**
+     Returns the number of records combined into preceding records so far.
+
+     @return Number of records successfully combined.
+   */
+  public int getCombineCount () {
+    return combineCount;
+  }
+
+  /**
+     Returns the record definition of the input source.
+
+     @return Record definition.
+   */
+  public RecordDefinition getRecDef () {
+    return recDef;
+  }
+
+  /**
+     Returns the sequential record number of the last record returned.
+
+     @return Sequential record number of the last record returned via
+             nextRecordIn, where 1 identifies the first record.
+   */
+  public int getRecordNumber () {
+    return recordNumber;
+  }
+
+  /**
+     Returns the combiner as some kind of string.
+
+     @return String identification of the combiner.
+   */
+  public String toString () {
+    return "RecordCombiner of " + inData.toString();
+  }
+
+  /**
+     Indicates whether there are more records to return.
+
+     @return True if no more records to return.
+   */
+  public boolean isAtEnd () {
+    return (current == null);
+  }
+
+  /**
+     Closes the input source.
+
+     @throws IOException If there is trouble closing the input.
+   */
+  public void close ()
+      throws IOException {
+    current = null;
+    inData.close();
+  }
+
+  /**
+     Sets a log to be used by the combiner and its input to record events.
+
+     @param  log A logger object to use.
+   */
+  public void setLog (Logger log) {
+    this.log = log;
+    inData.setLog (log);
+  }
+
+  /**
+     Sets the debug instance to the passed value.
+
+     @param debug Debug instance.
+   */
+  public void setDebug (Debug debug) {
+    this.debug = debug;
+    inData.setDebug (debug);
+  }
+
+  /**
+     Indicates whether all data records are to be logged by the input.
+
+     @param  dataLogging True if all data records are to be logged.
+   */
+  public void setDataLogging (boolean dataLogging) {
+    inData.setDataLogging (dataLogging);
+  }
+
+  /**
+     Sets a file ID to be used to identify this combiner in the log.
+
+     @param  fileId An identifier for this combiner.
+   */
+  public void setFileId (String fileId) {
+    this.fileId = fileId;
+  }
+
+  /**
+     Sets the maximum directory explosion depth for the input.
+
+     @param maxDepth Desired directory/sub-directory explosion depth.
+   */
+  public void setMaxDepth (int maxDepth) {
+    inData.setMaxDepth (maxDepth);
+  }
+
+  /**
+     Retrieves the path to the parent folder of the original source file (if any).
+
+     @return Path to the parent folder of the original source file (if any).
+   */
+  public String getDataParent () {
+    return inData.getDataParent();
+  }
+
+}
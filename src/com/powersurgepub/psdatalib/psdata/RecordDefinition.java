@@ -17,6 +17,7 @@
 package com.powersurgepub.psdatalib.psdata;
 
   import java.util.*;
+  import java.util.concurrent.*;
   import com.powersurgepub.psutils.*;
   
 /**
@@ -48,6 +49,26 @@ public class RecordDefinition {
   /** An index to an entry in the columns collection. */
   private   int             columnNumber;
   
+  /** 
+     Column numbers keyed by the common form of each column's name. Where
+     a name appears more than once, the first column is the one indexed. 
+     Fields may be looked up by name from other threads, as when output 
+     files are written on several threads while records are still being 
+     read, so added columns are put into a concurrent map. When columns 
+     are removed, a complete new map replaces it, so that lookups never 
+     see a partly rebuilt index.
+   */
+  private volatile ConcurrentHashMap<String, Integer> columnIndex 
+      = new ConcurrentHashMap<String, Integer>();
+  
+  /** 
+     Incremented whenever columns are removed, so that records laid out
+     according to an earlier version of this definition can tell that
+     their column numbers may no longer line up. Adding a column leaves 
+     the version alone, since existing columns keep their numbers.
+   */
+  private volatile int       layoutVersion = 0;
+  
   /**
      The no-arg constructor will instantiate a new DataDictionary.
    */
@@ -178,19 +199,62 @@ public class RecordDefinition {
   public int getColumnNumber (CommonName inCommon) {
 
     CommonName common = dict.getAliasOriginal (inCommon);
-
-    int i = 0;
-    while ((i < columns.size()) 
-      && (!(common.equals(dict.getDef(getDefNum(i)).getCommonName())))) {
-      i++;
-    }
-    if (i < columns.size()) {
-      return i;
-    } else {
+    return getColumnNumberByCommonForm (common.getCommonForm());
+  }
+  
+  /**
+     Returns the column number assigned to a particular field, without
+     looking for aliases.
+    
+     @return Column number for the given field, or a -1 if not found.
+    
+     @param  commonForm The common form of the desired field's name.
+   */
+  public int getColumnNumberByCommonForm (String commonForm) {
+    Integer i = columnIndex.get (commonForm);
+    if (i == null) {
       return GlobalConstants.NOT_FOUND;
+    } else {
+      return i.intValue();
     }
   }
   
+  /**
+     Adds the given column to the column index, unless an earlier column
+     has the same name.
+    
+     @param  i The column number to be indexed.
+   */
+  private void indexColumn (int i) {
+    columnIndex.putIfAbsent 
+        (getDef(i).getCommonForm(), Integer.valueOf (i));
+  }
+  
+  /**
+     Replaces the column index with a new one, built from all the columns.
+   */
+  private void indexColumns () {
+    ConcurrentHashMap<String, Integer> newIndex 
+        = new ConcurrentHashMap<String, Integer>();
+    for (int i = 0; i < columns.size(); i++) {
+      newIndex.putIfAbsent (getDef(i).getCommonForm(), Integer.valueOf (i));
+    }
+    columnIndex = newIndex;
+  }
+  
+  /**
+     Returns a number that changes whenever columns are removed from this
+     definition. As long as this number stays the same, columns keep
+     their existing column numbers. Columns may still be added without 
+     changing the number, so a field not found under one version may be
+     found later under the same version. 
+    
+     @return The current layout version. 
+   */
+  public int getLayoutVersion () {
+    return layoutVersion;
+  }
+  
   /** 
      Returns the index to a particular DataFieldDefinition in
      the DataDictionary, stored in a particular column number.
@@ -260,6 +324,7 @@ public class RecordDefinition {
     int i = columns.size();
     columns.addElement (column);
     names.addElement (inDef.getProperName());
+    indexColumn (i);
     return i;
   }
   
@@ -318,8 +383,11 @@ public class RecordDefinition {
    Remove all columns from the record definition. 
    */
   public void clear() {
-    while (columns.size() > 0) {
-      remove(columns.size() - 1);
+    if (columns.size() > 0) {
+      names.clear();
+      layoutVersion++;
+      columns.clear();
+      columnIndex = new ConcurrentHashMap<String, Integer>();
     }
   }
   
@@ -335,7 +403,10 @@ public class RecordDefinition {
       return null;
     } else {
       names.remove(i);
-      return columns.remove(i);
+      layoutVersion++;
+      Object removed = columns.remove(i);
+      indexColumns();
+      return removed;
     }
   }
   
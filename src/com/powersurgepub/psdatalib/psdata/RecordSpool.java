@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import java.io.*;
+  import java.util.*;
+
+/**
+   A store of data records that may be read through any number of times,
+   and by more than one cursor at once, without needing to hold all of the
+   records in memory. <p>
+
+   Records are kept in memory until their estimated size reaches a memory
+   budget. Any further records are written to a temporary file, in the
+   compact binary format written by RecordCodec, and are read back from
+   the file by each cursor in turn. <p>
+
+   All records should be added before any cursors are opened.
+ */
+public class RecordSpool {
+
+  /** Estimated memory used by a record, apart from its fields. */
+  private static final int      RECORD_OVERHEAD = 64;
+
+  /** Estimated memory used by a field, apart from its characters. */
+  private static final int      FIELD_OVERHEAD = 96;
+
+  /** Record definition of the records being stored, if known. */
+  private    RecordDefinition   recDef;
+
+  /** Estimated number of bytes of records to be held in memory. */
+  private    long               memoryBudget;
+
+  /** Estimated number of bytes of records now held in memory. */
+  private    long               memorySize = 0;
+
+  /** The first records added, held in memory. */
+  private    ArrayList<DataRecord> memoryRecords = new ArrayList<DataRecord>();
+
+  /** Temporary file holding the records that did not fit in memory. */
+  private    File               spoolFile = null;
+
+  private    DataOutputStream   out = null;
+
+  /** Number of records written to the temporary file. */
+  private    int                spooled = 0;
+
+  /**
+     Constructs a spool using one quarter of the maximum heap size as its
+     memory budget.
+
+     @param recDef The record definition of the records to be stored,
+                   or null if not known.
+   */
+  public RecordSpool (RecordDefinition recDef) {
+    this (recDef, Runtime.getRuntime().maxMemory() / 4);
+  }
+
+  /**
+     Constructs a spool with the given memory budget.
+
+     @param recDef       The record definition of the records to be stored,
+                         or null if not known.
+     @param memoryBudget Estimated number of bytes of records to be held
+                         in memory before the rest are written to disk.
+   */
+  public RecordSpool (RecordDefinition recDef, long memoryBudget) {
+    this.recDef = recDef;
+    this.memoryBudget = memoryBudget;
+  }
+
+  /**
+     Adds a record to the end of the spool.
+
+     @param rec The record to be added.
+
+     @throws IOException If the temporary file cannot be written.
+   */
+  public void add (DataRecord rec)
+      throws IOException {
+    if (out == null && memorySize < memoryBudget) {
+      memoryRecords.add (rec);
+      memorySize = memorySize + estimateSize (rec);
+    } else {
+      if (out == null) {
+        spoolFile = File.createTempFile ("psdata_spool", ".spool");
+        spoolFile.deleteOnExit();
+        out = RecordCodec.openForOutput (spoolFile);
+      }
+      RecordCodec.writeRecord (out, recDef, rec);
+      spooled++;
+    }
+  }
+
+  /**
+     Estimates the memory occupied by a record.
+
+     @param rec The record whose size is to be estimated.
+
+     @return The estimated number of bytes used by the record.
+   */
+  private long estimateSize (DataRecord rec) {
+    long size = RECORD_OVERHEAD;
+    for (int i = 0; i < rec.getNumberOfFields(); i++) {
+      size = size + FIELD_OVERHEAD + (2 * rec.getField(i).getData().length());
+    }
+    return size;
+  }
+
+  /**
+     Returns the number of records in the spool.
+
+     @return Number of records added.
+   */
+  public int size () {
+    return memoryRecords.size() + spooled;
+  }
+
+  /**
+     Returns the number of records written to the temporary file.
+
+     @return Number of records that did not fit within the memory budget.
+   */
+  public int getNumberSpooled () {
+    return spooled;
+  }
+
+  /**
+     Opens a new cursor, positioned before the first record.
+
+     @return A cursor that will return each record in turn.
+
+     @throws IOException If the temporary file cannot be read.
+   */
+  public Cursor openCursor ()
+      throws IOException {
+    if (out != null) {
+      out.flush();
+    }
+    return new Cursor();
+  }
+
+  /**
+     Closes and deletes the temporary file, if any, and drops all of the
+     records from the spool.
+
+     @throws IOException If there is trouble closing the file.
+   */
+  public void close ()
+      throws IOException {
+    if (out != null) {
+      out.close();
+      out = null;
+    }
+    if (spoolFile != null) {
+      spoolFile.delete();
+      spoolFile = null;
+    }
+    memoryRecords.clear();
+    memorySize = 0;
+    spooled = 0;
+  }
+
+  /**
+     One pass through the records in the spool.
+   */
+  public class Cursor {
+
+    /** Index of the next record to be returned from memory. */
+    private int             memoryIndex = 0;
+
+    /** Number of records read from the temporary file. */
+    private int             spoolIndex = 0;
+
+    private DataInputStream in = null;
+
+    private Cursor () {
+
+    }
+
+    /**
+       Returns the next record.
+
+       @return The next record, or null if there are no more.
+
+       @throws IOException If the temporary file cannot be read.
+     */
+    public DataRecord next ()
+        throws IOException {
+      if (memoryIndex < memoryRecords.size()) {
+        DataRecord rec = memoryRecords.get (memoryIndex);
+        memoryIndex++;
+        return rec;
+      }
+      if (spoolIndex >= spooled) {
+        close();
+        return null;
+      }
+      if (in == null) {
+        in = RecordCodec.openForInput (spoolFile);
+      }
+      DataRecord rec = RecordCodec.readRecord (in, recDef);
+      if (rec == null) {
+        throw new EOFException ("Spool file ends before its last record");
+      }
+      spoolIndex++;
+      return rec;
+    }
+
+    /**
+       Closes the cursor's temporary file, if open.
+
+       @throws IOException If there is trouble closing the file.
+     */
+    public void close ()
+        throws IOException {
+      if (in != null) {
+        in.close();
+        in = null;
+      }
+    }
+  }
+
+}
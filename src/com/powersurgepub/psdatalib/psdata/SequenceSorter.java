@@ -0,0 +1,254 @@
+/*
+ * Copyright 1999 - 2013 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import com.powersurgepub.psdatalib.psdata.values.*;
+  import java.util.*;
+
+/**
+   Sorts a list of data records into the sequence called for by a
+   sequence specification. <p>
+
+   The key fields for each record are extracted only once, into
+   parallel arrays, and the records are then put into sequence with a
+   stable merge sort over an array of record indices. The result is the
+   same sequence that would be produced by repeatedly applying
+   DataRecord.compareTo (DataRecord, SequenceSpec): numeric comparisons
+   are made when both fields are numbers, the data values are compared
+   otherwise, descending fields are reversed, and records with equal keys
+   keep their original relative positions. <p>
+
+   Since the comparison rules mix numeric and string comparisons, they
+   do not always describe a strict total ordering. The merge sort used
+   here will still always complete, unlike Collections.sort, which may
+   reject such a comparator.
+ */
+public class SequenceSorter {
+
+  /** Runs of this many records or fewer are sorted by insertion. */
+  private static final int    INSERTION_SORT_THRESHOLD = 24;
+
+  /** Column numbers of the key fields, from major to minor. */
+  private    int[]              columns;
+
+  /** Is each of the key fields to be sorted in ascending sequence? */
+  private    boolean[]          ascending;
+
+  /** Number of key fields. */
+  private    int                keyCount = 0;
+
+  /** Is each extracted key a number? Indexed by record * keyCount + key. */
+  private    boolean[]          numeric;
+
+  /** The extracted keys as long values, for numeric keys. */
+  private    long[]             numbers;
+
+  /**
+     The extracted keys as strings, for keys whose data values compare
+     as plain strings; otherwise null.
+   */
+  private    String[]           strings;
+
+  /** The extracted data values. */
+  private    DataValue[]        values;
+
+  /**
+     Constructs a sorter for the given sequence specification.
+
+     @param seqSpec The sequence specification identifying the key fields,
+                    or null to leave records in their existing sequence.
+   */
+  public SequenceSorter (SequenceSpec seqSpec) {
+    ArrayList<SequenceField> seqFields = new ArrayList<SequenceField>();
+    if (seqSpec != null) {
+      seqSpec.startWithFirstField();
+      while (seqSpec.hasMoreFields()) {
+        seqFields.add (seqSpec.nextField());
+      }
+    }
+    keyCount = seqFields.size();
+    columns = new int [keyCount];
+    ascending = new boolean [keyCount];
+    for (int k = 0; k < keyCount; k++) {
+      SequenceField seqField = seqFields.get (k);
+      columns [k] = seqField.getColumnNumber();
+      ascending [k] = seqField.isAscending();
+    }
+  }
+
+  /**
+     Sorts the passed list of records into sequence.
+
+     @param records The records to be sorted. Upon return, the list will
+                    contain the same records, in sorted sequence.
+   */
+  public void sort (List<DataRecord> records) {
+    int n = records.size();
+    if (n < 2 || keyCount == 0) {
+      return;
+    }
+    DataRecord[] recs = records.toArray (new DataRecord [n]);
+    extractKeys (recs);
+
+    int[] index = new int [n];
+    for (int i = 0; i < n; i++) {
+      index [i] = i;
+    }
+    mergeSort (index, new int [n], 0, n);
+
+    for (int i = 0; i < n; i++) {
+      records.set (i, recs [index [i]]);
+    }
+    numeric = null;
+    numbers = null;
+    strings = null;
+    values = null;
+  }
+
+  /**
+     Extracts the key fields from each record into the key arrays.
+
+     @param recs The records to be sorted.
+   */
+  private void extractKeys (DataRecord[] recs) {
+    int size = recs.length * keyCount;
+    numeric = new boolean [size];
+    numbers = new long [size];
+    strings = new String [size];
+    values = new DataValue [size];
+    int slot = 0;
+    for (int i = 0; i < recs.length; i++) {
+      for (int k = 0; k < keyCount; k++) {
+        DataField field = recs [i].getField (columns [k]);
+        DataValue value = field.getDataValue();
+        numeric [slot] = field.isANumber();
+        numbers [slot] = field.getDataLong();
+        values [slot] = value;
+        if (value instanceof DataValueString
+            || value instanceof DataValueStringBuilder) {
+          strings [slot] = value.toString();
+        }
+        slot++;
+      }
+    }
+  }
+
+  /**
+     Sorts a range of the index array using a stable, top-down merge sort.
+
+     @param index The record indices being sorted.
+     @param work  A work array of the same length.
+     @param from  The first position in the range (inclusive).
+     @param to    The end of the range (exclusive).
+   */
+  private void mergeSort (int[] index, int[] work, int from, int to) {
+    if (to - from <= INSERTION_SORT_THRESHOLD) {
+      insertionSort (index, from, to);
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    mergeSort (index, work, from, mid);
+    mergeSort (index, work, mid, to);
+
+    // If the two halves are already in sequence, there is nothing to merge
+    if (compare (index [mid - 1], index [mid]) <= 0) {
+      return;
+    }
+
+    System.arraycopy (index, from, work, from, to - from);
+    int left = from;
+    int right = mid;
+    int out = from;
+    while (left < mid && right < to) {
+      if (compare (work [right], work [left]) < 0) {
+        index [out++] = work [right++];
+      } else {
+        index [out++] = work [left++];
+      }
+    }
+    while (left < mid) {
+      index [out++] = work [left++];
+    }
+    while (right < to) {
+      index [out++] = work [right++];
+    }
+  }
+
+  /**
+     Sorts a short range of the index array by insertion.
+
+     @param index The record indices being sorted.
+     @param from  The first position in the range (inclusive).
+     @param to    The end of the range (exclusive).
+   */
+  private void insertionSort (int[] index, int from, int to) {
+    for (int i = from + 1; i < to; i++) {
+      int rec = index [i];
+      int j = i - 1;
+      while (j >= from && compare (index [j], rec) > 0) {
+        index [j + 1] = index [j];
+        j--;
+      }
+      index [j + 1] = rec;
+    }
+  }
+
+  /**
+     Compares the extracted keys of two records.
+
+     @return Zero if the keys are equal, negative if the first record
+             belongs before the second, positive if it belongs after.
+
+     @param rec1 Index of the first record.
+     @param rec2 Index of the second record.
+   */
+  private int compare (int rec1, int rec2) {
+    int slot1 = rec1 * keyCount;
+    int slot2 = rec2 * keyCount;
+    int result = 0;
+    for (int k = 0; k < keyCount && result == 0; k++) {
+      if (numeric [slot1] && numeric [slot2]) {
+        result = Long.compare (numbers [slot1], numbers [slot2]);
+      }
+      else
+      if (strings [slot1] != null) {
+        result = strings [slot1].compareTo (valueString (slot2));
+      }
+      else {
+        result = values [slot1].compareTo (values [slot2]);
+      }
+      if (! ascending [k]) {
+        result = result * -1;
+      }
+      slot1++;
+      slot2++;
+    }
+    return result;
+  }
+
+  /**
+     Returns the string form of an extracted key.
+   */
+  private String valueString (int slot) {
+    if (strings [slot] != null) {
+      return strings [slot];
+    } else {
+      return values [slot].toString();
+    }
+  }
+
+}
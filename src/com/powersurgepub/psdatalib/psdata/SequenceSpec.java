@@ -558,4 +558,54 @@ public class SequenceSpec {
 
   
 
+  /**
+
+     Returns a specification for the same fields, in the same order and 
+
+     with the same directions, located by name within another record 
+
+     definition. 
+
+    
+
+     @param  target Record definition of the records to be sequenced.
+
+    
+
+     @return This specification, if it already uses the target record 
+
+             definition, otherwise an equivalent specification for the
+
+             target record definition. 
+
+   */
+
+  public SequenceSpec forRecDef (RecordDefinition target) {
+
+    if (target == recDef) {
+
+      return this;
+
+    }
+
+    SequenceSpec bound = new SequenceSpec (target);
+
+    for (int i = 0; i < seqFields.size(); i++) {
+
+      SequenceField seqField = (SequenceField)seqFields.elementAt (i);
+
+      String name 
+
+          = recDef.getDef (seqField.getColumnNumber()).getProperName();
+
+      bound.addField (new SequenceField (target, name, seqField.isAscending()));
+
+    }
+
+    return bound;
+
+  }
+
+  
+
 } // end class SequenceSpec
\ No newline at end of file
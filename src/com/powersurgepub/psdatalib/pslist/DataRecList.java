@@ -49,6 +49,16 @@ public class DataRecList
   protected     int                 findIndex = -1;
   protected     boolean             findMatch = false;
   
+  /** 
+   Largest number of separate runs of rows to be inserted or deleted 
+   individually when the filter changes; beyond this, the table is simply
+   told that all of its data has changed. 
+   */
+  public static final int           MAX_ROW_EVENT_RUNS = 64;
+  
+  /** Runs of this many records or fewer are sorted by insertion. */
+  private static final int          INSERTION_SORT_THRESHOLD = 24;
+  
   protected     int                 recordNumber = -1;
   
   /** Log used to record events. */
@@ -239,8 +249,12 @@ public class DataRecList
    */
   public void setInputFilter (PSItemFilter inputFilter) {
     this.itemFilter = inputFilter;
-    reloadFilteredDataSet();
-    fireTableDataChanged();
+    if (filteredDataSet == null) {
+      reloadFilteredDataSet();
+      fireTableDataChanged();
+    } else {
+      refilter();
+    }
   }
   
   public void setComparator (Comparator comparator) {
@@ -258,43 +272,332 @@ public class DataRecList
     } else {
       this.comparator = new PSDefaultComparator();
     }
+    
+    // The records selected remain the same, but every row may move, so 
+    // sort the selected records once and then refresh the entire table.
     reloadFilteredDataSet();
     fireTableDataChanged();
   }
   
+  /**
+   Rebuild the filtered and sorted list from the complete list. The 
+   positions of the selected records are collected into an array, which 
+   is then sorted once using the comparator. Records with equal keys 
+   remain in the same order as in the complete list. 
+   */
   public void reloadFilteredDataSet() {
     filteredDataSet = new DataSet(completeDataSet.getRecDef());
-    for (int i = 0; i < completeDataSet.size(); i++) {
-      addToFilteredDataSet(i);
+    int[] selected = selectAndSort();
+    for (int i = 0; i < selected.length; i++) {
+      filteredDataSet.add(completeDataSet.getRecord(selected[i]));
+    }
+  }
+  
+  /**
+   Identify the records from the complete list selected by the current 
+   filter, and sort them using the current comparator.
+  
+   @return The positions of the selected records within the complete list,
+           in sorted sequence. 
+   */
+  private int[] selectAndSort() {
+    int total = completeDataSet.size();
+    int[] index = new int[total];
+    int count = 0;
+    for (int i = 0; i < total; i++) {
+      if (itemSelected(completeDataSet.getRecord(i))) {
+        index[count] = i;
+        count++;
+      }
+    }
+    if (count < total) {
+      int[] trimmed = new int[count];
+      System.arraycopy(index, 0, trimmed, 0, count);
+      index = trimmed;
     }
+    if (! (comparator instanceof PSDefaultComparator)) {
+      mergeSort(index, new int[count], 0, count);
+    }
+    return index;
   }
   
-  private void addToFilteredDataSet (int i) {
-    DataRecord dataRec = completeDataSet.getRecord(i);
-    if (itemSelected(dataRec)) {
-      if (comparator instanceof PSDefaultComparator) {
-        filteredDataSet.add(dataRec);
+  /**
+   Apply a new filter to a list that has already been loaded, notifying 
+   any table listeners of the rows inserted and deleted. Since the 
+   sequence is unchanged, the old and new lists can be compared in a 
+   single pass. 
+   */
+  private void refilter() {
+    
+    int[] selected = selectAndSort();
+    ArrayList<DataRecord> newList = new ArrayList<DataRecord>(selected.length);
+    IdentityHashMap<DataRecord, Boolean> inNew 
+        = new IdentityHashMap<DataRecord, Boolean>(selected.length * 2);
+    for (int i = 0; i < selected.length; i++) {
+      DataRecord dataRec = completeDataSet.getRecord(selected[i]);
+      newList.add(dataRec);
+      inNew.put(dataRec, Boolean.TRUE);
+    }
+    int oldSize = size();
+    IdentityHashMap<DataRecord, Boolean> inOld 
+        = new IdentityHashMap<DataRecord, Boolean>(oldSize * 2);
+    for (int i = 0; i < oldSize; i++) {
+      inOld.put(get(i), Boolean.TRUE);
+    }
+    
+    // Count the runs of rows to be deleted or inserted. If records kept in
+    // the list are not in the same relative order (as may happen to records 
+    // with equal keys, after modifications), give up on individual events.
+    int runs = 0;
+    int i = 0;
+    int j = 0;
+    boolean inRun = false;
+    while ((i < oldSize || j < newList.size()) && runs <= MAX_ROW_EVENT_RUNS) {
+      if (i < oldSize && j < newList.size() && get(i) == newList.get(j)) {
+        inRun = false;
+        i++;
+        j++;
       } else {
-        findIndex = size();
-        if (size() == 0) {
-          // If this is the first =$itemclass$= being added to the proxy list,
-          // simply add the proxy to the list
-          filteredDataSet.add(dataRec);
+        if (! inRun) {
+          runs++;
+        }
+        inRun = true;
+        if (i < oldSize && (! inNew.containsKey(get(i)))) {
+          i++;
         }
         else
-        if (comparator.compare (get(size() - 1), dataRec) < 0) {
-          // If the new item has a key higher than the highest item in the
-          // collection, simply add the new item to the end
-          // (more efficient if an input file happens to be pre-sorted).
-          filteredDataSet.add (dataRec);
+        if (j < newList.size() && (! inOld.containsKey(newList.get(j)))) {
+          j++;
         } else {
-          findInternal (dataRec);
-          filteredDataSet.add (findIndex, dataRec);
+          runs = MAX_ROW_EVENT_RUNS + 1;
         }
-      } // end if not the default comparator
-    } // end if item selected
+      }
+    }
+    
+    if (runs > MAX_ROW_EVENT_RUNS) {
+      filteredDataSet = new DataSet(completeDataSet.getRecDef());
+      for (int k = 0; k < newList.size(); k++) {
+        filteredDataSet.add(newList.get(k));
+      }
+      fireTableDataChanged();
+      return;
+    }
+    
+    // Apply the changes one run at a time, firing an event for each. Each
+    // run is removed or inserted in a single step, so that the records 
+    // following it are moved only once per run.
+    int row = 0;
+    j = 0;
+    while (row < size() || j < newList.size()) {
+      if (row < size() && j < newList.size() && get(row) == newList.get(j)) {
+        row++;
+        j++;
+      }
+      else
+      if (row < size() && (! inNew.containsKey(get(row)))) {
+        int end = row;
+        while (end < size() && (! inNew.containsKey(get(end)))) {
+          end++;
+        }
+        filteredDataSet.removeRecords(row, end);
+        fireTableRowsDeleted(row, end - 1);
+      } else {
+        int first = j;
+        while (j < newList.size() && (! inOld.containsKey(newList.get(j)))) {
+          j++;
+        }
+        filteredDataSet.add(row, newList.subList(first, j));
+        fireTableRowsInserted(row, row + (j - first) - 1);
+        row = row + (j - first);
+      }
+    }
+  }
+  
+  /**
+   Sort a range of an array of positions within the complete list, using
+   a stable, top-down merge sort. 
+  
+   @param index The positions being sorted.
+   @param work  A work array of the same length.
+   @param from  The first position in the range (inclusive).
+   @param to    The end of the range (exclusive).
+   */
+  private void mergeSort (int[] index, int[] work, int from, int to) {
+    if (to - from <= INSERTION_SORT_THRESHOLD) {
+      for (int i = from + 1; i < to; i++) {
+        int rec = index[i];
+        int j = i - 1;
+        while (j >= from && compareAt(index[j], rec) > 0) {
+          index[j + 1] = index[j];
+          j--;
+        }
+        index[j + 1] = rec;
+      }
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    mergeSort(index, work, from, mid);
+    mergeSort(index, work, mid, to);
+    if (compareAt(index[mid - 1], index[mid]) <= 0) {
+      return;
+    }
+    System.arraycopy(index, from, work, from, to - from);
+    int left = from;
+    int right = mid;
+    int out = from;
+    while (left < mid && right < to) {
+      if (compareAt(work[right], work[left]) < 0) {
+        index[out++] = work[right++];
+      } else {
+        index[out++] = work[left++];
+      }
+    }
+    while (left < mid) {
+      index[out++] = work[left++];
+    }
+    while (right < to) {
+      index[out++] = work[right++];
+    }
+  }
+  
+  /**
+   Compare two records identified by their positions in the complete list.
+   */
+  private int compareAt (int i, int j) {
+    return comparator.compare
+        (completeDataSet.getRecord(i), completeDataSet.getRecord(j));
+  }
+  
+  /**
+   Add a record to the end of the complete list and, if it is selected by 
+   the current filter, insert it into its proper position in the filtered 
+   and sorted list, following any records with equal keys. 
+  
+   @param dataRec The record to be added. 
+  
+   @return The record's position within the filtered list, or -1 if it 
+           was not selected. 
+   */
+  public int addRecord (DataRecord dataRec) {
+    completeDataSet.addRecord(dataRec);
+    return addToFilteredDataSet(dataRec);
+  }
+  
+  /**
+   Insert a record into its proper position in the filtered and sorted list,
+   if it is selected by the current filter, and notify any table listeners.
+  
+   @param dataRec The record to be added. 
+  
+   @return The record's position within the filtered list, or -1 if it 
+           was not selected. 
+   */
+  private int addToFilteredDataSet (DataRecord dataRec) {
+    if (! itemSelected(dataRec)) {
+      return -1;
+    }
+    int row = findInsertionPoint(dataRec);
+    filteredDataSet.add(row, dataRec);
+    fireTableRowsInserted(row, row);
+    return row;
   } // end method addToFilteredDataSet
   
+  /**
+   Reposition a record after its contents have been modified, adding it to 
+   the filtered list or removing it, if its selection by the current filter 
+   has changed, and notifying any table listeners. 
+  
+   @param dataRec A record from the complete list that has been modified. 
+  
+   @return The record's new position within the filtered list, or -1 if it
+           is no longer selected. 
+   */
+  public int modifyRecord (DataRecord dataRec) {
+    int row = indexOf(dataRec);
+    if (row < 0) {
+      return addToFilteredDataSet(dataRec);
+    }
+    else
+    if (! itemSelected(dataRec)) {
+      filteredDataSet.removeRecord(row);
+      fireTableRowsDeleted(row, row);
+      return -1;
+    }
+    else
+    if ((row == 0 
+          || comparator.compare(get(row - 1), dataRec) <= 0)
+        && (row == size() - 1 
+          || comparator.compare(dataRec, get(row + 1)) <= 0)) {
+      // Still in sequence
+      fireTableRowsUpdated(row, row);
+      return row;
+    } else {
+      filteredDataSet.removeRecord(row);
+      fireTableRowsDeleted(row, row);
+      return addToFilteredDataSet(dataRec);
+    }
+  }
+  
+  /**
+   Find the position within the filtered and sorted list at which a new 
+   record should be inserted: following any records with equal keys. 
+  
+   @param dataRec The record to be inserted. 
+  
+   @return The position at which the record should be inserted. 
+   */
+  private int findInsertionPoint (DataRecord dataRec) {
+    if (comparator instanceof PSDefaultComparator) {
+      return size();
+    }
+    int low = 0;
+    int high = size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (comparator.compare(get(mid), dataRec) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+  
+  /**
+   Find a particular record within the filtered and sorted list. Records 
+   with keys equal to the given record's are examined first; if the record 
+   is not among them (perhaps because its keys have been modified), then 
+   the entire list is searched. 
+  
+   @param dataRec The record to be found. 
+  
+   @return The record's position within the filtered list, or -1 if it is
+           not in the list. 
+   */
+  public int indexOf (DataRecord dataRec) {
+    if (! (comparator instanceof PSDefaultComparator)) {
+      findInternal(dataRec);
+      if (findMatch) {
+        int i = findIndex;
+        while (i > 0 && comparator.compare(get(i - 1), dataRec) == 0) {
+          i--;
+        }
+        while (i < size() && comparator.compare(get(i), dataRec) == 0) {
+          if (get(i) == dataRec) {
+            return i;
+          }
+          i++;
+        }
+      }
+    }
+    for (int i = 0; i < size(); i++) {
+      if (get(i) == dataRec) {
+        return i;
+      }
+    }
+    return -1;
+  }
+  
   /**
    Remove a record from the list, based on the record's position within the
    complete list. 
@@ -314,9 +617,10 @@ public class DataRecList
     } else {
       DataRecord recToRemove = completeDataSet.getRecord(index);
       completeDataSet.removeRecord(index);
-      findInternal (recToRemove);
-      if (findMatch) {
-        filteredDataSet.removeRecord(findIndex);
+      int row = indexOf (recToRemove);
+      if (row >= 0) {
+        filteredDataSet.removeRecord(row);
+        fireTableRowsDeleted(row, row);
       }
       return true;
     }
@@ -16,6 +16,7 @@
 
 package com.powersurgepub.psdatalib.pslist;
 
+  import com.powersurgepub.psdatalib.psdata.FieldCondition;
   import com.powersurgepub.psutils.*;
   import java.util.*;
   
@@ -335,90 +336,40 @@ public class PSField {
    */
   public boolean operateLogically (String operator, PSField operand) 
       throws IllegalArgumentException {
-    boolean trueOrFalse = true;
-    int opLength = operator.length();
-    char firstChar = ' ';
-    String oplc = " ";
-    if (opLength > 0) {
-      firstChar = operator.charAt (0);
-    }
-    int opIndex;
-    if (Character.isLetter (firstChar)) {
-      oplc = operator.toLowerCase();
-    } 
-    if (oplc.startsWith("equal")) {
-      oplc = "equals";
-    }
-    boolean opFound = false;
-    for (opIndex = 0; 
-        ((opIndex < NUMBER_OF_LOGICAL_OPERANDS) && (! opFound));
-        opIndex++) {
-      if ((oplc.equals (WORD_LOGICAL_OPERANDS [opIndex]))
-          || (oplc.equals (MNEMONIC_LOGICAL_OPERANDS [opIndex]))
-          || (operator.equals (SYMBOL_LOGICAL_OPERANDS [opIndex]))
-          || (operator.equals (ALT_SYMBOL_LOGICAL_OPERANDS [opIndex]))) {
-        opFound = true;
-      } // end if operator found
-    } // end 
-
-    if (! opFound) {
+    int opIndex = resolveOperator (operator);
+    if (opIndex == FieldCondition.INVALID) {
       throw new IllegalArgumentException 
         ("Invalid logical operator (" + operator + ")");
     }
-    opIndex--;
-    if (opIndex < 6) {
-      int result = this.compareTo (operand);
-      if (opIndex == 0) {       // equals
-        trueOrFalse = (result == 0);
-      } else
-      if (opIndex == 1) {       // greater than
-        trueOrFalse = (result > 0);
-      } else
-      if (opIndex == 2) {       // greater than or equal to
-        trueOrFalse = (result >= 0);
-      } else
-      if (opIndex == 3) {       // less than
-        trueOrFalse = (result < 0);
-      } else
-      if (opIndex == 4) {       // less than or equal to
-        trueOrFalse = (result <= 0);
-      } else
-      if (opIndex == 5) {       // not equal to
-        trueOrFalse = (result != 0);
-      }
-    } // end opIndex < 6
-    else {                      // text comparison
-      String datalc = data.toLowerCase();
-      String operandlc = operand.getData().toLowerCase();
-      if (opIndex == 6) {
-        int ix = datalc.indexOf (operandlc);
-        trueOrFalse = (ix >= 0);
-      }
-      else
-      if (opIndex == 7) {
-        int ix = datalc.indexOf (operandlc);
-        trueOrFalse = (ix < 0);
-      }
-      else
-      if (opIndex == 8) {
-        trueOrFalse = (datalc.startsWith (operandlc));
-      }
-      else
-      if (opIndex == 9) {
-        trueOrFalse = (! datalc.startsWith (operandlc));
-      }
-      else 
-      if (opIndex == 10) {
-        trueOrFalse = (datalc.endsWith (operandlc));
-      }
-      else 
-      if (opIndex == 11) {
-        trueOrFalse = (! datalc.endsWith (operandlc));
-      }
+    if (FieldCondition.isComparison (opIndex)) {
+      return FieldCondition.compare (opIndex, this.compareTo (operand));
+    } else {                    // text comparison
+      return FieldCondition.matchText 
+          (opIndex, data, operand.getData().toLowerCase());
     }
-    return trueOrFalse;
   } // end method operateLogically
   
+  /**
+     Resolves a logical operator, accepting anything starting with "equal"
+     as a synonym for "equals".
+    
+     @param operator The operator to be resolved.
+    
+     @return The index of the operator within the operand arrays, or 
+             FieldCondition.INVALID if the operator is not recognized.
+   */
+  public static int resolveOperator (String operator) {
+    int opIndex = FieldCondition.resolve (operator);
+    if (opIndex == FieldCondition.INVALID
+        && operator != null
+        && operator.length() > 0
+        && Character.isLetter (operator.charAt (0))
+        && operator.toLowerCase().startsWith ("equal")) {
+      opIndex = FieldCondition.EQUALS;
+    }
+    return opIndex;
+  } // end method resolveOperator
+  
   /**
      Checks this field to see if it is equal to another one.
     
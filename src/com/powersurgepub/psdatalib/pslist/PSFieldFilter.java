@@ -16,8 +16,13 @@
 
 package com.powersurgepub.psdatalib.pslist;
 
+  import com.powersurgepub.psdatalib.psdata.FieldCondition;
+  import com.powersurgepub.psutils.*;
+
 /**
  Determines whether an item should be included in a list or excluded from it. 
+ The operator is resolved, and the value lowercased, when they are set, 
+ rather than each time an item is evaluated. 
 
  @author Herb Bowie.
  */
@@ -35,6 +40,12 @@ public class PSFieldFilter {
   /** Value to be compared to field data. */
   private    PSField            value;
   
+  /** The operator, resolved once, or FieldCondition.INVALID. */
+  private    int                opIndex = FieldCondition.INVALID;
+  
+  /** The value, lowercased once, for text comparisons. */
+  private    String             valuelc = "";
+  
   public PSFieldFilter() {
     
   }
@@ -52,8 +63,8 @@ public class PSFieldFilter {
 
     this.psList = psList;
     this.column = psList.getColumnNumber (fieldName);
-    this.operator = operator;
-    this.value = new PSField(valueString);
+    setOperator(operator);
+    setValue(valueString);
   }
   
    /**
@@ -75,8 +86,17 @@ public class PSFieldFilter {
     } else {
       fieldValue = obj.toString();
     }
-    PSField field = new PSField (fieldValue);
-    return field.operateLogically (operator, value);
+    if (opIndex == FieldCondition.INVALID) {
+      throw new IllegalArgumentException 
+        ("Invalid logical operator (" + operator + ")");
+    }
+    if (FieldCondition.isComparison (opIndex)) {
+      PSField field = new PSField (fieldValue);
+      return FieldCondition.compare (opIndex, field.compareTo (value));
+    } else {
+      return FieldCondition.matchText 
+          (opIndex, StringUtils.purifyInvisibles (fieldValue), valuelc);
+    }
   }
   
   public void setList (PSList psList) {
@@ -106,6 +126,7 @@ public class PSFieldFilter {
 
   public void setOperator (String operator) {
     this.operator = operator;
+    this.opIndex = PSField.resolveOperator (operator);
   }
 
   /**
@@ -118,11 +139,12 @@ public class PSFieldFilter {
   }
   
   public void setValue (String valueString) {
-    this.value = new PSField(valueString);
+    setValue (new PSField(valueString));
   }
   
   public void setValue (PSField value) {
     this.value = value;
+    this.valuelc = value.getData().toLowerCase();
   }
 
   /**
@@ -66,6 +66,12 @@ public class Tags
    */
   private StringBuilder tags = new StringBuilder();
   
+  /**
+    Positions of the tags, words and levels within the tags string, built
+    when first needed and discarded whenever the tags string changes. 
+   */
+  private TagsIndex index = null;
+  
   /** 
     Creates a new instance of Tags with null values.
    */
@@ -106,6 +112,7 @@ public class Tags
   
   public void setSlashToSeparate (boolean slashToSeparate) {
     this.slashToSeparate = slashToSeparate;
+    index = null;
   }
 
   /**
@@ -211,6 +218,7 @@ public class Tags
    */
   public void set(String inTags) {
     tags.delete (0, tags.length());
+    index = null;
     merge (inTags);
   }
 
@@ -221,6 +229,7 @@ public class Tags
   public void flatten () {
     String tags2 = tags.toString();
     tags.delete (0, tags.length());
+    index = null;
     int e2 = 0;
     int s2 = indexOfNextWordStart (tags2, e2, slashToSeparate);
     while (s2 < tags2.length()) {
@@ -303,16 +312,19 @@ public class Tags
   */
   public boolean tagFound (String from) {
     boolean found = (from.length() == 0);
-    int e = 0;
-    int s = indexOfNextWordStart (tags, e, slashToSeparate);
+    TagsIndex tagsIndex = getIndex();
+    int t = 0;
 
     // Go through tags, looking for complete tags
-    while (s < tags.length() && (! found)) {
-      e = indexOfNextSeparator (tags, s, false, true, slashToSeparate);
-      if (from.equalsIgnoreCase (tags.substring (s, e))) {
+    while (t < tagsIndex.tagCount && (! found)) {
+      int s = tagsIndex.tagStart [t];
+      int e = tagsIndex.tagEnd [t];
+      if (s < e
+          && from.length() == (e - s)
+          && from.regionMatches (true, 0, tagsIndex.text, s, e - s)) {
         found = true;
       } else {
-        s = indexOfNextWordStart (tags, e, slashToSeparate);
+        t++;
       }
     }
     return found;
@@ -443,6 +455,7 @@ public class Tags
         }
         s2 = indexOfNextWordStart (tags2, e2, slashToSeparate);
       } // end while more tags from input
+      index = null;
     }
   } // end merge string method
 
@@ -461,6 +474,7 @@ public class Tags
       realEnd = tags.length();
     }
     tags.delete (start, end);
+    index = null;
     int deletedLength = realEnd - start;
     boolean levelDeleted = false;
     boolean sepBefore = false;
@@ -536,6 +550,20 @@ public class Tags
    */
   public void makeLowerCase () {
     tags = new StringBuilder (tags.toString().toLowerCase());
+    index = null;
+  }
+  
+  /**
+   Return the index of tag, word and level positions within the tags string,
+   building it if the tags have changed since it was last built.
+  
+   @return The index for the current tags string. 
+   */
+  TagsIndex getIndex() {
+    if (index == null) {
+      index = new TagsIndex (tags, slashToSeparate);
+    }
+    return index;
   }
 
   /**
@@ -547,20 +575,30 @@ public class Tags
    @return The number of levels for the given tag number. 
    */
   public int getLevels (int tagIndex) {
-    int levels = 0;
-    int s = getTagStart (tagIndex);
-    int e = indexOfNextSeparator (tags, s, true, true, slashToSeparate);
-    if (s >= 0 && s < tags.length()) {
-      levels = 1;
-      while (s < tags.length()
-          && e < tags.length()
-          && (! isTagSeparator (tags.charAt(e)))) {
-        levels++;
-        s = indexOfNextWordStart (tags, e, slashToSeparate);
-        e = indexOfNextSeparator (tags, s, true, true, slashToSeparate);
+    TagsIndex tagsIndex = getIndex();
+    if (tagIndex < 0) {
+      // Count the levels found by scanning from the start of the string
+      int levels = 0;
+      int s = 0;
+      int e = indexOfNextSeparator (tags, s, true, true, slashToSeparate);
+      if (s < tags.length()) {
+        levels = 1;
+        while (s < tags.length()
+            && e < tags.length()
+            && (! isTagSeparator (tags.charAt(e)))) {
+          levels++;
+          s = indexOfNextWordStart (tags, e, slashToSeparate);
+          e = indexOfNextSeparator (tags, s, true, true, slashToSeparate);
+        }
       }
+      return levels;
+    }
+    else
+    if (tagIndex < tagsIndex.tagCount) {
+      return tagsIndex.tagLevels [tagIndex];
+    } else {
+      return 0;
     }
-    return levels;
   }
   
   /**
@@ -575,7 +613,22 @@ public class Tags
   public String getLevel (int tagIndex, int levelIndex) {
     if (tagIndex < 0 || levelIndex < 0) {
       return "";
+    }
+    TagsIndex tagsIndex = getIndex();
+    if (tagIndex >= tagsIndex.tagCount) {
+      return "";
+    }
+    else
+    if (levelIndex < tagsIndex.tagLevels [tagIndex]) {
+      int level = tagsIndex.tagFirstLevel [tagIndex] + levelIndex;
+      int s = tagsIndex.levelStart [level];
+      if (s < tags.length()) {
+        return tags.substring (s, tagsIndex.levelEnd [level]);
+      } else {
+        return "";
+      }
     } else {
+      // Beyond the last level of this tag: scan on into the following tags
       int s = getTagStart (tagIndex);
       int e = indexOfNextSeparator (tags, s, true, true, slashToSeparate);
       int levelCount = 0;
@@ -716,22 +769,15 @@ public class Tags
    @return The starting position of this tag in the tags string.
    */
   public int getTagStart (int tagIndex) {
-    int tagCount = -1;
-    int i = 0;
-    int start = 0;
-    int end = 0;
-    while (i < tags.length() && tagCount < tagIndex) {
-      start = indexOfNextWordStart (tags, i, slashToSeparate);
-      end   = indexOfNextSeparator (tags, start, false, true, slashToSeparate);
-      tagCount++;
-      if (tagCount < tagIndex) {
-        i = end + 1;
-      }
+    TagsIndex tagsIndex = getIndex();
+    if (tagIndex < 0) {
+      return 0;
     }
-    if (tagCount < tagIndex) {
-      return tags.length();
+    else
+    if (tagIndex < tagsIndex.tagCount) {
+      return tagsIndex.tagStart [tagIndex];
     } else {
-      return start;
+      return tags.length();
     }
   }
 
@@ -744,19 +790,16 @@ public class Tags
    @return The position immediately following the last character in this tag.
    */
   public int getTagEnd (int tagIndex) {
-    int tagCount = -1;
-    int i = 0;
-    int start = 0;
-    int end = 0;
-    while (i < tags.length() && tagCount < tagIndex) {
-      start = indexOfNextWordStart (tags, i, slashToSeparate);
-      end   = indexOfNextSeparator (tags, start, false, true, slashToSeparate);
-      tagCount++;
-      if (tagCount < tagIndex) {
-        i = end + 1;
-      }
+    TagsIndex tagsIndex = getIndex();
+    if (tagIndex < 0 || tagsIndex.tagCount == 0) {
+      return 0;
+    }
+    else
+    if (tagIndex < tagsIndex.tagCount) {
+      return tagsIndex.tagEnd [tagIndex];
+    } else {
+      return tagsIndex.tagEnd [tagsIndex.tagCount - 1];
     }
-    return end;
   }
   
   /**
@@ -768,19 +811,16 @@ public class Tags
    @return The starting position of this word in the tags string.
    */
   public int getWordStart (int wordIndex) {
-    int wordCount = -1;
-    int i = 0;
-    int start = 0;
-    int end = 0;
-    while (i < tags.length() && wordCount < wordIndex) {
-      start = indexOfNextWordStart (tags, i, slashToSeparate);
-      end   = indexOfNextSeparator (tags, start, true, true, slashToSeparate);
-      wordCount++;
-      if (wordCount < wordIndex) {
-        i = end + 1;
-      }
+    TagsIndex tagsIndex = getIndex();
+    if (wordIndex < 0 || tagsIndex.wordCount == 0) {
+      return 0;
+    }
+    else
+    if (wordIndex < tagsIndex.wordCount) {
+      return tagsIndex.wordStart [wordIndex];
+    } else {
+      return tagsIndex.wordStart [tagsIndex.wordCount - 1];
     }
-    return start;
   }
   
   /**
@@ -792,19 +832,16 @@ public class Tags
    @return The position immediately following the last character in this word.
    */
   public int getWordEnd (int wordIndex) {
-    int wordCount = -1;
-    int i = 0;
-    int start = 0;
-    int end = 0;
-    while (i < tags.length() && wordCount < wordIndex) {
-      start = indexOfNextWordStart (tags, i, slashToSeparate);
-      end   = indexOfNextSeparator (tags, start, true, true, slashToSeparate);
-      wordCount++;
-      if (wordCount < wordIndex) {
-        i = end + 1;
-      }
+    TagsIndex tagsIndex = getIndex();
+    if (wordIndex < 0 || tagsIndex.wordCount == 0) {
+      return 0;
+    }
+    else
+    if (wordIndex < tagsIndex.wordCount) {
+      return tagsIndex.wordEnd [wordIndex];
+    } else {
+      return tagsIndex.wordEnd [tagsIndex.wordCount - 1];
     }
-    return end;
   }
   
   /**
@@ -870,7 +907,9 @@ public class Tags
   }
 
   /**
-   Return the tags string in its native state, as a StringBuilder.
+   Return the tags string in its native state, as a StringBuilder. The 
+   returned StringBuilder should not be modified, since any index of 
+   positions within it would then be out of date. 
 
    @return The tags string as a StringBuilder. 
    */
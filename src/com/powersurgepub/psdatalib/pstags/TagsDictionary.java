@@ -0,0 +1,416 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.pstags;
+
+  import java.util.*;
+
+/**
+   A dictionary of all the distinct tags used within a collection of
+   taggable items, with an index from each tag to the items bearing it. <p>
+
+   Each distinct tag path (such as "java.swing") is assigned an int id the
+   first time it is seen, as is each of its ancestors ("java"). Tags are
+   matched without regard to case, as Tags.tagFound matches them. Each item
+   is assigned a position when it is added, and for each tag the dictionary
+   keeps a bitmap of the positions of the items bearing exactly that tag, and
+   a second bitmap of the items bearing that tag or any tag beneath it.
+   Selecting the items having any or all of several tags then becomes a
+   matter of combining bitmaps. <p>
+
+   The dictionary is kept up to date as items are added, modified and
+   removed, in the same way as a TagsList or TagsModel. The position of a
+   removed item is given to the next item added, and the id of a tag no
+   longer borne by any item is given to the next new tag, so that the
+   bitmaps do not grow as items come and go.
+ */
+public class TagsDictionary {
+
+  /** Tag ids, keyed by the lower-case form of each tag path. */
+  private HashMap<String, Integer> tagIds = new HashMap<String, Integer>();
+
+  /** Each tag, in the form in which it was first seen, indexed by id. */
+  private ArrayList<String>   tagNames = new ArrayList<String>();
+
+  /** Ids no longer in use, available for new tags. */
+  private BitSet              freeIds = new BitSet();
+
+  /** Items bearing exactly each tag, indexed by id. */
+  private ArrayList<BitSet>   taggedExactly = new ArrayList<BitSet>();
+
+  /** Items bearing each tag or any tag beneath it, indexed by id. */
+  private ArrayList<BitSet>   taggedWithin = new ArrayList<BitSet>();
+
+  /** Items indexed by position, with null for items since removed. */
+  private ArrayList<Taggable> items = new ArrayList<Taggable>();
+
+  /** Positions of items, keyed by the items themselves. */
+  private IdentityHashMap<Taggable, Integer> positions
+      = new IdentityHashMap<Taggable, Integer>();
+
+  /** Ids of the tags each item bore when last indexed, by position. */
+  private ArrayList<int[]>    itemTags = new ArrayList<int[]>();
+
+  /** Positions of the items currently in the dictionary. */
+  private BitSet              allItems = new BitSet();
+
+  /** Positions of removed items, available for new items. */
+  private BitSet              freePositions = new BitSet();
+
+  public TagsDictionary() {
+  }
+
+  /**
+   Add a taggable item to the dictionary.
+
+   @param tagged The item to be added.
+   */
+  public void add (Taggable tagged) {
+    Integer position = positions.get (tagged);
+    if (position == null) {
+      int free = freePositions.nextSetBit (0);
+      if (free >= 0) {
+        freePositions.clear (free);
+        position = Integer.valueOf (free);
+        items.set (free, tagged);
+      } else {
+        position = Integer.valueOf (items.size());
+        items.add (tagged);
+        itemTags.add (null);
+      }
+      positions.put (tagged, position);
+    }
+    index (tagged, position.intValue());
+  }
+
+  /**
+   Re-index an item whose tags may have changed, adding it if it is not yet
+   in the dictionary.
+
+   @param tagged The item just modified.
+   */
+  public void modify (Taggable tagged) {
+    Integer position = positions.get (tagged);
+    if (position == null) {
+      add (tagged);
+    } else {
+      unindex (position.intValue());
+      index (tagged, position.intValue());
+    }
+  }
+
+  /**
+   Remove an item from the dictionary.
+
+   @param tagged The item to be removed.
+   */
+  public void remove (Taggable tagged) {
+    Integer position = positions.remove (tagged);
+    if (position != null) {
+      unindex (position.intValue());
+      items.set (position.intValue(), null);
+      freePositions.set (position.intValue());
+    }
+  }
+
+  /**
+   Record the tags currently assigned to an item.
+   */
+  private void index (Taggable tagged, int position) {
+    int[] ids = new int [8];
+    int count = 0;
+    Tags tags = tagged.getTags();
+    int numberOfTags = 0;
+    if (tags != null) {
+      numberOfTags = tags.getIndex().tagCount;
+    }
+    for (int t = 0; t < numberOfTags; t++) {
+      String tag = tags.getTag (t);
+      if (tag.length() > 0) {
+        // Index the item under each of the tag's ancestors
+        StringBuilder path = new StringBuilder();
+        int levels = tags.getLevels (t);
+        for (int l = 0; l < levels - 1; l++) {
+          if (l > 0) {
+            path.append (Tags.PREFERRED_LEVEL_SEPARATOR);
+          }
+          path.append (tags.getLevel (t, l));
+          int id = intern (path.toString());
+          taggedWithin.get (id).set (position);
+          if (count >= ids.length) {
+            ids = Arrays.copyOf (ids, ids.length * 2);
+          }
+          ids [count] = id;
+          count++;
+        }
+        int id = intern (tag);
+        taggedExactly.get (id).set (position);
+        taggedWithin.get (id).set (position);
+        if (count >= ids.length) {
+          ids = Arrays.copyOf (ids, ids.length * 2);
+        }
+        ids [count] = id;
+        count++;
+      }
+    }
+    itemTags.set (position, Arrays.copyOf (ids, count));
+    allItems.set (position);
+  }
+
+  /**
+   Clear an item's position from the bitmaps of the tags it bore when it
+   was last indexed, freeing the ids of any tags no longer borne by any
+   item.
+   */
+  private void unindex (int position) {
+    int[] ids = itemTags.get (position);
+    if (ids != null) {
+      for (int i = 0; i < ids.length; i++) {
+        int id = ids [i];
+        taggedExactly.get (id).clear (position);
+        taggedWithin.get (id).clear (position);
+        if (taggedWithin.get(id).isEmpty() && (! freeIds.get (id))) {
+          tagIds.remove (tagNames.get(id).toLowerCase());
+          tagNames.set (id, null);
+          freeIds.set (id);
+        }
+      }
+      itemTags.set (position, null);
+    }
+    allItems.clear (position);
+  }
+
+  /**
+   Return the id for a tag, assigning a new one if the tag has not been
+   seen before.
+
+   @param tag A tag path, with levels separated by periods.
+
+   @return The id for the tag.
+   */
+  private int intern (String tag) {
+    String key = tag.toLowerCase();
+    Integer id = tagIds.get (key);
+    if (id == null) {
+      int free = freeIds.nextSetBit (0);
+      if (free >= 0) {
+        freeIds.clear (free);
+        id = Integer.valueOf (free);
+        tagNames.set (free, tag);
+      } else {
+        id = Integer.valueOf (tagNames.size());
+        tagNames.add (tag);
+        taggedExactly.add (new BitSet());
+        taggedWithin.add (new BitSet());
+      }
+      tagIds.put (key, id);
+    }
+    return id.intValue();
+  }
+
+  /**
+   Return the id assigned to a tag.
+
+   @param tag A tag path, with levels separated by periods or slashes.
+
+   @return The tag's id, or -1 if no item now bears the tag.
+   */
+  public int getTagId (String tag) {
+    Tags tags = new Tags (tag);
+    Integer id = tagIds.get (tags.getTag(0).toLowerCase());
+    if (id == null) {
+      return -1;
+    } else {
+      return id.intValue();
+    }
+  }
+
+  /**
+   Return the tag having the given id.
+
+   @param id A tag id.
+
+   @return The tag path, in the form in which it was first seen, or null
+           if the id is not now in use.
+   */
+  public String getTag (int id) {
+    return tagNames.get (id);
+  }
+
+  /**
+   Return the number of distinct tags and ancestor tags now borne by items.
+
+   @return The number of tag ids in use.
+   */
+  public int getNumberOfTags () {
+    return tagIds.size();
+  }
+
+  /**
+   Return the item at the given position.
+
+   @param position An item position, as found in a bitmap returned by this
+                   dictionary.
+
+   @return The item, or null if it has since been removed.
+   */
+  public Taggable getItem (int position) {
+    if (position < 0 || position >= items.size()) {
+      return null;
+    } else {
+      return items.get (position);
+    }
+  }
+
+  /**
+   Return the position assigned to an item.
+
+   @param tagged An item.
+
+   @return The item's position, or -1 if it is not in the dictionary.
+   */
+  public int getPosition (Taggable tagged) {
+    Integer position = positions.get (tagged);
+    if (position == null) {
+      return -1;
+    } else {
+      return position.intValue();
+    }
+  }
+
+  /**
+   Return the positions of the items bearing the given tag.
+
+   @param tag          A tag path, with levels separated by periods or
+                       slashes.
+   @param includeLower Should items bearing tags beneath this one be
+                       included?
+
+   @return A new bitmap of item positions.
+   */
+  public BitSet getItemsTagged (String tag, boolean includeLower) {
+    int id = getTagId (tag);
+    if (id < 0) {
+      return new BitSet();
+    } else {
+      return getItemsTagged (id, includeLower);
+    }
+  }
+
+  /**
+   Return the positions of the items bearing the tag with the given id.
+
+   @param id           A tag id.
+   @param includeLower Should items bearing tags beneath this one be
+                       included?
+
+   @return A new bitmap of item positions.
+   */
+  public BitSet getItemsTagged (int id, boolean includeLower) {
+    if (includeLower) {
+      return (BitSet)taggedWithin.get(id).clone();
+    } else {
+      return (BitSet)taggedExactly.get(id).clone();
+    }
+  }
+
+  /**
+   Return the positions of the items bearing any of the given tags. As with
+   Tags.anyTagFound, all items are selected if no tags are given.
+
+   @param selTags      The tags to look for.
+   @param includeLower Should items bearing tags beneath these be included?
+
+   @return A new bitmap of item positions.
+   */
+  public BitSet selectAny (Tags selTags, boolean includeLower) {
+    if (selTags == null || selTags.length() == 0) {
+      return (BitSet)allItems.clone();
+    }
+    BitSet selected = new BitSet();
+    int numberOfTags = selTags.getIndex().tagCount;
+    for (int t = 0; t < numberOfTags; t++) {
+      String tag = selTags.getTag (t);
+      if (tag.length() > 0) {
+        Integer id = tagIds.get (tag.toLowerCase());
+        if (id != null) {
+          selected.or (includeLower
+              ? taggedWithin.get (id.intValue())
+              : taggedExactly.get (id.intValue()));
+        }
+      }
+    }
+    return selected;
+  }
+
+  /**
+   Return the positions of the items bearing all of the given tags. All
+   items are selected if no tags are given.
+
+   @param selTags      The tags to look for.
+   @param includeLower Should items bearing tags beneath these be included?
+
+   @return A new bitmap of item positions.
+   */
+  public BitSet selectAll (Tags selTags, boolean includeLower) {
+    BitSet selected = (BitSet)allItems.clone();
+    if (selTags == null) {
+      return selected;
+    }
+    int numberOfTags = selTags.getIndex().tagCount;
+    for (int t = 0; t < numberOfTags && (! selected.isEmpty()); t++) {
+      String tag = selTags.getTag (t);
+      if (tag.length() > 0) {
+        Integer id = tagIds.get (tag.toLowerCase());
+        if (id == null) {
+          selected.clear();
+        } else {
+          selected.and (includeLower
+              ? taggedWithin.get (id.intValue())
+              : taggedExactly.get (id.intValue()));
+        }
+      }
+    }
+    return selected;
+  }
+
+  /**
+   Return a selector accepting the items found by selectAll or selectAny,
+   so that code filtering items one at a time through a TaggableSelector
+   need not examine each item's tags. The selection is made once, when the
+   selector is created, and does not follow later changes to the items.
+
+   @param selTags      The tags to look for.
+   @param matchAll     True if an item must bear all of the tags, false if
+                       any one will do.
+   @param includeLower Should items bearing tags beneath these be included?
+
+   @return A selector for the items bearing the given tags.
+   */
+  public TaggableSelector getSelector
+      (Tags selTags, boolean matchAll, boolean includeLower) {
+    final BitSet selected = matchAll
+        ? selectAll (selTags, includeLower)
+        : selectAny (selTags, includeLower);
+    return new TaggableSelector() {
+      public boolean selected (Taggable taggedItem) {
+        int position = getPosition (taggedItem);
+        return (position >= 0 && selected.get (position));
+      }
+    };
+  }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.pstags;
+
+  import java.util.*;
+
+/**
+   The positions of the tags, words and levels within a tags string, found
+   in a single pass, so that they can be looked up without scanning the
+   string again. <p>
+
+   The string is scanned in exactly the way that Tags has always scanned it
+   when looking for a given tag or word, so that the positions found are the
+   same. An index is built by a Tags object when first needed, and discarded
+   whenever the tags are changed.
+ */
+class TagsIndex {
+
+  /** The tags string that was indexed. */
+  String  text;
+
+  /** Number of tags, and the scan position, start and end of each. */
+  int     tagCount = 0;
+  int[]   tagScan;
+  int[]   tagStart;
+  int[]   tagEnd;
+
+  /** Number of levels in each tag, and the position of its first level. */
+  int[]   tagLevels;
+  int[]   tagFirstLevel;
+
+  /** Start and end of every level of every tag. */
+  int[]   levelStart;
+  int[]   levelEnd;
+
+  /** Number of words, and the scan position, start and end of each. */
+  int     wordCount = 0;
+  int[]   wordScan;
+  int[]   wordStart;
+  int[]   wordEnd;
+
+  /**
+     Index a tags string.
+
+     @param tags            The tags string.
+     @param slashToSeparate Should slashes be recognized as level separators?
+   */
+  TagsIndex (StringBuilder tags, boolean slashToSeparate) {
+
+    text = tags.toString();
+    int length = text.length();
+
+    // Tags, as found by Tags.getTagStart and getTagEnd
+    int capacity = 4;
+    tagScan = new int [capacity];
+    tagStart = new int [capacity];
+    tagEnd = new int [capacity];
+    int i = 0;
+    while (i < length) {
+      if (tagCount >= tagScan.length) {
+        capacity = tagScan.length * 2;
+        tagScan = Arrays.copyOf (tagScan, capacity);
+        tagStart = Arrays.copyOf (tagStart, capacity);
+        tagEnd = Arrays.copyOf (tagEnd, capacity);
+      }
+      int start = Tags.indexOfNextWordStart (text, i, slashToSeparate);
+      int end = Tags.indexOfNextSeparator
+          (text, start, false, true, slashToSeparate);
+      tagScan [tagCount] = i;
+      tagStart [tagCount] = start;
+      tagEnd [tagCount] = end;
+      tagCount++;
+      i = end + 1;
+    }
+
+    // Levels within each tag, as counted by Tags.getLevels
+    tagLevels = new int [tagCount];
+    tagFirstLevel = new int [tagCount];
+    capacity = Math.max (tagCount * 2, 4);
+    levelStart = new int [capacity];
+    levelEnd = new int [capacity];
+    int levelCount = 0;
+    for (int t = 0; t < tagCount; t++) {
+      tagFirstLevel [t] = levelCount;
+      int s = tagStart [t];
+      int e = Tags.indexOfNextSeparator (text, s, true, true, slashToSeparate);
+      if (s >= 0 && s < length) {
+        boolean more = true;
+        while (more) {
+          if (levelCount >= levelStart.length) {
+            capacity = levelStart.length * 2;
+            levelStart = Arrays.copyOf (levelStart, capacity);
+            levelEnd = Arrays.copyOf (levelEnd, capacity);
+          }
+          levelStart [levelCount] = s;
+          levelEnd [levelCount] = e;
+          levelCount++;
+          tagLevels [t]++;
+          more = (s < length
+              && e < length
+              && (! Tags.isTagSeparator (text.charAt (e))));
+          if (more) {
+            s = Tags.indexOfNextWordStart (text, e, slashToSeparate);
+            e = Tags.indexOfNextSeparator
+                (text, s, true, true, slashToSeparate);
+          }
+        }
+      }
+    }
+
+    // Words, as found by Tags.getWordStart and getWordEnd
+    capacity = Math.max (levelCount, 4);
+    wordScan = new int [capacity];
+    wordStart = new int [capacity];
+    wordEnd = new int [capacity];
+    i = 0;
+    while (i < length) {
+      if (wordCount >= wordScan.length) {
+        capacity = wordScan.length * 2;
+        wordScan = Arrays.copyOf (wordScan, capacity);
+        wordStart = Arrays.copyOf (wordStart, capacity);
+        wordEnd = Arrays.copyOf (wordEnd, capacity);
+      }
+      int start = Tags.indexOfNextWordStart (text, i, slashToSeparate);
+      int end = Tags.indexOfNextSeparator
+          (text, start, true, true, slashToSeparate);
+      wordScan [wordCount] = i;
+      wordStart [wordCount] = start;
+      wordEnd [wordCount] = end;
+      wordCount++;
+      i = end + 1;
+    }
+  }
+
+  /**
+     Find the tag whose scan begins at the given position.
+
+     @param scanPosition A position from which a scan for the next tag starts.
+
+     @return The number of the tag found by such a scan, or -1 if the
+             position is not one at which a scan for a tag begins.
+   */
+  int findTagScan (int scanPosition) {
+    int found = Arrays.binarySearch (tagScan, 0, tagCount, scanPosition);
+    if (found < 0) {
+      return -1;
+    } else {
+      return found;
+    }
+  }
+
+  /**
+     Find the word whose scan begins at the given position.
+
+     @param scanPosition A position from which a scan for the next word starts.
+
+     @return The number of the word found by such a scan, or -1 if the
+             position is not one at which a scan for a word begins.
+   */
+  int findWordScan (int scanPosition) {
+    int found = Arrays.binarySearch (wordScan, 0, wordCount, scanPosition);
+    if (found < 0) {
+      return -1;
+    } else {
+      return found;
+    }
+  }
+
+}
@@ -19,6 +19,8 @@ package com.powersurgepub.psdatalib.pstags;
 /**
 
  A class that can iterate through a Tags object in a number of useful ways.
+ Positions are looked up in the index kept by the Tags object, rather than
+ found by scanning the tags string again.
 
  */
 public class TagsIterator {
@@ -49,10 +51,19 @@ public class TagsIterator {
    */
   public String nextWord () {
     if (hasNextWord()) {
-      int start = Tags.indexOfNextWordStart 
-          (tags.getTags(), tagIndex, tags.isSlashToSeparate());
-      int end   = Tags.indexOfNextSeparator 
-          (tags.getTags(), start, true, true, tags.isSlashToSeparate());
+      int start;
+      int end;
+      TagsIndex index = tags.getIndex();
+      int word = index.findWordScan (tagIndex);
+      if (word >= 0) {
+        start = index.wordStart [word];
+        end   = index.wordEnd [word];
+      } else {
+        start = Tags.indexOfNextWordStart 
+            (tags.getTags(), tagIndex, tags.isSlashToSeparate());
+        end   = Tags.indexOfNextSeparator 
+            (tags.getTags(), start, true, true, tags.isSlashToSeparate());
+      }
       tagIndex = end + 1;
       endOfTag = (end >= tags.length() || Tags.isTagSeparator (tags.charAt(end)));
       return (tags.substring (start, end));
@@ -79,12 +90,20 @@ public class TagsIterator {
    */
   public String nextTag () {
     if (hasNextTag()) {
-      lastTagIndex 
-          = Tags.indexOfNextWordStart 
-              (tags.getTags(), tagIndex, tags.isSlashToSeparate());
-      lastTagEnd 
-          = Tags.indexOfNextSeparator 
-              (tags.getTags(), lastTagIndex, false, true, tags.isSlashToSeparate());
+      TagsIndex index = tags.getIndex();
+      int tag = index.findTagScan (tagIndex);
+      if (tag >= 0) {
+        lastTagIndex = index.tagStart [tag];
+        lastTagEnd   = index.tagEnd [tag];
+      } else {
+        // Not at a tag boundary, as after a removal, so scan for the tag
+        lastTagIndex 
+            = Tags.indexOfNextWordStart 
+                (tags.getTags(), tagIndex, tags.isSlashToSeparate());
+        lastTagEnd 
+            = Tags.indexOfNextSeparator 
+                (tags.getTags(), lastTagIndex, false, true, tags.isSlashToSeparate());
+      }
       // lastTagIndex = tagIndex;
       tagIndex = lastTagEnd + 1;
       return (tags.substring (lastTagIndex, lastTagEnd));
@@ -19,6 +19,7 @@ package com.powersurgepub.psdatalib.pstags;
   import com.powersurgepub.psutils.*;
   import java.io.*;
   import java.util.*;
+  import javax.swing.*;
   import javax.swing.tree.*;
 
 /**
@@ -104,7 +105,67 @@ public class TagsModel {
       modify (list.get(i));
     }
   }
-  
+
+  /**
+   Replace the entire tree with one built from the given list of items,
+   sending only a single event to the tree's listeners. This is much faster
+   than adding a large number of items one at a time.
+
+   @param list The items to be placed in the tree.
+  */
+  public void rebuild (TaggableList list) {
+    TagsTreeBuilder builder = new TagsTreeBuilder (getSource());
+    builder.add (list);
+    publish (builder);
+  }
+
+  /**
+   Build a new tree from the given list of items on a background thread,
+   and then replace the existing tree with it on the Swing event dispatch
+   thread. The items should not be changed until the new tree has been
+   published.
+
+   @param list     The items to be placed in the tree.
+   @param whenDone Something to be run on the event dispatch thread once the
+                   new tree has been published, or null.
+  */
+  public void buildInBackground (final TaggableList list, final Runnable whenDone) {
+    final TagsTreeBuilder builder = new TagsTreeBuilder (getSource());
+    Thread builderThread = new Thread (new Runnable() {
+      public void run() {
+        builder.add (list);
+        builder.build();
+        SwingUtilities.invokeLater (new Runnable() {
+          public void run() {
+            publish (builder);
+            if (whenDone != null) {
+              whenDone.run();
+            }
+          }
+        });
+      }
+    }, "TagsTreeBuilder");
+    builderThread.setDaemon (true);
+    builderThread.start();
+  }
+
+  /**
+   Replace the entire tree with one assembled by a tree builder, pointing
+   each item at its nodes in the new tree, and sending a single structure
+   changed event to the tree's listeners.
+
+   @param builder A builder holding all of the items to be in the tree.
+  */
+  public void publish (TagsTreeBuilder builder) {
+    TagsNode newRoot = builder.build();
+    builder.assignItemNodes();
+    root = newRoot;
+    currentNode = null;
+    nextNode = null;
+    priorNode = null;
+    tree.setRoot (root);
+  }
+
   /**
    *    Process a new Taggable that has just been modified within the Taggables collection.
    *   
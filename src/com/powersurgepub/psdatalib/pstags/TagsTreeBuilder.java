@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.pstags;
+
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+  import java.util.*;
+
+/**
+   Builds a complete tree of tags nodes for a collection of taggable items
+   all at once, for use by a TagsModel. <p>
+
+   TagsModel.add places one item at a time, walking the children of each
+   node in turn to find the right position, and generating a tree model
+   event for every node inserted. This class instead finds each tag node's
+   children through a hash map, sorts the children of each node once all
+   the items have been added, and builds the tree without a tree model, so
+   that it may be done away from the Swing event dispatch thread. The
+   resulting tree is the same as would be produced by adding the items to
+   a TagsModel one at a time, in the same order: under each node, items come
+   first, sorted by their keys, followed by tags, sorted alphabetically
+   without regard to case. <p>
+
+   The items should not be changed while the tree is being built. Once
+   built, the tree is handed to TagsModel.publish, which should be called
+   on the event dispatch thread.
+ */
+public class TagsTreeBuilder {
+
+  private TagsNode            root;
+  private Branch              rootBranch;
+  private boolean             built = false;
+
+  /** Items added, each with the first of its item nodes. */
+  private ArrayList<Taggable> items = new ArrayList<Taggable>();
+  private ArrayList<TagsNode> firstNodes = new ArrayList<TagsNode>();
+
+  /** Number of item nodes created so far. */
+  private int                 sequence = 0;
+
+  /**
+   Prepare to build a tree.
+
+   @param source The file or folder from which the items are taken, to be
+                 stored in the root node, or null if unknown.
+   */
+  public TagsTreeBuilder (File source) {
+    if (source == null) {
+      File unknown = new File (System.getProperty (GlobalConstants.USER_DIR), "???");
+      root = new TagsNode (unknown);
+    } else {
+      root = new TagsNode (source);
+    }
+    rootBranch = new Branch (root);
+  }
+
+  /**
+   Add all the items in a list.
+
+   @param list The items to be added.
+   */
+  public void add (TaggableList list) {
+    for (int i = 0; i < list.size(); i++) {
+      add (list.get(i));
+    }
+  }
+
+  /**
+   Add one item, placing an item node beneath each of its tags, or beneath
+   the root if it has no tags.
+
+   @param tagged The item to be added.
+   */
+  public void add (Taggable tagged) {
+    Tags tags = tagged.getTags();
+    TagsIterator iterator = new TagsIterator (tags);
+    TagsNode lastNode = null;
+    int tagIndex = 0;
+    int nodesStored = 0;
+    while (iterator.hasNextTag() || nodesStored < 1) {
+      nodesStored++;
+      if (iterator.hasNextTag()) {
+        iterator.nextTag();
+      }
+      TagsNode itemNode = new TagsNode (tagged, tagIndex);
+      if (tagIndex == 0) {
+        items.add (tagged);
+        firstNodes.add (itemNode);
+      } else {
+        lastNode.setNextNodeForItem (itemNode);
+      }
+      lastNode = itemNode;
+
+      Branch branch = rootBranch;
+      int levels = tags.getLevels (tagIndex);
+      for (int level = 0; level < levels; level++) {
+        String levelCat = tags.getLevel (tagIndex, level);
+        String key = foldCase (levelCat);
+        Branch child = branch.tags.get (key);
+        if (child == null) {
+          child = new Branch (new TagsNode (levelCat));
+          branch.tags.put (key, child);
+        }
+        branch = child;
+      }
+      branch.items.add (new Leaf (itemNode, sequence));
+      sequence++;
+      tagIndex++;
+    }
+  }
+
+  /**
+   Sort the children of each node and assemble the tree. Once the tree has
+   been built, no more items may be added.
+
+   @return The root of the tree.
+   */
+  public TagsNode build () {
+    if (! built) {
+      assemble (rootBranch);
+      rootBranch = null;
+      built = true;
+    }
+    return root;
+  }
+
+  /**
+   Point each item at the first of its item nodes in the new tree. This is
+   done by TagsModel when the tree is published, so that items continue to
+   point into the old tree until then.
+   */
+  void assignItemNodes () {
+    for (int i = 0; i < items.size(); i++) {
+      items.get(i).setTagsNode (firstNodes.get(i));
+    }
+  }
+
+  /**
+   Sort a node's children and attach them to it, and then do the same for
+   each of its tag children.
+   */
+  private static void assemble (Branch branch) {
+
+    // Items first, in key sequence, with the later of two items with equal
+    // keys first, as TagsModel.add would place them
+    Collections.sort (branch.items, new Comparator<Leaf>() {
+      public int compare (Leaf leaf1, Leaf leaf2) {
+        int result = leaf1.node.getTaggable().compareTo
+            (leaf2.node.getTaggable());
+        if (result == 0) {
+          result = leaf2.sequence - leaf1.sequence;
+        }
+        return result;
+      }
+    });
+    for (int i = 0; i < branch.items.size(); i++) {
+      branch.node.add (branch.items.get(i).node);
+    }
+
+    // Then tags, in alphabetical sequence
+    ArrayList<Branch> tagBranches = new ArrayList<Branch> (branch.tags.values());
+    Collections.sort (tagBranches, new Comparator<Branch>() {
+      public int compare (Branch branch1, Branch branch2) {
+        return branch1.node.getUserObject().toString().compareToIgnoreCase
+            (branch2.node.getUserObject().toString());
+      }
+    });
+    for (int i = 0; i < tagBranches.size(); i++) {
+      Branch tagBranch = tagBranches.get(i);
+      assemble (tagBranch);
+      branch.node.add (tagBranch.node);
+    }
+  }
+
+  /**
+   Fold the case of a tag level in the same way that compareToIgnoreCase
+   does, so that two levels have the same key exactly when
+   compareToIgnoreCase would find them equal.
+   */
+  private static String foldCase (String levelCat) {
+    char[] chars = levelCat.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars [i] = Character.toLowerCase (Character.toUpperCase (chars [i]));
+    }
+    return new String (chars);
+  }
+
+  /**
+   A node in the tree being built, with its children not yet sorted.
+   */
+  private static class Branch {
+
+    TagsNode              node;
+    HashMap<String, Branch> tags = new HashMap<String, Branch>();
+    ArrayList<Leaf>       items = new ArrayList<Leaf>();
+
+    Branch (TagsNode node) {
+      this.node = node;
+    }
+  }
+
+  /**
+   An item node, with the order in which it was created.
+   */
+  private static class Leaf {
+
+    TagsNode              node;
+    int                   sequence;
+
+    Leaf (TagsNode node, int sequence) {
+      this.node = node;
+      this.sequence = sequence;
+    }
+  }
+
+}
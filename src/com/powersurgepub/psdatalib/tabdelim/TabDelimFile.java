@@ -21,6 +21,8 @@ package com.powersurgepub.psdatalib.tabdelim;
   import com.powersurgepub.psdatalib.psdata.*;
   import java.io.*;
   import java.net.*;
+  import java.nio.charset.Charset;
+  import java.util.ArrayList;
   import com.powersurgepub.psutils.*;
 
 /**
@@ -90,6 +92,24 @@ public class TabDelimFile
   private    char               quoteChar = ' ';
   private    boolean            endOfLine = true;
   
+  // The following fields are used by the fast and parallel input modes
+  
+  /** Size of the block of characters read at one time in fast input mode. */
+  public static final int       FAST_INPUT_BUFFER_SIZE 
+      = TabDelimParser.DEFAULT_BUFFER_SIZE;
+  
+  /** Should input be read a block at a time, rather than a char at a time? */
+  private    boolean            fastInput = false;
+  
+  /** Parser used in fast input mode. */
+  private    TabDelimParser     parser = null;
+  
+  /** Number of threads to use for parallel input, or zero. */
+  private    int                parallelThreads = 0;
+  
+  /** Reader used in parallel input mode. */
+  private    TabDelimParallelReader parallelReader = null;
+  
   
   // The following fields are used for logging
   
@@ -218,6 +238,56 @@ public class TabDelimFile
   public String getEncoding() {
     return fileEncoding;
   }
+  
+  /**
+     Indicates whether input should be read in fast mode, in which 
+     characters are read a block at a time into a reusable buffer, and 
+     fields are sliced from the buffer rather than built up one character
+     at a time. The quoting and line ending rules are the same in either
+     mode. This should be set before the file is opened for input.
+    
+     @param fastInput True to read input in fast mode.
+   */
+  public void setFastInput (boolean fastInput) {
+    this.fastInput = fastInput;
+  }
+  
+  /**
+     Is input being read in fast mode?
+    
+     @return True if input is read a block at a time.
+   */
+  public boolean isFastInput () {
+    return fastInput;
+  }
+  
+  /**
+     Indicates whether input should be parsed by several threads at once. 
+     When more than one thread is requested, the file is divided into 
+     chunks of several megabytes, each ending at the end of a record; the
+     chunks are then read and split into fields in parallel, and the 
+     resulting records are returned by nextRecordIn in their original order. This is
+     worthwhile only for large files. Files in encodings that do not 
+     represent tabs, quotes and line endings as single bytes will be read
+     in fast input mode instead. This should be set before the file is 
+     opened for input.
+    
+     @param threads The number of threads to use; zero or one to read
+                    the file sequentially.
+   */
+  public void setParallelInput (int threads) {
+    this.parallelThreads = threads;
+  }
+  
+  /**
+     Returns the number of threads to be used to parse input.
+    
+     @return The number of threads to be used, or zero or one if input
+             is to be read sequentially.
+   */
+  public int getParallelInput () {
+    return parallelThreads;
+  }
 
   /*========================================================================
    *
@@ -390,10 +460,65 @@ public class TabDelimFile
 
     recDef = new RecordDefinition (dict);
     c = ' ';
-    firstRecordIn ();
+    parser = null;
+    if (inOK && parallelThreads > 1 && openParallel()) {
+      // Headings have already been read
+    } else {
+      if (inOK && (fastInput || parallelThreads > 1)) {
+        parser = new TabDelimParser 
+            (inBuffered, fieldDelimiter, FAST_INPUT_BUFFER_SIZE);
+      }
+      firstRecordIn ();
+    }
     recordNumber = 0;
   }
   
+  /**
+     Opens the file for parallel input, reads the column headings and
+     starts parsing the remaining records on worker threads. 
+    
+     @return True if the file was opened for parallel input; false if it 
+             should be read sequentially instead.
+   */
+  private boolean openParallel () {
+    Charset charset;
+    try {
+      charset = Charset.forName (fileEncoding);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    if (! TabDelimParallelReader.canRead (charset)) {
+      return false;
+    }
+    TabDelimParallelReader reader = new TabDelimParallelReader 
+        (file, charset, fieldDelimiter, parallelThreads);
+    try {
+      ArrayList<String> headings = reader.openAndReadHeadings();
+      for (int i = 0; i < headings.size(); i++) {
+        String name = headings.get (i);
+        if (name.length() > 0) {
+          recDef.addColumn (name);
+        }
+      }
+      reader.start (recDef);
+    } catch (IOException e) {
+      try {
+        reader.close();
+      } catch (IOException e2) {
+        // Do nothing
+      }
+      recDef = new RecordDefinition (dict);
+      return false;
+    }
+    parallelReader = reader;
+    try {
+      inBuffered.close();
+    } catch (IOException e) {
+      // Do nothing
+    }
+    return true;
+  }
+  
   /**
      Builds the record definition from the first record
      read from disk.
@@ -406,9 +531,9 @@ public class TabDelimFile
   private void firstRecordIn () {
 
     do {
-      readField();
-      if (field.length() > 0) {
-        int i = recDef.addColumn(field.toString());
+      String name = nextField();
+      if (name.length() > 0) {
+        int i = recDef.addColumn(name);
       }
     } while ((! atEnd) && (! endOfLine));
   }
@@ -425,20 +550,52 @@ public class TabDelimFile
   public DataRecord nextRecordIn () 
       throws IOException {
 
+    if (parallelReader != null) {
+      DataRecord nextRec = parallelReader.nextRecord();
+      if (nextRec != null) {
+        recordNumber++;
+        nextRec.calculate();
+      }
+      return nextRec;
+    }
+    else
     if (atEnd) {
       return null;
     } else {
       DataRecord nextRec = new DataRecord ();
       recordNumber++;
       do {
-        readField();
-        int i = nextRec.addField (recDef, field.toString());
+        int i = nextRec.addField (recDef, nextField());
       } while ((! atEnd) && (! endOfLine));
       nextRec.calculate();
       return nextRec;
     } 
   }
 
+  /**
+     Returns the next field from the input file, using whichever input
+     mode has been selected.
+
+     @return Next sub-string delimited by field separator.
+   */
+  private String nextField () {
+    if (parser != null) {
+      String value = parser.nextField();
+      atEnd = parser.isAtEnd();
+      endOfLine = parser.isEndOfLine();
+      if (parser.isTroubled()) {
+        inOK = false;
+        atEnd = true;
+        endOfLine = true;
+        reportIOTrouble();
+      }
+      return value;
+    } else {
+      readField();
+      return field.toString();
+    }
+  }
+
   /**
      Returns the next field from the input file.
 
@@ -537,6 +694,15 @@ public class TabDelimFile
   }
   
   public boolean isAtEnd () {
+    if (parallelReader != null) {
+      try {
+        return (! parallelReader.hasMoreRecords());
+      } catch (IOException e) {
+        reportIOTrouble();
+        return true;
+      }
+    }
+    else
     if (inBuffered == null) {
       return true;
     } else {
@@ -715,6 +881,10 @@ public class TabDelimFile
   public void close () 
       throws IOException {
         
+    if (parallelReader != null) {
+      parallelReader.close();
+      parallelReader = null;
+    }
     if (openedForInput) {
       inBuffered.close();
     }
@@ -0,0 +1,441 @@
+/*
+ * Copyright 1999 - 2013 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.tabdelim;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+  import java.nio.*;
+  import java.nio.channels.*;
+  import java.nio.charset.*;
+  import java.util.*;
+  import java.util.concurrent.*;
+
+/**
+   Reads a delimited file using several threads. The file is divided into 
+   chunks, each ending at the end of a record. Each chunk is read, decoded
+   and split into fields on a worker thread. The fields are then built 
+   into data records one at a time, in their original file order, on the
+   thread asking for them, so that the record definition and its field
+   statistics are only ever updated by that one thread. <p>
+
+   Chunk boundaries are found by a quick pass over the raw bytes that
+   follows the same quoting and line ending rules as TabDelimParser, so
+   that a quoted field containing line breaks is never split. Since the
+   pass looks only for spaces, quotes, delimiters, carriage returns and
+   line feeds, the file's encoding must represent all of these as single
+   bytes, with no other character using those byte values.
+ */
+class TabDelimParallelReader {
+
+  /** Minimum number of bytes in each chunk. */
+  public static final int       CHUNK_SIZE = 4 * 1024 * 1024;
+
+  /** Number of bytes read at once while looking for chunk boundaries. */
+  private static final int      SCAN_WINDOW_SIZE = 1024 * 1024;
+
+  private static final byte     SPACE = (byte)GlobalConstants.SPACE;
+  private static final byte     SINGLE_QUOTE = (byte)GlobalConstants.SINGLE_QUOTE;
+  private static final byte     DOUBLE_QUOTE = (byte)GlobalConstants.DOUBLE_QUOTE;
+  private static final byte     CARRIAGE_RETURN
+      = (byte)GlobalConstants.CARRIAGE_RETURN;
+  private static final byte     LINE_FEED = (byte)GlobalConstants.LINE_FEED;
+
+  private    File               file;
+  private    Charset            charset;
+  private    char               fieldDelimiter;
+  private    byte               delimiterByte;
+  private    int                threads;
+
+  private    RandomAccessFile   randomFile = null;
+  private    FileChannel        channel = null;
+  private    long               fileSize = 0;
+
+  /** Portion of the file currently read for the boundary scan. */
+  private    ByteBuffer         window = ByteBuffer.allocate (SCAN_WINDOW_SIZE);
+  private    long               windowStart = 0;
+  private    long               windowEnd = 0;
+
+  /** Position in the file at which the next chunk starts. */
+  private    long               nextChunkStart = 0;
+
+  private    ExecutorService    executor = null;
+
+  /** Chunks submitted for parsing, in file order. */
+  private    LinkedList<Future<ArrayList<String[]>>> pending
+      = new LinkedList<Future<ArrayList<String[]>>>();
+
+  /** Fields of the records from the chunk now being returned. */
+  private    ArrayList<String[]> batch = null;
+
+  /** Index of the next record to be returned from the batch. */
+  private    int                batchIndex = 0;
+
+  /** Record definition used to build the records. */
+  private    RecordDefinition   recDef = null;
+
+  /**
+     Indicates whether an encoding can be read by this class.
+
+     @param charset The encoding of a file.
+
+     @return True if the encoding represents the characters we scan
+             for as single bytes.
+   */
+  public static boolean canRead (Charset charset) {
+    String name = charset.name();
+    return (name.equals("UTF-8")
+        || name.equals("US-ASCII")
+        || name.equals("ISO-8859-1")
+        || name.equals("windows-1252"));
+  }
+
+  /**
+     Prepares to read the passed file.
+
+     @param file           The file to be read.
+     @param charset        The file's encoding.
+     @param fieldDelimiter The character separating fields.
+     @param threads        The number of worker threads to use.
+   */
+  public TabDelimParallelReader (File file, Charset charset,
+      char fieldDelimiter, int threads) {
+    this.file = file;
+    this.charset = charset;
+    this.fieldDelimiter = fieldDelimiter;
+    this.delimiterByte = (byte)fieldDelimiter;
+    this.threads = threads;
+  }
+
+  /**
+     Opens the file and reads its first record, containing the column
+     headings.
+
+     @return The fields in the first record.
+
+     @throws IOException If the file cannot be read.
+   */
+  public ArrayList<String> openAndReadHeadings ()
+      throws IOException {
+    randomFile = new RandomAccessFile (file, "r");
+    channel = randomFile.getChannel();
+    fileSize = channel.size();
+    long headingsEnd = skipRecord (0);
+    ArrayList<String> headings = new ArrayList<String>();
+    if (headingsEnd > 0) {
+      TabDelimParser parser = parserFor (0, headingsEnd);
+      do {
+        headings.add (parser.nextField());
+      } while ((! parser.isAtEnd()) && (! parser.isEndOfLine()));
+    }
+    nextChunkStart = headingsEnd;
+    return headings;
+  }
+
+  /**
+     Starts parsing the records following the headings.
+
+     @param recDef The record definition to be used for the records.
+
+     @throws IOException If the file cannot be read.
+   */
+  public void start (RecordDefinition recDef)
+      throws IOException {
+    this.recDef = recDef;
+    executor = Executors.newFixedThreadPool (threads, new ThreadFactory() {
+      public Thread newThread (Runnable r) {
+        Thread thread = new Thread (r, "TabDelimParallelReader");
+        thread.setDaemon (true);
+        return thread;
+      }
+    });
+    submitChunks();
+  }
+
+  /**
+     Indicates whether there are more records to return, waiting for the
+     next chunk to be parsed if necessary.
+
+     @return True if another record is available.
+
+     @throws IOException If a chunk could not be read or parsed.
+   */
+  public boolean hasMoreRecords ()
+      throws IOException {
+    while (batch == null || batchIndex >= batch.size()) {
+      if (pending.isEmpty()) {
+        return false;
+      }
+      Future<ArrayList<String[]>> next = pending.removeFirst();
+      submitChunks();
+      try {
+        batch = next.get();
+        batchIndex = 0;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException ("Interrupted while reading "
+            + file.toString());
+      } catch (ExecutionException e) {
+        IOException ioe = new IOException ("Error parsing " + file.toString());
+        ioe.initCause (e.getCause());
+        throw ioe;
+      }
+    }
+    return true;
+  }
+
+  /**
+     Returns the next record, in original file order.
+
+     @return The next record, or null if there are no more.
+
+     @throws IOException If a chunk could not be read or parsed.
+   */
+  public DataRecord nextRecord ()
+      throws IOException {
+    if (hasMoreRecords()) {
+      String[] fields = batch.get (batchIndex);
+      batch.set (batchIndex, null);
+      batchIndex++;
+      DataRecord nextRec = new DataRecord();
+      for (int i = 0; i < fields.length; i++) {
+        nextRec.addField (recDef, fields [i]);
+      }
+      return nextRec;
+    } else {
+      return null;
+    }
+  }
+
+  /**
+     Stops the worker threads and closes the file.
+
+     @throws IOException If the file cannot be closed.
+   */
+  public void close ()
+      throws IOException {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+    pending.clear();
+    batch = null;
+    windowStart = 0;
+    windowEnd = 0;
+    if (randomFile != null) {
+      randomFile.close();
+      randomFile = null;
+      channel = null;
+    }
+  }
+
+  /**
+     Keeps enough chunks in the works to keep all threads busy.
+
+     @throws IOException If the file cannot be read.
+   */
+  private void submitChunks ()
+      throws IOException {
+    while (pending.size() < threads * 2 && nextChunkStart < fileSize) {
+      final long start = nextChunkStart;
+      long end = start;
+      while (end < fileSize && end - start < CHUNK_SIZE) {
+        end = skipRecord (end);
+      }
+      final long chunkEnd = end;
+      nextChunkStart = end;
+      pending.addLast (executor.submit (new Callable<ArrayList<String[]>>() {
+        public ArrayList<String[]> call ()
+            throws IOException {
+          return parseChunk (start, chunkEnd);
+        }
+      }));
+    }
+  }
+
+  /**
+     Splits one chunk of the file into the fields of each record.
+
+     @param start The position of the first byte in the chunk.
+     @param end   The position just past the last byte in the chunk.
+
+     @return The fields of each record in the chunk.
+
+     @throws IOException If the chunk cannot be read.
+   */
+  private ArrayList<String[]> parseChunk (long start, long end)
+      throws IOException {
+    ArrayList<String[]> records = new ArrayList<String[]>();
+    ArrayList<String> fields = new ArrayList<String>();
+    TabDelimParser parser = parserFor (start, end);
+    parser.primeInput();
+    while (! parser.isAtEnd()) {
+      fields.clear();
+      do {
+        fields.add (parser.nextField());
+      } while ((! parser.isAtEnd()) && (! parser.isEndOfLine()));
+      records.add (fields.toArray (new String [fields.size()]));
+    }
+    return records;
+  }
+
+  /**
+     Reads and decodes a portion of the file, returning a parser for it.
+
+     @param start The position of the first byte to be parsed.
+     @param end   The position just past the last byte to be parsed.
+
+     @return A parser for the decoded characters.
+
+     @throws IOException If the portion cannot be read.
+   */
+  private TabDelimParser parserFor (long start, long end)
+      throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate ((int)(end - start));
+    read (bytes, start);
+    bytes.flip();
+    CharBuffer chars = charset.decode (bytes);
+    char[] array;
+    int offset;
+    if (chars.hasArray()) {
+      array = chars.array();
+      offset = chars.arrayOffset() + chars.position();
+    } else {
+      array = new char [chars.remaining()];
+      chars.get (array);
+      offset = 0;
+    }
+    if (offset > 0) {
+      char[] trimmed = new char [chars.remaining()];
+      System.arraycopy (array, offset, trimmed, 0, trimmed.length);
+      array = trimmed;
+    }
+    return new TabDelimParser (array, chars.remaining(), fieldDelimiter);
+  }
+
+  /**
+     Finds the end of the record starting at the given position, following
+     the same rules as TabDelimParser.
+
+     @param pos The position at which a record starts.
+
+     @return The position at which the next record starts.
+
+     @throws IOException If the file cannot be read.
+   */
+  private long skipRecord (long pos)
+      throws IOException {
+    while (true) {
+
+      // Skip any leading spaces
+      while (pos < fileSize && byteAt (pos) == SPACE) {
+        pos++;
+      }
+
+      // Skip any quoted portion
+      if (pos < fileSize
+          && (byteAt (pos) == SINGLE_QUOTE || byteAt (pos) == DOUBLE_QUOTE)) {
+        byte quote = byteAt (pos);
+        pos++;
+        boolean outOfQuotes = false;
+        while (pos < fileSize && (! outOfQuotes)) {
+          if (byteAt (pos) == quote) {
+            pos++;
+            if (pos < fileSize && byteAt (pos) == quote) {
+              pos++;
+            } else {
+              outOfQuotes = true;
+            }
+          } else {
+            pos++;
+          }
+        }
+      }
+
+      // Skip to the end of the field
+      byte b = 0;
+      while (pos < fileSize
+          && (b = byteAt (pos)) != delimiterByte
+          && b != CARRIAGE_RETURN
+          && b != LINE_FEED) {
+        pos++;
+      }
+
+      if (pos >= fileSize) {
+        return fileSize;
+      }
+      else
+      if (b == CARRIAGE_RETURN || b == LINE_FEED) {
+        pos++;
+        if (pos < fileSize) {
+          byte b2 = byteAt (pos);
+          if ((b2 == CARRIAGE_RETURN || b2 == LINE_FEED) && b2 != b) {
+            pos++;
+          }
+        }
+        return pos;
+      } else {
+        // Skip past the field delimiter, and on to the next field
+        pos++;
+      }
+    }
+  }
+
+  /**
+     Returns the byte at the given position in the file, reading a new
+     window of the file if needed.
+
+     @param pos A position within the file.
+
+     @return The byte at that position.
+
+     @throws IOException If the window cannot be read.
+   */
+  private byte byteAt (long pos)
+      throws IOException {
+    if (pos < windowStart || pos >= windowEnd) {
+      windowStart = pos;
+      windowEnd = Math.min (fileSize, pos + SCAN_WINDOW_SIZE);
+      window.clear();
+      window.limit ((int)(windowEnd - windowStart));
+      read (window, windowStart);
+    }
+    return window.get ((int)(pos - windowStart));
+  }
+
+  /**
+     Fills a buffer with bytes from the file, starting at the given 
+     position. Since the position is passed on each read, this may be 
+     called from several threads at once.
+
+     @param buffer   The buffer to be filled, up to its limit.
+     @param position The position in the file of the first byte to be read.
+
+     @throws IOException If the bytes cannot be read.
+   */
+  private void read (ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int count = channel.read (buffer, position);
+      if (count < 0) {
+        throw new EOFException ("Unexpected end of " + file.toString());
+      }
+      position = position + count;
+    }
+  }
+
+}
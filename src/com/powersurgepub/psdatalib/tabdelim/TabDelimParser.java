@@ -0,0 +1,288 @@
+/*
+ * Copyright 1999 - 2013 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.tabdelim;
+
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+
+/**
+   Splits delimited text into fields, scanning a block of characters at a
+   time and slicing fields directly from the block. The characters may come
+   from a Reader, a block at a time, or may be supplied all at once as an
+   array. <p>
+
+   Fields are separated by the field delimiter, and records by a carriage
+   return, a line feed, or one of each. Leading spaces are skipped. A field
+   starting with a single or double quote runs until the next lone
+   occurrence of the same quote character, with two quote characters in a
+   row standing for one; anything following the closing quote, up to the
+   next delimiter, is also part of the field. <p>
+
+   Whenever we are not at end, the current character c is the one at
+   bufferPos - 1.
+ */
+class TabDelimParser {
+
+  /** Default size of the block of characters read at one time. */
+  public static final int       DEFAULT_BUFFER_SIZE = 65536;
+
+  /** Source of characters, or null if all characters were supplied at once. */
+  private    Reader             reader = null;
+
+  /** Field delimiter -- either a tab or a comma. */
+  private    char               fieldDelimiter;
+
+  /** Block of characters most recently read. */
+  private    char[]             buffer;
+
+  /** Position of the next character to be taken from the buffer. */
+  private    int                bufferPos = 0;
+
+  /** Number of valid characters in the buffer. */
+  private    int                bufferLimit = 0;
+
+  /** The current character. */
+  private    char               c = ' ';
+
+  private    boolean            atEnd = false;
+  private    boolean            endOfLine = true;
+
+  /** Did we have trouble reading from the Reader? */
+  private    boolean            troubled = false;
+
+  /**
+     Work area for fields that are quoted, or that span two blocks.
+   */
+  private    StringBuilder      field = new StringBuilder();
+
+  /**
+     Constructs a parser that reads from the passed Reader.
+
+     @param reader         The source of the characters to be parsed.
+     @param fieldDelimiter The character separating fields.
+     @param bufferSize     The number of characters to read at one time.
+   */
+  public TabDelimParser (Reader reader, char fieldDelimiter, int bufferSize) {
+    this.reader = reader;
+    this.fieldDelimiter = fieldDelimiter;
+    buffer = new char [bufferSize];
+  }
+
+  /**
+     Constructs a parser for characters that have already been read.
+
+     @param chars          The characters to be parsed.
+     @param length         The number of characters to be parsed.
+     @param fieldDelimiter The character separating fields.
+   */
+  public TabDelimParser (char[] chars, int length, char fieldDelimiter) {
+    this.fieldDelimiter = fieldDelimiter;
+    buffer = chars;
+    bufferLimit = length;
+  }
+
+  /**
+     Reads the first character, as would already have been done if the
+     preceding record had been read by this parser. Call this before
+     parsing a block of records that starts after the first record
+     in a file, so that isAtEnd will be true for an empty block.
+   */
+  public void primeInput () {
+    readCharacter();
+  }
+
+  /**
+     Returns the next field.
+
+     @return Next sub-string delimited by field separator.
+   */
+  public String nextField () {
+
+    field.setLength(0);
+    boolean building = false;
+    String sliced = null;
+    endOfLine = false;
+
+    // Skip any leading spaces
+    while ((! atEnd) && (c == GlobalConstants.SPACE)) {
+      readCharacter();
+    }
+
+    // Preserve integrity of quoted fields
+    if ((! atEnd)
+        && ((c == GlobalConstants.SINGLE_QUOTE)
+          || (c == GlobalConstants.DOUBLE_QUOTE))) {
+      char quoteChar = c;
+      building = true;
+      boolean outOfQuotes = false;
+      readCharacter();
+      while ((! atEnd) && (! outOfQuotes)) {
+        if (c == quoteChar) {
+          readCharacter();
+          if (c == quoteChar) {
+            // Two quote chars in a row: replace with one and keep looking for
+            // ending single occurrence of quote char
+            field.append(c);
+            readCharacter();
+          } else {
+            outOfQuotes = true;
+          }
+        } else {
+          // Take everything up to the next quote char in one piece
+          int start = bufferPos - 1;
+          int p = bufferPos;
+          while (p < bufferLimit && buffer[p] != quoteChar) {
+            p++;
+          }
+          field.append(buffer, start, p - start);
+          bufferPos = p;
+          readCharacter();
+        }
+      } // end while still within quoted field
+    } // end if field starts with a single or double quote
+
+    // Consume characters until we find a field delimiter or end of line
+    boolean endOfField = isEndOfField();
+    int start = bufferPos - 1;
+    int p = bufferPos;
+    while (! endOfField) {
+      while (p < bufferLimit
+          && buffer[p] != fieldDelimiter
+          && buffer[p] != GlobalConstants.CARRIAGE_RETURN
+          && buffer[p] != GlobalConstants.LINE_FEED) {
+        p++;
+      }
+      if (p < bufferLimit) {
+        // Field ends within this block
+        if (building) {
+          field.append(buffer, start, p - start);
+        } else {
+          sliced = new String(buffer, start, p - start);
+        }
+        bufferPos = p;
+        readCharacter();
+        endOfField = true;
+      } else {
+        // Field continues into the next block
+        field.append(buffer, start, p - start);
+        building = true;
+        bufferPos = p;
+        readCharacter();
+        endOfField = isEndOfField();
+        start = bufferPos - 1;
+        p = bufferPos;
+      }
+    }
+
+    // See if we're at end of line
+    if (atEnd) {
+      endOfLine = true;
+    }
+    else
+    if (c == GlobalConstants.CARRIAGE_RETURN
+         || c == GlobalConstants.LINE_FEED) {
+      endOfLine = true;
+      char firstEndOfLineChar = c;
+      readCharacter();
+      if ((! atEnd)
+         && (c == GlobalConstants.CARRIAGE_RETURN
+           || c == GlobalConstants.LINE_FEED)
+         && c != firstEndOfLineChar) {
+        readCharacter();
+      }
+    } else {
+      // Read past field delimiter
+      readCharacter();
+    }
+
+    if (sliced != null) {
+      return sliced;
+    }
+    else
+    if (building) {
+      return field.toString();
+    } else {
+      return "";
+    }
+  }
+
+  /**
+     Does the current character end the current field?
+   */
+  private boolean isEndOfField() {
+    return (atEnd
+        || c == fieldDelimiter
+        || c == GlobalConstants.CARRIAGE_RETURN
+        || c == GlobalConstants.LINE_FEED);
+  }
+
+  /**
+     Takes the next character from the buffer, reading the next block
+     when the buffer has been used up.
+   */
+  private void readCharacter() {
+    if (bufferPos >= bufferLimit && (! atEnd)) {
+      if (reader == null) {
+        bufferLimit = -1;
+      } else {
+        try {
+          bufferLimit = reader.read(buffer, 0, buffer.length);
+        } catch (IOException e) {
+          bufferLimit = -1;
+          troubled = true;
+        }
+      }
+      bufferPos = 0;
+    }
+    if (atEnd || bufferLimit < 0) {
+      atEnd = true;
+      bufferLimit = 0;
+      bufferPos = 0;
+      c = ' ';
+    } else {
+      c = buffer[bufferPos++];
+    }
+  }
+
+  /**
+     Have we run out of characters?
+
+     @return True if no characters remain.
+   */
+  public boolean isAtEnd () {
+    return atEnd;
+  }
+
+  /**
+     Did the last field returned end a record?
+
+     @return True if the last field returned was the last in its record.
+   */
+  public boolean isEndOfLine () {
+    return endOfLine;
+  }
+
+  /**
+     Did an I/O error cut short our reading?
+
+     @return True if the Reader threw an exception.
+   */
+  public boolean isTroubled () {
+    return troubled;
+  }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.template;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import java.util.*;
+
+/**
+ A line of template text, or a command operand, split once into literal
+ segments and variables, so that it can be generated for each record
+ without being scanned for variables again.
+ <p>
+ Text containing a variable whose replacement must itself be scanned for
+ variables, as with linked tags, is instead passed to
+ TemplateUtil.replaceVariables each time it is generated.
+
+ @author Herb Bowie
+ */
+class CompiledText {
+
+  /** The text as it appears in the template. */
+  private    String             text;
+
+  /** The delimiters used to find the variables. */
+  private    String             startVariable;
+  private    String             endVariable;
+  private    String             startModifiers;
+
+  /** Literal strings and TemplateVariable objects, in sequence. */
+  private    Object[]           parts;
+
+  /** Total length of the literal segments, used to size the output. */
+  private    int                literalLength = 0;
+
+  /** Must the text be scanned for variables each time it is generated? */
+  private    boolean            interpreted = false;
+
+  /**
+   Split text into literal segments and variables, using the given
+   delimiters, in the same way that TemplateUtil.replaceVariables
+   finds them.
+
+   @param text           The text to be compiled.
+   @param startVariable  The delimiter marking the start of a variable.
+   @param endVariable    The delimiter marking the end of a variable.
+   @param startModifiers The delimiter marking the start of any variable
+                         modifiers.
+  */
+  CompiledText (String text,
+      String startVariable, String endVariable, String startModifiers) {
+
+    this.text = text;
+    this.startVariable = startVariable;
+    this.endVariable = endVariable;
+    this.startModifiers = startModifiers;
+    ArrayList<Object> partList = new ArrayList<Object>();
+    int literalStart = 0;
+    int varIndex = 0;
+    while ((varIndex >= 0) && (varIndex < text.length())) {
+      // find the beginning of the next variable
+      int startDelim = text.indexOf (startVariable, varIndex);
+      // If a variable starting delimiter also begins 1 character to the right,
+      // then use that instead
+      if (startDelim >= 0) {
+        int startDelim2 = text.indexOf (startVariable, startDelim + 1);
+        if (startDelim2 == (startDelim + 1)) {
+          startDelim = startDelim2;
+        }
+      }
+      int endDelim = -1;
+      if (startDelim >= 0) {
+        endDelim = text.indexOf
+            (endVariable, startDelim + startVariable.length() + 1);
+      }
+      if (endDelim < 0) {
+        varIndex = -1;
+      } else {
+        int startMods = text.indexOf
+            (startModifiers, startDelim + startVariable.length() + 1);
+        varIndex = endDelim + endVariable.length();
+        TemplateVariable variable = new TemplateVariable (text,
+            startDelim, startDelim + startVariable.length(),
+            startMods, endDelim, varIndex);
+        if (variable.isReplacedAgain()) {
+          interpreted = true;
+        }
+        addLiteral (partList, text.substring (literalStart, startDelim));
+        partList.add (variable);
+        literalStart = varIndex;
+      }
+    }
+    addLiteral (partList, text.substring (literalStart));
+    parts = partList.toArray();
+  }
+
+  private void addLiteral (ArrayList<Object> partList, String literal) {
+    if (literal.length() > 0) {
+      partList.add (literal);
+      literalLength = literalLength + literal.length();
+    }
+  }
+
+  /**
+   Was this text compiled from the given text, using the given delimiters?
+
+   @param text           The text to be compiled.
+   @param startVariable  The delimiter marking the start of a variable.
+   @param endVariable    The delimiter marking the end of a variable.
+   @param startModifiers The delimiter marking the start of any variable
+                         modifiers.
+
+   @return True if this compiled text may be used in place of the text.
+  */
+  boolean isCompiledFrom (String text,
+      String startVariable, String endVariable, String startModifiers) {
+    return (this.startVariable.equals (startVariable)
+        && this.endVariable.equals (endVariable)
+        && this.startModifiers.equals (startModifiers)
+        && this.text.equals (text));
+  }
+
+  /**
+   Generate the text for a record, replacing its variables with their
+   values.
+
+   @param templateUtil The template utility data for the current output.
+   @param dataRec      The record supplying the data.
+
+   @return The resulting line, along with an indication of whether it is
+           to be followed by a line break.
+  */
+  LineWithBreak generate (TemplateUtil templateUtil, DataRecord dataRec) {
+    if (interpreted) {
+      return templateUtil.replaceVariables (new StringBuilder (text), dataRec);
+    }
+    LineWithBreak lineWithBreak = new LineWithBreak();
+    StringBuilder str = new StringBuilder (literalLength + 64);
+    for (int i = 0; i < parts.length; i++) {
+      if (parts [i] instanceof TemplateVariable) {
+        TemplateVariable variable = (TemplateVariable)parts [i];
+        String replaceData
+            = variable.replace (templateUtil, dataRec, lineWithBreak);
+        if (replaceData != null) {
+          str.append (replaceData);
+        } else {
+          str.append (variable.getSource());
+        }
+      } else {
+        str.append ((String)parts [i]);
+      }
+    }
+    TemplateUtil.markdownLineBreak (str);
+    lineWithBreak.setLine (str);
+    return lineWithBreak;
+  }
+
+  /**
+   Return the text as it appears in the template.
+
+   @return The uncompiled text.
+  */
+  public String toString () {
+    return text;
+  }
+
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.template;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+  import java.security.*;
+  import java.util.*;
+
+/**
+ A record of the output files written by a template, kept in a text file
+ stored alongside the output, so that a later run of the same template
+ can skip any output file whose inputs have not changed.
+ <p>
+ For each output file, the manifest holds a hash of the template and the
+ input record that fed it, a hash of the rendered result, and the last
+ modified time and size of each include file used. An output file is
+ current if its inputs hash the same as before, none of its include files
+ has changed, and the file itself is still as it was written.
+ <p>
+ A single manifest may be shared by several templates writing to the
+ same folder. Each output file is kept in the manifest until it is
+ written again.
+
+ @author Herb Bowie
+ */
+public class OutputManifest {
+
+  /** Default name of the manifest file. */
+  public static final String  DEFAULT_FILE_NAME = "template_manifest.txt";
+
+  private static final String HASH_ALGORITHM = "SHA-1";
+  private static final String ENCODING = "UTF-8";
+  private static final char   HEX_DIGITS[] = "0123456789abcdef".toCharArray();
+  private static final int    BUFFER_SIZE = 8192;
+
+  private    File             manifestFile;
+
+  /** Output files listed in the manifest, keyed by their paths. */
+  private    LinkedHashMap<String, Output> outputs
+      = new LinkedHashMap<String, Output>();
+
+  private    int              skipped = 0;
+
+  /**
+   Construct a manifest to be kept in the given file, loading the file
+   if it already exists.
+
+   @param manifestFile The file holding the manifest.
+  */
+  public OutputManifest (File manifestFile) {
+    this.manifestFile = manifestFile;
+    load();
+  }
+
+  /**
+   Load the manifest from its file. A manifest that cannot be read is
+   treated as empty, so that every output file will be written again.
+  */
+  private void load () {
+    if (! manifestFile.exists()) {
+      return;
+    }
+    BufferedReader reader = null;
+    try {
+      reader = new BufferedReader (new InputStreamReader
+          (new FileInputStream (manifestFile), ENCODING));
+      Output output = null;
+      String line = reader.readLine();
+      while (line != null) {
+        String[] fields = line.split ("\t", -1);
+        if (fields.length == 6 && fields[0].equals ("output")) {
+          output = new Output (fields[1], fields[2]);
+          output.outputHash = fields[3];
+          output.outputLength = Long.parseLong (fields[4]);
+          output.outputModified = Long.parseLong (fields[5]);
+          outputs.put (output.path, output);
+        }
+        else
+        if (fields.length == 4 && fields[0].equals ("include")
+            && output != null) {
+          output.includes.add (new Include (fields[1],
+              Long.parseLong (fields[2]), Long.parseLong (fields[3])));
+        }
+        line = reader.readLine();
+      }
+    } catch (IOException e) {
+      outputs.clear();
+      Logger.getShared().recordEvent (LogEvent.MINOR,
+          "Trouble reading template manifest " + manifestFile.toString(),
+          false);
+    } catch (NumberFormatException e) {
+      outputs.clear();
+      Logger.getShared().recordEvent (LogEvent.MINOR,
+          "Template manifest " + manifestFile.toString() + " is not valid",
+          false);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          // nothing more to be done
+        }
+      }
+    }
+  }
+
+  /**
+   Is the given output file still current, so that it need not be written
+   again?
+
+   @param path      The absolute path of the output file.
+   @param inputHash A hash of the template and the data feeding the file.
+
+   @return True if the output file may be left as it is.
+  */
+  public synchronized boolean isCurrent (String path, String inputHash) {
+    Output output = outputs.get (path);
+    if (output == null
+        || (! output.inputHash.equals (inputHash))) {
+      return false;
+    }
+    File outputFile = new File (path);
+    if ((! outputFile.exists())
+        || outputFile.length() != output.outputLength) {
+      return false;
+    }
+    if (outputFile.lastModified() != output.outputModified) {
+      String outputHash = hashOf (outputFile);
+      if (outputHash == null
+          || (! outputHash.equals (output.outputHash))) {
+        return false;
+      }
+      output.outputModified = outputFile.lastModified();
+    }
+    for (int i = 0; i < output.includes.size(); i++) {
+      Include include = output.includes.get (i);
+      File includeFile = new File (include.path);
+      if (includeFile.lastModified() != include.modified
+          || includeFile.length() != include.length) {
+        return false;
+      }
+    }
+    skipped++;
+    return true;
+  }
+
+  /**
+   Record an output file that has just been written.
+
+   @param path      The absolute path of the output file.
+   @param inputHash A hash of the template and the data feeding the file.
+   @param included  The include files used in writing the output file.
+  */
+  public void recordOutput (String path, String inputHash,
+      List<File> included) {
+    File outputFile = new File (path);
+    Output output = new Output (path, inputHash);
+    output.outputHash = hashOf (outputFile);
+    if (output.outputHash == null) {
+      return;
+    }
+    output.outputLength = outputFile.length();
+    output.outputModified = outputFile.lastModified();
+    for (int i = 0; i < included.size(); i++) {
+      File includeFile = included.get (i);
+      output.includes.add (new Include (includeFile.getAbsolutePath(),
+          includeFile.lastModified(), includeFile.length()));
+    }
+    synchronized (this) {
+      outputs.put (path, output);
+    }
+  }
+
+  /**
+   Return the number of output files found to be current during this run.
+
+   @return The number of output files skipped.
+  */
+  public synchronized int getSkipped () {
+    return skipped;
+  }
+
+  /**
+   Save the manifest to its file.
+
+   @return True if the manifest was saved successfully.
+  */
+  public synchronized boolean save () {
+    BufferedWriter writer = null;
+    boolean ok = true;
+    try {
+      writer = new BufferedWriter (new OutputStreamWriter
+          (new FileOutputStream (manifestFile), ENCODING));
+      Iterator<Output> iterator = outputs.values().iterator();
+      while (iterator.hasNext()) {
+        Output output = iterator.next();
+        writer.write ("output\t" + output.path
+            + "\t" + output.inputHash
+            + "\t" + output.outputHash
+            + "\t" + String.valueOf (output.outputLength)
+            + "\t" + String.valueOf (output.outputModified));
+        writer.newLine();
+        for (int i = 0; i < output.includes.size(); i++) {
+          Include include = output.includes.get (i);
+          writer.write ("include\t" + include.path
+              + "\t" + String.valueOf (include.modified)
+              + "\t" + String.valueOf (include.length));
+          writer.newLine();
+        }
+      }
+    } catch (IOException e) {
+      ok = false;
+    } finally {
+      if (writer != null) {
+        try {
+          writer.close();
+        } catch (IOException e) {
+          ok = false;
+        }
+      }
+    }
+    if (! ok) {
+      Logger.getShared().recordEvent (LogEvent.MEDIUM,
+          "Trouble writing template manifest " + manifestFile.toString(),
+          false);
+    }
+    return ok;
+  }
+
+  /**
+   Return a new message digest, used to hash the inputs to an output file.
+
+   @return A new message digest.
+  */
+  static MessageDigest newDigest () {
+    try {
+      return MessageDigest.getInstance (HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-1
+      throw new IllegalStateException (e);
+    }
+  }
+
+  /**
+   Add a string to a message digest, followed by a separator, so that
+   successive strings cannot run together.
+
+   @param digest The message digest.
+   @param str    The string to be added.
+  */
+  static void update (MessageDigest digest, String str) {
+    try {
+      digest.update (str.getBytes (ENCODING));
+    } catch (UnsupportedEncodingException e) {
+      digest.update (str.getBytes());
+    }
+    digest.update ((byte)0);
+  }
+
+  /**
+   Add the names and values of all of a record's fields to a message
+   digest.
+
+   @param digest The message digest.
+   @param rec    The data record.
+  */
+  static void update (MessageDigest digest, DataRecord rec) {
+    for (int i = 0; i < rec.getNumberOfFields(); i++) {
+      DataField field = rec.getField (i);
+      update (digest, field.getDef().getProperName());
+      update (digest, field.getData());
+    }
+  }
+
+  /**
+   Return the hash held by a message digest, as a string of hex digits.
+
+   @param digest The message digest.
+
+   @return The hash.
+  */
+  static String toHex (MessageDigest digest) {
+    byte[] hash = digest.digest();
+    char[] hex = new char [hash.length * 2];
+    for (int i = 0; i < hash.length; i++) {
+      hex [i * 2] = HEX_DIGITS [(hash [i] >> 4) & 0x0f];
+      hex [(i * 2) + 1] = HEX_DIGITS [hash [i] & 0x0f];
+    }
+    return new String (hex);
+  }
+
+  /**
+   Return a hash of a file's contents.
+
+   @param file The file.
+
+   @return The hash, or null if the file could not be read.
+  */
+  private static String hashOf (File file) {
+    MessageDigest digest = newDigest();
+    InputStream in = null;
+    try {
+      in = new FileInputStream (file);
+      byte[] buffer = new byte [BUFFER_SIZE];
+      int count = in.read (buffer);
+      while (count >= 0) {
+        digest.update (buffer, 0, count);
+        count = in.read (buffer);
+      }
+    } catch (IOException e) {
+      return null;
+    } finally {
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {
+          // nothing more to be done
+        }
+      }
+    }
+    return toHex (digest);
+  }
+
+  /**
+   One output file listed in the manifest.
+  */
+  private static class Output {
+
+    private String             path;
+    private String             inputHash;
+    private String             outputHash = "";
+    private long               outputLength = 0;
+    private long               outputModified = 0;
+    private ArrayList<Include> includes = new ArrayList<Include>();
+
+    Output (String path, String inputHash) {
+      this.path = path;
+      this.inputHash = inputHash;
+    }
+
+  }
+
+  /**
+   One include file used in writing an output file.
+  */
+  private static class Include {
+
+    private String path;
+    private long   modified;
+    private long   length;
+
+    Include (String path, long modified, long length) {
+      this.path = path;
+      this.modified = modified;
+      this.length = length;
+    }
+
+  }
+
+}
@@ -22,7 +22,9 @@ package com.powersurgepub.psdatalib.template;
   import com.powersurgepub.psutils.*;
   import java.io.File;
   import java.io.IOException;
+  import java.security.*;
   import java.util.*;
+  import java.util.concurrent.*;
 
 /**
    A template to be used to create text file 
@@ -75,6 +77,25 @@ public class Template {
   
   private    boolean        outerLoop = false;
   
+  /** 
+     Name of a field by which the data records are grouped, if the inner 
+     loop within an outer loop is to cover only those records in the same
+     group as the current outer record. 
+   */
+  private    String         outerKey = null;
+  
+  /** Number of threads to be used to write output files. */
+  private    int            threads = 1;
+  
+  /** Record of output files written, used to skip unchanged ones. */
+  private    OutputManifest manifest = null;
+  
+  /** Hash of the template, used to tell whether an output has changed. */
+  private    String         templateHash = null;
+  
+  /** Trouble encountered by any thread writing output files. */
+  private volatile RuntimeException outputTrouble = null;
+  
   /** Collection of all the lines within an outer loop, but before the inner loop. */
   private    ArrayList<TemplateLine>          outerLinesBefore;
   
@@ -90,8 +111,6 @@ public class Template {
   /** All the lines at the end of the template file. */
   private    ArrayList<TemplateLine>         endLines;
   
-  private    ArrayList<DataRecord>       dataRecs;
-  
   /** File name for the tab-delimited data file. */
   private    String         dataFileName;
   
@@ -233,6 +252,57 @@ public class Template {
     }
   } // end method openDataSource
   
+  /**
+     Indicates that the data records are grouped, or sorted, by the given 
+     field, and that within an outer loop, the inner loop for each outer 
+     record is to cover only those records in the same group. Only one 
+     group of records then need be held in memory at a time. Without an 
+     outer key, the inner loop covers all of the data records. 
+    
+     @param outerKey The name of the field by which records are grouped, 
+                     or null to have each inner loop cover all records. 
+   */
+  public void setOuterKey (String outerKey) {
+    this.outerKey = outerKey;
+  }
+  
+  public String getOuterKey () {
+    return outerKey;
+  }
+  
+  /**
+     Sets the number of threads to be used to write output files. When 
+     more than one, and each data record is written to its own output file,
+     the output files are written in parallel. 
+    
+     @param threads The number of threads to be used. 
+   */
+  public void setThreads (int threads) {
+    this.threads = threads;
+  }
+  
+  public int getThreads () {
+    return threads;
+  }
+  
+  /**
+     Sets a manifest of the output files written by earlier runs. When 
+     each data record is written to its own output file, any output file 
+     whose template, data record and include files have not changed since 
+     it was last written will be left as it is. The manifest is saved at 
+     the end of each run. 
+    
+     @param manifest The manifest to be used, or null to write every
+                     output file. 
+   */
+  public void setManifest (OutputManifest manifest) {
+    this.manifest = manifest;
+  }
+  
+  public OutputManifest getManifest () {
+    return manifest;
+  }
+  
   /**
      Reads the two input files and uses them to generate
      the output file(s) resulting from the merge operation.</p>
@@ -253,7 +323,6 @@ public class Template {
     outerLinesAfter = new ArrayList<TemplateLine>();
 		endGroupLines = new ArrayList<TemplateLine>();
     endLines = new ArrayList();
-    dataRecs = new ArrayList<DataRecord>();
     outerLoop = false;
     
     // Process lines up to the NEXTREC or OUTER command.
@@ -384,77 +453,18 @@ public class Template {
     // Now let's process the data. 
     templateUtil.setSkippingData (false);
     
-    // If we have an outer loop, then read the data records and store them
-    // in an array. 
+    // If we have an outer loop, then make a pass through the data records
+    // for each outer record. 
+    if (outerLoop && outerKey != null) {
+      generateGroupedOuterLoop();
+    }
+    else
     if (outerLoop) {
-      do {
-        dataRec = dataFile.nextRecordIn();
-        if (dataRec != null) {
-          dataRecs.add(dataRec);
-        }
-      } while (! dataFile.isAtEnd());
-      int outerIndex = 0;
-      dataRec = null;
-      do {
-        
-        // Write outer loop lines before inner loop
-        dataRec = dataRecs.get(outerIndex);
-        templateUtil.setSkippingData (false);
-        templateUtil.resetGroupBreaks();
-        Iterator eOuterLinesBefore = outerLinesBefore.iterator();
-        while (eOuterLinesBefore.hasNext()) {
-          recLine = (TemplateLine)eOuterLinesBefore.next();
-          if (recLine.getCommand().equals (TemplateLine.OUTPUT)) {
-            if (! templateUtil.isSkippingData()) {
-              if (templateUtil.isTextFileOutOpen()) {
-                writeEndLines();
-              } // end if text file out open
-            } // end skipping Data check
-          } // end if next line is OUTPUT command
-          recLine.generateOutput(dataRec);
-        }
-        
-        // Now iterate through inner loop
-        int innerIndex = 0;
-        do {
-          dataRec = dataRecs.get(innerIndex);
-          templateUtil.setSkippingData (false);
-          templateUtil.resetGroupBreaks();
-          Iterator eRecLines = recLines.iterator();
-          while (eRecLines.hasNext()) {
-            recLine = (TemplateLine)eRecLines.next();
-            if (recLine.getCommand().equals (TemplateLine.OUTPUT)) {
-              if (! templateUtil.isSkippingData()) {
-                if (templateUtil.isTextFileOutOpen()) {
-                  writeEndLines();
-                } // end if text file out open
-              } // end skipping Data check
-            } // end if next line is OUTPUT command
-            recLine.generateOutput(dataRec);
-          }
-          innerIndex++;
-        } while (innerIndex < dataRecs.size());
-        
-        // Writer outer loop lines after inner loop
-        dataRec = dataRecs.get(outerIndex);
-        templateUtil.setSkippingData (false);
-        templateUtil.resetGroupBreaks();
-        Iterator eOuterLinesAfter = outerLinesAfter.iterator();
-        while (eOuterLinesAfter.hasNext()) {
-          recLine = (TemplateLine)eOuterLinesAfter.next();
-          if (recLine.getCommand().equals (TemplateLine.OUTPUT)) {
-            if (! templateUtil.isSkippingData()) {
-              if (templateUtil.isTextFileOutOpen()) {
-                writeEndLines();
-              } // end if text file out open
-            } // end skipping Data check
-          } // end if next line is OUTPUT command
-          recLine.generateOutput(dataRec);
-        }
-        
-        // Bump up the outer loop index
-        outerIndex++;
-      } while (outerIndex < dataRecs.size());
+      generateOuterLoop();
+    }
+    else
+    if (isPerRecord() && (threads > 1 || manifest != null)) {
+      generatePerRecord();
     } else {
       // process tab delimited data file
       do {
@@ -507,12 +517,291 @@ public class Template {
       templateUtil.recordEvent (LogEvent.MINOR,
         "More than one OUTPUT Command Found", false);
     }
+    if (manifest != null) {
+      manifest.save();
+    }
     // templateUtil.recordEvent (LogEvent.NORMAL,
     //   "End of TabToTemplateMerge operation", false);
     return true;
       
   } // end GenerateOutput method
   
+  /**
+     Writes out an outer loop, with a complete pass through all of the data
+     records for each outer record. The records are held in a spool, so
+     that those not fitting in memory are kept on disk between passes. 
+   */
+  private void generateOuterLoop () 
+      throws IOException {
+    RecordSpool spool = new RecordSpool (dataFile.getRecDef());
+    try {
+      do {
+        dataRec = dataFile.nextRecordIn();
+        if (dataRec != null) {
+          spool.add (dataRec);
+        }
+      } while (! dataFile.isAtEnd());
+      RecordSpool.Cursor outerCursor = spool.openCursor();
+      DataRecord outerRec = outerCursor.next();
+      while (outerRec != null) {
+        
+        // Write outer loop lines before inner loop
+        generateLines (outerLinesBefore, outerRec);
+        
+        // Now iterate through inner loop
+        RecordSpool.Cursor innerCursor = spool.openCursor();
+        dataRec = innerCursor.next();
+        while (dataRec != null) {
+          generateLines (recLines, dataRec);
+          dataRec = innerCursor.next();
+        }
+        
+        // Write outer loop lines after inner loop
+        generateLines (outerLinesAfter, outerRec);
+        outerRec = outerCursor.next();
+      }
+    } finally {
+      spool.close();
+    }
+  }
+  
+  /**
+     Writes out an outer loop for data records grouped by the outer key, 
+     with a pass through the records in the same group for each outer 
+     record. Only one group of records is held at a time. 
+   */
+  private void generateGroupedOuterLoop () 
+      throws IOException {
+    ArrayList<DataRecord> group = new ArrayList<DataRecord>();
+    String groupKey = null;
+    do {
+      dataRec = dataFile.nextRecordIn();
+      if (dataRec != null) {
+        String key = dataRec.getFieldData (outerKey);
+        if (groupKey != null && (! key.equals (groupKey))) {
+          generateOuterGroup (group);
+          group.clear();
+        }
+        groupKey = key;
+        group.add (dataRec);
+      }
+    } while (! dataFile.isAtEnd());
+    generateOuterGroup (group);
+  }
+  
+  /**
+     Writes out the outer loop for one group of records. 
+    
+     @param group The records sharing the same outer key.
+   */
+  private void generateOuterGroup (ArrayList<DataRecord> group) {
+    for (int outerIndex = 0; outerIndex < group.size(); outerIndex++) {
+      DataRecord outerRec = group.get (outerIndex);
+      generateLines (outerLinesBefore, outerRec);
+      for (int innerIndex = 0; innerIndex < group.size(); innerIndex++) {
+        dataRec = group.get (innerIndex);
+        generateLines (recLines, dataRec);
+      }
+      generateLines (outerLinesAfter, outerRec);
+    }
+  }
+  
+  /**
+     Writes out a list of template lines for one data record, within an 
+     outer loop. 
+    
+     @param lines The template lines to be written. 
+     @param rec   The data record supplying the variables. 
+   */
+  private void generateLines (ArrayList<TemplateLine> lines, DataRecord rec) {
+    templateUtil.setSkippingData (false);
+    templateUtil.resetGroupBreaks();
+    Iterator eLines = lines.iterator();
+    while (eLines.hasNext()) {
+      recLine = (TemplateLine)eLines.next();
+      if (recLine.getCommand().equals (TemplateLine.OUTPUT)) {
+        if (! templateUtil.isSkippingData()) {
+          if (templateUtil.isTextFileOutOpen()) {
+            writeEndLines();
+          } // end if text file out open
+        } // end skipping Data check
+      } // end if next line is OUTPUT command
+      recLine.generateOutput(rec);
+    }
+  }
+  
+  /**
+     Is each data record written to its own output file? This is the case 
+     when each data record begins with an OUTPUT command, without any 
+     commands that carry values from one record to the next. Such output 
+     files may be written in parallel, or skipped when unchanged. 
+    
+     @return True if each data record is written to its own output file. 
+   */
+  private boolean isPerRecord () {
+    if (outerLoop 
+        || templateUtil.isTextFileOutOpen()) {
+      return false;
+    }
+    boolean outputFound = false;
+    for (int i = 0; i < recLines.size(); i++) {
+      String command = recLines.get(i).getCommand();
+      if (command.equals (TemplateLine.OUTPUT)) {
+        if (outputFound) {
+          return false;
+        }
+        outputFound = true;
+      }
+      else
+      if ((! outputFound) && (! command.equals (TemplateLine.COMMENT))) {
+        return false;
+      }
+      else
+      if (carriesState (command)) {
+        return false;
+      }
+    }
+    for (int i = 0; i < endLines.size(); i++) {
+      String command = endLines.get(i).getCommand();
+      if (command.equals (TemplateLine.OUTPUT)
+          || carriesState (command)) {
+        return false;
+      }
+    }
+    return outputFound;
+  }
+  
+  /**
+     Does the given command carry values from one data record to the next?
+    
+     @param command The command found on a template line. 
+    
+     @return True if the command depends on, or changes, values held from 
+             one data record to the next. 
+   */
+  private static boolean carriesState (String command) {
+    return (command.equals (TemplateLine.SET)
+        || command.equals (TemplateLine.IFCHANGE)
+        || command.equals (TemplateLine.EPUB)
+        || command.equals (TemplateLine.DEFINEGROUP)
+        || command.equals (TemplateLine.IFENDGROUP)
+        || command.equals (TemplateLine.IFNEWGROUP)
+        || command.equals (TemplateLine.IFENDLIST)
+        || command.equals (TemplateLine.IFNEWLIST));
+  }
+  
+  /**
+     Writes out one output file per data record. When more than one thread
+     is to be used, records are read here, in sequence, and handed to a 
+     pool of threads. When the threads fall behind, this thread writes 
+     output files as well. Each thread has its own copy of the template 
+     utility data. 
+   */
+  private void generatePerRecord () 
+      throws IOException {
+    if (manifest != null) {
+      templateHash = hashTemplate();
+    }
+    final ArrayList<OutputWorker> workers = new ArrayList<OutputWorker>();
+    final ThreadLocal<OutputWorker> threadWorker 
+        = new ThreadLocal<OutputWorker>() {
+      protected OutputWorker initialValue() {
+        OutputWorker worker = new OutputWorker();
+        synchronized (workers) {
+          workers.add (worker);
+        }
+        return worker;
+      }
+    };
+    ThreadPoolExecutor executor = null;
+    if (threads > 1) {
+      executor = new ThreadPoolExecutor 
+          (threads - 1, threads - 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable> (threads * 4),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    outputTrouble = null;
+    try {
+      do {
+        lastRec = dataRec;
+        if (! dataFile.isAtEnd()) {
+          dataRec = dataFile.nextRecordIn ();
+          if (dataRec != null) {
+            final DataRecord rec = dataRec;
+            if (executor == null) {
+              threadWorker.get().generate (rec);
+            } else {
+              executor.execute (new Runnable() {
+                public void run () {
+                  threadWorker.get().generate (rec);
+                }
+              });
+            }
+          }
+        }
+      } while ((! dataFile.isAtEnd()) && outputTrouble == null);
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+        try {
+          executor.awaitTermination (Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    synchronized (workers) {
+      for (int i = 0; i < workers.size(); i++) {
+        templateUtil.addOutputCommandCount 
+            (workers.get(i).util.getOutputCommandCount());
+      }
+    }
+    if (outputTrouble != null) {
+      throw outputTrouble;
+    }
+  }
+  
+  /**
+     Computes a hash of everything in the template that might affect an 
+     output file: the template lines to be written for each record, the 
+     delimiters and global values set by the lines preceding them, and the
+     web root folder. When the template refers to today's date, the date 
+     is included as well. 
+    
+     @return The hash, as a string of hex digits. 
+   */
+  private String hashTemplate () {
+    MessageDigest digest = OutputManifest.newDigest();
+    boolean today = false;
+    for (int i = 0; i < recLines.size(); i++) {
+      String line = recLines.get(i).toString();
+      OutputManifest.update (digest, line);
+      today = today || line.toLowerCase().contains (TemplateUtil.TODAYS_DATE_VARIABLE);
+    }
+    OutputManifest.update (digest, TemplateLine.LOOP);
+    for (int i = 0; i < endLines.size(); i++) {
+      String line = endLines.get(i).toString();
+      OutputManifest.update (digest, line);
+      today = today || line.toLowerCase().contains (TemplateUtil.TODAYS_DATE_VARIABLE);
+    }
+    OutputManifest.update (digest, templateUtil.getNlStartCommand());
+    OutputManifest.update (digest, templateUtil.getNlEndCommand());
+    OutputManifest.update (digest, templateUtil.getNlStartVariable());
+    OutputManifest.update (digest, templateUtil.getNlEndVariable());
+    OutputManifest.update (digest, templateUtil.getNlStartModifiers());
+    OutputManifest.update (digest, templateUtil.getGlobals());
+    if (templateUtil.getWebRoot() != null) {
+      OutputManifest.update 
+          (digest, templateUtil.getWebRoot().getAbsolutePath());
+    }
+    if (today) {
+      GregorianCalendar calendar = new GregorianCalendar();
+      OutputManifest.update (digest, String.valueOf (calendar.get (Calendar.YEAR))
+          + "-" + String.valueOf (calendar.get (Calendar.DAY_OF_YEAR)));
+    }
+    return OutputManifest.toHex (digest);
+  }
+  
   /**
      Writes out the last lines in the template 
      (the ones following the LOOP command) each time that 
@@ -597,4 +886,79 @@ public class Template {
     return ("Template Text File Name is "
       + templateUtil.getTemplateFileName());
   }
+  
+  /**
+     Writes output files on one thread, using its own copies of the 
+     template utility data and of the template lines. 
+   */
+  private class OutputWorker {
+    
+    private TemplateUtil            util;
+    private ArrayList<TemplateLine> lines = new ArrayList<TemplateLine>();
+    private ArrayList<TemplateLine> lastLines = new ArrayList<TemplateLine>();
+    private TemplateLine            outputLine = null;
+    
+    OutputWorker () {
+      util = templateUtil.copyForOutput();
+      for (int i = 0; i < recLines.size(); i++) {
+        TemplateLine line = new TemplateLine (recLines.get(i), util);
+        if (line.getCommand().equals (TemplateLine.OUTPUT)) {
+          outputLine = line;
+        }
+        lines.add (line);
+      }
+      for (int i = 0; i < endLines.size(); i++) {
+        lastLines.add (new TemplateLine (endLines.get(i), util));
+      }
+    }
+    
+    /**
+       Writes the output file for one data record, including the last 
+       lines in the template, unless the manifest shows that the output 
+       file has not changed. 
+      
+       @param rec The data record. 
+     */
+    void generate (DataRecord rec) {
+      if (outputTrouble != null) {
+        return;
+      }
+      try {
+        String outputPath = null;
+        String inputHash = null;
+        if (manifest != null) {
+          outputPath = util.resolveOutputName (outputLine.getOutputName (rec));
+          MessageDigest digest = OutputManifest.newDigest();
+          OutputManifest.update (digest, templateHash);
+          OutputManifest.update (digest, rec);
+          inputHash = OutputManifest.toHex (digest);
+          if (manifest.isCurrent (outputPath, inputHash)) {
+            // The OUTPUT command still counts, though its file is skipped
+            util.addOutputCommandCount (1);
+            return;
+          }
+        }
+        util.resetGroupBreaks();
+        util.clearIfs();
+        util.setListItemPending (false);
+        for (int i = 0; i < lines.size(); i++) {
+          lines.get(i).generateOutput (rec);
+        }
+        if (util.isTextFileOutOpen()) {
+          util.setSkippingData (false);
+          for (int i = 0; i < lastLines.size(); i++) {
+            lastLines.get(i).generateOutput (rec);
+          }
+          util.close();
+          if (manifest != null) {
+            manifest.recordOutput 
+                (outputPath, inputHash, util.getIncludedFiles());
+          }
+        }
+      } catch (RuntimeException e) {
+        outputTrouble = e;
+      }
+    }
+  }
+  
 }
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.template;
+
+  import com.powersurgepub.pstextio.*;
+  import java.io.*;
+  import java.util.*;
+
+/**
+ A cache of the lines of template and include files, along with their
+ compiled forms, so that templates run again and again need not be read
+ from disk or parsed each time.
+ <p>
+ Each file is cached under its absolute path, plus a variant string
+ describing any conversion applied to it, as when a Markdown include file
+ is converted to HTML. A cached file is used only as long as the file's
+ last modified time and size stay the same. Once the cache holds more than
+ its maximum number of bytes, the least recently used files are dropped.
+ <p>
+ A single cache is normally shared by all templates in the process.
+
+ @author Herb Bowie
+ */
+public class TemplateCache {
+
+  /** Default maximum size of the cache, in bytes. */
+  public static final long    DEFAULT_MAX_BYTES = 16L * 1024L * 1024L;
+
+  /** Approximate overhead for each cached line, in bytes. */
+  private static final int    LINE_OVERHEAD = 48;
+
+  private static TemplateCache shared = null;
+
+  /** Cached files, with the least recently used first. */
+  private    LinkedHashMap<String, Entry> entries
+      = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+  private    long             maxBytes = DEFAULT_MAX_BYTES;
+  private    long             bytes = 0;
+  private    int              hits = 0;
+  private    int              misses = 0;
+
+  /**
+   Return the cache shared by all templates.
+
+   @return The shared cache.
+  */
+  public static synchronized TemplateCache getShared() {
+    if (shared == null) {
+      shared = new TemplateCache();
+    }
+    return shared;
+  }
+
+  /**
+   Construct an empty cache with the default maximum size.
+  */
+  public TemplateCache() {
+
+  }
+
+  /**
+   Set the maximum number of bytes to be held in the cache. Setting this
+   to zero turns caching off.
+
+   @param maxBytes The approximate maximum size of the cache, in bytes.
+  */
+  public synchronized void setMaxBytes (long maxBytes) {
+    this.maxBytes = maxBytes;
+    trim();
+  }
+
+  public synchronized long getMaxBytes () {
+    return maxBytes;
+  }
+
+  /**
+   Return the approximate number of bytes now held in the cache.
+
+   @return The cache's current size.
+  */
+  public synchronized long getBytes () {
+    return bytes;
+  }
+
+  /**
+   Return the number of files now held in the cache.
+
+   @return The number of cached files.
+  */
+  public synchronized int size () {
+    return entries.size();
+  }
+
+  /**
+   Return the number of times a cached file was found and still current.
+
+   @return The number of cache hits.
+  */
+  public synchronized int getHits () {
+    return hits;
+  }
+
+  /**
+   Return the number of times a file was not found in the cache, or had
+   changed since being cached.
+
+   @return The number of cache misses.
+  */
+  public synchronized int getMisses () {
+    return misses;
+  }
+
+  /**
+   Drop all files from the cache.
+  */
+  public synchronized void clear () {
+    entries.clear();
+    bytes = 0;
+  }
+
+  /**
+   Return a cached file, if it has not changed since it was cached.
+
+   @param file    The file.
+   @param variant Describes any conversion applied to the file's contents.
+
+   @return The cached file, or null if the file must be read again.
+  */
+  synchronized Entry get (File file, String variant) {
+    String key = keyOf (file, variant);
+    Entry entry = entries.get (key);
+    if (entry != null
+        && entry.lastModified == file.lastModified()
+        && entry.length == file.length()) {
+      hits++;
+      return entry;
+    }
+    if (entry != null) {
+      entries.remove (key);
+      bytes = bytes - entry.bytes;
+    }
+    misses++;
+    return null;
+  }
+
+  /**
+   Read all the lines from a reader and add them to the cache. The file's
+   last modified time and size should be obtained before the file is read,
+   so that any later change to the file will be seen.
+
+   @param file         The file.
+   @param variant      Describes any conversion applied to the contents.
+   @param lastModified The file's last modified time.
+   @param length       The file's size.
+   @param reader       The source of the lines, not yet opened.
+
+   @return The newly cached file, or null if the lines could not all be
+           read. The entry is returned even if the cache is too small to
+           keep it.
+  */
+  Entry put (File file, String variant, long lastModified, long length,
+      TextLineReader reader) {
+    if (! reader.open()) {
+      return null;
+    }
+    ArrayList<String> lines = new ArrayList<String>();
+    String line = reader.readLine();
+    while (! reader.isAtEnd()) {
+      lines.add (line);
+      line = reader.readLine();
+    }
+    boolean ok = reader.isOK();
+    reader.close();
+    if (! ok) {
+      return null;
+    }
+    Entry entry = new Entry (lastModified, length,
+        lines.toArray (new String [lines.size()]));
+    synchronized (this) {
+      if (maxBytes > 0) {
+        Entry replaced = entries.put (keyOf (file, variant), entry);
+        if (replaced != null) {
+          bytes = bytes - replaced.bytes;
+        }
+        bytes = bytes + entry.bytes;
+        trim();
+      }
+    }
+    return entry;
+  }
+
+  /**
+   Drop the least recently used files until the cache is within its
+   maximum size.
+  */
+  private void trim () {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (bytes > maxBytes && iterator.hasNext()) {
+      Entry eldest = iterator.next();
+      iterator.remove();
+      bytes = bytes - eldest.bytes;
+    }
+  }
+
+  private static String keyOf (File file, String variant) {
+    return file.getAbsolutePath() + '\n' + variant;
+  }
+
+  /**
+   The cached lines of one file, each with a compiled form, filled in
+   as the lines are first used.
+  */
+  static class Entry {
+
+    private long     lastModified;
+    private long     length;
+    private String[] lines;
+    private Object[] compiled;
+    private long     bytes = 0;
+
+    Entry (long lastModified, long length, String[] lines) {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.lines = lines;
+      compiled = new Object [lines.length];
+      for (int i = 0; i < lines.length; i++) {
+        bytes = bytes + (lines [i].length() * 2) + LINE_OVERHEAD;
+      }
+    }
+
+    /**
+     Return the number of lines in the file.
+    */
+    int size () {
+      return lines.length;
+    }
+
+    /**
+     Return one line from the file.
+
+     @param index The index of the line, starting with zero.
+    */
+    String getLine (int index) {
+      return lines [index];
+    }
+
+    /**
+     Return the compiled form last saved for a line, which the caller must
+     check is still suited to its use.
+
+     @param index The index of the line, starting with zero.
+
+     @return The compiled line, or null if none has been saved.
+    */
+    synchronized Object getCompiled (int index) {
+      return compiled [index];
+    }
+
+    /**
+     Save the compiled form of a line.
+
+     @param index    The index of the line, starting with zero.
+     @param compiled The compiled line.
+    */
+    synchronized void setCompiled (int index, Object compiled) {
+      this.compiled [index] = compiled;
+    }
+
+    /**
+     Return a line of text, compiled using the given delimiters.
+
+     @param index          The index of the line, starting with zero.
+     @param startVariable  The delimiter marking the start of a variable.
+     @param endVariable    The delimiter marking the end of a variable.
+     @param startModifiers The delimiter marking the start of any
+                           variable modifiers.
+
+     @return The compiled line.
+    */
+    CompiledText compileLine (int index,
+        String startVariable, String endVariable, String startModifiers) {
+      Object saved = getCompiled (index);
+      if (saved instanceof CompiledText
+          && ((CompiledText)saved).isCompiledFrom (lines [index],
+              startVariable, endVariable, startModifiers)) {
+        return (CompiledText)saved;
+      }
+      CompiledText compiledText = new CompiledText (lines [index],
+          startVariable, endVariable, startModifiers);
+      setCompiled (index, compiledText);
+      return compiledText;
+    }
+
+  }
+
+}
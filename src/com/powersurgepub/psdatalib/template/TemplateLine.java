@@ -201,6 +201,15 @@ public class TemplateLine {
   private  CommonMarkup      htmlConverter     = new CommonMarkup ("txt", "html");
   
   private  boolean           lineBreak = true;
+  
+  /** This line, compiled for generation. */
+  private  Compiled          compiled = null;
+  
+  /** The cached template file this line came from, if any. */
+  private  TemplateCache.Entry sourceEntry = null;
+  
+  /** The index of this line within the cached template file. */
+  private  int               sourceIndex = 0;
 
   /**
      Constructs a TemplateLine, determining the type of line
@@ -277,6 +286,32 @@ public class TemplateLine {
     }
   } // end TemplateLine constructor
   
+  /**
+     Constructs a copy of a TemplateLine, for generating output using
+     another collection of template utility data, as on another thread. 
+     The copy shares the original line's compiled form. 
+    
+     @param original     The line to be copied. 
+     @param templateUtil The template utility data to be used by the copy.
+   */
+  TemplateLine (TemplateLine original, TemplateUtil templateUtil) {
+    this.templateUtil = templateUtil;
+    globals = templateUtil.getGlobals();
+    operandDef     = new DataFieldDefinition ("operand");
+    startCommand   = original.startCommand;
+    endCommand     = original.endCommand;
+    startVariable  = original.startVariable;
+    endVariable    = original.endVariable;
+    startModifiers = original.startModifiers;
+    lineString     = original.lineString;
+    commandString  = original.commandString;
+    commandLine    = original.commandLine;
+    command        = original.command;
+    compiled       = original.compiled;
+    sourceEntry    = original.sourceEntry;
+    sourceIndex    = original.sourceIndex;
+  }
+  
   /**
      Generates the output associated with a TemplateLine. 
      For an output command, this will consist of closing the current 
@@ -293,18 +328,22 @@ public class TemplateLine {
   public void generateOutput (DataRecord dataRec) {
 
     String outString = lineString;
+    if (compiled == null 
+        || (! compiled.isCompiledWith (templateUtil))) {
+      compile();
+    }
+    CompiledText[] compiledOperands = compiled.operands;
+    int groupNumber = compiled.groupNumber;
     
     // now do something to the output file
     if (this.isCommandLine()) {
-      String operands = outString.substring
-        ((startCommand.length() + this.command.length()), 
-          (outString.length() - endCommand.length())).trim();
       templateUtil.tailorEvent (LogEvent.NORMAL,
         "Processing " + command + " Command", true);
-      StringScanner operandScanner = new StringScanner (operands);
+      int operandIndex = 0;
       
       // DELIMS Command
       if (this.command.equals (DELIMS)) {
+        StringScanner operandScanner = new StringScanner (getOperands());
         templateUtil.recordEvent();
         int delimsCount = 1;
         while (operandScanner.moreChars()) {
@@ -346,7 +385,7 @@ public class TemplateLine {
         if (! templateUtil.isSkippingData()) {
           // templateUtil.recordEvent();
           templateUtil.setTextFileOutName 
-              (replaceVarsInOperand (operandScanner, dataRec));
+              (replaceVarsInOperand (0, dataRec));
         } // end skippingData test
       } // end output command processing
       else
@@ -354,8 +393,8 @@ public class TemplateLine {
       // INCLUDE Command
       if (this.command.equals (INCLUDE)) {
         if (! templateUtil.isSkippingData()) {
-          String includeFile = replaceVarsInOperand (operandScanner, dataRec);
-          String includeParm = replaceVarsInOperand (operandScanner, dataRec);
+          String includeFile = replaceVarsInOperand (0, dataRec);
+          String includeParm = replaceVarsInOperand (1, dataRec);
           templateUtil.includeFile (includeFile, includeParm, dataRec);
         } // end skippingData test
       } // end include command processing
@@ -364,7 +403,7 @@ public class TemplateLine {
       // EPUB Command
       if (this.command.equals (EPUB)) {
         templateUtil.setEpub (true);
-        templateUtil.setEpubSite (replaceVarsInOperand (operandScanner, dataRec));
+        templateUtil.setEpubSite (replaceVarsInOperand (0, dataRec));
       }
       else
         
@@ -390,9 +429,10 @@ public class TemplateLine {
           DataField operand2 = new DataField (operandDef, "");
           int opCount = 0;
           boolean ifResult = false;
-          while (operandScanner.moreChars()) {
+          while (operandIndex < compiledOperands.length) {
             String op 
-              = replaceVarsInOperand (operandScanner, dataRec);
+              = replaceVarsInOperand (operandIndex, dataRec);
+            operandIndex++;
             opCount++;
             
             // If first operand looks like a logical operator,
@@ -483,7 +523,7 @@ public class TemplateLine {
           templateUtil.anotherIf();
         } else {
           templateUtil.setIfChangeData 
-              (replaceVarsInOperand (operandScanner, dataRec));
+              (replaceVarsInOperand (0, dataRec));
         }
       } // end ifchange command processing
       else
@@ -495,9 +535,10 @@ public class TemplateLine {
           String global = "";
           DataField operand1 = new DataField (operandDef, "");
           int opCount = 0;
-          while (operandScanner.moreChars()) {
+          while (operandIndex < compiledOperands.length) {
             String op 
-              = replaceVarsInOperand (operandScanner, dataRec);
+              = replaceVarsInOperand (operandIndex, dataRec);
+            operandIndex++;
             opCount++;
             switch (opCount) {
               case 1:
@@ -553,13 +594,9 @@ public class TemplateLine {
       // DEFINEGROUP Command
       if (this.command.equals (DEFINEGROUP)) {
         templateUtil.clearIfs();
-				int groupNumber = 0;
 				String groupValue = "";
-				if (operandScanner.moreChars()) {
-					groupNumber = operandScanner.extractInteger(templateUtil.MAX_GROUPS); 
-        }
-				if (operandScanner.moreChars()) {
-					groupValue = replaceVarsInOperand (operandScanner, dataRec);
+				if (compiledOperands.length > 0) {
+					groupValue = replaceVarsInOperand (0, dataRec);
 				}
 				if ((groupNumber > 0) && (groupNumber <= templateUtil.MAX_GROUPS)) {
 					templateUtil.setGroup (groupNumber - 1, groupValue);
@@ -570,10 +607,6 @@ public class TemplateLine {
       // IFENDGROUP Command
       if (this.command.equals (IFENDGROUP)) {
         templateUtil.clearIfs();
-        int groupNumber = 0;
-        if (operandScanner.moreChars()) {
-          groupNumber = operandScanner.extractInteger(templateUtil.MAX_GROUPS); 
-        }
         if ((groupNumber > 0) && (groupNumber <= templateUtil.MAX_GROUPS)) {
           templateUtil.setIfEndGroup (groupNumber - 1);
         }
@@ -583,10 +616,6 @@ public class TemplateLine {
       // IFNEWGROUP Command
       if (this.command.equals (IFNEWGROUP)) {
         templateUtil.clearIfs();
-        int groupNumber = 0;
-        if (operandScanner.moreChars()) {
-          groupNumber = operandScanner.extractInteger(templateUtil.MAX_GROUPS); 
-        }
         if ((groupNumber > 0) && (groupNumber <= templateUtil.MAX_GROUPS)) {
           templateUtil.setIfNewGroup (groupNumber - 1);
         }
@@ -596,10 +625,6 @@ public class TemplateLine {
       // IFENDLIST Command
       if (this.command.equals (IFENDLIST)) {
         templateUtil.clearIfs();
-        int groupNumber = 0;
-        if (operandScanner.moreChars()) {
-          groupNumber = operandScanner.extractInteger(templateUtil.MAX_GROUPS); 
-        }
         if ((groupNumber > 0) && (groupNumber <= templateUtil.MAX_GROUPS)) {
           templateUtil.setIfEndList (groupNumber - 1);
         }
@@ -609,10 +634,6 @@ public class TemplateLine {
       // IFNEWLIST Command
       if (this.command.equals (IFNEWLIST)) {
         templateUtil.clearIfs();
-        int groupNumber = 0;
-        if (operandScanner.moreChars()) {
-          groupNumber = operandScanner.extractInteger(templateUtil.MAX_GROUPS); 
-        }
         if ((groupNumber > 0) && (groupNumber <= templateUtil.MAX_GROUPS)) {
           templateUtil.setIfNewList (groupNumber - 1);
         }
@@ -626,8 +647,8 @@ public class TemplateLine {
         // do nothing
       }
       else {
-        LineWithBreak lineWithBreak = templateUtil.replaceVariables
-            (new StringBuilder(outString), dataRec);
+        LineWithBreak lineWithBreak 
+            = compiled.line.generate (templateUtil, dataRec);
         if (lineWithBreak.getLineBreak()) {
           templateUtil.writeLine (lineWithBreak.getLine());
         } else {
@@ -638,18 +659,76 @@ public class TemplateLine {
   } // end generateOutput method
   
   /**
-   Get next quoted string from StringScanner, then replace any variables
-   found within. 
+   Note the cached template file this line came from, so that the line's
+   compiled form can be saved with it, and reused whenever the template 
+   is generated again. 
   
-   @param opScanner The string to be scanned for the next operand. 
-   @param dataRec   The data record containing the variable values. 
+   @param sourceEntry The cached template file. 
+   @param sourceIndex The index of this line within the file. 
+  */
+  void setSource (TemplateCache.Entry sourceEntry, int sourceIndex) {
+    this.sourceEntry = sourceEntry;
+    this.sourceIndex = sourceIndex;
+  }
+  
+  /**
+   Compile this line, so that it may be generated for any number of 
+   records without being parsed again, or find the line already compiled
+   in the cached template file it came from. 
+  */
+  private void compile() {
+    if (sourceEntry != null) {
+      Object saved = sourceEntry.getCompiled (sourceIndex);
+      if (saved instanceof Compiled
+          && ((Compiled)saved).isCompiledFor (this, templateUtil)) {
+        compiled = (Compiled)saved;
+        return;
+      }
+    }
+    compiled = new Compiled (this, templateUtil);
+    if (sourceEntry != null) {
+      sourceEntry.setCompiled (sourceIndex, compiled);
+    }
+  }
+  
+  /**
+   Return the operands of a command line, following the command itself.
   
-   @return The next operand, with variable replacements completed. 
+   @return The command's operands, as they appear in the template. 
   */
-  private String replaceVarsInOperand(StringScanner opScanner, DataRecord dataRec) {
-    LineWithBreak lineWithBreak = templateUtil.replaceVariables (
-        new StringBuilder(opScanner.extractQuotedString()),
-        dataRec);
+  private String getOperands() {
+    return lineString.substring
+        ((startCommand.length() + this.command.length()), 
+          (lineString.length() - endCommand.length())).trim();
+  }
+  
+  /**
+   Return the name of the output file that this output command would 
+   open for the given record, without opening it. 
+  
+   @param dataRec The data record containing the variable values. 
+  
+   @return The output file name, with variable replacements completed. 
+  */
+  String getOutputName (DataRecord dataRec) {
+    if (compiled == null 
+        || (! compiled.isCompiledWith (templateUtil))) {
+      compile();
+    }
+    return replaceVarsInOperand (0, dataRec);
+  }
+  
+  /**
+   Get one of the command's operands, with any variables replaced. 
+  
+   @param operandIndex The index of the operand, starting with zero. 
+   @param dataRec      The data record containing the variable values. 
+  
+   @return The operand, with variable replacements completed. 
+  */
+  private String replaceVarsInOperand(int operandIndex, DataRecord dataRec) {
+    LineWithBreak lineWithBreak 
+        = compiled.operands [operandIndex].generate (templateUtil, dataRec);
     return lineWithBreak.getLine();
   }
   
@@ -676,4 +755,130 @@ public class TemplateLine {
     return lineString;
   }
   
+  /**
+   A template line, compiled for generation. A non-command line is split 
+   into its literal text and variables. A command line has its operands 
+   extracted, each compiled in the same way, and any group number 
+   extracted. Once built, a compiled line is not changed, and may be 
+   shared by any template generated from the same template file. 
+  */
+  private static class Compiled {
+    
+    /** The line and variable delimiters this was compiled from. */
+    private  String            lineString;
+    private  String            command;
+    private  String            startVariable;
+    private  String            endVariable;
+    private  String            startModifiers;
+    
+    /** A non-command line, compiled for generation. */
+    private  CompiledText      line = null;
+    
+    /** The operands of a command line, each compiled for generation. */
+    private  CompiledText[]    operands = new CompiledText[0];
+    
+    /** The group number found on a group command. */
+    private  int               groupNumber = 0;
+    
+    /**
+     Compile a template line, using the variable delimiters now in effect.
+    
+     @param templateLine The line to be compiled. 
+     @param templateUtil The template utility data now in effect. 
+    */
+    Compiled (TemplateLine templateLine, TemplateUtil templateUtil) {
+      lineString     = templateLine.lineString;
+      command        = templateLine.command;
+      startVariable  = templateUtil.getNlStartVariable();
+      endVariable    = templateUtil.getNlEndVariable();
+      startModifiers = templateUtil.getNlStartModifiers();
+      if (! templateLine.isCommandLine()) {
+        line = compileText (lineString);
+        return;
+      }
+      StringScanner operandScanner 
+          = new StringScanner (templateLine.getOperands());
+      ArrayList<CompiledText> operandList = new ArrayList<CompiledText>();
+      if (command.equals (OUTPUT)
+          || command.equals (EPUB)
+          || command.equals (IFCHANGE)) {
+        operandList.add (compileText (operandScanner.extractQuotedString()));
+      }
+      else
+      if (command.equals (INCLUDE)) {
+        operandList.add (compileText (operandScanner.extractQuotedString()));
+        operandList.add (compileText (operandScanner.extractQuotedString()));
+      }
+      else
+      if (command.equals (IF)
+          || command.equals (SET)) {
+        while (operandScanner.moreChars()) {
+          operandList.add 
+              (compileText (operandScanner.extractQuotedString()));
+        }
+      }
+      else
+      if (command.equals (DEFINEGROUP)
+          || command.equals (IFENDGROUP)
+          || command.equals (IFNEWGROUP)
+          || command.equals (IFENDLIST)
+          || command.equals (IFNEWLIST)) {
+        if (operandScanner.moreChars()) {
+          groupNumber 
+              = operandScanner.extractInteger(TemplateUtil.MAX_GROUPS); 
+        }
+        if (command.equals (DEFINEGROUP)
+            && operandScanner.moreChars()) {
+          operandList.add 
+              (compileText (operandScanner.extractQuotedString()));
+        }
+      }
+      operands = operandList.toArray (new CompiledText [operandList.size()]);
+    }
+    
+    /**
+     Compile text using the variable delimiters in effect. 
+    
+     @param text The text to be compiled. 
+    
+     @return The compiled text. 
+    */
+    private CompiledText compileText (String text) {
+      return new CompiledText (text, 
+          startVariable, endVariable, startModifiers);
+    }
+    
+    /**
+     Was this compiled using the variable delimiters now in effect? The 
+     line is compiled again if the delimiters are later changed by a 
+     DELIMS command. 
+    
+     @param templateUtil The template utility data now in effect. 
+    
+     @return True if this compiled line may still be used. 
+    */
+    boolean isCompiledWith (TemplateUtil templateUtil) {
+      return (templateUtil.getNlStartVariable().equals (startVariable)
+          && templateUtil.getNlEndVariable().equals (endVariable)
+          && templateUtil.getNlStartModifiers().equals (startModifiers));
+    }
+    
+    /**
+     Can this be used to generate the given line, using the variable 
+     delimiters now in effect? 
+    
+     @param templateLine The line to be generated. 
+     @param templateUtil The template utility data now in effect. 
+    
+     @return True if this compiled line may be used. 
+    */
+    boolean isCompiledFor (TemplateLine templateLine, 
+        TemplateUtil templateUtil) {
+      return (isCompiledWith (templateUtil)
+          && templateLine.command.equals (command)
+          && templateLine.lineString.equals (lineString));
+    }
+    
+  }
+  
 } // enc class TemplateLine
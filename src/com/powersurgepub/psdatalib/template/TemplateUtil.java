@@ -99,6 +99,13 @@ public class TemplateUtil {
   /** Work area for any event to be logged. */
   private    LogEvent    event;
   
+  /** 
+     Converts Markdown to HTML for this output. Each copy made for another 
+     thread has its own converter, since a converter may not be shared 
+     between threads. 
+   */
+  private    MdToHTML    mdToHTML = null;
+  
   /** Simple file name for the template file. */
   private    String         templateFileSimpleName;
   
@@ -112,6 +119,15 @@ public class TemplateUtil {
   // private    XTextFile       templateFile;
   private    TextLineReader  templateFile;
   
+  /** Cache of template and include files. */
+  private    TemplateCache  templateCache = TemplateCache.getShared();
+  
+  /** The template file's lines, if taken from the cache. */
+  private    TemplateCache.Entry templateEntry = null;
+  
+  /** Index of the next line to be taken from the cached template. */
+  private    int            templateLineIndex = 0;
+  
   /** Did the template file open successfully? */
   private    boolean        templateFileOK;
   
@@ -165,6 +181,9 @@ public class TemplateUtil {
   /** Number of times an output text file was successfully opened. */
   private    int         outputCommandCount = 0;
   
+  /** Include files used in writing the current output file. */
+  private    ArrayList<File> includedFiles = new ArrayList<File>();
+  
   /** Current settings for delimiters to indicate the start of a command. */
   private    String       nlStartCommand = "<<";
   
@@ -242,6 +261,44 @@ public class TemplateUtil {
     // io.logTypes();
   }
   
+  /**
+     Returns a new utility collection for generating output files on 
+     another thread. The new collection starts out with the same template, 
+     data file, delimiters, web root, epub settings and template cache 
+     as this one, and with its own copy of the global variables, but with
+     no output file and no groups or conditions in progress. 
+    
+     @return A new utility collection. 
+   */
+  public TemplateUtil copyForOutput () {
+    TemplateUtil copy = new TemplateUtil (log);
+    copy.templateFileSimpleName = templateFileSimpleName;
+    copy.templateFilePathAndName = templateFilePathAndName;
+    copy.templateFileSpec = templateFileSpec;
+    copy.templateFileName = templateFileName;
+    copy.templateFilePath = templateFilePath;
+    copy.templateParent = templateParent;
+    copy.firstTemplateLine = false;
+    copy.dataFileDisplay = dataFileDisplay;
+    copy.dataFileBaseName = dataFileBaseName;
+    copy.dataParent = dataParent;
+    copy.dataParentFolder = dataParentFolder;
+    copy.setWebRoot (webRootFile);
+    copy.nlStartCommand = nlStartCommand;
+    copy.nlEndCommand = nlEndCommand;
+    copy.nlStartVariable = nlStartVariable;
+    copy.nlEndVariable = nlEndVariable;
+    copy.nlStartModifiers = nlStartModifiers;
+    copy.epub = epub;
+    copy.epubSite = epubSite;
+    copy.templateCache = templateCache;
+    for (int i = 0; i < globals.getNumberOfFields(); i++) {
+      DataField global = globals.getField (i);
+      copy.globals.addField (new DataField (global.getDef(), global.getData()));
+    }
+    return copy;
+  }
+  
   public void setWebRoot (File webRootFile) {
     this.webRootFile = webRootFile;
     if (webRootFile == null) {
@@ -303,9 +360,26 @@ public class TemplateUtil {
   
   /**
      Send an event to the log. It should have been tailored previously.
+     Copies made for other threads share the log, so events are sent to
+     it one at a time. 
    */
   public void recordEvent () {
-    log.recordEvent (event);
+    synchronized (log) {
+      log.recordEvent (event);
+    }
+  }
+  
+  /**
+     Returns the converter to be used to convert Markdown to HTML for this
+     output. 
+    
+     @return The Markdown converter. 
+   */
+  MdToHTML getMdToHTML () {
+    if (mdToHTML == null) {
+      mdToHTML = new MdToHTML();
+    }
+    return mdToHTML;
   }
   
   /**
@@ -328,13 +402,41 @@ public class TemplateUtil {
     return textFileOut;
   }
   
+  /**
+   Set the cache to be used for template and include files. 
+  
+   @param templateCache The cache to be used, or null to read the files 
+                        each time. 
+  */
+  public void setTemplateCache (TemplateCache templateCache) {
+    this.templateCache = templateCache;
+  }
+  
+  public TemplateCache getTemplateCache () {
+    return templateCache;
+  }
+  
   public boolean openTemplate (File inTemplateFileSpec) {
     
     templateFileSpec = inTemplateFileSpec;
     // templateUtil.setTemplateFileName (templateFileSpec.getAbsolutePath());
-    templateFile = new FileLineReader (templateFileSpec);
-
-    templateFileOK = templateFile.open();
+    templateEntry = null;
+    templateLineIndex = 0;
+    if (templateCache != null && templateFileSpec.exists()) {
+      templateEntry = templateCache.get (templateFileSpec, "");
+      if (templateEntry == null) {
+        templateEntry = templateCache.put (templateFileSpec, "", 
+            templateFileSpec.lastModified(), templateFileSpec.length(), 
+            new FileLineReader (templateFileSpec));
+      }
+    }
+    if (templateEntry != null) {
+      templateFile = null;
+      templateFileOK = true;
+    } else {
+      templateFile = new FileLineReader (templateFileSpec);
+      templateFileOK = templateFile.open();
+    }
     templateFilePathAndName = inTemplateFileSpec.getAbsolutePath();
     templateFileSimpleName = inTemplateFileSpec.getName();
     setTemplateFileName (templateFileSimpleName);
@@ -379,15 +481,26 @@ public class TemplateUtil {
     TemplateLine  nextLine = null;
     
     do {
-      nextString = templateFile.readLine();
-      if (templateFile.isAtEnd()) {
-        templateFileAtEnd = true;
+      if (templateEntry != null) {
+        if (templateLineIndex >= templateEntry.size()) {
+          templateFileAtEnd = true;
+        } else {
+          nextLine = new TemplateLine 
+              (templateEntry.getLine (templateLineIndex), this);
+          nextLine.setSource (templateEntry, templateLineIndex);
+          templateLineIndex++;
+        }
       } else {
-        nextLine = new TemplateLine (nextString, this);
+        nextString = templateFile.readLine();
+        if (templateFile.isAtEnd()) {
+          templateFileAtEnd = true;
+        } else {
+          nextLine = new TemplateLine (nextString, this);
+        }
       }
     } while (nextLine == null && (! templateFileAtEnd));
     
-    if (! templateFile.isOK()) {
+    if (templateFile != null && (! templateFile.isOK())) {
       templateFileOK = false;
     }
     
@@ -399,7 +512,10 @@ public class TemplateUtil {
   
   public boolean closeTemplateFile() {
 
-    templateFileOK = templateFile.close();
+    if (templateFile != null) {
+      templateFileOK = templateFile.close();
+    }
+    templateEntry = null;
 
     return templateFileOK;
   }
@@ -797,9 +913,9 @@ public class TemplateUtil {
   public void setTextFileOutName (String textFileOutName) {
     this.textFileOutName = new FileName (textFileOutName, FileName.FILE_TYPE);
     close();
+    includedFiles = new ArrayList<File>();
     if (! textFileOutName.startsWith ("/")) {
-      FileName path = new FileName (templateFilePath);
-      this.textFileOutName = new FileName (path.resolveRelative(textFileOutName));
+      this.textFileOutName = new FileName (resolveOutputName (textFileOutName));
     }
     if (this.webRootFile == null) {
       relativePathToRoot = null;
@@ -827,6 +943,33 @@ public class TemplateUtil {
     }
   } // end method setTextFileOutName
   
+  /**
+   Return the full path of an output file, resolving a relative name against
+   the location of the template file. 
+  
+   @param textFileOutName Name of the output text file, as it appears on 
+                          the output command. 
+  
+   @return The full path of the output file. 
+  */
+  public String resolveOutputName (String textFileOutName) {
+    if (textFileOutName.startsWith ("/")) {
+      return textFileOutName;
+    } else {
+      FileName path = new FileName (templateFilePath);
+      return path.resolveRelative(textFileOutName);
+    }
+  }
+  
+  /**
+   Return the include files used so far in writing the current output file. 
+  
+   @return The include files, in the order in which they were included. 
+  */
+  List<File> getIncludedFiles () {
+    return includedFiles;
+  }
+  
   /**
    Return the path to the web root folder relative to the current output file. 
   
@@ -887,6 +1030,10 @@ public class TemplateUtil {
       recordEvent (LogEvent.MEDIUM, 
           "File " + includeFile.toString() + " not found", false);
     } else {
+      
+      if (incFile != null) {
+        includedFiles.add (incFile);
+      }
 
       // See if include file should be converted
       FileName includeFileName = new FileName (includeFile.toString());
@@ -895,7 +1042,21 @@ public class TemplateUtil {
       String outExt = textFileOutFileName.getExt();
       TextIOType inType = io.getType (inExt, "Input", false);
       TextIOType outType = io.getType (outExt, "Output", true);
-      if ((includeParm == null
+      
+      // See if the include file, as converted, is already in the cache
+      String variant = outExt + "\n" + includeParm 
+          + "\n" + String.valueOf (epub) + "\n" + epubSite;
+      TemplateCache.Entry includeEntry = null;
+      long includeModified = 0;
+      long includeLength = 0;
+      if (templateCache != null && incFile != null) {
+        includeModified = incFile.lastModified();
+        includeLength = incFile.length();
+        includeEntry = templateCache.get (incFile, variant);
+      }
+      
+      if (includeEntry == null
+          && (includeParm == null
           || includeParm.length() == 0
           || (! includeParm.equalsIgnoreCase(INCLUDE_COPY)))
           && inExt.length() > 0
@@ -917,7 +1078,7 @@ public class TemplateUtil {
               md.append(GlobalConstants.LINE_FEED);
             }
           } 
-          String html = MdToHTML.getShared().markdownToHtml(md.toString());
+          String html = getMdToHTML().markdownToHtml(md.toString());
           TextLineReader htmlReader = new StringLineReader(html);
           includeFile = htmlReader;
         }
@@ -1010,25 +1171,45 @@ public class TemplateUtil {
         } // end try
       } // end if using a pspub routine
  
-      boolean inOK = includeFile.open();
-      if (inOK) {
-        String includeLine = includeFile.readLine(); 
-        while (! includeFile.isAtEnd()) { 
-          LineWithBreak lineWithBreak = replaceVariables
-            (new StringBuilder(includeLine), dataRec);
+      if (includeEntry == null && templateCache != null && incFile != null) {
+        includeEntry = templateCache.put 
+            (incFile, variant, includeModified, includeLength, includeFile);
+      }
+      
+      if (includeEntry != null) {
+        for (int i = 0; i < includeEntry.size(); i++) {
+          LineWithBreak lineWithBreak = includeEntry.compileLine 
+              (i, nlStartVariable, nlEndVariable, nlStartModifiers)
+                .generate (this, dataRec);
           if (lineWithBreak.getLineBreak()) {
             writeLine (lineWithBreak.getLine());
           } else {
             write (lineWithBreak.getLine());
           }
-          includeLine = includeFile.readLine(); 
-        } 
-        includeFile.close(); 
-      } else {
-        recordEvent (LogEvent.MEDIUM, 
-          "Attempt to Open Include File " + includeFileNameStr + " was unsuccessful",
-            true);
-      } 
+        }
+      }
+      else {
+        // Read the file directly, if it could not be cached
+        boolean inOK = includeFile.open();
+        if (inOK) {
+          String includeLine = includeFile.readLine(); 
+          while (! includeFile.isAtEnd()) { 
+            LineWithBreak lineWithBreak = replaceVariables
+              (new StringBuilder(includeLine), dataRec);
+            if (lineWithBreak.getLineBreak()) {
+              writeLine (lineWithBreak.getLine());
+            } else {
+              write (lineWithBreak.getLine());
+            }
+            includeLine = includeFile.readLine(); 
+          } 
+          includeFile.close(); 
+        } else {
+          recordEvent (LogEvent.MEDIUM, 
+            "Attempt to Open Include File " + includeFileNameStr + " was unsuccessful",
+              true);
+        }
+      }
       
     } // end if include file exists
     
@@ -1102,6 +1283,15 @@ public class TemplateUtil {
    */
   public int getOutputCommandCount() { return outputCommandCount; }
   
+  /**
+     Adds output commands processed elsewhere to the count of output 
+     commands: output files opened by other utility collections, working 
+     on this one's behalf, or output files skipped as already current. 
+    
+     @param count The number of output commands processed elsewhere. 
+   */
+  void addOutputCommandCount (int count) { outputCommandCount += count; }
+  
   /**
      Sets the new delimiters used to start a command.
     
@@ -1191,381 +1381,15 @@ public class TemplateUtil {
           varIndex = endDelim;
         } else {
           // found beginning and end of variable -- process it
-          int endVar = endDelim;
           // find beginning of variable modifiers, if any
           int startMods = str.indexOf
             (nlStartModifiers, startDelim + nlStartVariable.length() + 1);
-          int leadingCount = 0;
-          int caseCode = 0;
-          boolean initialCase = false;
-          char listSep = ' ';
-          boolean formatStringFound = false;
-          boolean underscoreFound = false;
-          StringBuilder formatStringBuf = new StringBuilder();
-          Date date = null;
-
-          boolean xml = false;
-          boolean html = false;
-          boolean markdown = false;
-          boolean fileBaseName = false;
-          boolean keepRight = false;
-          boolean convertLinks = false;
-          boolean makeFileName = false;
-          boolean makeFileNameReadable = false;
-          boolean noBreaks = false;
-          boolean noPunctuation = false;
-          boolean emailPunctuation = false;
-          boolean digitToLetter = false;
-          boolean linkedTags = false;
-          boolean replaceAgain = false;
-          boolean summary = false;
-          String formatString;
-          
-          boolean demarcation = false;
-          int firstCase = 0;
-          int leadingCase = 0;
-          int normalCase = 0;
-          int caseCount = 0;
-          StringBuilder delimiter = new StringBuilder();
-          
-          // if we found any variable modifiers, then collect them now
-          if ((startMods > 0) && (startMods < endDelim)) {
-            endVar = startMods;
-            for (int i = startMods + 1; i < endDelim; i++) {
-              char workChar = str.charAt (i);
-              if (formatStringFound) {
-                formatStringBuf.append (workChar);
-              } else
-              if (Character.toLowerCase (workChar) == 'c') {
-                demarcation = true;
-              } else
-              if (demarcation) {
-                int wordCase = -2;
-                if (Character.toLowerCase (workChar) == 'u') {
-                  wordCase = 1;
-                } else
-                if (Character.toLowerCase (workChar) == 'l') {
-                  wordCase = -1;
-                } else
-                if (Character.toLowerCase (workChar) == 'a') {
-                  wordCase = 0;
-                }
-                if (wordCase > -2) {
-                  caseCount++;
-                  switch (caseCount) {
-                    case 1:
-                      firstCase = wordCase;
-                      break;
-                    case 2:
-                      leadingCase = wordCase;
-                      break;
-                    default:
-                      normalCase = wordCase;
-                      break;
-                  }
-                } else {
-                  delimiter.append (workChar);
-                }
-              } else
-              if (Character.isDigit (workChar)) {
-                leadingCount = (leadingCount * 10)
-                  + Character.getNumericValue (workChar);
-              } else
-              if (workChar == '\'') {
-                emailPunctuation = true;
-              }
-              else
-              if (Character.toLowerCase(workChar) == 'f') {
-                makeFileName = true;
-              } else
-              if (makeFileName 
-                  && (! makeFileNameReadable)
-                  && Character.toLowerCase(workChar) == 'r') {
-                makeFileNameReadable = true;
-              } else
-              if (Character.toLowerCase (workChar) == 'l') {
-                caseCode = -1;
-              } else
-              if (Character.toLowerCase (workChar) == 'u') {
-                caseCode = +1;
-              } else
-              if (Character.toLowerCase (workChar) == 'i') {
-                initialCase = true;
-              } else
-              if (Character.toLowerCase(workChar) == 's') {
-                summary = true;
-              }
-              else
-              if (Character.toLowerCase (workChar) == 'x') {
-                xml = true;
-              } else
-              if (workChar == 'h') {
-                html = true;
-              } else
-              if (Character.toLowerCase(workChar) == 'o') {
-                markdown = true;
-              } else
-              if (Character.toLowerCase (workChar) == 'b') {
-                fileBaseName = true;
-              } else
-              if (Character.toLowerCase (workChar) == 'r') {
-                keepRight = true;
-              } else
-              if (Character.toLowerCase(workChar) == 'j') {
-                convertLinks = true;
-              }
-              else
-              if (Character.toLowerCase(workChar) == 'n') {
-                noBreaks = true;
-              } else
-              if (Character.toLowerCase(workChar) == 'p') {
-                noPunctuation = true;
-              } else
-              if (Character.toLowerCase(workChar) == 't') {
-                digitToLetter = true;
-              } else
-              if (Character.toLowerCase(workChar) == 'g') {
-                linkedTags = true;
-              }
-              else
-              if (Character.isLetter (workChar)) {
-                formatStringFound = true;
-                formatStringBuf.append (workChar);
-              } else
-              if (workChar == '_') {
-                underscoreFound = true;
-              } else
-              if (! Character.isLetterOrDigit (workChar)) {
-                listSep = workChar;
-              }
-            }
-          } // end of variable modifier processing
-          
-          // get variable name and replacement value
-          String variable = str.substring
-            ((startDelim + nlStartVariable.length()), endVar);
-          CommonName common = new CommonName (variable);
-          variable = common.getCommonForm();
-          String replaceData = GlobalConstants.EMPTY_STRING;
-          if (variable.equals (NO_LINE_BREAK)) {
-            lineWithBreak.setLineBreak(false);
-          } else
-          if (variable.equals (TEMPLATE_FILE_NAME_VARIABLE)) {
-            replaceData = getTemplateFileName();
-          } else
-          if (variable.equals (TEMPLATE_PARENT_NAME_VARIABLE)) {
-            replaceData = getTemplateParent();
-          } else
-          if (variable.equals (DATA_FILE_NAME_VARIABLE)) {
-            replaceData = getDataFileDisplay();
-          } else
-          if (variable.equals (DATA_FILE_BASE_NAME_VARIABLE)) {
-            replaceData = getDataFileBaseName();
-          }else
-          if (variable.equals (DATA_PARENT_NAME_VARIABLE)) {
-            replaceData = getDataParent();
-          } else 
-          if (variable.equals (DATA_PARENT_FOLDER_VARIABLE)) {
-            replaceData = getDataParentFolder();
-          } else
-          if (variable.equals (TODAYS_DATE_VARIABLE)) {
-            date = Calendar.getInstance().getTime();
-          } else
-          if (variable.equals (RELATIVE_VARIABLE)) {
-            replaceData = getRelativePathToRoot();
-          } else
-          if (globals.containsField (variable)) {
-            replaceData = globals.getFieldData (variable);
-          } else {
-            replaceData = dataRec.getFieldData (variable);
-          }
-          
-          // transform replacement value according to variable modifiers
-          if ((replaceData != null) 
-              && ((replaceData.length() > 0) 
-                || (variable.equals(RELATIVE_VARIABLE)))
-              ) {
-            if (digitToLetter) {
-              try {
-                int digit = Integer.parseInt(replaceData);
-                if (digit > 0 && digit <= 26) {
-                  replaceData = String.valueOf((char)(digit + 'A' - 1));
-                }
-              } catch (NumberFormatException e) {
-                // do nothing
-              }
-            } // end digit to letter
-            if (summary) {
-              int max = 250;
-              if (leadingCount > 0) {
-                max = leadingCount;
-              }
-              if (replaceData.length() > max) {
-                int sentenceCount = 0;
-                int endOfLastSentence = 0;
-                int lastSpace = 0;
-                int i = 0;
-                char c = ' ';
-                char lastChar = ' ';
-                
-                while (i < max) {
-                  lastChar = c;
-                  c = replaceData.charAt(i);
-                  if (c == ' ') {
-                    lastSpace = i;
-                    if (lastChar == '.') {
-                      endOfLastSentence = i;
-                      sentenceCount++;
-                    } // end if end of sentence
-                  } // end if space
-                  i++;
-                } // end of characters within summarization range
-                if (sentenceCount > 0) {
-                  replaceData = replaceData.substring(0, endOfLastSentence);
-                } else {
-                  replaceData = replaceData.substring(0, lastSpace) + "....";
-                }
-              } // end if we have any need to summarize at all
-            } // end if summarization requested
-            else
-            if (leadingCount > 0) {
-              if (leadingCount < replaceData.length()) {
-                if (keepRight) {
-                  replaceData = replaceData.substring (replaceData.length() - leadingCount);
-                } else {
-                  replaceData = replaceData.substring (0, leadingCount);
-                }
-              } else {
-                while (leadingCount > replaceData.length()) {
-                  replaceData = "0" + replaceData;
-                }
-              }
-            } // end if leadingCount > 0
-            
-            if (initialCase) {
-              StringBuilder work = new StringBuilder ("");
-              if (replaceData.length() > 0) {
-                if (caseCode > 0) {
-                  work.append (replaceData.substring(0,1).toUpperCase());
-                } else
-                if (caseCode < 0) {
-                  work.append (replaceData.substring(0,1).toLowerCase());
-                } else {
-                  work.append (replaceData.substring(0,1));
-                }
-                if (replaceData.length() > 1) {
-                  work.append (replaceData.substring (1));
-                }
-              } // end if replaceData length > 0
-              replaceData = work.toString();
-            } else {
-              if (caseCode > 0) {
-                replaceData = replaceData.toUpperCase();
-              } 
-              else
-              if (caseCode < 0) {
-                replaceData = replaceData.toLowerCase();
-              }
-            } // end if not initialCase
-            
-            if (makeFileNameReadable) {
-              replaceData = StringUtils.makeReadableFileName(replaceData.trim());
-            } else
-            if (makeFileName) {
-              replaceData = StringUtils.makeFileName(replaceData.trim(), false);
-            }
-            
-            if (underscoreFound) {
-              replaceData = StringUtils.replaceChars 
-                  (replaceData.trim(), " ", "_");
-            }
-            if (demarcation) {
-              replaceData = StringUtils.wordDemarcation 
-                  (replaceData, delimiter.toString(), firstCase, leadingCase, normalCase);
-            }
-            if (noBreaks) {
-              replaceData = noBreaks(replaceData);
-            }
-            if (noPunctuation) {
-              replaceData = StringUtils.purifyPunctuation(replaceData);
-            }
-            if (linkedTags) {
-              Tags tags = new Tags(replaceData);
-              replaceData = tags.getLinkedTags("=$relative$=tags/");
-              replaceAgain = true;
-            }
-          } // end if replaceData non-blank
-          
-          if (listSep == ' ') {
-            setListItemPending (false);
-          } 
-          else 
-          if ((replaceData != null) && (replaceData.length() > 0)) {
-            if (isListItemPending()) {
-              if (listSep == '/' || listSep == '\\') {
-                replaceData = String.valueOf(listSep) + replaceData;
-              } else {
-                replaceData = String.valueOf(listSep) + " " + replaceData;
-              }
-            }
-            setListItemPending (true);
-          }
-          
-          if (date != null || 
-              (formatStringFound
-              && replaceData != null
-              && replaceData.length() > 0)) {
-            if (date == null) {
-              StringDate dateString = new StringDate();
-              dateString.parse(replaceData);
-              Calendar cal = dateString.getCalendar();
-              if (cal != null) {
-                date = cal.getTime();
-              } else {
-                date = new Date();
-              }
-              // StringScanner dateString = new StringScanner (replaceData);
-              // date = dateString.getDate("mdy");
-            }
-            if (formatStringBuf.length() > 0) {
-              formatString = formatStringBuf.toString();
-            } else {
-              formatString = DEFAULT_DATE_FORMAT;
-            }
-            
-            try {
-              SimpleDateFormat dateFormat = new SimpleDateFormat (formatString);
-              replaceData = dateFormat.format (date);
-            } catch (IllegalArgumentException e) {
-              replaceData = "";
-            }
-          }
-          
-          if (markdown) {
-            replaceData = MdToHTML.getShared().markdownToHtml(replaceData);
-          }
-          
-          if (xml) {
-            StringConverter xmlConverter = StringConverter.getXML();
-            replaceData = xmlConverter.convert (replaceData);
-          }
-
-          if (html) {
-            replaceData = htmlConverter.markup (replaceData, true);
-          }
-          
-          if (convertLinks) {
-            replaceData = StringUtils.convertLinks (replaceData);
-          }
-          
-          if (fileBaseName) {
-            FileName fn = new FileName (replaceData);
-            replaceData = fn.getBase();
-          }
-          
-          if (emailPunctuation) {
-            replaceData = emailQuotes(replaceData);
-          }
+          TemplateVariable templateVariable = new TemplateVariable (str,
+              startDelim, startDelim + nlStartVariable.length(), startMods,
+              endDelim, endDelim + nlEndVariable.length());
+          String replaceData = templateVariable.replace
+              (this, dataRec, lineWithBreak);
+          boolean replaceAgain = templateVariable.isReplacedAgain();
           
           // now perform the variable replacement
           if (replaceData != null) {
@@ -1583,18 +1407,37 @@ public class TemplateUtil {
       } // end processing when starting delimiters found
     } // end processing of all variables in line
     
-    // Check for a back slash at the end of the line
-    // If found, replace with a space, to ensure two spaces
-    // Which will generat a line break when converting Markdown to HTML
+    markdownLineBreak (str);
+    
+    lineWithBreak.setLine(str);
+    return lineWithBreak;
+  }
+  
+  /**
+   Check for a back slash at the end of the line. If found, replace with a 
+   space, to ensure two spaces, which will generate a line break when 
+   converting Markdown to HTML. 
+  
+   @param str The line just generated. 
+  */
+  static void markdownLineBreak (StringBuilder str) {
     if (str.length() > 2
         && str.charAt(str.length() - 1) == '\\'
         && str.charAt(str.length() - 2) == ' ') {
       str.deleteCharAt(str.length() - 1);
       str.append(' ');
     }
-    
-    lineWithBreak.setLine(str);
-    return lineWithBreak;
+  }
+  
+  /**
+   Convert plain text to HTML, for the 'h' variable modifier. 
+  
+   @param text The text to be converted. 
+  
+   @return The converted text. 
+  */
+  String markupHtml (String text) {
+    return htmlConverter.markup (text, true);
   }
   
   public String emailQuotes (String html) {
@@ -0,0 +1,573 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.template;
+
+  import com.powersurgepub.psdatalib.markup.*;
+  import com.powersurgepub.psdatalib.psdata.*;
+  import com.powersurgepub.psdatalib.psdata.values.*;
+  import com.powersurgepub.psdatalib.pstags.*;
+  import com.powersurgepub.psutils.*;
+  import java.text.*;
+  import java.util.*;
+
+/**
+ One variable found within a template line, with its name and any
+ variable modifiers parsed once, so that it can then be replaced with data
+ from any number of records without being parsed again.
+ <p>
+ A variable object is not changed once parsed, and so may be shared by
+ templates being generated at the same time.
+
+ @author Herb Bowie
+ */
+class TemplateVariable {
+
+  /** Kinds of variables. */
+  private static final int    FIELD             = 0;
+  private static final int    NO_LINE_BREAK     = 1;
+  private static final int    TEMPLATE_FILE     = 2;
+  private static final int    TEMPLATE_PARENT   = 3;
+  private static final int    DATA_FILE         = 4;
+  private static final int    DATA_FILE_BASE    = 5;
+  private static final int    DATA_PARENT       = 6;
+  private static final int    DATA_FOLDER       = 7;
+  private static final int    TODAY             = 8;
+  private static final int    RELATIVE          = 9;
+
+  /** The variable as it appeared in the template, with its delimiters. */
+  private    String           source;
+
+  /** The common form of the variable's name. */
+  private    String           name;
+
+  private    int              kind = FIELD;
+
+  private    int              leadingCount = 0;
+  private    int              caseCode = 0;
+  private    boolean          initialCase = false;
+  private    char             listSep = ' ';
+  private    boolean          formatStringFound = false;
+  private    boolean          underscoreFound = false;
+  private    String           formatString = TemplateUtil.DEFAULT_DATE_FORMAT;
+
+  private    boolean          xml = false;
+  private    boolean          html = false;
+  private    boolean          markdown = false;
+  private    boolean          fileBaseName = false;
+  private    boolean          keepRight = false;
+  private    boolean          convertLinks = false;
+  private    boolean          makeFileName = false;
+  private    boolean          makeFileNameReadable = false;
+  private    boolean          noBreaks = false;
+  private    boolean          noPunctuation = false;
+  private    boolean          emailPunctuation = false;
+  private    boolean          digitToLetter = false;
+  private    boolean          linkedTags = false;
+  private    boolean          summary = false;
+
+  private    boolean          demarcation = false;
+  private    int              firstCase = 0;
+  private    int              leadingCase = 0;
+  private    int              normalCase = 0;
+  private    String           delimiter = "";
+
+  /**
+   The column in which the variable's field was last found, along with
+   the layout of the record in which it was found.
+  */
+  private volatile Column     column = null;
+
+  /**
+   Parse a variable found within a template line.
+
+   @param str        The text containing the variable.
+   @param startDelim The position of the variable's starting delimiter.
+   @param startVar   The position of the variable's name.
+   @param startMods  The position of the variable modifiers delimiter,
+                     or any position outside of the variable if there
+                     are no modifiers.
+   @param endDelim   The position of the variable's ending delimiter.
+   @param end        The position just past the ending delimiter.
+  */
+  TemplateVariable (CharSequence str,
+      int startDelim, int startVar, int startMods, int endDelim, int end) {
+
+    source = str.subSequence (startDelim, end).toString();
+    int endVar = endDelim;
+
+    // if we found any variable modifiers, then collect them now
+    if ((startMods > 0) && (startMods < endDelim)) {
+      endVar = startMods;
+      StringBuilder formatStringBuf = new StringBuilder();
+      StringBuilder delimiterBuf = new StringBuilder();
+      int caseCount = 0;
+      for (int i = startMods + 1; i < endDelim; i++) {
+        char workChar = str.charAt (i);
+        if (formatStringFound) {
+          formatStringBuf.append (workChar);
+        } else
+        if (Character.toLowerCase (workChar) == 'c') {
+          demarcation = true;
+        } else
+        if (demarcation) {
+          int wordCase = -2;
+          if (Character.toLowerCase (workChar) == 'u') {
+            wordCase = 1;
+          } else
+          if (Character.toLowerCase (workChar) == 'l') {
+            wordCase = -1;
+          } else
+          if (Character.toLowerCase (workChar) == 'a') {
+            wordCase = 0;
+          }
+          if (wordCase > -2) {
+            caseCount++;
+            switch (caseCount) {
+              case 1:
+                firstCase = wordCase;
+                break;
+              case 2:
+                leadingCase = wordCase;
+                break;
+              default:
+                normalCase = wordCase;
+                break;
+            }
+          } else {
+            delimiterBuf.append (workChar);
+          }
+        } else
+        if (Character.isDigit (workChar)) {
+          leadingCount = (leadingCount * 10)
+            + Character.getNumericValue (workChar);
+        } else
+        if (workChar == '\'') {
+          emailPunctuation = true;
+        }
+        else
+        if (Character.toLowerCase(workChar) == 'f') {
+          makeFileName = true;
+        } else
+        if (makeFileName
+            && (! makeFileNameReadable)
+            && Character.toLowerCase(workChar) == 'r') {
+          makeFileNameReadable = true;
+        } else
+        if (Character.toLowerCase (workChar) == 'l') {
+          caseCode = -1;
+        } else
+        if (Character.toLowerCase (workChar) == 'u') {
+          caseCode = +1;
+        } else
+        if (Character.toLowerCase (workChar) == 'i') {
+          initialCase = true;
+        } else
+        if (Character.toLowerCase(workChar) == 's') {
+          summary = true;
+        }
+        else
+        if (Character.toLowerCase (workChar) == 'x') {
+          xml = true;
+        } else
+        if (workChar == 'h') {
+          html = true;
+        } else
+        if (Character.toLowerCase(workChar) == 'o') {
+          markdown = true;
+        } else
+        if (Character.toLowerCase (workChar) == 'b') {
+          fileBaseName = true;
+        } else
+        if (Character.toLowerCase (workChar) == 'r') {
+          keepRight = true;
+        } else
+        if (Character.toLowerCase(workChar) == 'j') {
+          convertLinks = true;
+        }
+        else
+        if (Character.toLowerCase(workChar) == 'n') {
+          noBreaks = true;
+        } else
+        if (Character.toLowerCase(workChar) == 'p') {
+          noPunctuation = true;
+        } else
+        if (Character.toLowerCase(workChar) == 't') {
+          digitToLetter = true;
+        } else
+        if (Character.toLowerCase(workChar) == 'g') {
+          linkedTags = true;
+        }
+        else
+        if (Character.isLetter (workChar)) {
+          formatStringFound = true;
+          formatStringBuf.append (workChar);
+        } else
+        if (workChar == '_') {
+          underscoreFound = true;
+        } else
+        if (! Character.isLetterOrDigit (workChar)) {
+          listSep = workChar;
+        }
+      }
+      if (formatStringBuf.length() > 0) {
+        formatString = formatStringBuf.toString();
+      }
+      delimiter = delimiterBuf.toString();
+    } // end of variable modifier processing
+
+    name = DataFieldDefinition.getCommonForm
+        (str.subSequence (startVar, endVar).toString());
+    if (name.equals (TemplateUtil.NO_LINE_BREAK)) {
+      kind = NO_LINE_BREAK;
+    } else
+    if (name.equals (TemplateUtil.TEMPLATE_FILE_NAME_VARIABLE)) {
+      kind = TEMPLATE_FILE;
+    } else
+    if (name.equals (TemplateUtil.TEMPLATE_PARENT_NAME_VARIABLE)) {
+      kind = TEMPLATE_PARENT;
+    } else
+    if (name.equals (TemplateUtil.DATA_FILE_NAME_VARIABLE)) {
+      kind = DATA_FILE;
+    } else
+    if (name.equals (TemplateUtil.DATA_FILE_BASE_NAME_VARIABLE)) {
+      kind = DATA_FILE_BASE;
+    } else
+    if (name.equals (TemplateUtil.DATA_PARENT_NAME_VARIABLE)) {
+      kind = DATA_PARENT;
+    } else
+    if (name.equals (TemplateUtil.DATA_PARENT_FOLDER_VARIABLE)) {
+      kind = DATA_FOLDER;
+    } else
+    if (name.equals (TemplateUtil.TODAYS_DATE_VARIABLE)) {
+      kind = TODAY;
+    } else
+    if (name.equals (TemplateUtil.RELATIVE_VARIABLE)) {
+      kind = RELATIVE;
+    }
+  }
+
+  /**
+   Return the variable as it appeared in the template, including its
+   delimiters and any modifiers.
+
+   @return The variable's source text.
+  */
+  String getSource () {
+    return source;
+  }
+
+  /**
+   Does this variable's replacement value need to be scanned again for
+   variables? This is the case for linked tags, whose links refer to
+   the relative path to the site's root.
+
+   @return True if the variable's replacement should itself be scanned
+           for variables.
+  */
+  boolean isReplacedAgain () {
+    return linkedTags;
+  }
+
+  /**
+   Return the value to replace this variable with, for the given record.
+
+   @param templateUtil  The template utility data for the current output.
+   @param dataRec       The record supplying the data.
+   @param lineWithBreak The line being generated, for the nobr variable.
+
+   @return The replacement value, or null if the variable is to be
+           left as-is.
+  */
+  String replace
+      (TemplateUtil templateUtil, DataRecord dataRec, LineWithBreak lineWithBreak) {
+
+    // get replacement value
+    String replaceData = GlobalConstants.EMPTY_STRING;
+    Date date = null;
+    switch (kind) {
+      case NO_LINE_BREAK:
+        lineWithBreak.setLineBreak(false);
+        break;
+      case TEMPLATE_FILE:
+        replaceData = templateUtil.getTemplateFileName();
+        break;
+      case TEMPLATE_PARENT:
+        replaceData = templateUtil.getTemplateParent();
+        break;
+      case DATA_FILE:
+        replaceData = templateUtil.getDataFileDisplay();
+        break;
+      case DATA_FILE_BASE:
+        replaceData = templateUtil.getDataFileBaseName();
+        break;
+      case DATA_PARENT:
+        replaceData = templateUtil.getDataParent();
+        break;
+      case DATA_FOLDER:
+        replaceData = templateUtil.getDataParentFolder();
+        break;
+      case TODAY:
+        date = Calendar.getInstance().getTime();
+        break;
+      case RELATIVE:
+        replaceData = templateUtil.getRelativePathToRoot();
+        break;
+      default:
+        DataRecord globals = templateUtil.getGlobals();
+        if (globals.getNumberOfFields() > 0
+            && globals.containsField (name)) {
+          replaceData = globals.getFieldData (name);
+        } else {
+          replaceData = getFieldData (dataRec);
+        }
+        break;
+    }
+
+    // transform replacement value according to variable modifiers
+    if ((replaceData != null)
+        && ((replaceData.length() > 0)
+          || (kind == RELATIVE))
+        ) {
+      if (digitToLetter) {
+        try {
+          int digit = Integer.parseInt(replaceData);
+          if (digit > 0 && digit <= 26) {
+            replaceData = String.valueOf((char)(digit + 'A' - 1));
+          }
+        } catch (NumberFormatException e) {
+          // do nothing
+        }
+      } // end digit to letter
+      if (summary) {
+        int max = 250;
+        if (leadingCount > 0) {
+          max = leadingCount;
+        }
+        if (replaceData.length() > max) {
+          int sentenceCount = 0;
+          int endOfLastSentence = 0;
+          int lastSpace = 0;
+          int i = 0;
+          char c = ' ';
+          char lastChar = ' ';
+
+          while (i < max) {
+            lastChar = c;
+            c = replaceData.charAt(i);
+            if (c == ' ') {
+              lastSpace = i;
+              if (lastChar == '.') {
+                endOfLastSentence = i;
+                sentenceCount++;
+              } // end if end of sentence
+            } // end if space
+            i++;
+          } // end of characters within summarization range
+          if (sentenceCount > 0) {
+            replaceData = replaceData.substring(0, endOfLastSentence);
+          } else {
+            replaceData = replaceData.substring(0, lastSpace) + "....";
+          }
+        } // end if we have any need to summarize at all
+      } // end if summarization requested
+      else
+      if (leadingCount > 0) {
+        if (leadingCount < replaceData.length()) {
+          if (keepRight) {
+            replaceData = replaceData.substring (replaceData.length() - leadingCount);
+          } else {
+            replaceData = replaceData.substring (0, leadingCount);
+          }
+        } else {
+          while (leadingCount > replaceData.length()) {
+            replaceData = "0" + replaceData;
+          }
+        }
+      } // end if leadingCount > 0
+
+      if (initialCase) {
+        StringBuilder work = new StringBuilder ("");
+        if (replaceData.length() > 0) {
+          if (caseCode > 0) {
+            work.append (replaceData.substring(0,1).toUpperCase());
+          } else
+          if (caseCode < 0) {
+            work.append (replaceData.substring(0,1).toLowerCase());
+          } else {
+            work.append (replaceData.substring(0,1));
+          }
+          if (replaceData.length() > 1) {
+            work.append (replaceData.substring (1));
+          }
+        } // end if replaceData length > 0
+        replaceData = work.toString();
+      } else {
+        if (caseCode > 0) {
+          replaceData = replaceData.toUpperCase();
+        }
+        else
+        if (caseCode < 0) {
+          replaceData = replaceData.toLowerCase();
+        }
+      } // end if not initialCase
+
+      if (makeFileNameReadable) {
+        replaceData = StringUtils.makeReadableFileName(replaceData.trim());
+      } else
+      if (makeFileName) {
+        replaceData = StringUtils.makeFileName(replaceData.trim(), false);
+      }
+
+      if (underscoreFound) {
+        replaceData = StringUtils.replaceChars
+            (replaceData.trim(), " ", "_");
+      }
+      if (demarcation) {
+        replaceData = StringUtils.wordDemarcation
+            (replaceData, delimiter, firstCase, leadingCase, normalCase);
+      }
+      if (noBreaks) {
+        replaceData = templateUtil.noBreaks(replaceData);
+      }
+      if (noPunctuation) {
+        replaceData = StringUtils.purifyPunctuation(replaceData);
+      }
+      if (linkedTags) {
+        Tags tags = new Tags(replaceData);
+        replaceData = tags.getLinkedTags("=$relative$=tags/");
+      }
+    } // end if replaceData non-blank
+
+    if (listSep == ' ') {
+      templateUtil.setListItemPending (false);
+    }
+    else
+    if ((replaceData != null) && (replaceData.length() > 0)) {
+      if (templateUtil.isListItemPending()) {
+        if (listSep == '/' || listSep == '\\') {
+          replaceData = String.valueOf(listSep) + replaceData;
+        } else {
+          replaceData = String.valueOf(listSep) + " " + replaceData;
+        }
+      }
+      templateUtil.setListItemPending (true);
+    }
+
+    if (date != null ||
+        (formatStringFound
+        && replaceData != null
+        && replaceData.length() > 0)) {
+      if (date == null) {
+        StringDate dateString = new StringDate();
+        dateString.parse(replaceData);
+        Calendar cal = dateString.getCalendar();
+        if (cal != null) {
+          date = cal.getTime();
+        } else {
+          date = new Date();
+        }
+      }
+
+      try {
+        SimpleDateFormat dateFormat = new SimpleDateFormat (formatString);
+        replaceData = dateFormat.format (date);
+      } catch (IllegalArgumentException e) {
+        replaceData = "";
+      }
+    }
+
+    if (markdown) {
+      replaceData = templateUtil.getMdToHTML().markdownToHtml(replaceData);
+    }
+
+    if (xml) {
+      StringConverter xmlConverter = StringConverter.getXML();
+      replaceData = xmlConverter.convert (replaceData);
+    }
+
+    if (html) {
+      replaceData = templateUtil.markupHtml (replaceData);
+    }
+
+    if (convertLinks) {
+      replaceData = StringUtils.convertLinks (replaceData);
+    }
+
+    if (fileBaseName) {
+      FileName fn = new FileName (replaceData);
+      replaceData = fn.getBase();
+    }
+
+    if (emailPunctuation) {
+      replaceData = templateUtil.emailQuotes(replaceData);
+    }
+
+    return replaceData;
+  }
+
+  /**
+   Return the data for this variable's field from the given record. When
+   the record follows the layout of a record definition, the column found
+   for the field is remembered and reused for later records with the same
+   layout. A field not found is not remembered, since the field may yet
+   be added to the layout without changing its version.
+
+   @param dataRec The record supplying the data.
+
+   @return The field's data, or an empty string if the record has no
+           such field.
+  */
+  private String getFieldData (DataRecord dataRec) {
+    RecordDefinition layout = dataRec.getLayout();
+    if (layout == null) {
+      return dataRec.getFieldData (name);
+    }
+    Column found = column;
+    if (found == null
+        || found.layout != layout
+        || found.layoutVersion != layout.getLayoutVersion()) {
+      found = new Column (layout, layout.getLayoutVersion(),
+          layout.getColumnNumberByCommonForm (name));
+      if (found.number >= 0) {
+        column = found;
+      }
+    }
+    if (found.number >= 0 && found.number < dataRec.getNumberOfFields()) {
+      return dataRec.getField(found.number).getData();
+    } else {
+      return "";
+    }
+  }
+
+  /**
+   The column in which a field was found within one record layout.
+  */
+  private static class Column {
+
+    private RecordDefinition layout;
+    private int              layoutVersion;
+    private int              number;
+
+    Column (RecordDefinition layout, int layoutVersion, int number) {
+      this.layout = layout;
+      this.layoutVersion = layoutVersion;
+      this.number = number;
+    }
+
+  }
+
+}
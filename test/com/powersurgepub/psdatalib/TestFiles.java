@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib;
+
+  import java.io.*;
+  import java.nio.file.*;
+
+/**
+ Writes the files used by tests, within a TemporaryFolder.
+
+ @author Herb Bowie
+ */
+public class TestFiles {
+
+  private TestFiles() {
+  }
+
+  /**
+   Writes a file, creating any folders named in its path.
+
+   @param folder   The folder to contain the file.
+   @param path     The path to the file, relative to the folder.
+   @param contents The text to be written, encoded as UTF-8.
+
+   @return The file written.
+
+   @throws IOException If the file cannot be written.
+   */
+  public static File write (File folder, String path, String contents)
+      throws IOException {
+    File file = new File (folder, path);
+    file.getParentFile().mkdirs();
+    Files.write (file.toPath(), contents.getBytes ("UTF-8"));
+    return file;
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psdatalib.*;
+  import java.io.*;
+  import java.nio.file.*;
+  import java.nio.file.attribute.*;
+  import org.junit.Rule;
+  import org.junit.Test;
+  import org.junit.rules.TemporaryFolder;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for NoteIO.
+
+ @author Herb Bowie
+ */
+public class NoteIOTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public NoteIOTest() {
+  }
+
+  private File makeFile (String name)
+      throws IOException {
+    return TestFiles.write (folder.getRoot(), name, "Title: " + name + "\n");
+  }
+
+  private void assertInterest (String message, boolean expected, File file)
+      throws IOException {
+    BasicFileAttributes attrs
+        = Files.readAttributes (file.toPath(), BasicFileAttributes.class);
+    assertEquals (message, expected, NoteIO.isInterestedIn (file));
+    assertEquals (message + " (with attributes)", expected,
+        NoteIO.isInterestedIn (file, attrs));
+  }
+
+  /**
+   * Test of both isInterestedIn methods, which should always agree.
+   */
+  @Test
+  public void testIsInterestedIn()
+      throws IOException {
+    assertInterest ("Text note", true, makeFile ("a note.txt"));
+    assertInterest ("Markdown note", true, makeFile ("b.md"));
+    assertInterest ("Hidden file", false, makeFile (".hidden.txt"));
+    assertInterest ("Other type", false, makeFile ("c.pdf"));
+    assertInterest ("Conflicted copy", false,
+        makeFile ("d (conflicted copy).txt"));
+    assertInterest ("Template", false, makeFile ("templates/e.txt"));
+    assertInterest ("Folder", false, folder.newFolder ("sub.txt"));
+  }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import com.powersurgepub.psdatalib.*;
+  import java.io.*;
+  import org.junit.Rule;
+  import org.junit.Test;
+  import org.junit.rules.TemporaryFolder;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for NoteIndexFile, and for NoteIndexIO with and without a stored
+ index.
+
+ @author Herb Bowie
+ */
+public class NoteIndexFileTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public NoteIndexFileTest() {
+  }
+
+  private void makeNotes()
+      throws IOException {
+    TestFiles.write (folder.getRoot(), "first.txt",
+        "Title: First Note\nIndex: apples; bananas\n\nBody.\n");
+    TestFiles.write (folder.getRoot(), "second.txt",
+        "Title: Second Note\nIndex: apples\n\nBody.\n");
+    TestFiles.write (folder.getRoot(), "sub/third.txt",
+        "Title: Third Note\nIndex: cherries\n\nBody.\n");
+    TestFiles.write (folder.getRoot(), "templates/template.txt",
+        "Title: Template\nIndex: skipped\n\nBody.\n");
+  }
+
+  /**
+   Read the index of a collection, describing each term and page.
+   */
+  private String readIndex (boolean persistIndex)
+      throws IOException {
+    NoteIndexIO indexIO = new NoteIndexIO
+        (folder.getRoot(), NoteParms.NOTES_GENERAL_TYPE);
+    indexIO.setPersistIndex (persistIndex);
+    indexIO.openForInput();
+    StringBuilder str = new StringBuilder();
+    DataRecord rec = indexIO.nextRecordIn();
+    while (rec != null) {
+      str.append (rec.getFieldData (NoteIndexIO.TERM));
+      str.append (":");
+      str.append (rec.getFieldData (NoteIndexIO.PAGE));
+      str.append (";");
+      rec = indexIO.nextRecordIn();
+    }
+    indexIO.close();
+    return str.toString();
+  }
+
+  private NoteIndexFile scan()
+      throws IOException {
+    NoteIO noteIO = new NoteIO (folder.getRoot(), NoteParms.NOTES_GENERAL_TYPE);
+    NoteIndexFile indexFile
+        = new NoteIndexFile (folder.getRoot(), noteIO.getNoteParms(), 99);
+    indexFile.scan (noteIO);
+    return indexFile;
+  }
+
+  /**
+   * Test of openForInput, storing the index only when asked, and giving
+   * the same terms either way.
+   */
+  @Test
+  public void testPersistIndex()
+      throws IOException {
+    makeNotes();
+    String unstored = readIndex (false);
+    assertTrue ("Terms found", unstored.indexOf ("cherries") >= 0);
+    assertTrue ("Template skipped", unstored.indexOf ("skipped") < 0);
+    assertFalse ("Index not stored by default",
+        new NoteIndexIO (folder.getRoot(), NoteParms.NOTES_GENERAL_TYPE)
+          .isPersistingIndex());
+    assertFalse ("No index file",
+        new File (folder.getRoot(), NoteIndexFile.FILE_NAME).exists());
+
+    assertEquals ("Stored index", unstored, readIndex (true));
+    assertTrue ("Index file written",
+        new File (folder.getRoot(), NoteIndexFile.FILE_NAME).exists());
+    assertEquals ("Index read back", unstored, readIndex (true));
+  }
+
+  /**
+   * Test of scan, reading again only the notes that have changed.
+   */
+  @Test
+  public void testScan()
+      throws IOException {
+    makeNotes();
+    NoteIndexFile indexFile = scan();
+    assertTrue ("No file yet", indexFile.isChanged());
+    assertTrue ("Saved", indexFile.save (indexFile.buildIndex()));
+
+    indexFile = scan();
+    assertEquals ("All reused", 3, indexFile.getNumberReused());
+    assertFalse ("Unchanged", indexFile.isChanged());
+
+    File second = TestFiles.write (folder.getRoot(), "second.txt",
+        "Title: Second Note\nIndex: dates\n\nLonger body.\n");
+    second.setLastModified (second.lastModified() + 2000);
+    indexFile = scan();
+    assertEquals ("Changed note read", 2, indexFile.getNumberReused());
+    assertTrue ("Changed", indexFile.isChanged());
+    assertTrue ("Saved again", indexFile.save (indexFile.buildIndex()));
+
+    indexFile.openTerms();
+    StringBuilder terms = new StringBuilder();
+    while (indexFile.hasNextTerm()) {
+      terms.append (indexFile.nextTerm().getTerm());
+      terms.append (";");
+    }
+    indexFile.closeTerms();
+    assertEquals ("Terms", "apples;bananas;cherries;dates;",
+        terms.toString());
+
+    assertTrue ("Removed",
+        new File (folder.getRoot(), "sub/third.txt").delete());
+    indexFile = scan();
+    assertEquals ("Remaining notes reused", 2, indexFile.getNumberReused());
+    assertTrue ("Changed by removal", indexFile.isChanged());
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import com.powersurgepub.psdatalib.pstags.*;
+  import java.util.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for the sorted indexes kept by NoteList.
+
+ @author Herb Bowie
+ */
+public class NoteListTest {
+
+  private static final String[] TITLES = {
+    "Delta", "alpha", "Charlie", "Bravo", "Alpha", "echo", "charlie"};
+
+  private RecordDefinition recDef;
+
+  public NoteListTest() {
+  }
+
+  private NoteList newList () {
+    NoteParms noteParms = new NoteParms (NoteParms.NOTES_GENERAL_TYPE);
+    noteParms.newRecordDefinition (new DataDictionary());
+    noteParms.buildRecordDefinition();
+    recDef = noteParms.getRecDef();
+    return new NoteList (recDef);
+  }
+
+  private String describe (NoteList list) {
+    StringBuilder str = new StringBuilder();
+    for (int i = 0; i < list.size(); i++) {
+      Note note = list.get2 (i);
+      str.append (note.getTitle());
+      str.append ("=");
+      str.append (note.getBody());
+      str.append (";");
+    }
+    return str.toString();
+  }
+
+  private void addAll (NoteList list) {
+    for (int i = 0; i < TITLES.length; i++) {
+      list.add2 (new Note (recDef, TITLES [i], String.valueOf (i)));
+    }
+  }
+
+  private String titles (List<Note> notes) {
+    StringBuilder str = new StringBuilder();
+    for (int i = 0; i < notes.size(); i++) {
+      str.append (notes.get(i).getTitle());
+      str.append (";");
+    }
+    return str.toString();
+  }
+
+  /**
+   * Test of endBulkLoad, merging notes with the same key into the first
+   * one added, and dropping the notes merged away.
+   */
+  @Test
+  public void testBulkLoad() {
+    NoteList single = newList();
+    addAll (single);
+
+    NoteList bulk = newList();
+    bulk.beginBulkLoad();
+    addAll (bulk);
+    assertEquals ("Nothing sorted yet", 0, bulk.size());
+    bulk.endBulkLoad();
+
+    assertEquals ("Merged notes",
+        "alpha=1 4;Bravo=3;Charlie=2 6;Delta=0;echo=5;",
+        describe (bulk));
+    assertEquals ("Duplicates merged", single.size(), bulk.size());
+    assertEquals ("Merged notes dropped", 5, bulk.storedSize());
+    assertEquals ("Same as one at a time", single.storedSize(),
+        bulk.storedSize());
+  }
+
+  /**
+   * Test of endBulkLoad, merging new notes into notes already in the
+   * list, and keeping the list usable afterwards.
+   */
+  @Test
+  public void testBulkLoadAfterNotes() {
+    NoteList list = newList();
+    list.add2 (new Note (recDef, "Charlie", "x"));
+    list.add2 (new Note (recDef, "Zulu", "y"));
+    list.beginBulkLoad();
+    addAll (list);
+    list.endBulkLoad();
+    assertEquals ("Merged with existing notes", 6, list.size());
+    assertEquals ("Stored notes", 6, list.storedSize());
+
+    Note found = list.findUnique (new Note (recDef, "CHARLIE"));
+    assertNotNull ("Surviving note found", found);
+    assertEquals ("Survivor was the existing note", "x 2 6",
+        found.getBody());
+
+    NotePositioned position = list.add2 (new Note (recDef, "Foxtrot", "z"));
+    assertEquals ("Added after the load", "Foxtrot",
+        position.getNote().getTitle());
+    assertTrue ("Removed after the load", list.remove2 (found));
+    assertNull ("No longer found",
+        list.findUnique (new Note (recDef, "Charlie")));
+    assertEquals ("Final size", 6, list.size());
+  }
+
+  /**
+   * Test of selectTagged, returning the notes bearing any or all of the
+   * given tags, in sort order.
+   */
+  @Test
+  public void testSelectTagged() {
+    NoteList list = newList();
+    String[][] notes = {
+      {"Delta", "java, tools"}, {"Alpha", "java"}, {"Charlie", "tools"},
+      {"Bravo", ""}};
+    for (int i = 0; i < notes.length; i++) {
+      Note note = new Note (recDef, notes [i][0]);
+      note.setTags (notes [i][1]);
+      list.add2 (note);
+    }
+    assertEquals ("Any", "Alpha;Charlie;Delta;",
+        titles (list.selectTagged (new Tags ("java, tools"), false)));
+    assertEquals ("All", "Delta;",
+        titles (list.selectTagged (new Tags ("java, tools"), true)));
+    assertEquals ("None given", "Alpha;Bravo;Charlie;Delta;",
+        titles (list.selectTagged (new Tags (""), false)));
+    list.remove2 (list.findUnique (new Note (recDef, "Delta")));
+    assertEquals ("After remove", "",
+        titles (list.selectTagged (new Tags ("java, tools"), true)));
+  }
+
+}
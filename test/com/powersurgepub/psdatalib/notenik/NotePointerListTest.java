@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for NotePointerList.
+
+ @author Herb Bowie
+ */
+public class NotePointerListTest {
+
+  public NotePointerListTest() {
+  }
+
+  private NotePointerList build (int[] pointers) {
+    NotePointerList list = new NotePointerList (2);
+    for (int i = 0; i < pointers.length; i++) {
+      list.add (pointers [i]);
+    }
+    return list;
+  }
+
+  private String describe (NotePointerList list) {
+    StringBuilder str = new StringBuilder();
+    for (int i = 0; i < list.size(); i++) {
+      if (i > 0) {
+        str.append (",");
+      }
+      str.append (String.valueOf (list.get (i)));
+    }
+    return str.toString();
+  }
+
+  /**
+   * Test of add, remove and move, shifting the entries in between.
+   */
+  @Test
+  public void testAddRemoveMove() {
+    NotePointerList list = build (new int[] {0, 1, 2, 3, 4});
+    list.add (0, 9);
+    assertEquals ("Inserted at start", "9,0,1,2,3,4", describe (list));
+    list.add (6, 8);
+    assertEquals ("Inserted at end", "9,0,1,2,3,4,8", describe (list));
+    assertEquals ("Removed", 2, list.remove (3));
+    assertEquals ("After remove", "9,0,1,3,4,8", describe (list));
+    list.move (0, 4);
+    assertEquals ("Moved down", "0,1,3,4,9,8", describe (list));
+    list.move (5, 1);
+    assertEquals ("Moved up", "0,8,1,3,4,9", describe (list));
+    assertEquals ("Index of", 4, list.indexOf (4));
+    assertEquals ("Not found", -1, list.indexOf (7));
+  }
+
+  /**
+   * Test of get, rejecting positions beyond the end of the list.
+   */
+  @Test
+  public void testOutOfBounds() {
+    NotePointerList list = build (new int[] {0, 1});
+    boolean thrown = false;
+    try {
+      list.get (2);
+    } catch (IndexOutOfBoundsException e) {
+      thrown = true;
+    }
+    assertTrue ("Exception thrown", thrown);
+  }
+
+  /**
+   * Test of sort, ordering pointers by the keys they point to, and keeping
+   * pointers with equal keys in their existing order.
+   */
+  @Test
+  public void testSortStable() {
+    final int[] keys = new int[50];
+    int[] pointers = new int[50];
+    for (int i = 0; i < 50; i++) {
+      keys [i] = (i * 7) % 5;
+      pointers [i] = i;
+    }
+    NotePointerList list = build (pointers);
+    list.sort (new NotePointerList.PointerComparator() {
+      public int compare (int pointer1, int pointer2) {
+        return keys [pointer1] - keys [pointer2];
+      }
+    });
+    assertEquals ("Size", 50, list.size());
+    for (int i = 1; i < list.size(); i++) {
+      int prior = list.get (i - 1);
+      int pointer = list.get (i);
+      assertTrue ("Keys in order at " + String.valueOf (i),
+          keys [prior] <= keys [pointer]);
+      if (keys [prior] == keys [pointer]) {
+        assertTrue ("Equal keys in order at " + String.valueOf (i),
+            prior < pointer);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import java.util.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for NoteSearchIndex.
+
+ @author Herb Bowie
+ */
+public class NoteSearchIndexTest {
+
+  private RecordDefinition recDef;
+
+  public NoteSearchIndexTest() {
+  }
+
+  private NoteSearchIndex buildIndex (String[][] notes) {
+    NoteParms noteParms = new NoteParms (NoteParms.NOTES_GENERAL_TYPE);
+    noteParms.newRecordDefinition (new DataDictionary());
+    noteParms.buildRecordDefinition();
+    recDef = noteParms.getRecDef();
+    NoteSearchIndex index = new NoteSearchIndex();
+    for (int i = 0; i < notes.length; i++) {
+      index.add (new Note (recDef, notes [i][0], notes [i][1]));
+    }
+    return index;
+  }
+
+  private String titles (List<Note> found) {
+    StringBuilder str = new StringBuilder();
+    for (int i = 0; i < found.size(); i++) {
+      str.append (found.get(i).getTitle());
+      str.append (";");
+    }
+    return str.toString();
+  }
+
+  /**
+   * Test of search, with words, prefixes, phrases and alternatives.
+   */
+  @Test
+  public void testQueries() {
+    NoteSearchIndex index = buildIndex (new String[][] {
+      {"Apples", "Red apples and green pears."},
+      {"Pears", "Green pears are ripe."},
+      {"Plums", "Purple plums, never green."}});
+    assertEquals ("Title and body", "Pears;Apples;",
+        titles (index.search ("pears")));
+    assertEquals ("All words", "Pears;",
+        titles (index.search ("green ripe")));
+    assertEquals ("Prefix", "Plums;", titles (index.search ("purp*")));
+    assertEquals ("Phrase", "Apples;",
+        titles (index.search ("\"red apples\"")));
+    assertEquals ("Phrase out of order", "",
+        titles (index.search ("\"apples red\"")));
+    assertEquals ("Alternatives", "Pears;Plums;",
+        titles (index.search ("ripe OR purple")));
+    assertEquals ("Case folded", 2, index.getNumberOfNotesContaining ("PEARS"));
+    assertEquals ("Unknown word", "", titles (index.search ("bananas")));
+  }
+
+  /**
+   * Test of search, ranking notes by how often the words appear, and by
+   * how rare each word is.
+   */
+  @Test
+  public void testRanking() {
+    NoteSearchIndex index = buildIndex (new String[][] {
+      {"Once", "garden tools"},
+      {"Thrice", "garden garden garden"},
+      {"Twice", "garden shed garden"},
+      {"Rare", "garden orchid"}});
+    assertEquals ("By frequency", "Thrice;Twice;Once;Rare;",
+        titles (index.search ("garden")));
+    assertEquals ("Rare word counts more", "Rare;Thrice;Twice;Once;",
+        titles (index.search ("garden OR orchid")));
+  }
+
+  /**
+   * Test of remove and modify, including rewriting lists that hold many
+   * removed notes.
+   */
+  @Test
+  public void testRemoveAndModify() {
+    NoteSearchIndex index = buildIndex (new String[][] {});
+    ArrayList<Note> notes = new ArrayList<Note>();
+    for (int i = 0; i < 30; i++) {
+      Note note = new Note (recDef, "Note " + String.valueOf (i),
+          "common word" + (i % 2 == 0 ? " even" : ""));
+      notes.add (note);
+      index.add (note);
+    }
+    for (int i = 0; i < 20; i++) {
+      index.remove (notes.get (i));
+    }
+    assertEquals ("Notes left", 10, index.getNumberOfNotes());
+    assertEquals ("Common notes left", 10,
+        index.getNumberOfNotesContaining ("common"));
+    assertEquals ("Even notes left", 5, index.search ("even").size());
+
+    Note note = notes.get (25);
+    note.setBody ("changed text");
+    index.modify (note);
+    assertEquals ("Old words gone", 9, index.search ("common").size());
+    assertEquals ("New words found", "Note 25;",
+        titles (index.search ("changed")));
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import com.powersurgepub.psdatalib.*;
+  import java.io.*;
+  import java.util.*;
+  import org.junit.Rule;
+  import org.junit.Test;
+  import org.junit.rules.TemporaryFolder;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for NoteSnapshot.
+
+ @author Herb Bowie
+ */
+public class NoteSnapshotTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public NoteSnapshotTest() {
+  }
+
+  private void makeNotes()
+      throws IOException {
+    TestFiles.write (folder.getRoot(), "first.txt",
+        "Title: First Note\nTags: alpha, beta\nLink: http://example.com\n\n"
+        + "Body of the first note.\nSecond line.\n");
+    TestFiles.write (folder.getRoot(), "second.txt",
+        "Title: Second Note\nTags: beta\n\nBody of the second note.\n");
+  }
+
+  /**
+   Load all the notes in a folder, describing each one.
+   */
+  private TreeMap<String, String> load (boolean useSnapshot)
+      throws IOException {
+    NoteIO noteIO = new NoteIO (folder.getRoot(), NoteParms.NOTES_GENERAL_TYPE);
+    noteIO.setUseSnapshot (useSnapshot);
+    noteIO.openForInput (new DataDictionary());
+    TreeMap<String, String> notes = new TreeMap<String, String>();
+    DataRecord rec = noteIO.nextRecordIn();
+    while (rec != null) {
+      Note note = (Note)rec;
+      notes.put (note.getTitle(), note.getTagsAsString()
+          + "|" + note.getLinkAsString()
+          + "|" + note.getBody());
+      rec = noteIO.nextRecordIn();
+    }
+    noteIO.close();
+    return notes;
+  }
+
+  /**
+   Open the snapshot for a folder, with the note parameters in effect when
+   a collection is first opened, before any notes have added their fields.
+   */
+  private NoteSnapshot openSnapshot() {
+    NoteIO noteIO = new NoteIO (folder.getRoot(), NoteParms.NOTES_GENERAL_TYPE);
+    noteIO.getNoteParms().newRecordDefinition (new DataDictionary());
+    noteIO.getNoteParms().buildRecordDefinition();
+    return new NoteSnapshot (folder.getRoot(), noteIO.getNoteParms());
+  }
+
+  /**
+   * Test of restore, rebuilding notes that are the same as those parsed
+   * from their files.
+   */
+  @Test
+  public void testRestore()
+      throws IOException {
+    makeNotes();
+    TreeMap<String, String> parsed = load (false);
+    assertFalse ("No snapshot unless requested",
+        new File (folder.getRoot(), NoteSnapshot.FILE_NAME).exists());
+
+    assertEquals ("First load", parsed, load (true));
+    assertTrue ("Snapshot written",
+        new File (folder.getRoot(), NoteSnapshot.FILE_NAME).exists());
+
+    NoteSnapshot snapshot = openSnapshot();
+    File first = new File (folder.getRoot(), "first.txt");
+    assertTrue ("Unchanged", snapshot.isUnchanged ("first.txt",
+        first.length(), first.lastModified()));
+    assertFalse ("Changed", snapshot.isUnchanged ("first.txt",
+        first.length() + 1, first.lastModified()));
+
+    assertEquals ("Restored from snapshot", parsed, load (true));
+  }
+
+  /**
+   * Test of save, replacing the previous snapshot when a note has changed.
+   */
+  @Test
+  public void testSaveChanged()
+      throws IOException {
+    makeNotes();
+    load (true);
+    File second = TestFiles.write (folder.getRoot(), "second.txt",
+        "Title: Second Note\nTags: gamma\n\nA longer, revised body.\n");
+    second.setLastModified (second.lastModified() + 2000);
+    TreeMap<String, String> notes = load (true);
+    assertEquals ("Changed note read again", "gamma||A longer, revised body.",
+        notes.get ("Second Note").trim());
+
+    NoteSnapshot snapshot = openSnapshot();
+    assertTrue ("Replacement snapshot", snapshot.isUnchanged ("second.txt",
+        second.length(), second.lastModified()));
+    assertFalse ("No temporary file left",
+        new File (folder.getRoot(), NoteSnapshot.FILE_NAME + ".tmp").exists());
+  }
+
+}
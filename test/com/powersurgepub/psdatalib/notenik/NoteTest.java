@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for the sort key cached by Note.
+
+ @author Herb Bowie
+ */
+public class NoteTest {
+
+  private RecordDefinition recDef;
+
+  public NoteTest() {
+  }
+
+  private Note newNote (String title) {
+    NoteParms noteParms = new NoteParms (NoteParms.NOTES_GENERAL_TYPE);
+    noteParms.newRecordDefinition (new DataDictionary());
+    noteParms.buildRecordDefinition();
+    recDef = noteParms.getRecDef();
+    return new Note (recDef, title);
+  }
+
+  private NoteSortParm sortParm (int parm) {
+    NoteSortParm sortParm = new NoteSortParm();
+    sortParm.setParm (parm);
+    return sortParm;
+  }
+
+  /**
+   * Test of getSortKey, returning the same key until the title changes.
+   */
+  @Test
+  public void testCachedTitleKey() {
+    Note note = newNote ("First Title");
+    NoteSortParm byTitle = sortParm (NoteSortParm.SORT_BY_TITLE);
+    String key = note.getSortKey (byTitle);
+    assertEquals ("Title key", "first-title", key);
+    assertSame ("Cached key", key, note.getSortKey (byTitle));
+    note.setTitle ("Second Title");
+    assertEquals ("Key after new title", "second-title",
+        note.getSortKey (byTitle));
+  }
+
+  /**
+   * Test of getSortKey, rebuilding the key when the sort parameter, the
+   * seq or the date changes.
+   */
+  @Test
+  public void testRebuiltKey() {
+    Note note = newNote ("Task");
+    note.setSeq ("2");
+    NoteSortParm byTitle = sortParm (NoteSortParm.SORT_BY_TITLE);
+    NoteSortParm bySeq = sortParm (NoteSortParm.SORT_BY_SEQ_AND_TITLE);
+    assertEquals ("Title key", "task", note.getSortKey (byTitle));
+    String seqKey = note.getSortKey (bySeq);
+    assertTrue ("Seq key", seqKey.endsWith ("task"));
+    assertFalse ("Seq key differs", seqKey.equals ("task"));
+
+    note.setSeq ("10");
+    String newSeqKey = note.getSortKey (bySeq);
+    assertTrue ("Key after new seq", seqKey.compareTo (newSeqKey) < 0);
+
+    NoteSortParm byDate = sortParm (NoteSortParm.SORT_TASKS_BY_DATE);
+    note.setDate ("2017-01-02");
+    String dateKey = note.getSortKey (byDate);
+    note.setDate ("2017-03-04");
+    assertTrue ("Key after new date",
+        dateKey.compareTo (note.getSortKey (byDate)) < 0);
+  }
+
+  /**
+   * Test of invalidateSortKey, after the seq is changed directly.
+   */
+  @Test
+  public void testInvalidateSortKey() {
+    Note note = newNote ("Task");
+    note.setSeq ("2");
+    NoteSortParm bySeq = sortParm (NoteSortParm.SORT_BY_SEQ_AND_TITLE);
+    String key = note.getSortKey (bySeq);
+    note.getSeqValue().set ("3");
+    assertSame ("Stale until invalidated", key, note.getSortKey (bySeq));
+    note.invalidateSortKey();
+    assertTrue ("Rebuilt after invalidation",
+        key.compareTo (note.getSortKey (bySeq)) < 0);
+  }
+
+}
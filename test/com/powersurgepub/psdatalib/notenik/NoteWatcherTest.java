@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import com.powersurgepub.psdatalib.*;
+  import java.io.*;
+  import java.util.*;
+  import javax.swing.*;
+  import org.junit.Rule;
+  import org.junit.Test;
+  import org.junit.rules.TemporaryFolder;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for NoteWatcher.
+
+ @author Herb Bowie
+ */
+public class NoteWatcherTest {
+
+  /** Milliseconds to wait for a change to reach the list. */
+  private static final long WAIT_MILLIS = NoteWatcher.QUIET_MILLIS * 20;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private NoteList list;
+
+  public NoteWatcherTest() {
+  }
+
+  private File makeFile (String name, String title, String body)
+      throws IOException {
+    return TestFiles.write (folder.getRoot(), name,
+        "Title: " + title + "\n\n" + body + "\n");
+  }
+
+  private NoteWatcher load()
+      throws IOException {
+    NoteIO noteIO = new NoteIO (folder.getRoot(), NoteParms.NOTES_GENERAL_TYPE);
+    noteIO.getNoteParms().newRecordDefinition (new DataDictionary());
+    noteIO.getNoteParms().buildRecordDefinition();
+    list = new NoteList (noteIO.getRecDef());
+    noteIO.load (list, true);
+    return new NoteWatcher (noteIO, list);
+  }
+
+  /**
+   Describe the notes in the list, on the event dispatch thread, as
+   "title=body" pairs in title order.
+   */
+  private String describe ()
+      throws Exception {
+    final StringBuilder str = new StringBuilder();
+    SwingUtilities.invokeAndWait (new Runnable() {
+      public void run() {
+        TreeMap<String, String> notes = new TreeMap<String, String>();
+        for (int i = 0; i < list.size(); i++) {
+          Note note = list.get2 (i);
+          notes.put (note.getTitle(), note.getBody().trim());
+        }
+        for (Map.Entry<String, String> entry : notes.entrySet()) {
+          str.append (entry.getKey());
+          str.append ("=");
+          str.append (entry.getValue());
+          str.append (";");
+        }
+      }
+    });
+    return str.toString();
+  }
+
+  /**
+   Wait until the list holds the expected notes, or until time runs out.
+   */
+  private String waitFor (String expected)
+      throws Exception {
+    long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+    String actual = describe();
+    while ((! actual.equals (expected))
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep (50);
+      actual = describe();
+    }
+    return actual;
+  }
+
+  /**
+   * Test of start, applying notes created, modified and deleted on disk
+   * to the list.
+   */
+  @Test
+  public void testChanges()
+      throws Exception {
+    NoteWatcher watcher = null;
+    try {
+      makeFile ("alpha.txt", "Alpha", "First");
+      File beta = makeFile ("beta.txt", "Beta", "Second");
+      watcher = load();
+      assertEquals ("Loaded", "Alpha=First;Beta=Second;", describe());
+      watcher.start();
+
+      makeFile ("gamma.txt", "Gamma", "Third");
+      assertEquals ("Created", "Alpha=First;Beta=Second;Gamma=Third;",
+          waitFor ("Alpha=First;Beta=Second;Gamma=Third;"));
+
+      makeFile ("alpha.txt", "Alpha", "Changed");
+      assertEquals ("Modified", "Alpha=Changed;Beta=Second;Gamma=Third;",
+          waitFor ("Alpha=Changed;Beta=Second;Gamma=Third;"));
+
+      assertTrue ("Deleted from disk", beta.delete());
+      assertEquals ("Deleted", "Alpha=Changed;Gamma=Third;",
+          waitFor ("Alpha=Changed;Gamma=Third;"));
+
+      File delta = makeFile ("sub/delta.txt", "Delta", "Fourth");
+      assertEquals ("New folder", "Alpha=Changed;Delta=Fourth;Gamma=Third;",
+          waitFor ("Alpha=Changed;Delta=Fourth;Gamma=Third;"));
+
+      assertTrue ("Deleted from folder", delta.delete());
+      assertTrue ("Folder deleted from disk", delta.getParentFile().delete());
+      assertEquals ("Folder deleted", "Alpha=Changed;Gamma=Third;",
+          waitFor ("Alpha=Changed;Gamma=Third;"));
+    } finally {
+      if (watcher != null) {
+        watcher.stop();
+      }
+    }
+  }
+
+  /**
+   * Test of start, with a file edited to take the title of another note,
+   * then edited back and deleted.
+   */
+  @Test
+  public void testRetitle()
+      throws Exception {
+    NoteWatcher watcher = null;
+    try {
+      File alpha = makeFile ("alpha.txt", "Alpha", "First");
+      File beta = makeFile ("beta.txt", "Beta", "Second");
+      watcher = load();
+      watcher.start();
+
+      makeFile ("beta.txt", "Alpha", "First");
+      assertEquals ("Merged into existing note", "Alpha=First;",
+          waitFor ("Alpha=First;"));
+
+      makeFile ("beta.txt", "Beta", "Back");
+      assertEquals ("Existing note left alone", "Alpha=First;Beta=Back;",
+          waitFor ("Alpha=First;Beta=Back;"));
+
+      assertTrue ("Deleted from disk", beta.delete());
+      assertEquals ("Retitled note deleted", "Alpha=First;",
+          waitFor ("Alpha=First;"));
+
+      assertTrue ("Other deleted from disk", alpha.delete());
+      assertEquals ("All deleted", "", waitFor (""));
+    } finally {
+      if (watcher != null) {
+        watcher.stop();
+      }
+    }
+  }
+
+  /**
+   * Test of stop, leaving the list alone once the watcher has stopped.
+   */
+  @Test
+  public void testStop()
+      throws Exception {
+    makeFile ("alpha.txt", "Alpha", "First");
+    NoteWatcher watcher = load();
+    watcher.start();
+    watcher.stop();
+    makeFile ("beta.txt", "Beta", "Second");
+    Thread.sleep (NoteWatcher.QUIET_MILLIS * 3);
+    assertEquals ("Unchanged after stop", "Alpha=First;", describe());
+  }
+
+}
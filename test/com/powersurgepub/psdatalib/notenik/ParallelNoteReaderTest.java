@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.notenik;
+
+  import com.powersurgepub.psdatalib.*;
+  import java.io.*;
+  import java.util.*;
+  import org.junit.Rule;
+  import org.junit.Test;
+  import org.junit.rules.TemporaryFolder;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for ParallelNoteReader.
+
+ @author Herb Bowie
+ */
+public class ParallelNoteReaderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public ParallelNoteReaderTest() {
+  }
+
+  private void makeFile (String name)
+      throws IOException {
+    TestFiles.write (folder.getRoot(), name,
+        "Title: " + new File (name).getName() + "\n\nBody\n");
+  }
+
+  /**
+   * Test of next method, returning every note file in the collection, with
+   * the files in each folder before those in its sub-folders.
+   */
+  @Test
+  public void testNext()
+      throws IOException {
+    for (int i = 0; i < 40; i++) {
+      makeFile ("note " + String.valueOf (i) + ".txt");
+    }
+    makeFile ("sub/deeper.md");
+    makeFile ("sub/sub2/too deep.md");
+    makeFile ("templates/template.txt");
+    makeFile ("publish/published.txt");
+    makeFile (".hidden.txt");
+
+    ParallelNoteReader reader
+        = new ParallelNoteReader (folder.getRoot(), 2, 3, null);
+    reader.start();
+    ArrayList<String> names = new ArrayList<String>();
+    ParallelNoteReader.NoteText text = reader.next();
+    while (text != null) {
+      names.add (text.getFile().getName());
+      assertEquals ("Lines read from " + text.getFile().getName(),
+          "Title: " + text.getFile().getName(), text.getLines().get(0));
+      text = reader.next();
+    }
+    reader.close();
+
+    assertEquals ("Files read", 41, names.size());
+    assertEquals ("Sub-folder last", "deeper.md", names.get (40));
+    HashSet<String> unique = new HashSet<String>(names);
+    assertEquals ("No duplicates", 41, unique.size());
+    assertTrue ("First note", unique.contains ("note 0.txt"));
+    assertTrue ("Last note", unique.contains ("note 39.txt"));
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 1999 - 2013 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import java.util.*;
+
+/**
+   Compares the heap used by a DataSet with the heap used by a
+   ColumnarDataSet holding the same records, and checks that every
+   cell reads back the same from both. <p>
+
+   Usage: ColumnarDataSetBenchmark [records] <p>
+
+   The number of records defaults to 1,000,000, of five fields each.
+ */
+public class ColumnarDataSetBenchmark {
+
+  /**
+     Runs the benchmark.
+   */
+  public static void main (String args[])
+      throws Exception {
+
+    int size = 1000000;
+    if (args.length > 0) {
+      size = Integer.parseInt (args [0]);
+    }
+
+    RecordDefinition recDef = new RecordDefinition (new DataDictionary());
+    recDef.addColumn ("Id");
+    recDef.addColumn ("Country");
+    recDef.addColumn ("Amount");
+    recDef.addColumn ("Code");
+    recDef.addColumn ("Big Number");
+    String[] countries = {"Canada", "France", "Japan", "Mexico", "Peru"};
+
+    long before = usedMemory();
+    DataSet dataSet = new DataSet (recDef);
+    Random random = new Random (size);
+    for (int i = 0; i < size; i++) {
+      DataRecord rec = new DataRecord();
+      rec.addField (recDef, String.valueOf (i));
+      rec.addField (recDef, countries [random.nextInt (countries.length)]);
+      rec.addField (recDef, String.valueOf (random.nextInt (100000)));
+      rec.addField (recDef, "C" + String.valueOf (random.nextInt (500)));
+      if (random.nextInt (10) > 0) {
+        rec.addField (recDef, String.valueOf (random.nextLong()));
+      }
+      dataSet.addRecord (rec);
+    }
+    long dataSetBytes = usedMemory() - before;
+
+    before = usedMemory();
+    ColumnarDataSet columnarSet = new ColumnarDataSet (dataSet);
+    long columnarBytes = usedMemory() - before;
+
+    DataTable table = new DataTable (dataSet);
+    DataTable columnarTable = new DataTable (columnarSet);
+    int mismatches = 0;
+    for (int row = 0; row < size; row++) {
+      for (int column = 0; column < recDef.getNumberOfFields(); column++) {
+        if (! table.getValueAt(row, column).equals
+            (columnarTable.getValueAt(row, column))) {
+          mismatches++;
+        }
+      }
+      if (row % 1000 == 0) {
+        DataRecord rec = columnarSet.get (row);
+        if (rec.getFieldAsInteger ("Amount")
+              != dataSet.get(row).getFieldAsInteger ("Amount")
+            || (! rec.getFieldData("Big Number").equals
+              (dataSet.get(row).getFieldData ("Big Number")))) {
+          mismatches++;
+        }
+      }
+    }
+
+    System.out.println ("Records: " + String.valueOf (size));
+    System.out.println ("DataSet: " + String.valueOf (dataSetBytes / 1048576)
+        + " MB");
+    System.out.println ("ColumnarDataSet: "
+        + String.valueOf (columnarBytes / 1048576) + " MB");
+    for (int column = 0; column < recDef.getNumberOfFields(); column++) {
+      System.out.println ("  " + recDef.getDef(column).getProperName()
+          + ": " + columnarSet.getColumnStorage (column));
+    }
+    System.out.println ("Mismatched cells: " + String.valueOf (mismatches));
+  }
+
+  /**
+     Returns the heap in use after a garbage collection.
+   */
+  private static long usedMemory () {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      rt.gc();
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+
+}
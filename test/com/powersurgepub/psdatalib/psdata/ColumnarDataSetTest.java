@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for ColumnarDataSet.
+
+ @author Herb Bowie
+ */
+public class ColumnarDataSetTest {
+
+  private RecordDefinition recDef;
+
+  public ColumnarDataSetTest() {
+    recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Amount");
+  }
+
+  private DataRecord buildRecord (String name, String amount) {
+    DataRecord rec = new DataRecord();
+    rec.addField (recDef, name);
+    if (amount != null) {
+      rec.addField (recDef, amount);
+    }
+    return rec;
+  }
+
+  /**
+   * Test of getColumnStorage, moving a column to more general forms as
+   * values arrive that it cannot hold.
+   */
+  @Test
+  public void testColumnStorage() {
+    ColumnarDataSet dataSet = new ColumnarDataSet (recDef);
+    dataSet.addRecord (buildRecord ("1", "5"));
+    assertEquals ("Ints", "int", dataSet.getColumnStorage (1));
+    dataSet.addRecord (buildRecord ("2", "5000000000"));
+    assertEquals ("Longs", "long", dataSet.getColumnStorage (1));
+    dataSet.addRecord (buildRecord ("three", ""));
+    assertEquals ("Dictionary", "dictionary", dataSet.getColumnStorage (0));
+    assertEquals ("Still longs", "long", dataSet.getColumnStorage (1));
+    assertEquals ("No such column", "", dataSet.getColumnStorage (5));
+
+    assertEquals ("First name", "1", dataSet.getData (0, 0));
+    assertEquals ("Int amount", "5", dataSet.getData (0, 1));
+    assertEquals ("Long amount", "5000000000", dataSet.getData (1, 1));
+    assertEquals ("Empty amount", "", dataSet.getData (2, 1));
+  }
+
+  /**
+   * Test of addRecord, keeping numbers that are not in their plain form
+   * exactly as they were.
+   */
+  @Test
+  public void testLeadingZeros() {
+    ColumnarDataSet dataSet = new ColumnarDataSet (recDef);
+    dataSet.addRecord (buildRecord ("a", "7"));
+    dataSet.addRecord (buildRecord ("b", "007"));
+    assertEquals ("Dictionary", "dictionary", dataSet.getColumnStorage (1));
+    assertEquals ("Plain", "7", dataSet.getData (0, 1));
+    assertEquals ("Leading zeros", "007", dataSet.getData (1, 1));
+  }
+
+  /**
+   * Test of addRecord, moving to plain strings once there are too many
+   * distinct values for a dictionary.
+   */
+  @Test
+  public void testDictionaryOverflow() {
+    ColumnarDataSet dataSet = new ColumnarDataSet (recDef);
+    for (int i = 0; i <= ColumnarDataSet.MAX_DICTIONARY_SIZE; i++) {
+      dataSet.addRecord (buildRecord ("n" + String.valueOf (i), "1"));
+    }
+    assertEquals ("Strings", "string", dataSet.getColumnStorage (0));
+    assertEquals ("First", "n0", dataSet.getData (0, 0));
+    assertEquals ("Last",
+        "n" + String.valueOf (ColumnarDataSet.MAX_DICTIONARY_SIZE),
+        dataSet.getData (ColumnarDataSet.MAX_DICTIONARY_SIZE, 0));
+  }
+
+  /**
+   * Test of get and setRecord, including a record with fewer fields.
+   */
+  @Test
+  public void testGetAndSet() {
+    ColumnarDataSet dataSet = new ColumnarDataSet (recDef);
+    dataSet.addRecord (buildRecord ("a", "1"));
+    dataSet.addRecord (buildRecord ("b", null));
+    DataRecord rec = dataSet.get (1);
+    assertEquals ("Fields in short record", 1, rec.getNumberOfFields());
+    assertEquals ("Missing field", "", dataSet.getData (1, 1));
+    dataSet.setRecord (0, buildRecord ("c", "2"));
+    rec = dataSet.get (0);
+    assertEquals ("Replaced name", "c", rec.getField(0).getData());
+    assertEquals ("Replaced amount", "2", rec.getField(1).getData());
+    try {
+      dataSet.get (2);
+      fail ("Record beyond the end returned");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Test of nextRecordIn, with an input filter.
+   */
+  @Test
+  public void testNextRecordIn() {
+    ColumnarDataSet dataSet = new ColumnarDataSet (recDef);
+    dataSet.addRecord (buildRecord ("a", "1"));
+    dataSet.addRecord (buildRecord ("b", "20"));
+    dataSet.addRecord (buildRecord ("c", "3"));
+    dataSet.setInputFilter (new FieldFilter (recDef, "Amount", "lt", "10"));
+    dataSet.openForInput();
+    StringBuilder names = new StringBuilder();
+    while (! dataSet.isAtEnd()) {
+      names.append (dataSet.nextRecordIn().getField(0).getData());
+    }
+    assertEquals ("Selected records", "ac", names.toString());
+  }
+
+}
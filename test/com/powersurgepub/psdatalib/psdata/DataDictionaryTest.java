@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for DataDictionary. 
+
+ @author Herb Bowie
+ */
+public class DataDictionaryTest {
+  
+  public DataDictionaryTest() {
+  }
+
+  /**
+   * Test of putDef and getDefNum methods, of class DataDictionary.
+   */
+  @Test
+  public void testPutDef() {
+    DataDictionary dict = new DataDictionary();
+    int title = dict.putDef ("Title");
+    int author = dict.putDef ("Author");
+    assertEquals ("First definition", 0, title);
+    assertEquals ("Second definition", 1, author);
+    assertEquals ("Existing definition found", author, dict.putDef ("author"));
+    assertEquals ("Found by name", title, dict.getDefNum ("Title"));
+    assertEquals ("Not found", -1, dict.getDefNum ("Publisher"));
+  }
+
+  /**
+   * Test of putAlias and getAliasOriginal methods, of class DataDictionary.
+   */
+  @Test
+  public void testAliases() {
+    DataDictionary dict = new DataDictionary();
+    int title = dict.putDef ("Title");
+    dict.putAlias ("Name", "Title");
+    assertEquals ("Alias resolved", "title", 
+        dict.getAliasOriginal ("Name").getCommonForm());
+    assertEquals ("Non-alias unchanged", "author", 
+        dict.getAliasOriginal ("Author").getCommonForm());
+    assertEquals ("Definition found by alias", title, dict.getDefNum ("Name"));
+    
+    dict.putAlias ("Name", "Author");
+    assertEquals ("Alias replaced", "author", 
+        dict.getAliasOriginal ("Name").getCommonForm());
+  }
+
+  /**
+   * Test that a definition added under an alias is stored under the
+   * original name.
+   */
+  @Test
+  public void testPutDefByAlias() {
+    DataDictionary dict = new DataDictionary();
+    dict.putAlias ("Name", "Title");
+    int i = dict.putDef ("Name");
+    assertEquals ("Stored under original name", "title", 
+        dict.getDef(i).getCommonForm());
+    assertEquals ("Found by original name", i, dict.getDefNum ("Title"));
+    assertEquals ("Found again by alias", i, dict.putDef ("Name"));
+  }
+  
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 1999 - 2013 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import java.util.*;
+
+/**
+   Compares the time needed to filter a DataSet using the original
+   operator evaluation, which resolved the operator and lowercased both
+   strings for every record, with the time needed by a FieldFilter, which
+   resolves its operator and lowercases its value only once. <p>
+
+   Usage: DataFilterBenchmark [size] <p>
+
+   The size defaults to 1,000,000 records.
+ */
+public class DataFilterBenchmark {
+
+  public static final String NAME   = "Name";
+  public static final String AMOUNT = "Amount";
+
+  /**
+     Runs the benchmark.
+   */
+  public static void main (String args[]) {
+
+    int size = 1000000;
+    if (args.length > 0) {
+      size = Integer.parseInt (args [0]);
+    }
+
+    RecordDefinition recDef = new RecordDefinition (new DataDictionary());
+    recDef.addColumn (NAME);
+    recDef.addColumn (AMOUNT);
+    DataSet dataSet = new DataSet (recDef);
+    Random random = new Random (size);
+    String[] words = {"Alpha", "Bravo", "Charlie", "Delta", "Echo", "Foxtrot"};
+    for (int i = 0; i < size; i++) {
+      DataRecord rec = new DataRecord();
+      rec.addField (recDef, words [random.nextInt (words.length)] + " "
+          + words [random.nextInt (words.length)] + " "
+          + String.valueOf (random.nextInt (1000)));
+      rec.addField (recDef, String.valueOf (random.nextInt (10000)));
+      dataSet.addRecord (rec);
+    }
+
+    String[][] conditions = {
+      {NAME,   "contains",     "ECHO"},
+      {NAME,   "starts with",  "charlie d"},
+      {NAME,   "![>]",         "7"},
+      {AMOUNT, ">=",           "5000"},
+      {NAME,   "eq",           "Delta Echo 12"}
+    };
+
+    // Warm up both methods once before timing them
+    for (int c = 0; c < conditions.length; c++) {
+      run (dataSet, recDef, conditions [c], false);
+    }
+
+    for (int c = 0; c < conditions.length; c++) {
+      String[] condition = conditions [c];
+      long start = System.currentTimeMillis();
+      int legacyCount = run (dataSet, recDef, condition, true);
+      long legacyMillis = System.currentTimeMillis() - start;
+      start = System.currentTimeMillis();
+      int compiledCount = run (dataSet, recDef, condition, false);
+      long compiledMillis = System.currentTimeMillis() - start;
+      System.out.println (condition [0] + " " + condition [1] + " "
+          + condition [2] + ": legacy " + String.valueOf (legacyMillis)
+          + " ms, compiled " + String.valueOf (compiledMillis) + " ms, "
+          + String.valueOf (compiledCount) + " selected"
+          + (legacyCount == compiledCount ? "" : ", COUNTS DIFFER ("
+            + String.valueOf (legacyCount) + ")"));
+    }
+  }
+
+  /**
+     Counts the records selected by one condition.
+
+     @param dataSet   The records to be filtered.
+     @param recDef    Their record definition.
+     @param condition The field name, operator and value.
+     @param legacy    True to use the original operator evaluation.
+
+     @return The number of records selected.
+   */
+  private static int run (DataSet dataSet, RecordDefinition recDef,
+      String[] condition, boolean legacy) {
+    FieldFilter filter
+        = new FieldFilter (recDef, condition [0], condition [1], condition [2]);
+    int column = recDef.getColumnNumber (condition [0]);
+    DataField value = new DataField (recDef, column, condition [2]);
+    int count = 0;
+    for (int i = 0; i < dataSet.size(); i++) {
+      DataRecord rec = dataSet.get (i);
+      boolean selected;
+      if (legacy) {
+        selected = legacyOperate (rec.getField (column), condition [1], value);
+      } else {
+        selected = filter.selects (rec);
+      }
+      if (selected) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+     The operator evaluation formerly used by DataField.operateLogically.
+   */
+  private static boolean legacyOperate (DataField field, String operator,
+      DataField operand) {
+    boolean trueOrFalse = true;
+    int opLength = operator.length();
+    char firstChar = ' ';
+    String oplc = " ";
+    if (opLength > 0) {
+      firstChar = operator.charAt (0);
+    }
+    int opIndex = -1;
+    if (Character.isLetter (firstChar)) {
+      oplc = operator.toLowerCase();
+    }
+    boolean opFound = false;
+    for (opIndex = 0;
+        ((opIndex < DataField.NUMBER_OF_LOGICAL_OPERANDS) && (! opFound));
+        opIndex++) {
+      if ((oplc.equals (DataField.WORD_LOGICAL_OPERANDS [opIndex]))
+          || (oplc.equals (DataField.MNEMONIC_LOGICAL_OPERANDS [opIndex]))
+          || (operator.equals (DataField.SYMBOL_LOGICAL_OPERANDS [opIndex]))
+          || (operator.equals (DataField.ALT_SYMBOL_LOGICAL_OPERANDS [opIndex]))) {
+        opFound = true;
+      }
+    }
+    opIndex--;
+    if (opIndex < 6) {
+      int result = field.compareTo (operand);
+      if (opIndex == 0) {
+        trueOrFalse = (result == 0);
+      } else
+      if (opIndex == 1) {
+        trueOrFalse = (result > 0);
+      } else
+      if (opIndex == 2) {
+        trueOrFalse = (result >= 0);
+      } else
+      if (opIndex == 3) {
+        trueOrFalse = (result < 0);
+      } else
+      if (opIndex == 4) {
+        trueOrFalse = (result <= 0);
+      } else
+      if (opIndex == 5) {
+        trueOrFalse = (result != 0);
+      }
+    } else {
+      String datalc = field.getData().toLowerCase();
+      String operandlc = operand.getData().toLowerCase();
+      if (opIndex == 6) {
+        trueOrFalse = (datalc.indexOf (operandlc) >= 0);
+      } else
+      if (opIndex == 7) {
+        trueOrFalse = (datalc.indexOf (operandlc) < 0);
+      } else
+      if (opIndex == 8) {
+        trueOrFalse = (datalc.startsWith (operandlc));
+      } else
+      if (opIndex == 9) {
+        trueOrFalse = (! datalc.startsWith (operandlc));
+      } else
+      if (opIndex == 10) {
+        trueOrFalse = (datalc.endsWith (operandlc));
+      } else
+      if (opIndex == 11) {
+        trueOrFalse = (! datalc.endsWith (operandlc));
+      }
+    }
+    return trueOrFalse;
+  }
+
+} // end of class DataFilterBenchmark
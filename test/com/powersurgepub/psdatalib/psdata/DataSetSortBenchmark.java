@@ -0,0 +1,212 @@
+/*
+ * Copyright 1999 - 2013 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import java.io.*;
+  import java.util.*;
+
+/**
+   Compares the time needed to sort a DataSet using the original
+   adjacent-swap sort with the time needed by the SequenceSorter, and
+   with the time needed by an ExternalSorter limited to a memory budget
+   of roughly one eighth of the data. Records with equal keys are then
+   combined, both in memory and by a RecordCombiner streaming from an
+   ExternalSorter, and the results compared. <p>
+
+   Usage: DataSetSortBenchmark [legacy-limit [size ...]] <p>
+
+   The legacy sort is quadratic, so it is only run for sizes up to the
+   legacy limit (10,000 records by default). Sizes default to
+   10,000, 100,000 and 1,000,000 records.
+ */
+public class DataSetSortBenchmark {
+
+  public static final String NAME   = "Name";
+  public static final String AMOUNT = "Amount";
+  public static final String CODE   = "Code";
+  public static final String SEQ    = "Seq";
+
+  /**
+     Runs the benchmark.
+   */
+  public static void main (String args[]) 
+      throws IOException {
+
+    int legacyLimit = 10000;
+    int[] sizes = {10000, 100000, 1000000};
+    if (args.length > 0) {
+      legacyLimit = Integer.parseInt (args [0]);
+    }
+    if (args.length > 1) {
+      sizes = new int [args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        sizes [i - 1] = Integer.parseInt (args [i]);
+      }
+    }
+
+    for (int i = 0; i < sizes.length; i++) {
+      run (sizes [i], legacyLimit);
+    }
+  }
+
+  /**
+     Sorts one generated data set using both the old and new methods.
+
+     @param size        Number of records to generate.
+     @param legacyLimit Largest size for which the legacy sort is run.
+   */
+  private static void run (int size, int legacyLimit) 
+      throws IOException {
+
+    RecordDefinition recDef = new RecordDefinition (new DataDictionary());
+    recDef.addColumn (NAME);
+    recDef.addColumn (AMOUNT);
+    recDef.addColumn (CODE);
+    recDef.addColumn (SEQ);
+    SequenceSpec seqSpec = new SequenceSpec (recDef);
+    seqSpec.addField (NAME);
+    seqSpec.addField (AMOUNT, SequenceField.DESCENDING);
+    seqSpec.addField (CODE);
+
+    DataSet dataSet = new DataSet (recDef);
+    Random random = new Random (size);
+    for (int i = 0; i < size; i++) {
+      DataRecord rec = new DataRecord();
+      rec.addField (recDef, "Name " + String.valueOf (random.nextInt (size / 10 + 1)));
+      rec.addField (recDef, String.valueOf (random.nextInt (1000) - 500));
+      if (random.nextInt (10) == 0) {
+        rec.addField (recDef, "X" + String.valueOf (random.nextInt (100)));
+      } else {
+        rec.addField (recDef, String.valueOf (random.nextInt (100)));
+      }
+      rec.addField (recDef, String.valueOf (i));
+      dataSet.addRecord (rec);
+    }
+
+    ArrayList<DataRecord> original = new ArrayList<DataRecord>();
+    for (int i = 0; i < dataSet.size(); i++) {
+      original.add (dataSet.get (i));
+    }
+
+    DataSet unsorted = new DataSet (recDef);
+    for (int i = 0; i < original.size(); i++) {
+      unsorted.addRecord (original.get (i));
+    }
+    
+    ArrayList<DataRecord> legacy = null;
+    long legacyMillis = -1;
+    if (size <= legacyLimit) {
+      legacy = new ArrayList<DataRecord> (original);
+      long start = System.currentTimeMillis();
+      legacySort (legacy, seqSpec);
+      legacyMillis = System.currentTimeMillis() - start;
+    }
+
+    long start = System.currentTimeMillis();
+    dataSet.setSequence (seqSpec);
+    long newMillis = System.currentTimeMillis() - start;
+
+    boolean same = true;
+    if (legacy != null) {
+      for (int i = 0; i < size && same; i++) {
+        same = (legacy.get (i) == dataSet.get (i));
+      }
+    }
+    
+    // Records are estimated at about 500 bytes each; allow for an eighth
+    start = System.currentTimeMillis();
+    ExternalSorter sorter 
+        = new ExternalSorter (unsorted, seqSpec, size * 500L / 8);
+    sorter.openForInput();
+    boolean sameExternal = true;
+    int count = 0;
+    while (! sorter.isAtEnd()) {
+      DataRecord rec = sorter.nextRecordIn();
+      sameExternal = sameExternal
+          && rec.getFieldData (SEQ).equals (dataSet.get(count).getFieldData (SEQ));
+      count++;
+    }
+    int runs = sorter.getNumberOfRuns();
+    sorter.close();
+    long externalMillis = System.currentTimeMillis() - start;
+    sameExternal = sameExternal && (count == size);
+
+    System.out.println (String.valueOf (size) + " records: "
+        + "legacy sort "
+        + (legacyMillis < 0 ? "skipped" : String.valueOf (legacyMillis) + " ms")
+        + ", sequence sorter " + String.valueOf (newMillis) + " ms"
+        + (legacy == null ? "" : (same ? ", same sequence" : ", SEQUENCES DIFFER"))
+        + ", external sorter " + String.valueOf (externalMillis) + " ms ("
+        + String.valueOf (runs) + " runs"
+        + (sameExternal ? ", same sequence)" : ", SEQUENCES DIFFER)"));
+    
+    // Combine records with equal keys while streaming from an external 
+    // sort, and then in memory, and compare the results. Streaming comes
+    // first, since combining in memory alters the shared input records.
+    start = System.currentTimeMillis();
+    RecordCombiner combiner = new RecordCombiner 
+        (new ExternalSorter (unsorted, seqSpec, size * 500L / 8), seqSpec, 
+          DataField.LATER_OVERRIDES, DataField.DATA_OVERRIDE, 0);
+    combiner.openForInput();
+    ArrayList<String> streamed = new ArrayList<String>();
+    while (! combiner.isAtEnd()) {
+      streamed.add (combiner.nextRecordIn().getFieldData (SEQ));
+    }
+    combiner.close();
+    long streamMillis = System.currentTimeMillis() - start;
+    
+    start = System.currentTimeMillis();
+    int combined = dataSet.combine 
+        (DataField.LATER_OVERRIDES, DataField.DATA_OVERRIDE, 0);
+    long combineMillis = System.currentTimeMillis() - start;
+    
+    boolean sameCombined = (streamed.size() == dataSet.size());
+    for (int i = 0; i < streamed.size() && sameCombined; i++) {
+      sameCombined = streamed.get(i).equals (dataSet.get(i).getFieldData (SEQ));
+    }
+    System.out.println ("  combined " + String.valueOf (combined) 
+        + " records: in memory " + String.valueOf (combineMillis) + " ms"
+        + ", streaming " + String.valueOf (streamMillis) + " ms"
+        + ", " + String.valueOf (combiner.getCombineCount()) + " combined"
+        + (sameCombined ? ", same result" : ", RESULTS DIFFER"));
+  }
+
+  /**
+     The adjacent-swap sort formerly used by DataSet.setSequence.
+
+     @param records The records to be sorted.
+     @param seqSpec Desired sort sequence.
+   */
+  private static void legacySort (ArrayList<DataRecord> records,
+      SequenceSpec seqSpec) {
+    boolean sorted = false;
+    DataRecord reci, recj;
+    while (! sorted) {
+      sorted = true;
+      for (int i = 0, j = 1; j < records.size(); i++, j++) {
+        reci = records.get (i);
+        recj = records.get (j);
+        if (reci.compareTo(recj, seqSpec) > 0) {
+          sorted = false;
+          records.set(i, recj);
+          records.set(j, reci);
+        }
+      }
+    }
+  }
+
+} // end of class DataSetSortBenchmark
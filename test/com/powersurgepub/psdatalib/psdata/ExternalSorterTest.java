@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import java.io.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for ExternalSorter.
+
+ @author Herb Bowie
+ */
+public class ExternalSorterTest {
+
+  private RecordDefinition recDef;
+
+  public ExternalSorterTest() {
+  }
+
+  private DataSet buildDataSet (String[][] rows) {
+    buildRecDef();
+    return fill (new DataSet (recDef), rows);
+  }
+
+  private void buildRecDef () {
+    recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Amount");
+    recDef.addColumn ("Position");
+  }
+
+  private DataSet fill (DataSet dataSet, String[][] rows) {
+    for (int i = 0; i < rows.length; i++) {
+      DataRecord rec = new DataRecord();
+      rec.addField (recDef, rows [i][0]);
+      rec.addField (recDef, rows [i][1]);
+      rec.addField (recDef, String.valueOf (i));
+      dataSet.add (rec);
+    }
+    return dataSet;
+  }
+
+  private SequenceSpec amountSpec () {
+    SequenceSpec seqSpec = new SequenceSpec (recDef);
+    seqSpec.addField ("Amount");
+    return seqSpec;
+  }
+
+  private String column (ExternalSorter sorter, int columnNumber)
+      throws IOException {
+    StringBuilder str = new StringBuilder();
+    while (! sorter.isAtEnd()) {
+      DataRecord rec = sorter.nextRecordIn();
+      if (str.length() > 0) {
+        str.append (",");
+      }
+      str.append (rec.getField(columnNumber).getData());
+    }
+    return str.toString();
+  }
+
+  /**
+   * Test of nextRecordIn, with all of the records sorted in memory.
+   */
+  @Test
+  public void testSortInMemory()
+      throws IOException {
+    DataSet dataSet = buildDataSet (new String[][] {
+      {"a", "10"}, {"b", "9"}, {"c", "100"}, {"d", "-1"}});
+    ExternalSorter sorter = new ExternalSorter (dataSet, amountSpec());
+    sorter.openForInput();
+    assertEquals ("No runs", 0, sorter.getNumberOfRuns());
+    assertEquals ("In memory order", "-1,9,10,100", column (sorter, 1));
+    sorter.close();
+  }
+
+  /**
+   * Test of nextRecordIn, with the records merged from sorted runs.
+   */
+  @Test
+  public void testSortWithRuns()
+      throws IOException {
+    DataSet dataSet = buildDataSet (new String[][] {
+      {"a", "5"}, {"b", "3"}, {"c", "8"}, {"d", "1"}, {"e", "9"},
+      {"f", "2"}, {"g", "7"}, {"h", "4"}, {"i", "6"}, {"j", "0"}});
+    ExternalSorter sorter = new ExternalSorter (dataSet, amountSpec(), 1);
+    sorter.openForInput();
+    assertTrue ("Sorted runs written", sorter.getNumberOfRuns() > 1);
+    assertEquals ("Merged order", "0,1,2,3,4,5,6,7,8,9", column (sorter, 1));
+    assertEquals ("Record count", 10, sorter.getRecordNumber());
+    sorter.close();
+  }
+
+  /**
+   * Test of nextRecordIn, keeping records with equal keys in input order
+   * across sorted runs.
+   */
+  @Test
+  public void testSortStable()
+      throws IOException {
+    DataSet dataSet = buildDataSet (new String[][] {
+      {"a", "2"}, {"b", "1"}, {"c", "2"}, {"d", "1"}, {"e", "2"},
+      {"f", "1"}});
+    ExternalSorter sorter = new ExternalSorter (dataSet, amountSpec(), 1);
+    sorter.openForInput();
+    assertEquals ("Equal keys in input order", "b,d,f,a,c,e",
+        column (sorter, 0));
+    sorter.close();
+  }
+
+  /**
+   * Test of openForInput, with a source that returns a null record
+   * before reporting that it is at its end.
+   */
+  @Test
+  public void testNullRecord()
+      throws IOException {
+    buildRecDef();
+    DataSet dataSet = new DataSet (recDef) {
+      public boolean isAtEnd () {
+        return false;
+      }
+    };
+    fill (dataSet, new String[][] {{"a", "2"}, {"b", "1"}});
+    ExternalSorter sorter = new ExternalSorter (dataSet, amountSpec());
+    sorter.openForInput();
+    assertEquals ("Records before the null", "1,2", column (sorter, 1));
+    sorter.close();
+  }
+
+}
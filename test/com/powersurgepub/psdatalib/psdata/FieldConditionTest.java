@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for FieldCondition.
+
+ @author Herb Bowie
+ */
+public class FieldConditionTest {
+
+  public FieldConditionTest() {
+  }
+
+  /**
+   * Test of resolve method, with each accepted form of an operator.
+   */
+  @Test
+  public void testResolve() {
+    assertEquals ("Word", FieldCondition.GREATER_THAN_OR_EQUAL,
+        FieldCondition.resolve ("Greater Than or Equal To"));
+    assertEquals ("Mnemonic", FieldCondition.GREATER_THAN_OR_EQUAL,
+        FieldCondition.resolve ("GE"));
+    assertEquals ("Symbol", FieldCondition.GREATER_THAN_OR_EQUAL,
+        FieldCondition.resolve (">="));
+    assertEquals ("Alternate symbol", FieldCondition.GREATER_THAN_OR_EQUAL,
+        FieldCondition.resolve ("!<"));
+    assertEquals ("Contains", FieldCondition.CONTAINS,
+        FieldCondition.resolve ("[]"));
+    assertEquals ("Unknown", FieldCondition.INVALID,
+        FieldCondition.resolve ("about"));
+    assertEquals ("Null", FieldCondition.INVALID,
+        FieldCondition.resolve (null));
+  }
+
+  /**
+   * Test of compare method.
+   */
+  @Test
+  public void testCompare() {
+    assertTrue  ("Equal", FieldCondition.compare (FieldCondition.EQUALS, 0));
+    assertFalse ("Not equal", FieldCondition.compare (FieldCondition.EQUALS, 1));
+    assertTrue  ("Less", FieldCondition.compare (FieldCondition.LESS_THAN, -2));
+    assertTrue  ("Less or equal",
+        FieldCondition.compare (FieldCondition.LESS_THAN_OR_EQUAL, 0));
+    assertFalse ("Greater",
+        FieldCondition.compare (FieldCondition.GREATER_THAN, 0));
+    assertTrue  ("Different",
+        FieldCondition.compare (FieldCondition.NOT_EQUAL, -1));
+  }
+
+  /**
+   * Test of matchText method, which should ignore case.
+   */
+  @Test
+  public void testMatchText() {
+    assertTrue  ("Contains", FieldCondition.matchText
+        (FieldCondition.CONTAINS, "The Quick Fox", "quick"));
+    assertFalse ("Does not contain", FieldCondition.matchText
+        (FieldCondition.DOES_NOT_CONTAIN, "The Quick Fox", "quick"));
+    assertTrue  ("Starts with", FieldCondition.matchText
+        (FieldCondition.STARTS_WITH, "The Quick Fox", "the"));
+    assertFalse ("Starts with, longer operand", FieldCondition.matchText
+        (FieldCondition.STARTS_WITH, "The", "the quick"));
+    assertTrue  ("Ends with", FieldCondition.matchText
+        (FieldCondition.ENDS_WITH, "The Quick Fox", "FOX".toLowerCase()));
+    assertFalse ("Ends with, longer operand", FieldCondition.matchText
+        (FieldCondition.ENDS_WITH, "Fox", "quick fox"));
+    assertTrue  ("Does not end with", FieldCondition.matchText
+        (FieldCondition.DOES_NOT_END_WITH, "The Quick Fox", "quick"));
+    assertTrue  ("Contains empty", FieldCondition.matchText
+        (FieldCondition.CONTAINS, "", ""));
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for FieldFilter and CompoundFilter.
+
+ @author Herb Bowie
+ */
+public class FieldFilterTest {
+
+  private RecordDefinition recDef;
+
+  public FieldFilterTest() {
+    recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Amount");
+  }
+
+  private DataRecord buildRecord (String name, String amount) {
+    DataRecord rec = new DataRecord();
+    rec.addField (recDef, name);
+    rec.addField (recDef, amount);
+    return rec;
+  }
+
+  /**
+   * Test of selects method, comparing numbers as numbers.
+   */
+  @Test
+  public void testSelectsNumeric() {
+    FieldFilter filter = new FieldFilter (recDef, "Amount", "gt", "9");
+    assertTrue  ("10 > 9", filter.selects (buildRecord ("a", "10")));
+    assertFalse ("9 > 9", filter.selects (buildRecord ("a", "9")));
+    assertFalse ("-1 > 9", filter.selects (buildRecord ("a", "-1")));
+  }
+
+  /**
+   * Test of selects method, with text operators ignoring case.
+   */
+  @Test
+  public void testSelectsText() {
+    FieldFilter filter
+        = new FieldFilter (recDef, "Name", "starts with", "Ab");
+    assertTrue  ("Same case", filter.selects (buildRecord ("Abc", "0")));
+    assertTrue  ("Other case", filter.selects (buildRecord ("aBC", "0")));
+    assertFalse ("No match", filter.selects (buildRecord ("cab", "0")));
+  }
+
+  /**
+   * Test of selects method, with an invalid operator.
+   */
+  @Test
+  public void testSelectsInvalid() {
+    FieldFilter filter = new FieldFilter (recDef, "Name", "about", "x");
+    try {
+      filter.selects (buildRecord ("x", "0"));
+      fail ("Invalid operator accepted");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Test of CompoundFilter selects method, with and and or logic.
+   */
+  @Test
+  public void testCompound() {
+    CompoundFilter andFilter = new CompoundFilter (recDef, true);
+    andFilter.addFilter (new FieldFilter (recDef, "Name", "co", "b"));
+    andFilter.addFilter (new FieldFilter (recDef, "Amount", "<", "5"));
+    CompoundFilter orFilter = new CompoundFilter (recDef, false);
+    orFilter.addFilter (new FieldFilter (recDef, "Name", "co", "b"));
+    orFilter.addFilter (new FieldFilter (recDef, "Amount", "<", "5"));
+    DataRecord both = buildRecord ("abc", "1");
+    DataRecord nameOnly = buildRecord ("abc", "7");
+    DataRecord neither = buildRecord ("xyz", "7");
+    assertTrue  ("And, both", andFilter.selects (both));
+    assertFalse ("And, one", andFilter.selects (nameOnly));
+    assertTrue  ("Or, one", orFilter.selects (nameOnly));
+    assertFalse ("Or, neither", orFilter.selects (neither));
+  }
+
+}
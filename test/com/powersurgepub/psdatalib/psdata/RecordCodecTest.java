@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import java.io.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for RecordCodec.
+
+ @author Herb Bowie
+ */
+public class RecordCodecTest {
+
+  public RecordCodecTest() {
+  }
+
+  private DataInputStream inputOf (ByteArrayOutputStream bytes) {
+    return new DataInputStream
+        (new ByteArrayInputStream (bytes.toByteArray()));
+  }
+
+  private boolean readFails (ByteArrayOutputStream bytes,
+      RecordDefinition recDef) {
+    try {
+      RecordCodec.readRecord (inputOf (bytes), recDef);
+    } catch (IOException e) {
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Test of writeRecord and readRecord, followed by the end marker.
+   */
+  @Test
+  public void testRoundTrip()
+      throws IOException {
+    RecordDefinition recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Amount");
+    DataRecord rec = new DataRecord();
+    rec.addField (recDef, "caf\u00e9");
+    rec.addField (recDef, "");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream (bytes);
+    RecordCodec.writeRecord (out, recDef, rec);
+    RecordCodec.writeEnd (out);
+    out.close();
+    DataInputStream in = inputOf (bytes);
+    DataRecord back = RecordCodec.readRecord (in, recDef);
+    assertEquals ("Fields", 2, back.getNumberOfFields());
+    assertSame ("Definition", recDef.getDef (0), back.getField(0).getDef());
+    assertEquals ("Data", "caf\u00e9", back.getField(0).getData());
+    assertEquals ("Empty data", "", back.getField(1).getData());
+    assertNull ("End marker", RecordCodec.readRecord (in, recDef));
+  }
+
+  /**
+   * Test of readRecord, rejecting a negative field count, string length
+   * or column number.
+   */
+  @Test
+  public void testInvalidData()
+      throws IOException {
+    RecordDefinition recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream (bytes);
+    out.writeInt (-2);
+    assertTrue ("Negative field count", readFails (bytes, recDef));
+
+    bytes = new ByteArrayOutputStream();
+    out = new DataOutputStream (bytes);
+    out.writeInt (1);
+    out.writeInt (0);
+    out.writeInt (-5);
+    assertTrue ("Negative string length", readFails (bytes, recDef));
+
+    bytes = new ByteArrayOutputStream();
+    out = new DataOutputStream (bytes);
+    out.writeInt (1);
+    out.writeInt (3);
+    out.writeInt (0);
+    assertTrue ("Column out of range", readFails (bytes, recDef));
+    assertTrue ("Column without definition", readFails (bytes, null));
+  }
+
+}
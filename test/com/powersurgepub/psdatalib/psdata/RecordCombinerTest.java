@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import java.io.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for RecordCombiner, and for DataSet.combine.
+
+ @author Herb Bowie
+ */
+public class RecordCombinerTest {
+
+  private static final String[][] ROWS = {
+    {"a", "1", ""}, {"b", "2", ""}, {"a", "", "x"}, {"a", "3", ""},
+    {"c", "4", ""}};
+
+  private RecordDefinition recDef;
+
+  public RecordCombinerTest() {
+  }
+
+  private DataSet buildDataSet () {
+    recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Amount");
+    recDef.addColumn ("Note");
+    DataSet dataSet = new DataSet (recDef);
+    for (int i = 0; i < ROWS.length; i++) {
+      DataRecord rec = new DataRecord();
+      for (int j = 0; j < ROWS [i].length; j++) {
+        rec.addField (recDef, ROWS [i][j]);
+      }
+      dataSet.addRecord (rec);
+    }
+    return dataSet;
+  }
+
+  private SequenceSpec nameSpec () {
+    SequenceSpec seqSpec = new SequenceSpec (recDef);
+    seqSpec.addField ("Name");
+    return seqSpec;
+  }
+
+  private String describe (DataRecord rec) {
+    return rec.getField(0).getData()
+        + ":" + rec.getField(1).getData()
+        + ":" + rec.getField(2).getData();
+  }
+
+  private String describe (DataSource source)
+      throws IOException {
+    StringBuilder str = new StringBuilder();
+    DataRecord rec = source.nextRecordIn();
+    while (rec != null) {
+      str.append (describe (rec));
+      str.append (";");
+      rec = source.nextRecordIn();
+    }
+    return str.toString();
+  }
+
+  private String describe (DataSet dataSet) {
+    StringBuilder str = new StringBuilder();
+    for (int i = 0; i < dataSet.size(); i++) {
+      str.append (describe (dataSet.getRecord (i)));
+      str.append (";");
+    }
+    return str.toString();
+  }
+
+  /**
+   * Test of nextRecordIn, allowing later records to override earlier ones.
+   */
+  @Test
+  public void testCombineWithOverrides()
+      throws IOException {
+    DataSet dataSet = buildDataSet();
+    RecordCombiner combiner = new RecordCombiner
+        (new ExternalSorter (dataSet, nameSpec()), nameSpec(),
+         DataField.LATER_OVERRIDES, DataField.DATA_OVERRIDE, 0);
+    combiner.openForInput();
+    assertEquals ("Combined records", "a:3:x;b:2:;c:4:;",
+        describe (combiner));
+    assertEquals ("Combine count", 2, combiner.getCombineCount());
+    combiner.close();
+  }
+
+  /**
+   * Test of nextRecordIn, with no overrides and no data to be lost.
+   */
+  @Test
+  public void testCombineWithoutLoss()
+      throws IOException {
+    DataSet dataSet = buildDataSet();
+    RecordCombiner combiner = new RecordCombiner
+        (new ExternalSorter (dataSet, nameSpec()), nameSpec(),
+         DataField.NO_OVERRIDES, DataField.NO_DATA_LOSS, 0);
+    combiner.openForInput();
+    assertEquals ("Combined records", "a:1:x;a:3:;b:2:;c:4:;",
+        describe (combiner));
+    assertEquals ("Combine count", 1, combiner.getCombineCount());
+    combiner.close();
+  }
+
+  /**
+   * Test of DataSet.combine, which should match the streaming results.
+   */
+  @Test
+  public void testDataSetCombine() {
+    DataSet dataSet = buildDataSet();
+    dataSet.setSequence (nameSpec());
+    int count = dataSet.combine
+        (DataField.LATER_OVERRIDES, DataField.DATA_OVERRIDE, 0);
+    assertEquals ("Combined records", "a:3:x;b:2:;c:4:;",
+        describe (dataSet));
+    assertEquals ("Combine count", 2, count);
+
+    dataSet = buildDataSet();
+    dataSet.setSequence (nameSpec());
+    count = dataSet.combine
+        (DataField.NO_OVERRIDES, DataField.NO_DATA_LOSS, 0);
+    assertEquals ("Records without loss", "a:1:x;a:3:;b:2:;c:4:;",
+        describe (dataSet));
+    assertEquals ("Count without loss", 1, count);
+  }
+
+}
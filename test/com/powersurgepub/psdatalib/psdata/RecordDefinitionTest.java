@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import java.util.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for finding fields by name, in RecordDefinition and DataRecord. 
+
+ @author Herb Bowie
+ */
+public class RecordDefinitionTest {
+  
+  public RecordDefinitionTest() {
+  }
+
+  /**
+   * Test of getColumnNumber method, of class RecordDefinition.
+   */
+  @Test
+  public void testGetColumnNumber() {
+    RecordDefinition recDef = new RecordDefinition();
+    recDef.addColumn ("First Name");
+    recDef.addColumn ("Last Name");
+    assertEquals ("Found by name", 1, recDef.getColumnNumber ("Last Name"));
+    assertEquals ("Found by common form", 0, 
+        recDef.getColumnNumber ("firstname"));
+    assertEquals ("Not found", -1, recDef.getColumnNumber ("Middle Name"));
+    recDef.addColumn ("Middle Name");
+    assertEquals ("Found after being added", 2, 
+        recDef.getColumnNumber ("Middle Name"));
+  }
+
+  /**
+   * Test that the first of two columns with the same name is found.
+   */
+  @Test
+  public void testDuplicateColumns() {
+    RecordDefinition recDef = new RecordDefinition();
+    recDef.addColumn ("Title");
+    recDef.addColumn ("Title");
+    assertEquals ("First duplicate found", 0, recDef.getColumnNumber ("Title"));
+    assertEquals ("putColumn finds existing column", 0, 
+        recDef.putColumn (new DataFieldDefinition ("Title")));
+    assertEquals ("Duplicate not added", 2, recDef.getNumberOfFields());
+  }
+
+  /**
+   * Test that columns are renumbered when a column is removed.
+   */
+  @Test
+  public void testRemove() {
+    RecordDefinition recDef = new RecordDefinition();
+    recDef.addColumn ("A");
+    recDef.addColumn ("B");
+    recDef.addColumn ("C");
+    int version = recDef.getLayoutVersion();
+    recDef.remove (0);
+    assertTrue ("Layout version changed", version != recDef.getLayoutVersion());
+    assertEquals ("Removed column not found", -1, recDef.getColumnNumber ("A"));
+    assertEquals ("Later column renumbered", 1, recDef.getColumnNumber ("C"));
+  }
+
+  /**
+   * Test of clear, removing all columns at once, and of adding columns
+   * again afterwards.
+   */
+  @Test
+  public void testClear() {
+    RecordDefinition recDef = new RecordDefinition();
+    recDef.addColumn ("A");
+    recDef.addColumn ("B");
+    recDef.addColumn ("A");
+    int version = recDef.getLayoutVersion();
+    recDef.clear();
+    assertEquals ("No columns", 0, recDef.getNumberOfFields());
+    assertEquals ("No names", 0, recDef.getNames().size());
+    assertTrue ("Layout version changed", version != recDef.getLayoutVersion());
+    assertEquals ("Cleared column not found", -1, recDef.getColumnNumber ("A"));
+    assertEquals ("Column added after clear", 0, recDef.addColumn ("B"));
+    assertEquals ("New column found", 0, recDef.getColumnNumber ("B"));
+    assertEquals ("Duplicate column added", 1, recDef.addColumn ("B"));
+    assertEquals ("Duplicate keeps first column", 0,
+        recDef.getColumnNumber ("B"));
+  }
+
+  /**
+   * Test of getColumnNumber method, of class DataRecord, for records
+   * built both with and without a record definition.
+   */
+  @Test
+  public void testRecordGetColumnNumber() {
+    RecordDefinition recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("City");
+    DataRecord rec = new DataRecord();
+    rec.addField (recDef, "Joe");
+    rec.addField (recDef, "Paris");
+    assertEquals ("Field found through definition", 1, 
+        rec.getColumnNumber ("City"));
+    assertEquals ("Field data", "Paris", rec.getFieldData ("City"));
+    assertEquals ("Field not found", -1, rec.getColumnNumber ("State"));
+    
+    DataRecord rec2 = new DataRecord();
+    rec2.addField (new DataFieldDefinition ("City"), "Rome");
+    rec2.addField (new DataFieldDefinition ("Name"), "Ann");
+    assertEquals ("Field found without definition", 1, 
+        rec2.getColumnNumber ("Name"));
+    rec2.addField (new DataFieldDefinition ("State"), "Lazio");
+    assertEquals ("Field found after being added", 2, 
+        rec2.getColumnNumber ("State"));
+  }
+
+  /**
+   * Test that a record no longer uses its definition's columns once the
+   * definition's columns have been removed.
+   */
+  @Test
+  public void testRecordAfterRemove() {
+    RecordDefinition recDef = new RecordDefinition();
+    recDef.addColumn ("A");
+    recDef.addColumn ("B");
+    DataRecord rec = new DataRecord();
+    rec.addField (recDef, "a");
+    rec.addField (recDef, "b");
+    recDef.remove (0);
+    assertEquals ("Field keeps its own position", 1, rec.getColumnNumber ("B"));
+  }
+
+  /**
+   * Test that a sorter with no sequence leaves records as they are.
+   */
+  @Test
+  public void testSorterWithoutSequence() {
+    RecordDefinition recDef = new RecordDefinition();
+    recDef.addColumn ("A");
+    ArrayList<DataRecord> records = new ArrayList<DataRecord>();
+    for (int i = 3; i > 0; i--) {
+      DataRecord rec = new DataRecord();
+      rec.addField (recDef, String.valueOf (i));
+      records.add (rec);
+    }
+    new SequenceSorter (null).sort (records);
+    assertEquals ("Sequence unchanged", "3", records.get(0).getField(0).getData());
+  }
+  
+}
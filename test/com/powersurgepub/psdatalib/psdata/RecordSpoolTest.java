@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import java.io.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for RecordSpool.
+
+ @author Herb Bowie
+ */
+public class RecordSpoolTest {
+
+  private static final String[][] ROWS = {
+    {"a", "1"}, {"b", ""}, {"c", "caf\u00e9"}, {"d", "4"}};
+
+  private RecordDefinition recDef;
+
+  public RecordSpoolTest() {
+  }
+
+  private RecordSpool buildSpool (long memoryBudget)
+      throws IOException {
+    recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Amount");
+    RecordSpool spool = new RecordSpool (recDef, memoryBudget);
+    for (int i = 0; i < ROWS.length; i++) {
+      DataRecord rec = new DataRecord();
+      rec.addField (recDef, ROWS [i][0]);
+      rec.addField (recDef, ROWS [i][1]);
+      spool.add (rec);
+    }
+    return spool;
+  }
+
+  private String describe (DataRecord rec) {
+    StringBuilder str = new StringBuilder();
+    for (int i = 0; i < rec.getNumberOfFields(); i++) {
+      if (i > 0) {
+        str.append (":");
+      }
+      str.append (rec.getField(i).getDef().getProperName());
+      str.append ("=");
+      str.append (rec.getField(i).getData());
+    }
+    return str.toString();
+  }
+
+  private String describe (RecordSpool.Cursor cursor)
+      throws IOException {
+    StringBuilder str = new StringBuilder();
+    DataRecord rec = cursor.next();
+    while (rec != null) {
+      str.append (describe (rec));
+      str.append (";");
+      rec = cursor.next();
+    }
+    return str.toString();
+  }
+
+  private static final String EXPECTED
+      = "Name=a:Amount=1;Name=b:Amount=;Name=c:Amount=caf\u00e9;"
+      + "Name=d:Amount=4;";
+
+  /**
+   * Test of openCursor, with all of the records held in memory.
+   */
+  @Test
+  public void testInMemory()
+      throws IOException {
+    RecordSpool spool = buildSpool (1024 * 1024);
+    assertEquals ("Size", 4, spool.size());
+    assertEquals ("Nothing spooled", 0, spool.getNumberSpooled());
+    assertEquals ("Records", EXPECTED, describe (spool.openCursor()));
+    spool.close();
+  }
+
+  /**
+   * Test of openCursor, with the records beyond the memory budget read
+   * back from the temporary file, by more than one cursor at once.
+   */
+  @Test
+  public void testSpooled()
+      throws IOException {
+    RecordSpool spool = buildSpool (1);
+    assertEquals ("Size", 4, spool.size());
+    assertEquals ("Records spooled", 3, spool.getNumberSpooled());
+    RecordSpool.Cursor first = spool.openCursor();
+    RecordSpool.Cursor second = spool.openCursor();
+    assertEquals ("First record", "Name=a:Amount=1",
+        describe (first.next()));
+    assertEquals ("Second cursor", EXPECTED, describe (second));
+    assertEquals ("Rest of first cursor",
+        "Name=b:Amount=;Name=c:Amount=caf\u00e9;Name=d:Amount=4;",
+        describe (first));
+    spool.close();
+  }
+
+  /**
+   * Test of add, with a record holding a field not found in the record
+   * definition, and with no record definition at all.
+   */
+  @Test
+  public void testUndefinedField()
+      throws IOException {
+    recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    DataRecord rec = new DataRecord();
+    rec.addField (recDef, "a");
+    rec.addField (new DataField (new DataFieldDefinition ("Extra"), "x"));
+    RecordSpool spool = new RecordSpool (recDef, 0);
+    spool.add (rec);
+    assertEquals ("Undefined field", "Name=a:Extra=x;",
+        describe (spool.openCursor()));
+    spool.close();
+
+    spool = new RecordSpool (null, 0);
+    spool.add (rec);
+    assertEquals ("No record definition", "Name=a:Extra=x;",
+        describe (spool.openCursor()));
+    spool.close();
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.psdata;
+
+  import java.util.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for SequenceSorter. 
+
+ @author Herb Bowie
+ */
+public class SequenceSorterTest {
+  
+  private RecordDefinition recDef;
+  
+  public SequenceSorterTest() {
+  }
+  
+  private ArrayList<DataRecord> buildRecords (String[][] rows) {
+    recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Amount");
+    recDef.addColumn ("Position");
+    ArrayList<DataRecord> records = new ArrayList<DataRecord>();
+    for (int i = 0; i < rows.length; i++) {
+      DataRecord rec = new DataRecord();
+      rec.addField (recDef, rows [i][0]);
+      rec.addField (recDef, rows [i][1]);
+      rec.addField (recDef, String.valueOf (i));
+      records.add (rec);
+    }
+    return records;
+  }
+  
+  private String column (List<DataRecord> records, int columnNumber) {
+    StringBuilder str = new StringBuilder();
+    for (int i = 0; i < records.size(); i++) {
+      if (i > 0) {
+        str.append (",");
+      }
+      str.append (records.get(i).getField(columnNumber).getData());
+    }
+    return str.toString();
+  }
+
+  /**
+   * Test of sort method, with numbers compared as numbers.
+   */
+  @Test
+  public void testSortNumeric() {
+    ArrayList<DataRecord> records = buildRecords (new String[][] {
+      {"a", "10"}, {"b", "9"}, {"c", "100"}, {"d", "-1"}});
+    SequenceSpec seqSpec = new SequenceSpec (recDef);
+    seqSpec.addField ("Amount");
+    new SequenceSorter (seqSpec).sort (records);
+    assertEquals ("Sort numbers", "-1,9,10,100", column (records, 1));
+  }
+
+  /**
+   * Test of sort method, with a descending key.
+   */
+  @Test
+  public void testSortDescending() {
+    ArrayList<DataRecord> records = buildRecords (new String[][] {
+      {"b", "1"}, {"c", "2"}, {"a", "3"}});
+    SequenceSpec seqSpec = new SequenceSpec (recDef);
+    seqSpec.addField ("Name", SequenceField.DESCENDING);
+    new SequenceSorter (seqSpec).sort (records);
+    assertEquals ("Sort descending", "c,b,a", column (records, 0));
+  }
+
+  /**
+   * Test that records with equal keys keep their original sequence,
+   * including when there are enough records to be merged.
+   */
+  @Test
+  public void testSortStable() {
+    String[][] rows = new String [200][];
+    for (int i = 0; i < rows.length; i++) {
+      rows [i] = new String[] {String.valueOf ((char)('a' + (i % 3))), "0"};
+    }
+    ArrayList<DataRecord> records = buildRecords (rows);
+    SequenceSpec seqSpec = new SequenceSpec (recDef);
+    seqSpec.addField ("Name");
+    new SequenceSorter (seqSpec).sort (records);
+    for (int i = 1; i < records.size(); i++) {
+      DataRecord prior = records.get (i - 1);
+      DataRecord rec = records.get (i);
+      int nameCompare = prior.getField(0).getData().compareTo
+          (rec.getField(0).getData());
+      assertTrue ("Names in sequence", nameCompare <= 0);
+      if (nameCompare == 0) {
+        assertTrue ("Equal keys keep their original sequence",
+            Integer.parseInt (prior.getField(2).getData())
+            < Integer.parseInt (rec.getField(2).getData()));
+      }
+    }
+  }
+
+  /**
+   * Test of sort method, with a major and a minor key.
+   */
+  @Test
+  public void testSortTwoKeys() {
+    ArrayList<DataRecord> records = buildRecords (new String[][] {
+      {"b", "2"}, {"a", "2"}, {"b", "1"}, {"a", "1"}});
+    SequenceSpec seqSpec = new SequenceSpec (recDef);
+    seqSpec.addField ("Name");
+    seqSpec.addField ("Amount", SequenceField.DESCENDING);
+    new SequenceSorter (seqSpec).sort (records);
+    assertEquals ("Major key", "a,a,b,b", column (records, 0));
+    assertEquals ("Minor key", "2,1,2,1", column (records, 1));
+  }
+
+  /**
+   * Test that the sort gives the same result as DataSet.setSequence.
+   */
+  @Test
+  public void testDataSetSequence() {
+    ArrayList<DataRecord> records = buildRecords (new String[][] {
+      {"x", "3"}, {"y", "1"}, {"z", "2"}});
+    DataSet dataSet = new DataSet (recDef);
+    for (int i = 0; i < records.size(); i++) {
+      dataSet.addRecord (records.get (i));
+    }
+    SequenceSpec seqSpec = new SequenceSpec (recDef);
+    seqSpec.addField ("Amount");
+    dataSet.setSequence (seqSpec);
+    assertEquals ("DataSet sequence", "y", dataSet.getRecord(0).getField(0).getData());
+    assertEquals ("DataSet sequence", "x", dataSet.getRecord(2).getField(0).getData());
+  }
+  
+}
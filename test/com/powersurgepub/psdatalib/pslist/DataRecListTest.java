@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.pslist;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import javax.swing.event.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for the filtered and sorted view kept by DataRecList.
+
+ @author Herb Bowie
+ */
+public class DataRecListTest {
+
+  private DataRecList list;
+  private StringBuilder events;
+
+  public DataRecListTest() {
+  }
+
+  private void buildList (String[][] rows) {
+    list = new DataRecList();
+    list.initialize();
+    RecordDefinition recDef = list.getRecDef();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Group");
+    for (int i = 0; i < rows.length; i++) {
+      list.addRecord (buildRecord (rows [i][0], rows [i][1]));
+    }
+    events = new StringBuilder();
+    list.addTableModelListener (new TableModelListener() {
+      public void tableChanged (TableModelEvent e) {
+        if (e.getFirstRow() == TableModelEvent.HEADER_ROW
+            || e.getLastRow() == Integer.MAX_VALUE) {
+          events.append ("all;");
+        } else {
+          events.append (String.valueOf (e.getType()) + ":"
+              + String.valueOf (e.getFirstRow()) + "-"
+              + String.valueOf (e.getLastRow()) + ";");
+        }
+      }
+    });
+  }
+
+  private DataRecord buildRecord (String name, String group) {
+    DataRecord rec = new DataRecord();
+    rec.addField (list.getRecDef(), name);
+    rec.addField (list.getRecDef(), group);
+    return rec;
+  }
+
+  private void sortByGroup () {
+    PSItemComparator comparator = new PSItemComparator (list);
+    comparator.addField ("Group");
+    list.setComparator (comparator);
+  }
+
+  private void filterOnGroup (String group) {
+    PSItemFilter filter = new PSItemFilter (true);
+    filter.addFilter (new PSFieldFilter (list, "Group", "equals", group));
+    list.setInputFilter (filter);
+  }
+
+  private String names () {
+    StringBuilder str = new StringBuilder();
+    for (int i = 0; i < list.size(); i++) {
+      if (i > 0) {
+        str.append (",");
+      }
+      str.append (list.get(i).getField(0).getData());
+    }
+    return str.toString();
+  }
+
+  /**
+   * Test of setComparator, keeping records with equal keys in the order
+   * in which they were added.
+   */
+  @Test
+  public void testSortStable() {
+    buildList (new String[][] {
+      {"a", "y"}, {"b", "x"}, {"c", "y"}, {"d", "x"}, {"e", "z"}});
+    sortByGroup();
+    assertEquals ("Sorted view", "b,d,a,c,e", names());
+    assertEquals ("Whole table refreshed", "all;", events.toString());
+  }
+
+  /**
+   * Test of setInputFilter, firing row events for the rows that change.
+   */
+  @Test
+  public void testRefilter() {
+    buildList (new String[][] {
+      {"a", "y"}, {"b", "x"}, {"c", "y"}, {"d", "x"}, {"e", "z"}});
+    sortByGroup();
+    events = new StringBuilder();
+    filterOnGroup ("y");
+    assertEquals ("Filtered view", "a,c", names());
+    assertEquals ("Rows deleted",
+        TableModelEvent.DELETE + ":0-1;" + TableModelEvent.DELETE + ":2-2;",
+        events.toString());
+    events = new StringBuilder();
+    list.setInputFilter (null);
+    assertEquals ("Unfiltered view", "b,d,a,c,e", names());
+    assertEquals ("Rows inserted",
+        TableModelEvent.INSERT + ":0-1;" + TableModelEvent.INSERT + ":4-4;",
+        events.toString());
+  }
+
+  /**
+   * Test of setInputFilter, removing and restoring a long run of rows
+   * with one event each.
+   */
+  @Test
+  public void testRefilterLongRun() {
+    String[][] rows = new String [2000][];
+    for (int i = 0; i < rows.length; i++) {
+      rows [i] = new String[] {String.valueOf (i), (i < 1500 ? "x" : "y")};
+    }
+    buildList (rows);
+    filterOnGroup ("y");
+    assertEquals ("Filtered size", 500, list.size());
+    assertEquals ("First row kept", "1500", list.get(0).getField(0).getData());
+    assertEquals ("One run deleted",
+        TableModelEvent.DELETE + ":0-1499;", events.toString());
+    events = new StringBuilder();
+    list.setInputFilter (null);
+    assertEquals ("Unfiltered size", 2000, list.size());
+    assertEquals ("First row restored", "0", list.get(0).getField(0).getData());
+    assertEquals ("Last row", "1999", list.get(1999).getField(0).getData());
+    assertEquals ("One run inserted",
+        TableModelEvent.INSERT + ":0-1499;", events.toString());
+  }
+
+  /**
+   * Test of addRecord, inserting after any records with equal keys, and
+   * skipping records not selected by the filter.
+   */
+  @Test
+  public void testAddRecord() {
+    buildList (new String[][] {{"a", "y"}, {"b", "x"}, {"c", "z"}});
+    sortByGroup();
+    assertEquals ("Added row", 2, list.addRecord (buildRecord ("d", "y")));
+    assertEquals ("View after add", "b,a,d,c", names());
+    filterOnGroup ("y");
+    assertEquals ("Not selected", -1, list.addRecord (buildRecord ("e", "x")));
+    assertEquals ("View after filtered add", "a,d", names());
+    assertEquals ("Complete list", 5, list.totalSize());
+  }
+
+  /**
+   * Test of modifyRecord, moving a record whose key has changed.
+   */
+  @Test
+  public void testModifyRecord() {
+    buildList (new String[][] {
+      {"a", "y"}, {"b", "x"}, {"c", "z"}});
+    sortByGroup();
+    DataRecord rec = list.get (0);
+    rec.getField(1).setData ("zz");
+    assertEquals ("Modified row", 2, list.modifyRecord (rec));
+    assertEquals ("View after modify", "a,c,b", names());
+  }
+
+  /**
+   * Test of removeFromCompleteList, removing the right one of several
+   * records with equal keys.
+   */
+  @Test
+  public void testRemoveDuplicateKey() {
+    buildList (new String[][] {
+      {"a", "x"}, {"b", "x"}, {"c", "x"}});
+    sortByGroup();
+    events = new StringBuilder();
+    assertTrue ("Removed", list.removeFromCompleteList (1));
+    assertEquals ("View after remove", "a,c", names());
+    assertEquals ("Row deleted", TableModelEvent.DELETE + ":1-1;",
+        events.toString());
+  }
+
+}
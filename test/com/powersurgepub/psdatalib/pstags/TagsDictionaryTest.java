@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.pstags;
+
+  import java.util.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for TagsDictionary.
+
+ @author Herb Bowie
+ */
+public class TagsDictionaryTest {
+
+  public TagsDictionaryTest() {
+  }
+
+  private TaggedItem item (String title, String tags) {
+    TaggedItem item = new TaggedItem (title);
+    item.setTags (tags);
+    return item;
+  }
+
+  private String titles (TagsDictionary dictionary, BitSet selected) {
+    StringBuilder str = new StringBuilder();
+    for (int p = selected.nextSetBit (0); p >= 0;
+        p = selected.nextSetBit (p + 1)) {
+      str.append (((TaggedItem)dictionary.getItem (p)).getTitle());
+      str.append (";");
+    }
+    return str.toString();
+  }
+
+  /**
+   * Test of getItemsTagged, selectAny and selectAll.
+   */
+  @Test
+  public void testSelect() {
+    TagsDictionary dictionary = new TagsDictionary();
+    dictionary.add (item ("one", "java.swing, tools"));
+    dictionary.add (item ("two", "java"));
+    dictionary.add (item ("three", "Tools"));
+    dictionary.add (item ("four", ""));
+
+    assertEquals ("Exactly java", "two;",
+        titles (dictionary, dictionary.getItemsTagged ("java", false)));
+    assertEquals ("Java and beneath", "one;two;",
+        titles (dictionary, dictionary.getItemsTagged ("java", true)));
+    assertEquals ("Any", "one;two;three;", titles (dictionary,
+        dictionary.selectAny (new Tags ("java, tools"), false)));
+    assertEquals ("All", "one;", titles (dictionary,
+        dictionary.selectAll (new Tags ("java.swing, tools"), false)));
+    assertEquals ("Unknown tag", "", titles (dictionary,
+        dictionary.selectAll (new Tags ("tools, unknown"), false)));
+    assertEquals ("No tags", "one;two;three;four;", titles (dictionary,
+        dictionary.selectAny (new Tags (""), false)));
+  }
+
+  /**
+   * Test of modify, moving an item from its old tags to its new ones.
+   */
+  @Test
+  public void testModify() {
+    TagsDictionary dictionary = new TagsDictionary();
+    TaggedItem one = item ("one", "alpha");
+    dictionary.add (one);
+    dictionary.add (item ("two", "alpha"));
+    one.setTags ("beta");
+    dictionary.modify (one);
+    assertEquals ("Old tag", "two;",
+        titles (dictionary, dictionary.getItemsTagged ("alpha", false)));
+    assertEquals ("New tag", "one;",
+        titles (dictionary, dictionary.getItemsTagged ("beta", false)));
+  }
+
+  /**
+   * Test of remove, freeing the item's position and the ids of tags that
+   * no other item bears, for reuse.
+   */
+  @Test
+  public void testReuse() {
+    TagsDictionary dictionary = new TagsDictionary();
+    TaggedItem one = item ("one", "alpha.beta");
+    TaggedItem two = item ("two", "gamma");
+    dictionary.add (one);
+    dictionary.add (two);
+    assertEquals ("Tags in use", 3, dictionary.getNumberOfTags());
+    int oldId = dictionary.getTagId ("alpha.beta");
+
+    dictionary.remove (one);
+    assertEquals ("Position freed", -1, dictionary.getPosition (one));
+    assertNull ("Item cleared", dictionary.getItem (0));
+    assertEquals ("Tags freed", 1, dictionary.getNumberOfTags());
+    assertEquals ("Id freed", -1, dictionary.getTagId ("alpha.beta"));
+    assertNull ("Tag cleared", dictionary.getTag (oldId));
+
+    TaggedItem three = item ("three", "delta");
+    dictionary.add (three);
+    assertEquals ("Position reused", 0, dictionary.getPosition (three));
+    assertTrue ("Id reused", dictionary.getTagId ("delta") < 3);
+    assertEquals ("Tags in use after reuse", 2, dictionary.getNumberOfTags());
+    assertEquals ("Reused position selected", "three;",
+        titles (dictionary, dictionary.getItemsTagged ("delta", false)));
+    assertEquals ("Other item kept", "two;",
+        titles (dictionary, dictionary.getItemsTagged ("gamma", false)));
+  }
+
+  /**
+   * Test of getSelector, accepting the items selected from the bitmaps.
+   */
+  @Test
+  public void testSelector() {
+    TagsDictionary dictionary = new TagsDictionary();
+    TaggedItem one = item ("one", "java.swing, tools");
+    TaggedItem two = item ("two", "java");
+    TaggedItem three = item ("three", "tools");
+    dictionary.add (one);
+    dictionary.add (two);
+    dictionary.add (three);
+    TaggableSelector any
+        = dictionary.getSelector (new Tags ("java"), false, true);
+    assertTrue ("Beneath java", any.selected (one));
+    assertTrue ("Exactly java", any.selected (two));
+    assertFalse ("Not java", any.selected (three));
+    assertFalse ("Not in dictionary", any.selected (item ("four", "java")));
+    TaggableSelector all
+        = dictionary.getSelector (new Tags ("java.swing, tools"), true, false);
+    assertTrue ("Both tags", all.selected (one));
+    assertFalse ("One tag only", all.selected (three));
+  }
+
+}
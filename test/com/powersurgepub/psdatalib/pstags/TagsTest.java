@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.pstags;
+
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for the tag, word and level positions that Tags looks up in its
+ index.
+
+ @author Herb Bowie
+ */
+public class TagsTest {
+
+  private static final String[] SAMPLES = {
+    "", "Alpha", "Alpha.Beta, Gamma; delta", "a/b/c, d", "One two, three",
+    "x.y.z, p.q, r.s.t.u"};
+
+  public TagsTest() {
+  }
+
+  /**
+   Find the start of a tag by scanning the tags string from the beginning.
+   */
+  private int scanTagStart (StringBuilder str, boolean slash, int tagIndex) {
+    int tagCount = -1;
+    int i = 0;
+    int start = 0;
+    int end = 0;
+    while (i < str.length() && tagCount < tagIndex) {
+      start = Tags.indexOfNextWordStart (str, i, slash);
+      end   = Tags.indexOfNextSeparator (str, start, false, true, slash);
+      tagCount++;
+      if (tagCount < tagIndex) {
+        i = end + 1;
+      }
+    }
+    if (tagCount < tagIndex) {
+      return str.length();
+    } else {
+      return start;
+    }
+  }
+
+  /**
+   Find the start of a word by scanning the tags string from the beginning.
+   */
+  private int scanWordStart (StringBuilder str, boolean slash, int wordIndex) {
+    int wordCount = -1;
+    int i = 0;
+    int start = 0;
+    int end = 0;
+    while (i < str.length() && wordCount < wordIndex) {
+      start = Tags.indexOfNextWordStart (str, i, slash);
+      end   = Tags.indexOfNextSeparator (str, start, true, true, slash);
+      wordCount++;
+      if (wordCount < wordIndex) {
+        i = end + 1;
+      }
+    }
+    return start;
+  }
+
+  /**
+   Count the levels of a tag by scanning the tags string.
+   */
+  private int scanLevels (StringBuilder str, boolean slash, int tagIndex) {
+    int levels = 0;
+    int s = scanTagStart (str, slash, tagIndex);
+    int e = Tags.indexOfNextSeparator (str, s, true, true, slash);
+    if (s >= 0 && s < str.length()) {
+      levels = 1;
+      while (s < str.length()
+          && e < str.length()
+          && (! Tags.isTagSeparator (str.charAt(e)))) {
+        levels++;
+        s = Tags.indexOfNextWordStart (str, e, slash);
+        e = Tags.indexOfNextSeparator (str, s, true, true, slash);
+      }
+    }
+    return levels;
+  }
+
+  private void compareWithScan (Tags tags, boolean slash) {
+    StringBuilder str = tags.getTags();
+    String label = "[" + str.toString() + "] ";
+    for (int i = 0; i < 6; i++) {
+      assertEquals (label + "tag start " + String.valueOf (i),
+          scanTagStart (str, slash, i), tags.getTagStart (i));
+      assertEquals (label + "word start " + String.valueOf (i),
+          scanWordStart (str, slash, i), tags.getWordStart (i));
+      assertEquals (label + "levels " + String.valueOf (i),
+          scanLevels (str, slash, i), tags.getLevels (i));
+    }
+  }
+
+  /**
+   * Test of getTagStart, getWordStart and getLevels, finding the same
+   * positions as a scan of the tags string.
+   */
+  @Test
+  public void testIndexMatchesScan() {
+    for (int i = 0; i < SAMPLES.length; i++) {
+      compareWithScan (new Tags (SAMPLES [i], false), false);
+      compareWithScan (new Tags (SAMPLES [i], true), true);
+    }
+  }
+
+  /**
+   * Test of getTag, getLevel and getWord.
+   */
+  @Test
+  public void testLookups() {
+    Tags tags = new Tags ("x.y.z, p.q, r", false);
+    assertEquals ("Tags kept in order", "p.q, r, x.y.z", tags.toString());
+    assertEquals ("First tag", "p.q", tags.getTag (0));
+    assertEquals ("Last tag", "x.y.z", tags.getTag (2));
+    assertEquals ("No such tag", "", tags.getTag (3));
+    assertEquals ("Levels", 3, tags.getLevels (2));
+    assertEquals ("Middle level", "y", tags.getLevel (2, 1));
+    assertEquals ("First tag level", "q", tags.getLevel (0, 1));
+    assertEquals ("Fourth word", "x", tags.getWord (3));
+    assertTrue ("Tag found", tags.tagFound ("P.Q"));
+    assertFalse ("Partial tag not found", tags.tagFound ("p"));
+  }
+
+  /**
+   * Test of set and merge, discarding the index when the tags change.
+   */
+  @Test
+  public void testIndexDiscarded() {
+    Tags tags = new Tags ("a.b", false);
+    assertEquals ("Levels before", 2, tags.getLevels (0));
+    tags.set ("c.d.e, f");
+    assertEquals ("Levels after set", 3, tags.getLevels (0));
+    assertEquals ("Tag after set", "f", tags.getTag (1));
+    tags.merge ("g");
+    assertEquals ("Tag after merge", "g", tags.getTag (2));
+    compareWithScan (tags, false);
+  }
+
+  /**
+   * Test of TagsIterator, walking the words and tags from the index.
+   */
+  @Test
+  public void testIterator() {
+    Tags tags = new Tags ("p, x.y", false);
+    TagsIterator iterator = new TagsIterator (tags);
+    StringBuilder words = new StringBuilder();
+    while (iterator.hasNextWord()) {
+      words.append (iterator.nextWord());
+      words.append (";");
+    }
+    assertEquals ("Words", "p;x;y;", words.toString());
+    iterator.reset();
+    StringBuilder tagList = new StringBuilder();
+    while (iterator.hasNextTag()) {
+      tagList.append (iterator.nextTag());
+      tagList.append (";");
+    }
+    assertEquals ("Tags", "p;x.y;", tagList.toString());
+  }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.pstags;
+
+  import java.util.*;
+  import javax.swing.event.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for TagsTreeBuilder, and for TagsModel.rebuild.
+
+ @author Herb Bowie
+ */
+public class TagsTreeBuilderTest {
+
+  private static final String[][] ITEMS = {
+    {"Zeta", "java.swing, tools"}, {"Alpha", "java"}, {"Mu", "Tools"},
+    {"Beta", "java.swing"}, {"Omega", ""}, {"Kappa", "java.io, misc.old"}};
+
+  public TagsTreeBuilderTest() {
+  }
+
+  private ArrayList<TaggedItem> buildItems () {
+    ArrayList<TaggedItem> items = new ArrayList<TaggedItem>();
+    for (int i = 0; i < ITEMS.length; i++) {
+      TaggedItem item = new TaggedItem (ITEMS [i][0]);
+      item.setTags (ITEMS [i][1]);
+      items.add (item);
+    }
+    return items;
+  }
+
+  private TaggableList asList (final ArrayList<TaggedItem> items) {
+    return new TaggableList() {
+      public int size () {
+        return items.size();
+      }
+      public Taggable get (int i) {
+        if (i >= 0 && i < items.size()) {
+          return items.get (i);
+        } else {
+          return null;
+        }
+      }
+    };
+  }
+
+  /**
+   Describe a tree, one node per line, indented by depth.
+   */
+  private void describe (TagsNode node, String indent, StringBuilder str) {
+    str.append (indent);
+    str.append (node.toString());
+    str.append ("\n");
+    for (int i = 0; i < node.getChildCount(); i++) {
+      describe ((TagsNode)node.getChildAt (i), indent + "  ", str);
+    }
+  }
+
+  private String describe (TagsModel model) {
+    StringBuilder str = new StringBuilder();
+    describe (model.getRoot(), "", str);
+    return str.toString();
+  }
+
+  /**
+   * Test of rebuild, producing the same tree as adding the items one at a
+   * time, with a single event sent to the tree's listeners.
+   */
+  @Test
+  public void testRebuildMatchesAdd() {
+    TagsModel added = new TagsModel();
+    ArrayList<TaggedItem> addedItems = buildItems();
+    for (int i = 0; i < addedItems.size(); i++) {
+      added.add (addedItems.get (i));
+    }
+
+    TagsModel rebuilt = new TagsModel();
+    final int[] events = new int[1];
+    rebuilt.getModel().addTreeModelListener (new TreeModelListener() {
+      public void treeNodesChanged (TreeModelEvent e) {
+        events [0]++;
+      }
+      public void treeNodesInserted (TreeModelEvent e) {
+        events [0]++;
+      }
+      public void treeNodesRemoved (TreeModelEvent e) {
+        events [0]++;
+      }
+      public void treeStructureChanged (TreeModelEvent e) {
+        events [0]++;
+      }
+    });
+    rebuilt.rebuild (asList (buildItems()));
+
+    assertEquals ("Same tree", describe (added), describe (rebuilt));
+    assertEquals ("Single event", 1, events [0]);
+  }
+
+  /**
+   * Test of publish, pointing each item at its nodes in the new tree.
+   */
+  @Test
+  public void testItemNodes() {
+    ArrayList<TaggedItem> items = buildItems();
+    TagsModel model = new TagsModel();
+    model.rebuild (asList (items));
+    for (int i = 0; i < items.size(); i++) {
+      TaggedItem item = items.get (i);
+      TagsNode node = item.getTagsNode();
+      assertNotNull ("Node for " + item.getTitle(), node);
+      assertSame ("Node holds " + item.getTitle(), item, node.getTaggable());
+      assertSame ("Node within new tree", model.getRoot(), node.getRoot());
+    }
+  }
+
+  /**
+   * Test of add, after a rebuild, keeping the tree usable one item at a
+   * time.
+   */
+  @Test
+  public void testAddAfterRebuild() {
+    ArrayList<TaggedItem> items = buildItems();
+    TagsModel rebuilt = new TagsModel();
+    rebuilt.rebuild (asList (items));
+    TaggedItem extra = new TaggedItem ("Delta");
+    extra.setTags ("java.io");
+    rebuilt.add (extra);
+
+    TagsModel added = new TagsModel();
+    ArrayList<TaggedItem> addedItems = buildItems();
+    for (int i = 0; i < addedItems.size(); i++) {
+      added.add (addedItems.get (i));
+    }
+    TaggedItem extra2 = new TaggedItem ("Delta");
+    extra2.setTags ("java.io");
+    added.add (extra2);
+
+    assertEquals ("Same tree after add", describe (added), describe (rebuilt));
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.tabdelim;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import java.io.*;
+  import java.util.*;
+  import org.junit.After;
+  import org.junit.Before;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for reading TabDelimFile input, one character at a time and in 
+ fast input mode. 
+
+ @author Herb Bowie
+ */
+public class TabDelimFileTest {
+  
+  private File file;
+  
+  public TabDelimFileTest() {
+  }
+  
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile ("tabdelim_test", ".tab");
+  }
+  
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+  
+  private void write (String text) throws IOException {
+    Writer writer = new OutputStreamWriter 
+        (new FileOutputStream (file), "UTF-8");
+    writer.write (text);
+    writer.close();
+  }
+  
+  /**
+   Read the test file, returning the fields of each record, with the 
+   column headings first. 
+  */
+  static ArrayList<List<String>> read (File file, boolean fast, int threads) 
+      throws IOException {
+    ArrayList<List<String>> rows = new ArrayList<List<String>>();
+    TabDelimFile tabFile = new TabDelimFile (file);
+    tabFile.setFastInput (fast);
+    tabFile.setParallelInput (threads);
+    tabFile.openForInput();
+    RecordDefinition recDef = tabFile.getRecDef();
+    ArrayList<String> headings = new ArrayList<String>();
+    for (int i = 0; i < recDef.getNumberOfFields(); i++) {
+      headings.add (recDef.getDef(i).getProperName());
+    }
+    rows.add (headings);
+    DataRecord rec = tabFile.nextRecordIn();
+    while (rec != null) {
+      ArrayList<String> fields = new ArrayList<String>();
+      for (int i = 0; i < rec.getNumberOfFields(); i++) {
+        fields.add (rec.getField(i).getData());
+      }
+      rows.add (fields);
+      rec = tabFile.nextRecordIn();
+    }
+    tabFile.close();
+    return rows;
+  }
+
+  /**
+   * Test of nextRecordIn method, with quoting and mixed line endings.
+   */
+  @Test
+  public void testQuotesAndLineEndings() throws IOException {
+    write ("Name\tCity\tNote\r\n"
+        + "Joe\tParis\t\"Said \"\"hi\"\"\"\n"
+        + "  Ann\t\"Rome\tItaly\"\tTwo\r"
+        + "Bob\t'Line\nBreak'\tThree\r\n");
+    ArrayList<List<String>> rows = read (file, false, 0);
+    assertEquals ("Headings", Arrays.asList ("Name", "City", "Note"), rows.get(0));
+    assertEquals ("Doubled quotes", "Said \"hi\"", rows.get(1).get(2));
+    assertEquals ("Leading spaces skipped", "Ann", rows.get(2).get(0));
+    assertEquals ("Quoted delimiter", "Rome\tItaly", rows.get(2).get(1));
+    assertEquals ("Quoted line break", "Line\nBreak", rows.get(3).get(1));
+    assertEquals ("Number of records", 4, rows.size());
+    assertEquals ("Fast input gives same records", rows, read (file, true, 0));
+  }
+
+  /**
+   * Test of fast input mode, with fields spanning blocks of input.
+   */
+  @Test
+  public void testFieldsSpanningBlocks() throws IOException {
+    StringBuilder text = new StringBuilder ("A\tB\n");
+    StringBuilder longField = new StringBuilder();
+    for (int i = 0; i < TabDelimFile.FAST_INPUT_BUFFER_SIZE + 100; i++) {
+      longField.append ((char)('a' + (i % 26)));
+    }
+    for (int i = 0; i < 3; i++) {
+      text.append (longField);
+      text.append ("\t\"");
+      text.append (longField);
+      text.append ("\"\n");
+    }
+    write (text.toString());
+    ArrayList<List<String>> fast = read (file, true, 0);
+    assertEquals ("Number of records", 4, fast.size());
+    assertEquals ("Long field", longField.toString(), fast.get(3).get(1));
+    assertEquals ("Same as sequential input", read (file, false, 0), fast);
+  }
+  
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.tabdelim;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import java.io.*;
+  import java.util.*;
+  import org.junit.After;
+  import org.junit.Before;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for reading TabDelimFile input with several threads. 
+
+ @author Herb Bowie
+ */
+public class TabDelimParallelReaderTest {
+  
+  private File file;
+  
+  public TabDelimParallelReaderTest() {
+  }
+  
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile ("tabdelim_parallel_test", ".tab");
+  }
+  
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  /**
+   * Test that a file spanning several chunks is read in parallel with the
+   * same results, in the same order, as when read sequentially, including
+   * quoted fields with line breaks that might fall on chunk boundaries.
+   */
+  @Test
+  public void testParallelMatchesSequential() throws IOException {
+    Writer writer = new BufferedWriter (new OutputStreamWriter 
+        (new FileOutputStream (file), "UTF-8"));
+    writer.write ("Number\tText\tNote\n");
+    long bytes = 0;
+    int n = 0;
+    while (bytes < (TabDelimParallelReader.CHUNK_SIZE * 2) + 1000) {
+      String line = String.valueOf (n) + "\t"
+          + "\"quoted\nline " + String.valueOf (n) + "\"\t"
+          + "caf\u00e9 " + String.valueOf (n * 7) 
+          + ((n % 2 == 0) ? "\r\n" : "\n");
+      writer.write (line);
+      bytes = bytes + line.length();
+      n++;
+    }
+    writer.close();
+    
+    ArrayList<List<String>> sequential = TabDelimFileTest.read (file, true, 0);
+    ArrayList<List<String>> parallel = TabDelimFileTest.read (file, true, 4);
+    assertEquals ("Number of records", n + 1, parallel.size());
+    assertEquals ("Last record", String.valueOf (n - 1), 
+        parallel.get(n).get(0));
+    assertEquals ("Same records as sequential input", sequential, parallel);
+  }
+
+  /**
+   * Test that the record definition's field statistics are kept when
+   * reading in parallel.
+   */
+  @Test
+  public void testFieldStatistics() throws IOException {
+    Writer writer = new OutputStreamWriter (new FileOutputStream (file), "UTF-8");
+    writer.write ("A\tB\nx\tyy\nxxx\ty\n");
+    writer.close();
+    TabDelimFile tabFile = new TabDelimFile (file);
+    tabFile.setParallelInput (2);
+    tabFile.openForInput();
+    while (tabFile.nextRecordIn() != null) {
+    }
+    RecordDefinition recDef = tabFile.getRecDef();
+    assertEquals ("Maximum length", 3, recDef.getMaximumLength (0));
+    assertEquals ("Average length", 2, recDef.getAverageLength (0));
+    tabFile.close();
+  }
+  
+}
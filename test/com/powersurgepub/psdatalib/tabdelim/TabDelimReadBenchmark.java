@@ -0,0 +1,205 @@
+/*
+ * Copyright 1999 - 2013 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.tabdelim;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import java.io.*;
+  import java.util.*;
+
+/**
+   Measures the throughput, in megabytes per second, of reading a
+   tab-delimited file with TabDelimFile, one character at a time, in
+   fast input mode, and in parallel input mode. <p>
+
+   Usage: TabDelimReadBenchmark [file | megabytes [threads]] <p>
+
+   If a file is named, it will be read; otherwise a temporary file of the
+   given size (20 MB by default) will be generated, containing a mix of
+   plain and quoted fields and mixed line endings. Parallel input uses
+   one thread per available processor, unless a number of threads is given.
+ */
+public class TabDelimReadBenchmark {
+
+  /**
+     Runs the benchmark.
+   */
+  public static void main (String [] parms)
+      throws IOException {
+
+    File file;
+    boolean generated = false;
+    if (parms.length > 0 && new File (parms[0]).isFile()) {
+      file = new File (parms[0]);
+    } else {
+      int megabytes = 20;
+      if (parms.length > 0) {
+        megabytes = Integer.parseInt (parms[0]);
+      }
+      file = generate (megabytes);
+      generated = true;
+    }
+    int threads = Runtime.getRuntime().availableProcessors();
+    if (parms.length > 1) {
+      threads = Integer.parseInt (parms[1]);
+    }
+
+    double megabytes = file.length() / (1024.0 * 1024.0);
+    System.out.println ("Reading " + file.toString() + " ("
+        + String.format ("%.1f", megabytes) + " MB)");
+
+    // Warm up each path once before timing them
+    read (file, false, 0);
+    read (file, true, 0);
+    read (file, true, threads);
+
+    long start = System.currentTimeMillis();
+    int recordsSlow = read (file, false, 0);
+    long slowMillis = Math.max (1, System.currentTimeMillis() - start);
+
+    start = System.currentTimeMillis();
+    int recordsFast = read (file, true, 0);
+    long fastMillis = Math.max (1, System.currentTimeMillis() - start);
+
+    start = System.currentTimeMillis();
+    int recordsParallel = read (file, true, threads);
+    long parallelMillis = Math.max (1, System.currentTimeMillis() - start);
+
+    System.out.println ("Character at a time: " + String.valueOf (recordsSlow)
+        + " records, " + String.format ("%.1f", megabytes * 1000 / slowMillis)
+        + " MB/s");
+    System.out.println ("Fast input:          " + String.valueOf (recordsFast)
+        + " records, " + String.format ("%.1f", megabytes * 1000 / fastMillis)
+        + " MB/s");
+    System.out.println ("Parallel input:      " + String.valueOf (recordsParallel)
+        + " records, " + String.format ("%.1f", megabytes * 1000 / parallelMillis)
+        + " MB/s (" + String.valueOf (threads) + " threads)");
+    System.out.println ((compare (file, 0) && compare (file, threads)) 
+        ? "Same records from all modes"
+        : "RECORDS DIFFER BETWEEN MODES");
+
+    if (generated) {
+      file.delete();
+    }
+  }
+
+  /**
+     Reads every record in the file.
+
+     @param file      The file to be read.
+     @param fastInput True to use fast input mode.
+     @param threads   Number of threads for parallel input, or zero.
+
+     @return The number of records read.
+   */
+  private static int read (File file, boolean fastInput, int threads)
+      throws IOException {
+    TabDelimFile tabFile = new TabDelimFile (file);
+    tabFile.setFastInput (fastInput);
+    tabFile.setParallelInput (threads);
+    tabFile.openForInput();
+    int count = 0;
+    while (tabFile.nextRecordIn() != null) {
+      count++;
+    }
+    tabFile.close();
+    return count;
+  }
+
+  /**
+     Reads the file one character at a time and in fast input mode,
+     checking that every field matches.
+
+     @param file    The file to be read.
+     @param threads Number of threads for parallel input, or zero.
+
+     @return True if both modes returned the same records.
+   */
+  private static boolean compare (File file, int threads)
+      throws IOException {
+    TabDelimFile slow = new TabDelimFile (file);
+    slow.openForInput();
+    TabDelimFile fast = new TabDelimFile (file);
+    fast.setFastInput (true);
+    fast.setParallelInput (threads);
+    fast.openForInput();
+    boolean same = (slow.getRecDef().getNumberOfFields()
+        == fast.getRecDef().getNumberOfFields());
+    DataRecord slowRec;
+    DataRecord fastRec;
+    do {
+      slowRec = slow.nextRecordIn();
+      fastRec = fast.nextRecordIn();
+      if (slowRec == null || fastRec == null) {
+        same = same && (slowRec == fastRec);
+      } else {
+        same = same
+            && (slowRec.getNumberOfFields() == fastRec.getNumberOfFields());
+        for (int i = 0; same && i < slowRec.getNumberOfFields(); i++) {
+          same = slowRec.getField(i).getData().equals
+              (fastRec.getField(i).getData());
+        }
+      }
+    } while (same && slowRec != null);
+    slow.close();
+    fast.close();
+    return same;
+  }
+
+  /**
+     Generates a temporary tab-delimited file of roughly the requested size.
+
+     @param megabytes Desired size of the file.
+
+     @return The generated file.
+   */
+  private static File generate (int megabytes)
+      throws IOException {
+    File file = File.createTempFile ("tabdelimbenchmark", ".txt");
+    Writer out = new BufferedWriter (new OutputStreamWriter
+        (new FileOutputStream (file), "UTF-8"));
+    out.write ("Name\tAmount\tCity\tNotes\tCode\n");
+    Random random = new Random (megabytes);
+    long target = megabytes * 1024L * 1024L;
+    long written = 0;
+    String[] lineEnds = {"\n", "\r\n", "\r"};
+    while (written < target) {
+      StringBuilder line = new StringBuilder();
+      line.append ("Name ");
+      line.append (random.nextInt (100000));
+      line.append ('\t');
+      line.append (random.nextInt (1000000));
+      line.append ('\t');
+      line.append ("  City of ");
+      line.append (random.nextInt (500));
+      line.append ('\t');
+      if (random.nextInt (4) == 0) {
+        line.append ("\"A quoted note, with \"\"doubled\"\" quotes\tand a tab\"");
+      } else {
+        line.append ("A plain note that runs on for a while, as notes do");
+      }
+      line.append ('\t');
+      line.append ('X');
+      line.append (random.nextInt (10));
+      line.append (lineEnds [random.nextInt (lineEnds.length)]);
+      out.write (line.toString());
+      written = written + line.length();
+    }
+    out.close();
+    return file;
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.template;
+
+  import com.powersurgepub.psdatalib.psdata.*;
+  import org.junit.Test;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for CompiledText, and for the columns remembered by its variables.
+
+ @author Herb Bowie
+ */
+public class CompiledTextTest {
+
+  private RecordDefinition recDef;
+
+  public CompiledTextTest() {
+  }
+
+  private DataRecord buildRecord (String[] values) {
+    DataRecord rec = new DataRecord();
+    for (int i = 0; i < values.length; i++) {
+      rec.addField (recDef, values [i]);
+    }
+    return rec;
+  }
+
+  private String generate (CompiledText compiled, DataRecord rec) {
+    return compiled.generate (new TemplateUtil(), rec).getLine();
+  }
+
+  /**
+   * Test of generate, replacing variables with the fields of each record.
+   */
+  @Test
+  public void testGenerate() {
+    recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Amount");
+    CompiledText compiled = new CompiledText
+        ("<<name>> owes <<amount>>.", "<<", ">>", "&");
+    assertEquals ("First record", "a owes 1.",
+        generate (compiled, buildRecord (new String[] {"a", "1"})));
+    assertEquals ("Second record", "b owes 2.",
+        generate (compiled, buildRecord (new String[] {"b", "2"})));
+  }
+
+  /**
+   * Test of generate, finding a field added to the record definition
+   * after the variable first failed to find it.
+   */
+  @Test
+  public void testColumnAdded() {
+    recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    CompiledText compiled = new CompiledText
+        ("<<name>>:<<note>>", "<<", ">>", "&");
+    int version = recDef.getLayoutVersion();
+    assertEquals ("Field not yet defined", "a:",
+        generate (compiled, buildRecord (new String[] {"a"})));
+    recDef.addColumn ("Note");
+    assertEquals ("Layout version unchanged", version,
+        recDef.getLayoutVersion());
+    assertEquals ("Field added later", "b:x",
+        generate (compiled, buildRecord (new String[] {"b", "x"})));
+  }
+
+  /**
+   * Test of generate, after a column has been removed from the record
+   * definition.
+   */
+  @Test
+  public void testColumnRemoved() {
+    recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Amount");
+    CompiledText compiled = new CompiledText
+        ("<<amount>>", "<<", ">>", "&");
+    assertEquals ("Before remove", "1",
+        generate (compiled, buildRecord (new String[] {"a", "1"})));
+    recDef.remove (0);
+    assertEquals ("After remove", "2",
+        generate (compiled, buildRecord (new String[] {"2"})));
+  }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.template;
+
+  import com.powersurgepub.psdatalib.*;
+  import com.powersurgepub.psdatalib.psdata.*;
+  import java.io.*;
+  import java.security.*;
+  import java.util.*;
+  import org.junit.Rule;
+  import org.junit.Test;
+  import org.junit.rules.TemporaryFolder;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for OutputManifest.
+
+ @author Herb Bowie
+ */
+public class OutputManifestTest {
+
+  private static final long TIME = 1500000000000L;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public OutputManifestTest() {
+  }
+
+  private File writeFile (String name, String contents, long modified)
+      throws IOException {
+    File file = TestFiles.write (folder.getRoot(), name, contents);
+    file.setLastModified (modified);
+    return file;
+  }
+
+  private String hashOf (String name, String amount) {
+    RecordDefinition recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Amount");
+    DataRecord rec = new DataRecord();
+    rec.addField (recDef, name);
+    rec.addField (recDef, amount);
+    MessageDigest digest = OutputManifest.newDigest();
+    OutputManifest.update (digest, "template");
+    OutputManifest.update (digest, rec);
+    return OutputManifest.toHex (digest);
+  }
+
+  private List<File> listOf (File file) {
+    ArrayList<File> files = new ArrayList<File>();
+    if (file != null) {
+      files.add (file);
+    }
+    return files;
+  }
+
+  /**
+   * Test of update and toHex, hashing the fields of a data record.
+   */
+  @Test
+  public void testHash() {
+    String hash = hashOf ("a", "1");
+    assertEquals ("Hex digits", 40, hash.length());
+    assertEquals ("Same record", hash, hashOf ("a", "1"));
+    assertFalse ("Other data", hash.equals (hashOf ("a", "2")));
+    assertFalse ("Data moved between fields",
+        hashOf ("a1", "").equals (hashOf ("a", "1")));
+  }
+
+  /**
+   * Test of isCurrent, for an output file recorded with the same or
+   * different inputs.
+   */
+  @Test
+  public void testIsCurrent()
+      throws IOException {
+    File output = writeFile ("a.html", "<p>a</p>", TIME);
+    String path = output.getAbsolutePath();
+    OutputManifest manifest = new OutputManifest
+        (new File (folder.getRoot(), OutputManifest.DEFAULT_FILE_NAME));
+    assertFalse ("Not yet recorded",
+        manifest.isCurrent (path, hashOf ("a", "1")));
+    manifest.recordOutput (path, hashOf ("a", "1"), listOf (null));
+    assertTrue ("Same inputs", manifest.isCurrent (path, hashOf ("a", "1")));
+    assertFalse ("Other inputs",
+        manifest.isCurrent (path, hashOf ("a", "2")));
+    assertEquals ("Skipped", 1, manifest.getSkipped());
+  }
+
+  /**
+   * Test of isCurrent, once the output file or an include file has
+   * changed.
+   */
+  @Test
+  public void testInvalidation()
+      throws IOException {
+    File output = writeFile ("a.html", "<p>a</p>", TIME);
+    File include = writeFile ("inc.html", "included", TIME);
+    String path = output.getAbsolutePath();
+    String hash = hashOf ("a", "1");
+    OutputManifest manifest = new OutputManifest
+        (new File (folder.getRoot(), OutputManifest.DEFAULT_FILE_NAME));
+    manifest.recordOutput (path, hash, listOf (include));
+    assertTrue ("Unchanged", manifest.isCurrent (path, hash));
+
+    output.setLastModified (TIME + 60000);
+    assertTrue ("Touched but unchanged", manifest.isCurrent (path, hash));
+
+    writeFile ("a.html", "<p>b</p>", TIME + 120000);
+    assertFalse ("Output edited", manifest.isCurrent (path, hash));
+
+    writeFile ("a.html", "<p>a</p>", TIME);
+    assertTrue ("Output restored", manifest.isCurrent (path, hash));
+
+    include.setLastModified (TIME + 60000);
+    assertFalse ("Include changed", manifest.isCurrent (path, hash));
+    include.setLastModified (TIME);
+
+    output.delete();
+    assertFalse ("Output deleted", manifest.isCurrent (path, hash));
+  }
+
+  /**
+   * Test of save, and of loading the saved manifest again.
+   */
+  @Test
+  public void testSaveAndLoad()
+      throws IOException {
+    File manifestFile
+        = new File (folder.getRoot(), OutputManifest.DEFAULT_FILE_NAME);
+    File output = writeFile ("a.html", "<p>a</p>", TIME);
+    File other = writeFile ("b.html", "<p>b</p>", TIME);
+    File include = writeFile ("inc.html", "included", TIME);
+    OutputManifest manifest = new OutputManifest (manifestFile);
+    manifest.recordOutput (output.getAbsolutePath(), hashOf ("a", "1"),
+        listOf (include));
+    manifest.recordOutput (other.getAbsolutePath(), hashOf ("b", "2"),
+        listOf (null));
+    assertTrue ("Saved", manifest.save());
+
+    OutputManifest loaded = new OutputManifest (manifestFile);
+    assertTrue ("First output", loaded.isCurrent
+        (output.getAbsolutePath(), hashOf ("a", "1")));
+    assertTrue ("Second output", loaded.isCurrent
+        (other.getAbsolutePath(), hashOf ("b", "2")));
+    include.setLastModified (TIME + 60000);
+    assertFalse ("Include loaded", loaded.isCurrent
+        (output.getAbsolutePath(), hashOf ("a", "1")));
+    assertEquals ("Skipped after load", 2, loaded.getSkipped());
+  }
+
+  /**
+   * Test of loading a manifest that is not valid, which should be treated
+   * as empty.
+   */
+  @Test
+  public void testInvalidManifest()
+      throws IOException {
+    File output = writeFile ("a.html", "<p>a</p>", TIME);
+    String path = output.getAbsolutePath();
+    File manifestFile = writeFile (OutputManifest.DEFAULT_FILE_NAME,
+        "output\t" + path + "\t" + hashOf ("a", "1") + "\tx\tnot\tnumbers\n",
+        TIME);
+    OutputManifest manifest = new OutputManifest (manifestFile);
+    assertFalse ("Invalid manifest ignored",
+        manifest.isCurrent (path, hashOf ("a", "1")));
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.template;
+
+  import com.powersurgepub.psdatalib.*;
+  import com.powersurgepub.pstextio.*;
+  import java.io.*;
+  import org.junit.Rule;
+  import org.junit.Test;
+  import org.junit.rules.TemporaryFolder;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for TemplateCache.
+
+ @author Herb Bowie
+ */
+public class TemplateCacheTest {
+
+  /** Approximate size of a cached line of ten characters. */
+  private static final long LINE_BYTES = 10 * 2 + 48;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public TemplateCacheTest() {
+  }
+
+  private TemplateCache.Entry put
+      (TemplateCache cache, File file, String variant, String contents) {
+    return cache.put (file, variant, file.lastModified(), file.length(),
+        new StringLineReader (contents));
+  }
+
+  /**
+   * Test of get, returning the lines put into the cache for a file that
+   * has not changed.
+   */
+  @Test
+  public void testGet()
+      throws IOException {
+    File file
+        = TestFiles.write (folder.getRoot(), "a.txt", "line one\nline two\n");
+    TemplateCache cache = new TemplateCache();
+    assertNull ("Not yet cached", cache.get (file, ""));
+    TemplateCache.Entry entry = put (cache, file, "", "line one\nline two\n");
+    assertEquals ("Lines read", 2, entry.size());
+    assertEquals ("Second line", "line two", entry.getLine (1));
+    assertSame ("Cached entry", entry, cache.get (file, ""));
+    assertNull ("Other variant", cache.get (file, "html"));
+    assertEquals ("Files cached", 1, cache.size());
+    assertEquals ("Hits", 1, cache.getHits());
+    assertEquals ("Misses", 2, cache.getMisses());
+  }
+
+  /**
+   * Test of get, dropping a file that has changed since it was cached.
+   */
+  @Test
+  public void testChangedFile()
+      throws IOException {
+    File file = TestFiles.write (folder.getRoot(), "a.txt", "old\n");
+    TemplateCache cache = new TemplateCache();
+    put (cache, file, "", "old\n");
+    assertTrue ("Bytes counted", cache.getBytes() > 0);
+    TestFiles.write (folder.getRoot(), "a.txt", "new and longer\n");
+    assertNull ("Changed file", cache.get (file, ""));
+    assertEquals ("Changed file dropped", 0, cache.size());
+    assertEquals ("Bytes released", 0, cache.getBytes());
+  }
+
+  /**
+   * Test of put, dropping the least recently used files once the cache
+   * is over its maximum size.
+   */
+  @Test
+  public void testTrim()
+      throws IOException {
+    File a = TestFiles.write (folder.getRoot(), "a.txt", "aaaaaaaaaa\n");
+    File b = TestFiles.write (folder.getRoot(), "b.txt", "bbbbbbbbbb\n");
+    File c = TestFiles.write (folder.getRoot(), "c.txt", "cccccccccc\n");
+    TemplateCache cache = new TemplateCache();
+    cache.setMaxBytes (LINE_BYTES * 2);
+    put (cache, a, "", "aaaaaaaaaa\n");
+    put (cache, b, "", "bbbbbbbbbb\n");
+    assertNotNull ("First file used", cache.get (a, ""));
+    put (cache, c, "", "cccccccccc\n");
+    assertEquals ("Files kept", 2, cache.size());
+    assertEquals ("Bytes kept", LINE_BYTES * 2, cache.getBytes());
+    assertNull ("Least recently used dropped", cache.get (b, ""));
+    assertNotNull ("Recently used kept", cache.get (a, ""));
+    assertNotNull ("Newest kept", cache.get (c, ""));
+
+    cache.setMaxBytes (0);
+    assertEquals ("Cache emptied", 0, cache.size());
+    TemplateCache.Entry entry = put (cache, b, "", "bbbbbbbbbb\n");
+    assertEquals ("Entry returned without caching", "bbbbbbbbbb",
+        entry.getLine (0));
+    assertEquals ("Caching off", 0, cache.size());
+  }
+
+  /**
+   * Test of compileLine, reusing a compiled line only for the same
+   * delimiters.
+   */
+  @Test
+  public void testCompileLine()
+      throws IOException {
+    File file = TestFiles.write
+        (folder.getRoot(), "a.txt", "<<name>> and =$name$=\n");
+    TemplateCache cache = new TemplateCache();
+    TemplateCache.Entry entry
+        = put (cache, file, "", "<<name>> and =$name$=\n");
+    CompiledText first = entry.compileLine (0, "<<", ">>", "&");
+    assertSame ("Compiled line reused", first,
+        entry.compileLine (0, "<<", ">>", "&"));
+    CompiledText second = entry.compileLine (0, "=$", "$=", "&");
+    assertNotSame ("Other delimiters", first, second);
+    assertSame ("Latest compiled line saved", second,
+        entry.getCompiled (0));
+  }
+
+}
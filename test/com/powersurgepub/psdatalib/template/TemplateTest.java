@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 - 2017 Herb Bowie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.powersurgepub.psdatalib.template;
+
+  import com.powersurgepub.psdatalib.*;
+  import com.powersurgepub.psdatalib.psdata.*;
+  import com.powersurgepub.psutils.*;
+  import java.io.*;
+  import java.nio.file.*;
+  import java.util.*;
+  import org.junit.Rule;
+  import org.junit.Test;
+  import org.junit.rules.TemporaryFolder;
+  import static org.junit.Assert.*;
+
+/**
+ Tests for Template, writing one output file per data record.
+
+ @author Herb Bowie
+ */
+public class TemplateTest {
+
+  private static final int RECORDS = 40;
+
+  private static final String TEMPLATE
+      = "<<nextrec>>\n"
+      + "<<output \"<<name>>.txt\">>\n"
+      + "<<name>>: <<amount>>\n"
+      + "<<note&o>>\n"
+      + "<<loop>>\n"
+      + "end of file\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public TemplateTest() {
+  }
+
+  private DataSet buildDataSet () {
+    RecordDefinition recDef = new RecordDefinition();
+    recDef.addColumn ("Name");
+    recDef.addColumn ("Amount");
+    recDef.addColumn ("Note");
+    DataSet dataSet = new DataSet (recDef);
+    for (int i = 0; i < RECORDS; i++) {
+      DataRecord rec = new DataRecord();
+      rec.addField (recDef, "rec" + String.valueOf (i));
+      rec.addField (recDef, String.valueOf (i * 10));
+      rec.addField (recDef, "Note *number* " + String.valueOf (i));
+      dataSet.add (rec);
+    }
+    return dataSet;
+  }
+
+  private File generate (String name, int threads)
+      throws IOException {
+    File output = folder.newFolder (name);
+    File templateFile = TestFiles.write (output, "template.txt", TEMPLATE);
+    generate (new Template(), templateFile, threads);
+    return output;
+  }
+
+  private void generate (Template template, File templateFile, int threads)
+      throws IOException {
+    template.setThreads (threads);
+    assertTrue ("Template opened", template.openTemplate (templateFile));
+    assertTrue ("Data opened",
+        template.openData (buildDataSet(), "data.txt"));
+    assertTrue ("Output generated", template.generateOutput());
+  }
+
+  /**
+   A template writing its events to a list of messages.
+   */
+  private Template newTemplate (final List<String> messages) {
+    return new Template (new Logger (new LogOutput()) {
+      public void recordEvent (LogEvent event) {
+        messages.add (event.getMessage());
+        super.recordEvent (event);
+      }
+    });
+  }
+
+  private String read (File file)
+      throws IOException {
+    return new String (Files.readAllBytes (file.toPath()), "UTF-8");
+  }
+
+  /**
+   * Test of generateOutput, writing output files on several threads just
+   * as they would be written on one.
+   */
+  @Test
+  public void testParallel()
+      throws IOException {
+    File sequential = generate ("sequential", 1);
+    File parallel = generate ("parallel", 4);
+    for (int i = 0; i < RECORDS; i++) {
+      String name = "rec" + String.valueOf (i) + ".txt";
+      String expected = read (new File (sequential, name));
+      assertTrue ("Record data", expected.startsWith
+          ("rec" + String.valueOf (i) + ": " + String.valueOf (i * 10)));
+      assertTrue ("Markdown converted",
+          expected.indexOf ("<em>number</em>") >= 0);
+      assertTrue ("End lines", expected.indexOf ("end of file") >= 0);
+      assertEquals ("Parallel output " + name, expected,
+          read (new File (parallel, name)));
+    }
+  }
+
+  /**
+   * Test of generateOutput, run again with a manifest when nothing has
+   * changed, skipping every output file without reporting that no OUTPUT
+   * command was found.
+   */
+  @Test
+  public void testUnchangedRerun()
+      throws IOException {
+    File templateFile
+        = TestFiles.write (folder.getRoot(), "template.txt", TEMPLATE);
+    File manifestFile
+        = new File (folder.getRoot(), OutputManifest.DEFAULT_FILE_NAME);
+    for (int run = 0; run < 2; run++) {
+      ArrayList<String> messages = new ArrayList<String>();
+      Template template = newTemplate (messages);
+      OutputManifest manifest = new OutputManifest (manifestFile);
+      template.setManifest (manifest);
+      generate (template, templateFile, 4);
+      assertEquals ("Outputs skipped on run " + String.valueOf (run),
+          run * RECORDS, manifest.getSkipped());
+      assertFalse ("OUTPUT command found on run " + String.valueOf (run),
+          messages.contains ("No OUTPUT Command Found"));
+      assertFalse ("Single OUTPUT command on run " + String.valueOf (run),
+          messages.contains ("More than one OUTPUT Command Found"));
+    }
+  }
+
+}